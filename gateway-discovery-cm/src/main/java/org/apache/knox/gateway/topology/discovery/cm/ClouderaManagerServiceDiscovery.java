@@ -26,6 +26,7 @@ import com.cloudera.api.swagger.model.ApiRoleConfigList;
 import com.cloudera.api.swagger.model.ApiService;
 import com.cloudera.api.swagger.model.ApiServiceConfig;
 import com.cloudera.api.swagger.model.ApiServiceList;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.knox.gateway.GatewayServer;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.i18n.GatewaySpiMessages;
@@ -53,7 +54,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 
@@ -84,8 +92,6 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
 
   public static final String CORE_SETTINGS_TYPE = "CORE_SETTINGS";
 
-  private ServiceModelGeneratorsHolder serviceModelGeneratorsHolder = ServiceModelGeneratorsHolder.getInstance();
-
   private boolean debug;
 
   private AliasService aliasService;
@@ -99,6 +105,14 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
   private final int retrySleepSeconds = 3;  // It's been agreed that we not expose this config
   private int maxRetryAttempts = -1;
   private Collection<String> excludedServiceTypes = Collections.emptySet();
+  private int concurrency = GatewayConfig.DEFAULT_CM_SERVICE_DISCOVERY_CONCURRENCY;
+
+  /*
+   * Shared by all instances, since an instance is created per descriptor, so that the
+   * configured concurrency bounds the requests to Cloudera Manager of all discoveries.
+   * It is sized from the gateway configuration whenever an instance is created with one.
+   */
+  private static ThreadPoolExecutor discoveryExecutor;
 
   ClouderaManagerServiceDiscovery(GatewayConfig gatewayConfig) {
     this(false, gatewayConfig);
@@ -124,7 +138,38 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
       repository.setCacheEntryTTL(gatewayConfig.getClouderaManagerServiceDiscoveryRepositoryEntryTTL());
       configureRetryParams(gatewayConfig);
       excludedServiceTypes = getLowercaseStringCollection(gatewayConfig.getClouderaManagerServiceDiscoveryExcludedServiceTypes());
+      concurrency = gatewayConfig.getClouderaManagerServiceDiscoveryConcurrency();
+      configureDiscoveryExecutor(concurrency);
+    }
+  }
+
+  /*
+   * Resizes rather than replaces an existing executor, so that discoveries in progress are
+   * not left with a pool nobody shuts down.
+   */
+  static synchronized void configureDiscoveryExecutor(int concurrency) {
+    if (concurrency <= 1) {
+      return; // services are discovered one after the other, on the calling thread
+    }
+    if (discoveryExecutor == null) {
+      final ThreadPoolExecutor executor = new ThreadPoolExecutor(concurrency, concurrency, 60L, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(), new BasicThreadFactory.Builder().namingPattern("CMServiceDiscovery-%d").daemon(true).build());
+      executor.allowCoreThreadTimeOut(true);
+      discoveryExecutor = executor;
+    } else if (concurrency > discoveryExecutor.getMaximumPoolSize()) {
+      discoveryExecutor.setMaximumPoolSize(concurrency);
+      discoveryExecutor.setCorePoolSize(concurrency);
+    } else if (concurrency < discoveryExecutor.getMaximumPoolSize()) {
+      discoveryExecutor.setCorePoolSize(concurrency);
+      discoveryExecutor.setMaximumPoolSize(concurrency);
+    }
+  }
+
+  static synchronized ThreadPoolExecutor getDiscoveryExecutor(int concurrency) {
+    if (discoveryExecutor == null) {
+      configureDiscoveryExecutor(concurrency);
     }
+    return discoveryExecutor;
   }
 
   private Collection<String> getLowercaseStringCollection(Collection<String> original) {
@@ -271,40 +316,93 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
 
     log.discoveringCluster(clusterName);
 
+    final DiscoveryTimes times = new DiscoveryTimes();
     List<ApiService> serviceList = getClusterServices(client.getConfig(), servicesResourceApi);
+    final long servicesListed = System.nanoTime();
+    times.services = servicesListed - times.start;
 
       // if Legacy Cloudera Manager API Clients Compatibility is turned off, some HDFS settings are in CORE_SETTINGS
     ApiServiceConfig coreSettingsConfig = coreSettingsConfig(client, servicesResourceApi, serviceList);
-
-    Set<ServiceModel> serviceModels = new HashSet<>();
-    for (ApiService service : serviceList) {
-        serviceModels.addAll(
-          discoverService(client, clusterName, includedServices, service, servicesResourceApi, roleCollector, coreSettingsConfig));
+    times.coreSettings = System.nanoTime() - servicesListed;
+
+    // The generators keep the API client of the cluster, so a discovery must not share them with another one
+    final ServiceModelGeneratorsHolder generators = ServiceModelGeneratorsHolder.newInstance();
+    final Set<ServiceModel> serviceModels = new HashSet<>();
+    if (concurrency > 1 && serviceList.size() > 1) {
+      final ExecutorService executor = getDiscoveryExecutor(concurrency);
+      final List<Future<Set<ServiceModel>>> results = new ArrayList<>(serviceList.size());
+      for (ApiService service : serviceList) {
+        results.add(executor.submit(() ->
+          discoverService(client, clusterName, includedServices, service, servicesResourceApi, roleCollector, coreSettingsConfig, generators, times)));
+      }
+      for (Future<Set<ServiceModel>> result : results) {
+        serviceModels.addAll(getDiscoveredServiceModels(result));
+      }
+    } else {
+      for (ApiService service : serviceList) {
+          serviceModels.addAll(
+            discoverService(client, clusterName, includedServices, service, servicesResourceApi, roleCollector, coreSettingsConfig, generators, times));
+      }
     }
 
     ClouderaManagerCluster cluster = new ClouderaManagerCluster(clusterName);
     cluster.addServiceModels(serviceModels);
     log.discoveredCluster(clusterName);
+    log.discoveryPhaseTimes(clusterName, toMillis(System.nanoTime() - times.start), toMillis(times.services), toMillis(times.coreSettings),
+        toMillis(times.configurations.sum()), toMillis(times.models.sum()));
     return cluster;
   }
 
+  /*
+   * Waits for a service to be discovered. The services that are still being discovered
+   * when one of them fails are left to complete, their configurations are still cached.
+   */
+  private static Set<ServiceModel> getDiscoveredServiceModels(Future<Set<ServiceModel>> result) throws ApiException {
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ApiException(e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof ApiException) {
+        throw (ApiException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new ApiException(cause);
+    }
+  }
+
+  private static long toMillis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
   @SuppressWarnings("PMD.UnusedFormalParameter")
   private Set<ServiceModel> discoverService(DiscoveryApiClient client, String clusterName, Collection<String> includedServices,
                                             ApiService service, ServicesResourceApi servicesResourceApi,
-                                            ServiceRoleCollector roleCollector, ApiServiceConfig coreSettingsConfig) throws ApiException {
+                                            ServiceRoleCollector roleCollector, ApiServiceConfig coreSettingsConfig,
+                                            ServiceModelGeneratorsHolder generators, DiscoveryTimes times) throws ApiException {
     Set<ServiceModel> serviceModels = new HashSet<>();
-    final List<ServiceModelGenerator> modelGenerators = serviceModelGeneratorsHolder.getServiceModelGenerators(service.getType());
+    final List<ServiceModelGenerator> modelGenerators = generators.getServiceModelGenerators(service.getType());
     //if (shouldSkipServiceDiscovery(modelGenerators, includedServices)) {
       //log.skipServiceDiscovery(service.getName(), service.getType());
       //continue;
     //}
     log.discoveringService(service.getName(), service.getType());
+    final long start = System.nanoTime();
     ApiServiceConfig serviceConfig = null;
     /* no reason to check service config for CM or CORE_SETTINGS services */
     if (!CM_SERVICE_TYPE.equals(service.getType()) && !CORE_SETTINGS_TYPE.equals(service.getType())) {
       serviceConfig = getServiceConfig(client.getConfig(), servicesResourceApi, service);
     }
     ApiRoleConfigList roleConfigList = getAllServiceRoleConfigurations(client.getConfig(), roleCollector, clusterName, service);
+    final long configurationsFetched = System.nanoTime();
+    times.configurations.add(configurationsFetched - start);
     if (roleConfigList != null && roleConfigList.getItems() != null) {
       List<ApiRole> allApiRoles = new ArrayList<>();
       for (ApiRoleConfig roleConfig : roleConfigList.getItems()) {
@@ -327,6 +425,7 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
       String allServiceRoles = allApiRoles.stream().map(r -> r.getName() + " (" + r.getType() + ")").collect(Collectors.joining(", "));
       log.processedServiceRoles(service.getName(), allServiceRoles);
     }
+    times.models.add(System.nanoTime() - configurationsFetched);
 
     log.discoveredService(service.getName(), service.getType());
     return serviceModels;
@@ -396,25 +495,29 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
     log.lookupClusterServicesFromRepository();
     List<ApiService> services = repository.getServices(serviceDiscoveryConfig);
     if (services.isEmpty()) {
-      try {
-        log.lookupClusterServicesFromCM();
-        final ApiServiceList serviceList = servicesResourceApi.readServices(serviceDiscoveryConfig.getCluster(), VIEW_SUMMARY);
-        services = serviceList == null ? new ArrayList<>() : serviceList.getItems();
-
-        services = services.stream().filter(service -> {
-          if (excludedServiceTypes.contains(service.getType().toLowerCase(Locale.ROOT))) {
-            log.skipServiceDiscovery(service.getName(), service.getType());
-            return false;
-          }
-          return true;
-        }).collect(Collectors.toList());
-
-        // make sure that services are populated in the repository
-        services.forEach(service -> repository.addService(serviceDiscoveryConfig, service));
-      } catch (ApiException e) {
-        log.failedToAccessServiceConfigs(serviceDiscoveryConfig.getCluster(), e);
-        throw e;
-      }
+      // descriptors of the same cluster discovered at the same time share one request
+      services = new ArrayList<>(repository.load(serviceDiscoveryConfig, "services", () -> {
+        try {
+          log.lookupClusterServicesFromCM();
+          final ApiServiceList serviceList = servicesResourceApi.readServices(serviceDiscoveryConfig.getCluster(), VIEW_SUMMARY);
+          final List<ApiService> clusterServices = serviceList == null ? new ArrayList<>() : serviceList.getItems();
+
+          final List<ApiService> includedServices = clusterServices.stream().filter(service -> {
+            if (excludedServiceTypes.contains(service.getType().toLowerCase(Locale.ROOT))) {
+              log.skipServiceDiscovery(service.getName(), service.getType());
+              return false;
+            }
+            return true;
+          }).collect(Collectors.toList());
+
+          // make sure that services are populated in the repository
+          includedServices.forEach(service -> repository.addService(serviceDiscoveryConfig, service));
+          return includedServices;
+        } catch (ApiException e) {
+          log.failedToAccessServiceConfigs(serviceDiscoveryConfig.getCluster(), e);
+          throw e;
+        }
+      }));
     }
     /*
      Since Cloudera Manager does not have a service for itself, we will add a skeleton CM
@@ -432,16 +535,19 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
 
     if (serviceConfig == null) {
       // no service config in the repository -> query CM
-      try {
-        log.lookupServiceConfigsFromCM();
-        serviceConfig = servicesResourceApi.readServiceConfig(serviceDiscoveryConfig.getCluster(), service.getName(), VIEW_FULL);
-
-        // make sure that service config is populated in the service discovery repository to avoid subsequent CM calls
-        repository.addServiceConfig(serviceDiscoveryConfig, service, serviceConfig);
-      } catch (ApiException e) {
-        log.failedToAccessServiceConfigs(serviceDiscoveryConfig.getCluster(), e);
-        throw e;
-      }
+      serviceConfig = repository.load(serviceDiscoveryConfig, "serviceConfig/" + service.getName(), () -> {
+        try {
+          log.lookupServiceConfigsFromCM();
+          final ApiServiceConfig config = servicesResourceApi.readServiceConfig(serviceDiscoveryConfig.getCluster(), service.getName(), VIEW_FULL);
+
+          // make sure that service config is populated in the service discovery repository to avoid subsequent CM calls
+          repository.addServiceConfig(serviceDiscoveryConfig, service, config);
+          return config;
+        } catch (ApiException e) {
+          log.failedToAccessServiceConfigs(serviceDiscoveryConfig.getCluster(), e);
+          throw e;
+        }
+      });
     }
     return serviceConfig;
   }
@@ -455,25 +561,29 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
     if (roleConfigs == null) {
       // no roles in the repository -> query CM
       final String serviceName = service.getName();
-      try {
-        /* Populate roles for CM Service since they are not discoverable */
-        if (CM_SERVICE_TYPE.equalsIgnoreCase(serviceName)) {
-          roleConfigs  = CM_SERVICE_ROLE_CONFIGS;
-        } else if (CORE_SETTINGS_TYPE.equalsIgnoreCase(serviceName)) { //CORE_SETTINGS has no roles, it does not make sense to discover them
-          log.noRoles();
-        } else {
-          log.lookupRoleConfigsFromCM();
-          roleConfigs = roleCollector.getAllServiceRoleConfigurations(clusterName, serviceName);
-        }
+      roleConfigs = repository.load(serviceDiscoveryConfig, "roleConfigs/" + serviceName, () -> {
+        try {
+          ApiRoleConfigList configs = null;
+          /* Populate roles for CM Service since they are not discoverable */
+          if (CM_SERVICE_TYPE.equalsIgnoreCase(serviceName)) {
+            configs = CM_SERVICE_ROLE_CONFIGS;
+          } else if (CORE_SETTINGS_TYPE.equalsIgnoreCase(serviceName)) { //CORE_SETTINGS has no roles, it does not make sense to discover them
+            log.noRoles();
+          } else {
+            log.lookupRoleConfigsFromCM();
+            configs = roleCollector.getAllServiceRoleConfigurations(clusterName, serviceName);
+          }
 
-        // make sure that role is populated in the service discovery repository to avoid subsequent CM calls
-        if (roleConfigs != null) {
-          repository.setServiceRoleConfigs(serviceDiscoveryConfig, service, roleConfigs);
+          // make sure that role is populated in the service discovery repository to avoid subsequent CM calls
+          if (configs != null) {
+            repository.setServiceRoleConfigs(serviceDiscoveryConfig, service, configs);
+          }
+          return configs;
+        } catch (ApiException e) {
+          log.failedToAccessServiceRoleConfigs(serviceName, "N/A", clusterName, e);
+          throw e;
         }
-      } catch (ApiException e) {
-        log.failedToAccessServiceRoleConfigs(serviceName, "N/A", clusterName, e);
-        throw e;
-      }
+      });
     }
 
     return roleConfigs;
@@ -485,6 +595,18 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
     repository.clear();
   }
 
+  /*
+   * Time spent in the phases of a cluster discovery, in nanoseconds. The per-service
+   * phases are summed over all services, which may have been discovered in parallel.
+   */
+  private static final class DiscoveryTimes {
+    private final long start = System.nanoTime();
+    private long services;
+    private long coreSettings;
+    private final LongAdder configurations = new LongAdder();
+    private final LongAdder models = new LongAdder();
+  }
+
   private static class ServiceRoleDetails {
     private final ApiService service;
     private final ApiServiceConfig serviceConfig;
@@ -39,6 +39,9 @@ public interface ClouderaManagerServiceDiscoveryMessages {
   @Message(level = MessageLevel.INFO, text = "Discovered cluster \"{0}\"")
   void discoveredCluster(String clusterName);
 
+  @Message(level = MessageLevel.INFO, text = "Discovery of cluster \"{0}\" took {1} ms (listing services: {2} ms, core settings: {3} ms, service and role configurations: {4} ms, service models: {5} ms summed over all services)")
+  void discoveryPhaseTimes(String clusterName, long totalMillis, long servicesMillis, long coreSettingsMillis, long configurationsMillis, long modelsMillis);
+
   @Message(level = MessageLevel.INFO, text = "Discovering service: {0} ({1}) ...")
   void discoveringService(String serviceName, String serviceType);
 
@@ -19,6 +19,8 @@ package org.apache.knox.gateway.topology.discovery.cm;
 import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
@@ -29,6 +31,7 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.topology.discovery.ServiceDiscoveryConfig;
 
+import com.cloudera.api.swagger.client.ApiException;
 import com.cloudera.api.swagger.model.ApiRoleConfigList;
 import com.cloudera.api.swagger.model.ApiService;
 import com.cloudera.api.swagger.model.ApiServiceConfig;
@@ -39,6 +42,7 @@ class ClouderaManagerServiceDiscoveryRepository {
 
   private static final ClouderaManagerServiceDiscoveryRepository INSTANCE = new ClouderaManagerServiceDiscoveryRepository();
   private final Map<RepositoryKey, Cache<ApiService, ServiceDetails>> repository;
+  private final Map<InFlightKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
   private long cacheEntryTTL = GatewayConfig.DEFAULT_CM_SERVICE_DISCOVERY_CACHE_ENTRY_TTL;
 
   private ClouderaManagerServiceDiscoveryRepository() {
@@ -57,6 +61,47 @@ class ClouderaManagerServiceDiscoveryRepository {
     repository.clear();
   }
 
+  /**
+   * Loads something of a cluster from Cloudera Manager once for all concurrent callers:
+   * if the same resource of the same cluster is already being loaded, the caller waits for
+   * that request and gets its result, or its exception, instead of issuing another one.
+   * Results are not kept once the request completed; the loader is expected to put them
+   * into the repository.
+   *
+   * @param serviceDiscoveryConfig the discovery configuration of the cluster
+   * @param resource               identifies what is loaded within the cluster
+   * @param loader                 loads the resource
+   * @return the loaded resource
+   * @throws ApiException if the request to Cloudera Manager failed
+   */
+  @SuppressWarnings("unchecked")
+  <T> T load(ServiceDiscoveryConfig serviceDiscoveryConfig, String resource, Loader<T> loader) throws ApiException {
+    final InFlightKey key = new InFlightKey(RepositoryKey.of(serviceDiscoveryConfig), resource);
+    final CompletableFuture<Object> request = new CompletableFuture<>();
+    final CompletableFuture<Object> pending = inFlight.putIfAbsent(key, request);
+    if (pending != null) {
+      try {
+        return (T) pending.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof ApiException) {
+          throw (ApiException) e.getCause();
+        }
+        throw e;
+      }
+    }
+
+    try {
+      final T result = loader.load();
+      request.complete(result);
+      return result;
+    } catch (ApiException | RuntimeException | Error e) {
+      request.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, request);
+    }
+  }
+
   void addService(ServiceDiscoveryConfig serviceDiscoveryConfig, ApiService service) {
     getClusterServices(serviceDiscoveryConfig).put(service, new ServiceDetails());
   }
@@ -99,6 +144,31 @@ class ClouderaManagerServiceDiscoveryRepository {
     return serviceDetails == null ? null : serviceDetails.getAllServiceRoleConfigs();
   }
 
+  @FunctionalInterface
+  interface Loader<T> {
+    T load() throws ApiException;
+  }
+
+  private static final class InFlightKey {
+    private final RepositoryKey cluster;
+    private final String resource;
+
+    InFlightKey(RepositoryKey cluster, String resource) {
+      this.cluster = cluster;
+      this.resource = resource;
+    }
+
+    @Override
+    public int hashCode() {
+      return HashCodeBuilder.reflectionHashCode(this);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return EqualsBuilder.reflectionEquals(this, obj);
+    }
+  }
+
   private static final class RepositoryKey {
     private final String address;
     private final String clusterName;
@@ -39,6 +39,16 @@ public class ServiceModelGeneratorsHolder {
     return INSTANCE;
   }
 
+  /**
+   * Generators keep the API client they are given, so discoveries of different clusters that
+   * may run at the same time each need their own instances rather than the shared ones.
+   *
+   * @return a holder with new generator instances
+   */
+  public static ServiceModelGeneratorsHolder newInstance() {
+    return new ServiceModelGeneratorsHolder();
+  }
+
   public List<ServiceModelGenerator> getServiceModelGenerators(String serviceType) {
     return serviceModelGenerators.get(serviceType);
   }
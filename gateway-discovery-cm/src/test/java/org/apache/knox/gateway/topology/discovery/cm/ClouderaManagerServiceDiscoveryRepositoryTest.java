@@ -16,14 +16,23 @@
  */
 package org.apache.knox.gateway.topology.discovery.cm;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.topology.discovery.ServiceDiscoveryConfig;
@@ -32,6 +41,7 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.cloudera.api.swagger.client.ApiException;
 import com.cloudera.api.swagger.model.ApiConfig;
 import com.cloudera.api.swagger.model.ApiConfigList;
 import com.cloudera.api.swagger.model.ApiRoleConfig;
@@ -154,6 +164,74 @@ public class ClouderaManagerServiceDiscoveryRepositoryTest {
     assertFalse(containsService("HDFS-1"));
   }
 
+  @Test
+  public void testConcurrentLoadsAreCoalesced() throws Exception {
+    final AtomicInteger requests = new AtomicInteger();
+    final CountDownLatch loading = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Future<String> first = executor.submit(() -> repository.load(serviceDiscoveryConfig, "services", () -> {
+        requests.incrementAndGet();
+        loading.countDown();
+        try {
+          assertTrue(release.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+          throw new ApiException(e);
+        }
+        return "loaded";
+      }));
+      assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+      final CountDownLatch secondStarted = new CountDownLatch(1);
+      final CompletableFuture<String> second = new CompletableFuture<>();
+      final Thread secondCaller = new Thread(() -> {
+        secondStarted.countDown();
+        try {
+          second.complete(repository.load(serviceDiscoveryConfig, "services", () -> {
+            requests.incrementAndGet();
+            return "loaded again";
+          }));
+        } catch (ApiException e) {
+          second.completeExceptionally(e);
+        }
+      });
+      secondCaller.start();
+      assertTrue(secondStarted.await(10, TimeUnit.SECONDS));
+      // the second load has to be waiting for the first one before that one is released;
+      // had it issued its own request instead, it would be done already
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (secondCaller.getState() != Thread.State.WAITING && !second.isDone()) {
+        assertTrue("second load is not waiting for the first one", System.nanoTime() < deadline);
+        TimeUnit.MILLISECONDS.sleep(10);
+      }
+      release.countDown();
+
+      assertEquals("loaded", first.get(10, TimeUnit.SECONDS));
+      assertEquals("loaded", second.get(10, TimeUnit.SECONDS));
+      assertEquals(1, requests.get());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // completed loads are not remembered
+    assertEquals("reloaded", repository.load(serviceDiscoveryConfig, "services", () -> "reloaded"));
+  }
+
+  @Test
+  public void testFailedLoadIsNotRemembered() throws Exception {
+    final ApiException failure = new ApiException("CM is down");
+    try {
+      repository.load(serviceDiscoveryConfig, "services", () -> {
+        throw failure;
+      });
+      fail("Exception should have been thrown");
+    } catch (ApiException e) {
+      assertSame(failure, e);
+    }
+    assertEquals("loaded", repository.load(serviceDiscoveryConfig, "services", () -> "loaded"));
+  }
+
   private boolean containsService(String serviceName) {
     final List<ApiService> services = repository.getServices(serviceDiscoveryConfig);
     if (services != null && !services.isEmpty()) {
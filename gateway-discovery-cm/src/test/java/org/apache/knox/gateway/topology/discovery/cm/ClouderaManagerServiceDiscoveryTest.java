@@ -19,6 +19,7 @@ package org.apache.knox.gateway.topology.discovery.cm;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertNull;
 
@@ -102,6 +103,42 @@ public class ClouderaManagerServiceDiscoveryTest {
   private static final List<String> EXPECTED_API_CALLS_BY_SERVICE =
           Arrays.asList("readServices","readServiceConfig","readRolesConfig");
 
+  @Test
+  public void testDiscoveryExecutorIsSizedFromConfiguration() {
+    try {
+      GatewayConfig gwConf = EasyMock.createNiceMock(GatewayConfig.class);
+      EasyMock.expect(gwConf.getClouderaManagerServiceDiscoveryConcurrency()).andReturn(4).anyTimes();
+      EasyMock.replay(gwConf);
+      new ClouderaManagerServiceDiscovery(gwConf);
+      // The size comes from the configuration, not from the first discovery asking for the pool
+      assertEquals(4, ClouderaManagerServiceDiscovery.getDiscoveryExecutor(16).getMaximumPoolSize());
+
+      ClouderaManagerServiceDiscovery.configureDiscoveryExecutor(2);
+      assertEquals(2, ClouderaManagerServiceDiscovery.getDiscoveryExecutor(16).getCorePoolSize());
+      assertEquals(2, ClouderaManagerServiceDiscovery.getDiscoveryExecutor(16).getMaximumPoolSize());
+
+      ClouderaManagerServiceDiscovery.configureDiscoveryExecutor(6);
+      assertEquals(6, ClouderaManagerServiceDiscovery.getDiscoveryExecutor(16).getCorePoolSize());
+      assertEquals(6, ClouderaManagerServiceDiscovery.getDiscoveryExecutor(16).getMaximumPoolSize());
+    } finally {
+      ClouderaManagerServiceDiscovery.configureDiscoveryExecutor(GatewayConfig.DEFAULT_CM_SERVICE_DISCOVERY_CONCURRENCY);
+    }
+  }
+
+  @Test
+  public void testDiscoveriesDoNotShareModelGenerators() {
+    // generators keep the API client of the cluster being discovered
+    final List<ServiceModelGenerator> shared =
+        ServiceModelGeneratorsHolder.getInstance().getServiceModelGenerators(HiveServiceModelGenerator.SERVICE_TYPE);
+    final List<ServiceModelGenerator> own =
+        ServiceModelGeneratorsHolder.newInstance().getServiceModelGenerators(HiveServiceModelGenerator.SERVICE_TYPE);
+    assertEquals(shared.size(), own.size());
+    for (int i = 0; i < own.size(); i++) {
+      assertEquals(shared.get(i).getClass(), own.get(i).getClass());
+      assertNotSame(shared.get(i), own.get(i));
+    }
+  }
+
   @Test
   public void testApiClientBasicAuthentication() throws AliasServiceException {
     GatewayConfig gwConf = EasyMock.createNiceMock(GatewayConfig.class);
@@ -41,6 +41,14 @@ public class Log4jMessageLogger implements MessageLogger {
     logger.logMessage(toLevel(messageLevel), null, CLASS_NAME, caller, new SimpleMessage(messageText), thrown);
   }
 
+  /**
+   * Leaves the caller to log4j, which only looks it up if the layout reports the location.
+   */
+  @Override
+  public final void log( final String loggingClassName, final MessageLevel messageLevel, final String messageId, final String messageText, final Throwable thrown ) {
+    logger.logMessage(toLevel(messageLevel), null, loggingClassName, null, new SimpleMessage(messageText), thrown);
+  }
+
   private static Level toLevel(final MessageLevel level ) {
       return switch (level) {
           case FATAL -> Level.FATAL;
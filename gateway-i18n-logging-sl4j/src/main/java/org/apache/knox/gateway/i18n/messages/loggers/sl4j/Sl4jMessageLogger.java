@@ -40,6 +40,14 @@ public class Sl4jMessageLogger implements MessageLogger {
       };
   }
 
+  /**
+   * The caller is not reported, so it is not looked up either.
+   */
+  @Override
+  public void log( final String loggingClassName, final MessageLevel messageLevel, final String messageId, final String messageText, final Throwable thrown ) {
+    log( (StackTraceElement)null, messageLevel, messageId, messageText, thrown );
+  }
+
   @Override
   public void log( final StackTraceElement caller, final MessageLevel messageLevel, final String messageId, final String messageText, final Throwable thrown ) {
     switch( messageLevel ) {
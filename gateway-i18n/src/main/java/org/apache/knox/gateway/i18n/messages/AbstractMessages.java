@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.i18n.messages;
+
+import java.text.MessageFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Base class of the {@link Messages} implementations generated by {@link MessagesProcessor}.
+ * <p>
+ * The level, code and default pattern of each message are constants of the generated class,
+ * so a call whose level is disabled costs a level check and nothing else. Patterns of the
+ * message bundle, if there is one, override the default ones like they do for the
+ * {@link MessagesInvoker} proxy; each pattern is parsed once per locale.
+ */
+public abstract class AbstractMessages {
+
+  /**
+   * Appended to the binary name of a {@link Messages} interface to name its implementation.
+   */
+  public static final String CLASS_NAME_SUFFIX = "$Logger";
+
+  private final MessageLogger logger;
+  private final String loggingClassName;
+  private final Class<?> messagesClass;
+  private final String bundleName;
+  private final String[] names;
+  private final String[] patterns;
+  private final Map<Locale, AtomicReferenceArray<MessageFormat>> formats = new ConcurrentHashMap<>();
+
+  /**
+   * @param messagesClass the implemented {@link Messages} interface
+   * @param loggers       the factory of the logger
+   * @param loggerName    the name of the logger
+   * @param bundleName    the name of the message bundle that may override the patterns
+   * @param names         the method names, i.e. the keys of the message bundle
+   * @param patterns      the default patterns, in the order of the names
+   */
+  protected AbstractMessages( Class<?> messagesClass, MessageLoggerFactory loggers, String loggerName,
+                              String bundleName, String[] names, String[] patterns ) {
+    this.logger = loggers.getLogger( loggerName );
+    this.loggingClassName = getClass().getName();
+    this.messagesClass = messagesClass;
+    this.bundleName = bundleName;
+    this.names = names;
+    this.patterns = patterns;
+  }
+
+  protected final boolean isLoggable( MessageLevel level ) {
+    return logger.isLoggable( level );
+  }
+
+  /**
+   * @return the argument if it is a throwable whose stack trace is to be logged at the given level, else null
+   */
+  protected final Throwable stackTrace( Object arg, MessageLevel level ) {
+    return arg instanceof Throwable && logger.isLoggable( level ) ? (Throwable)arg : null;
+  }
+
+  protected final String format( int index, Object[] args ) {
+    // A parsed MessageFormat is not thread safe, each call formats with its own copy
+    return ((MessageFormat)getFormat( index ).clone()).format( args );
+  }
+
+  protected final void log( MessageLevel level, String code, String message, Throwable thrown ) {
+    logger.log( loggingClassName, level, code, message, thrown );
+  }
+
+  private MessageFormat getFormat( int index ) {
+    final AtomicReferenceArray<MessageFormat> localized = formats.computeIfAbsent( Locale.getDefault(),
+        locale -> new AtomicReferenceArray<>( names.length ) );
+    MessageFormat format = localized.get( index );
+    if( format == null ) {
+      format = new MessageFormat( getPattern( index ), Locale.ROOT );
+      localized.set( index, format );
+    }
+    return format;
+  }
+
+  private String getPattern( int index ) {
+    final ResourceBundle bundle = findBundle();
+    if( bundle != null && bundle.containsKey( names[ index ] ) ) {
+      return bundle.getString( names[ index ] );
+    }
+    return patterns[ index ];
+  }
+
+  // Only looked up when a pattern is parsed, i.e. once per message and locale
+  private ResourceBundle findBundle() {
+    try {
+      return ResourceBundle.getBundle( bundleName, Locale.getDefault(), messagesClass.getClassLoader() );
+    } catch( MissingResourceException e ) {
+      return null;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Messages[" + bundleName + "]";
+  }
+}
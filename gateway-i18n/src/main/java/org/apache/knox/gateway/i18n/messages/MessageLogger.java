@@ -23,4 +23,30 @@ public interface MessageLogger {
 
   void log( StackTraceElement caller, MessageLevel messageLevel, String messageId, String messageText, Throwable thrown );
 
+  /**
+   * Logs a message on behalf of the code that called into the given class, e.g. into a
+   * generated {@link Messages} implementation.
+   * <p>
+   * The caller is only needed to report where a message was logged from. This default looks
+   * it up right away, loggers that look it up lazily or never report it override this method.
+   *
+   * @param loggingClassName the class whose caller logs the message
+   * @param messageLevel the level of the message
+   * @param messageId the code of the message, may be null
+   * @param messageText the formatted message
+   * @param thrown the throwable to log with the message, may be null
+   */
+  default void log( String loggingClassName, MessageLevel messageLevel, String messageId, String messageText, Throwable thrown ) {
+    log( findCaller( loggingClassName ), messageLevel, messageId, messageText, thrown );
+  }
+
+  private static StackTraceElement findCaller( String loggingClassName ) {
+    return StackWalker.getInstance().walk( frames -> frames
+        .dropWhile( frame -> !frame.getClassName().equals( loggingClassName ) )
+        .dropWhile( frame -> frame.getClassName().equals( loggingClassName ) )
+        .findFirst()
+        .map( StackWalker.StackFrame::toStackTraceElement )
+        .orElse( null ) );
+  }
+
 }
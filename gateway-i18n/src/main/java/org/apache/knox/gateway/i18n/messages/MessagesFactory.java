@@ -38,13 +38,34 @@ public class MessagesFactory {
       if( anno == null ) {
         throw new IllegalArgumentException( clazz.getName() + " missing @" + Messages.class.getCanonicalName() );
       }
-      MessagesInvoker invoker = new MessagesInvoker( clazz, loggers );
-      proxy = Proxy.newProxyInstance( clazz.getClassLoader(), new Class[]{ clazz }, invoker );
+      proxy = createGenerated( clazz );
+      if( proxy == null ) {
+        MessagesInvoker invoker = new MessagesInvoker( clazz, loggers );
+        proxy = Proxy.newProxyInstance( clazz.getClassLoader(), new Class[]{ clazz }, invoker );
+      }
       proxies.put( clazz, proxy );
     }
     return (T)proxy;
   }
 
+  /**
+   * @return an instance of the implementation generated by {@link MessagesProcessor}, or null
+   * if the interface was compiled without it
+   */
+  private static Object createGenerated( Class<?> clazz ) {
+    try {
+      Class<?> generated = Class.forName( clazz.getName() + AbstractMessages.CLASS_NAME_SUFFIX, true, clazz.getClassLoader() );
+      if( !clazz.isAssignableFrom( generated ) ) {
+        return null;
+      }
+      return generated.getConstructor( MessageLoggerFactory.class ).newInstance( loggers );
+    } catch( ClassNotFoundException e ) {
+      return null;
+    } catch( ReflectiveOperationException e ) {
+      throw new IllegalStateException( "Failed to create the generated implementation of " + clazz.getName(), e );
+    }
+  }
+
   private static MessageLoggerFactory getMessageLoggerFactory() {
     MessageLoggerFactory factory;
     ServiceLoader<MessageLoggerFactory> loader = ServiceLoader.load( MessageLoggerFactory.class );
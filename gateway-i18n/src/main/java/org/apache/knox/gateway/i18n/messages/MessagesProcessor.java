@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.i18n.messages;
+
+import org.apache.knox.gateway.i18n.resources.ResourcesInvoker;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Generates an implementation of each {@link Messages} interface, which
+ * {@link MessagesFactory} prefers over a {@link MessagesInvoker} proxy.
+ * <p>
+ * The generated class resolves everything the proxy looks up by reflection on every call at
+ * build time: the level, the code and the default pattern of each message, and which
+ * parameters carry a {@link StackTrace}. Interfaces that cannot be implemented from their
+ * package, e.g. private or generic ones, are left to the proxy.
+ */
+@SupportedAnnotationTypes( "org.apache.knox.gateway.i18n.messages.Messages" )
+public class MessagesProcessor extends AbstractProcessor implements Processor {
+
+  private static final String STRING = String.class.getName();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process( Set<? extends TypeElement> annotations, RoundEnvironment roundEnv ) {
+    for( Element element : roundEnv.getElementsAnnotatedWith( Messages.class ) ) {
+      if( element.getKind() == ElementKind.INTERFACE && isAccessible( element )
+          && ((TypeElement)element).getTypeParameters().isEmpty() ) {
+        try {
+          generate( (TypeElement)element );
+        } catch( IOException e ) {
+          processingEnv.getMessager().printMessage( Diagnostic.Kind.ERROR,
+              "Failed to generate the implementation of " + element + ": " + e, element );
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isAccessible( Element element ) {
+    for( Element e = element; e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement() ) {
+      if( e.getModifiers().contains( Modifier.PRIVATE ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void generate( TypeElement type ) throws IOException {
+    final List<ExecutableElement> methods = new ArrayList<>();
+    for( ExecutableElement method : ElementFilter.methodsIn( processingEnv.getElementUtils().getAllMembers( type ) ) ) {
+      if( method.getModifiers().contains( Modifier.ABSTRACT ) ) {
+        if( !isSupported( method ) ) {
+          processingEnv.getMessager().printMessage( Diagnostic.Kind.WARNING,
+              "Messages must return void or String, " + type + " is left to the proxy", method );
+          return;
+        }
+        methods.add( method );
+      }
+    }
+
+    final Messages anno = type.getAnnotation( Messages.class );
+    final String canonicalName = type.getQualifiedName().toString();
+    final String packageName = processingEnv.getElementUtils().getPackageOf( type ).getQualifiedName().toString();
+    final String binaryName = processingEnv.getElementUtils().getBinaryName( type ).toString();
+    final String className = binaryName.substring( packageName.isEmpty() ? 0 : packageName.length() + 1 ) + AbstractMessages.CLASS_NAME_SUFFIX;
+    final String codes = Messages.DEFAULT_CODES.equals( anno.codes() ) ? canonicalName.replace( '.', '/' ) : anno.codes();
+    final String bundle = Messages.DEFAULT_BUNDLE.equals( anno.bundle() ) ? canonicalName.replace( '.', '/' ) : anno.bundle();
+    final String logger = Messages.DEFAULT_LOGGER.equals( anno.logger() ) ? canonicalName : anno.logger();
+
+    final String qualifiedClassName = packageName.isEmpty() ? className : packageName + "." + className;
+    try( Writer writer = processingEnv.getFiler().createSourceFile( qualifiedClassName, type ).openWriter();
+         PrintWriter out = new PrintWriter( writer ) ) {
+      if( !packageName.isEmpty() ) {
+        out.println( "package " + packageName + ";" );
+        out.println();
+      }
+      out.println( "@javax.annotation.processing.Generated(\"" + MessagesProcessor.class.getName() + "\")" );
+      out.println( "public final class " + className + " extends " + AbstractMessages.class.getName()
+          + " implements " + canonicalName + " {" );
+      out.println();
+      out.println( "  private static final String[] NAMES = {" );
+      for( ExecutableElement method : methods ) {
+        out.println( "    " + literal( method.getSimpleName().toString() ) + "," );
+      }
+      out.println( "  };" );
+      out.println();
+      out.println( "  private static final String[] PATTERNS = {" );
+      for( ExecutableElement method : methods ) {
+        out.println( "    " + literal( getPattern( method ) ) + "," );
+      }
+      out.println( "  };" );
+      out.println();
+      out.println( "  public " + className + "( " + MessageLoggerFactory.class.getName() + " loggers ) {" );
+      out.println( "    super( " + canonicalName + ".class, loggers, " + literal( logger ) + ", " + literal( bundle )
+          + ", NAMES, PATTERNS );" );
+      out.println( "  }" );
+      for( int i = 0; i < methods.size(); i++ ) {
+        out.println();
+        writeMethod( out, i, methods.get( i ), codes );
+      }
+      out.println( "}" );
+    }
+  }
+
+  private void writeMethod( PrintWriter out, int index, ExecutableElement method, String codes ) {
+    final Message anno = method.getAnnotation( Message.class );
+    final String level = MessageLevel.class.getName() + "." + (anno == null ? MessageLevel.INFO : anno.level()).name();
+    final String code = anno == null || anno.code() == Message.DEFAULT_CODE
+        ? null : new MessageFormat( codes, Locale.ROOT ).format( new Object[]{ anno.code() } );
+    final boolean returnsMessage = method.getReturnType().getKind() != TypeKind.VOID;
+    final List<? extends VariableElement> params = method.getParameters();
+
+    final StringBuilder signature = new StringBuilder();
+    final StringBuilder args = new StringBuilder();
+    for( int i = 0; i < params.size(); i++ ) {
+      if( i > 0 ) {
+        signature.append( ", " );
+        args.append( ", " );
+      }
+      final TypeMirror type = params.get( i ).asType();
+      if( method.isVarArgs() && i == params.size() - 1 ) {
+        signature.append( ((ArrayType)type).getComponentType() ).append( "..." );
+      } else {
+        signature.append( type );
+      }
+      signature.append( " p" ).append( i );
+      args.append( 'p' ).append( i );
+    }
+
+    out.println( "  @Override" );
+    out.println( "  public " + method.getReturnType() + " " + method.getSimpleName() + "( " + signature + " ) {" );
+    out.println( "    if( isLoggable( " + level + " ) ) {" );
+    out.println( "      final String message = format( " + index + ", "
+        + (params.isEmpty() ? "null" : "new Object[]{ " + args + " }") + " );" );
+    String thrown = "null";
+    for( int i = 0; i < params.size(); i++ ) {
+      final StackTrace stackTrace = params.get( i ).getAnnotation( StackTrace.class );
+      if( stackTrace == null ) {
+        continue;
+      }
+      final String call = "stackTrace( p" + i + ", " + MessageLevel.class.getName() + "." + stackTrace.level().name() + " )";
+      if( "null".equals( thrown ) ) {
+        out.println( "      Throwable thrown = " + call + ";" );
+        thrown = "thrown";
+      } else {
+        out.println( "      if( thrown == null ) {" );
+        out.println( "        thrown = " + call + ";" );
+        out.println( "      }" );
+      }
+    }
+    out.println( "      log( " + level + ", " + (code == null ? "null" : literal( code )) + ", message, " + thrown + " );" );
+    if( returnsMessage ) {
+      out.println( "      return message;" );
+    }
+    out.println( "    }" );
+    if( returnsMessage ) {
+      out.println( "    return null;" );
+    }
+    out.println( "  }" );
+  }
+
+  private boolean isSupported( ExecutableElement method ) {
+    final TypeMirror returnType = method.getReturnType();
+    return method.getTypeParameters().isEmpty()
+        && (returnType.getKind() == TypeKind.VOID || STRING.equals( returnType.toString() ));
+  }
+
+  private static String getPattern( ExecutableElement method ) {
+    final Message anno = method.getAnnotation( Message.class );
+    final String pattern = anno == null ? null : anno.text();
+    if( pattern == null || Message.DEFAULT_TEXT.equals( pattern ) ) {
+      return ResourcesInvoker.getDefaultPattern( method.getSimpleName().toString(), method.getParameters().size() );
+    }
+    return pattern;
+  }
+
+  private static String literal( String value ) {
+    final StringBuilder literal = new StringBuilder( value.length() + 2 ).append( '"' );
+    for( int i = 0; i < value.length(); i++ ) {
+      final char c = value.charAt( i );
+      switch( c ) {
+        case '"':  literal.append( "\\\"" ); break;
+        case '\\': literal.append( "\\\\" ); break;
+        case '\n': literal.append( "\\n" ); break;
+        case '\r': literal.append( "\\r" ); break;
+        case '\t': literal.append( "\\t" ); break;
+        default:
+          if( c < 0x20 || c > 0x7e ) {
+            literal.append( String.format( Locale.ROOT, "\\u%04x", (int)c ) );
+          } else {
+            literal.append( c );
+          }
+      }
+    }
+    return literal.append( '"' ).toString();
+  }
+}
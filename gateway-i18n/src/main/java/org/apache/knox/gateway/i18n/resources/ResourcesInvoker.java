@@ -86,9 +86,17 @@ public class ResourcesInvoker implements InvocationHandler {
   }
 
   protected static String getDefaultPattern(final Method method ) {
-    final String prefix = method.getName();
+    return getDefaultPattern( method.getName(), method.getParameterCount() );
+  }
+
+  /**
+   * @param name   the name of the method
+   * @param params the number of parameters of the method
+   * @return the pattern of a method without text, its name and quoted parameters
+   */
+  public static String getDefaultPattern( final String name, final int params ) {
+    final String prefix = name;
     String suffix;
-    final int params = method.getParameterTypes().length;
     switch( params ) {
       case( 0 )  : suffix = ""; break;
       case( 1 )  : suffix = "(\"{0}\")"; break;
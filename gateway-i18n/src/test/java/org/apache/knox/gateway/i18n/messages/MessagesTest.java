@@ -25,12 +25,33 @@ import org.apache.knox.test.category.UnitTests;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 @Category( { UnitTests.class, FastTests.class } )
 public class MessagesTest {
+
+  @Messages( logger="stack.trace.logger.name" )
+  public interface StackTraceSubject {
+    @Message( level=MessageLevel.WARN, text="Failed: {0}" )
+    String failed( String cause, @StackTrace( level=MessageLevel.ERROR ) Exception e );
+
+    String withoutAnnotation( String name, int count );
+  }
+
+  @Messages( logger="private.logger.name", codes="P{0}" )
+  private interface PrivateSubject {
+    @Message( level=MessageLevel.WARN, code=5, text="private {0}" )
+    void withParameter( String x );
+  }
+
   @Test
   public void testFirst() {
     MessagesSubject log = MessagesFactory.get( MessagesSubject.class );
@@ -44,5 +65,50 @@ public class MessagesTest {
 
     assertThat( record.getCaller().getClassName(), is( this.getClass().getName() ) );
     assertThat( record.getCaller().getMethodName(), is( "testFirst" ) );
+    assertThat( record.getLevel(), is( MessageLevel.ERROR ) );
+    assertThat( record.getId(), is( "ID:3" ) );
+    assertThat( record.getMessage(), is( "p0=7" ) );
+    assertThat( log, instanceOf( AbstractMessages.class ) );
+    assertThat( Proxy.isProxyClass( log.getClass() ), is( false ) );
+    assertThat( MessagesFactory.get( MessagesSubject.class ), sameInstance( log ) );
+  }
+
+  @Test
+  public void testGeneratedStackTraceAndDefaultPattern() {
+    StackTraceSubject log = MessagesFactory.get( StackTraceSubject.class );
+    IOException e = new IOException( "test" );
+
+    assertThat( log.failed( "broken", e ), is( "Failed: broken" ) );
+    assertThat( log.withoutAnnotation( "name", 2 ), is( "withoutAnnotation(\"name\",\"2\")" ) );
+
+    TestMessageLogger logger = (TestMessageLogger)TestMessageLoggerFactory.getFactory().getLogger( "stack.trace.logger.name" );
+    assertThat( logger.records.size(), equalTo( 2 ) );
+
+    TestMessageRecord record = logger.records.get( 0 );
+    assertThat( record.getLevel(), is( MessageLevel.WARN ) );
+    assertThat( record.getId(), nullValue() );
+    assertThat( record.getThrowable(), sameInstance( e ) );
+    assertThat( record.getCaller().getMethodName(), is( "testGeneratedStackTraceAndDefaultPattern" ) );
+
+    record = logger.records.get( 1 );
+    assertThat( record.getLevel(), is( MessageLevel.INFO ) );
+    assertThat( record.getThrowable(), nullValue() );
+  }
+
+  @Test
+  public void testPrivateInterfaceFallsBackToProxy() {
+    PrivateSubject log = MessagesFactory.get( PrivateSubject.class );
+    assertThat( Proxy.isProxyClass( log.getClass() ), is( true ) );
+
+    log.withParameter( "x" );
+
+    TestMessageLogger logger = (TestMessageLogger)TestMessageLoggerFactory.getFactory().getLogger( "private.logger.name" );
+    assertThat( logger.records.size(), equalTo( 1 ) );
+
+    TestMessageRecord record = logger.records.get( 0 );
+    assertThat( record.getId(), is( "P5" ) );
+    assertThat( record.getMessage(), is( "private x" ) );
+    assertThat( record.getCaller().getClassName(), is( this.getClass().getName() ) );
+    assertThat( record.getCaller().getMethodName(), is( "testPrivateInterfaceFallsBackToProxy" ) );
   }
 }
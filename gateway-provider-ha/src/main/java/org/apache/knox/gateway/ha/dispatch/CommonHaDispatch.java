@@ -266,6 +266,20 @@ public interface CommonHaDispatch {
         }
     }
 
+    /**
+     * Reports the time a successful request took, including its response body, to the HA provider,
+     * which latency aware URL managers use to weigh their selection.
+     *
+     * @param outboundRequest the request whose response was relayed
+     * @param startNanos      {@link System#nanoTime()} taken before the request was sent
+     */
+    default void markEndpointSucceeded(final HttpUriRequest outboundRequest, final long startNanos) {
+        if (getHaConfigurations().getHaProvider() != null) {
+            getHaConfigurations().getHaProvider().markSucceededURL(getServiceRole(), outboundRequest.getURI().toString(),
+                    System.nanoTime() - startNanos);
+        }
+    }
+
     default HttpServletRequest prepareForFailover(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest) {
         //null out target url so that rewriters run again
         inboundRequest.setAttribute(AbstractGatewayFilter.TARGET_REQUEST_URL_ATTRIBUTE_NAME, null);
@@ -112,8 +112,11 @@ public class ConfigurableHADispatch extends ConfigurableDispatch implements Comm
       IOException {
     HttpResponse inboundResponse = null;
     try {
+      final long startNanos = System.nanoTime();
       inboundResponse = executeOutboundRequest(outboundRequest);
       writeOutboundResponse(outboundRequest, inboundRequest, outboundResponse, inboundResponse);
+      // includes reading the response body, which is what a slow backend is slow at
+      markEndpointSucceeded(outboundRequest, startNanos);
     } catch ( IOException e ) {
       /* if non-idempotent requests are not allowed to failover, unless it's a connection error */
       if(!isConnectionError(e.getCause()) && isNonIdempotentAndNonIdempotentFailoverDisabled(outboundRequest)) {
@@ -79,4 +79,15 @@ public interface HaProvider {
    * @param serviceName the name of the service
    */
   List<String> getURLs(String serviceName);
+
+  /**
+   * Reports that the URL for the service answered a request and how long it took,
+   * so that latency aware URL managers can weigh their selection.
+   *
+   * @param serviceName  the name of the service
+   * @param url          the URL that served the request
+   * @param elapsedNanos the time it took to receive the whole response
+   */
+  default void markSucceededURL(String serviceName, String url, long elapsedNanos) {
+  }
 }
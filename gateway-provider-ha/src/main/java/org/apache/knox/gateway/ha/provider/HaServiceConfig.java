@@ -67,4 +67,16 @@ public interface HaServiceConfig {
 
   void setFailoverNonIdempotentRequestEnabled(boolean failoverNonIdempotentRequestEnabled);
 
+  String getUrlSelectionStrategy();
+
+  void setUrlSelectionStrategy(String urlSelectionStrategy);
+
+  String getHealthCheckPath();
+
+  void setHealthCheckPath(String healthCheckPath);
+
+  int getHealthCheckInterval();
+
+  void setHealthCheckInterval(int healthCheckInterval);
+
 }
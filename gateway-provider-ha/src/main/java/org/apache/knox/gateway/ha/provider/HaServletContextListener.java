@@ -17,12 +17,17 @@
  */
 package org.apache.knox.gateway.ha.provider;
 
+import org.apache.http.ssl.SSLContexts;
 import org.apache.knox.gateway.ha.provider.impl.DefaultHaProvider;
 import org.apache.knox.gateway.ha.provider.impl.HaDescriptorManager;
+import org.apache.knox.gateway.ha.provider.impl.i18n.HaMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.services.ServiceType;
 import org.apache.knox.gateway.services.GatewayServices;
 import org.apache.knox.gateway.services.registry.ServiceRegistry;
+import org.apache.knox.gateway.services.security.KeystoreService;
 
+import javax.net.ssl.SSLContext;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
@@ -30,9 +35,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.security.KeyStore;
 import java.util.List;
 
 public class HaServletContextListener implements ServletContextListener {
+   private static final HaMessages LOG = MessagesFactory.get(HaMessages.class);
+
    public static final String PROVIDER_ATTRIBUTE_NAME = "haProvider";
    public static final String DESCRIPTOR_LOCATION_INIT_PARAM_NAME = "haDescriptorLocation";
    public static final String DESCRIPTOR_DEFAULT_FILE_NAME = "ha.xml";
@@ -53,6 +61,10 @@ public class HaServletContextListener implements ServletContextListener {
 
    @Override
    public void contextDestroyed(ServletContextEvent event) {
+      HaProvider provider = getHaProvider(event.getServletContext());
+      if (provider instanceof DefaultHaProvider) {
+         ((DefaultHaProvider) provider).destroy();
+      }
       event.getServletContext().removeAttribute(PROVIDER_ATTRIBUTE_NAME);
    }
 
@@ -64,7 +76,7 @@ public class HaServletContextListener implements ServletContextListener {
       GatewayServices services = (GatewayServices) servletContext.getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE);
       String clusterName = (String) servletContext.getAttribute(GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE);
       ServiceRegistry serviceRegistry = services.getService(ServiceType.SERVICE_REGISTRY_SERVICE);
-      HaProvider provider = new DefaultHaProvider(descriptor);
+      HaProvider provider = new DefaultHaProvider(descriptor, createSslContext(services));
       List<String> serviceNames = descriptor.getEnabledServiceNames();
       for (String serviceName : serviceNames) {
          provider.addHaService(serviceName, serviceRegistry.lookupServiceURLs(clusterName, serviceName));
@@ -72,6 +84,24 @@ public class HaServletContextListener implements ServletContextListener {
       servletContext.setAttribute(PROVIDER_ATTRIBUTE_NAME, provider);
    }
 
+   /*
+    * Trusts what the dispatch clients trust without two-way SSL: the truststore configured
+    * for HTTP clients in gateway-site, otherwise the JVM default.
+    */
+   private static SSLContext createSslContext(GatewayServices services) {
+      KeystoreService keystoreService = services.getService(ServiceType.KEYSTORE_SERVICE);
+      if (keystoreService == null) {
+         return null;
+      }
+      try {
+         KeyStore truststore = keystoreService.getTruststoreForHttpClient();
+         return truststore == null ? null : SSLContexts.custom().loadTrustMaterial(truststore, null).build();
+      } catch (Exception e) {
+         LOG.failedToCreateSslContext(e.toString());
+         return null;
+      }
+   }
+
    private static URL locateDescriptor(ServletContext context) throws IOException {
       String param = context.getInitParameter(DESCRIPTOR_LOCATION_INIT_PARAM_NAME);
       if (param == null) {
@@ -17,6 +17,7 @@
  */
 package org.apache.knox.gateway.ha.provider;
 
+import javax.net.ssl.SSLContext;
 import java.util.List;
 
 public interface URLManager {
@@ -35,4 +36,29 @@ public interface URLManager {
   void markFailed(String url);
 
   void makeNextActiveURLAvailable();
+
+  /**
+   * Reports a request that the given URL answered, along with how long it took.
+   * Managers that do not weigh their URLs by observed latency ignore it.
+   *
+   * @param url          the URL that served the request
+   * @param elapsedNanos the time between sending the request and receiving the whole response
+   */
+  default void markSucceeded(String url, long elapsedNanos) {
+  }
+
+  /**
+   * Provides the SSL context the gateway uses for its HTTP clients, for managers that
+   * contact the URLs themselves, e.g. for health checks.
+   *
+   * @param sslContext the SSL context, <code>null</code> for the JVM default
+   */
+  default void setSslContext(SSLContext sslContext) {
+  }
+
+  /**
+   * Releases any background resources (e.g. health checks) held by this manager.
+   */
+  default void destroy() {
+  }
 }
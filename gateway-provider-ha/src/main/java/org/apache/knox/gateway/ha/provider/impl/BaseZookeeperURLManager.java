@@ -116,9 +116,11 @@ public abstract class BaseZookeeperURLManager implements URLManager {
   }
 
   @Override
-  public void makeNextActiveURLAvailable() {
+  public synchronized void makeNextActiveURLAvailable() {
     String head = urls.poll();
-    urls.offer(head);
+    if (head != null) {
+      urls.offer(head);
+    }
   }
 
   @Override
@@ -17,10 +17,10 @@
  */
 package org.apache.knox.gateway.ha.provider.impl;
 
+import javax.net.ssl.SSLContext;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.knox.gateway.ha.provider.HaDescriptor;
 import org.apache.knox.gateway.ha.provider.HaProvider;
@@ -30,6 +30,11 @@ import org.apache.knox.gateway.ha.provider.URLManagerLoader;
 import org.apache.knox.gateway.ha.provider.impl.i18n.HaMessages;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 
+/**
+ * Routes HA calls to the {@link URLManager} of each service. URL managers are
+ * expected to be thread safe, so no lock is held here; a provider wide lock would
+ * serialize every request that rotates or reads the active URL.
+ */
 public class DefaultHaProvider implements HaProvider {
 
   private static final HaMessages LOG = MessagesFactory.get(HaMessages.class);
@@ -38,13 +43,23 @@ public class DefaultHaProvider implements HaProvider {
 
   private ConcurrentHashMap<String, URLManager> haServices;
 
-  private ReentrantReadWriteLock rwl = new ReentrantReadWriteLock(true);
+  private final SSLContext sslContext;
 
   public DefaultHaProvider(HaDescriptor descriptor) {
+    this(descriptor, null);
+  }
+
+  /**
+   * @param descriptor the HA configuration of the topology
+   * @param sslContext the SSL context for URL managers that contact the URLs themselves,
+   *                   <code>null</code> for the JVM default
+   */
+  public DefaultHaProvider(HaDescriptor descriptor, SSLContext sslContext) {
     if ( descriptor == null ) {
       throw new IllegalArgumentException("Descriptor can not be null");
     }
     this.descriptor = descriptor;
+    this.sslContext = sslContext;
     haServices = new ConcurrentHashMap<>();
   }
 
@@ -57,8 +72,12 @@ public class DefaultHaProvider implements HaProvider {
   public void addHaService(String serviceName, List<String> urls) {
     HaServiceConfig haServiceConfig = descriptor.getServiceConfig(serviceName);
     URLManager manager = URLManagerLoader.loadURLManager(haServiceConfig);
+    manager.setSslContext(sslContext);
     manager.setURLs(urls);
-    haServices.put(serviceName, manager);
+    URLManager previous = haServices.put(serviceName, manager);
+    if (previous != null) {
+      previous.destroy();
+    }
   }
 
   @Override
@@ -69,69 +88,70 @@ public class DefaultHaProvider implements HaProvider {
 
   @Override
   public String getActiveURL(String serviceName) {
-    rwl.readLock().lock();
-    try {
-      if (haServices.containsKey(serviceName)) {
-        return haServices.get(serviceName).getActiveURL();
-      }
-      LOG.noActiveUrlFound(serviceName);
-      return null;
-    } finally {
-      rwl.readLock().unlock();
+    URLManager manager = haServices.get(serviceName);
+    if (manager != null) {
+      return manager.getActiveURL();
     }
+    LOG.noActiveUrlFound(serviceName);
+    return null;
   }
 
   @Override
   public void setActiveURL(String serviceName, String url) {
-    rwl.writeLock().lock();
-    try {
-      if (haServices.containsKey(serviceName)) {
-        haServices.get(serviceName).setActiveURL(url);
-      } else {
-        LOG.noServiceFound(serviceName);
-      }
-    }
-    finally {
-      rwl.writeLock().unlock();
+    URLManager manager = haServices.get(serviceName);
+    if (manager != null) {
+      manager.setActiveURL(url);
+    } else {
+      LOG.noServiceFound(serviceName);
     }
-
   }
 
   @Override
   public void markFailedURL(String serviceName, String url) {
-    rwl.writeLock().lock();
-    try {
-      if (haServices.containsKey(serviceName)) {
-        haServices.get(serviceName).markFailed(url);
-      } else {
-        LOG.noServiceFound(serviceName);
-      }
-    } finally {
-      rwl.writeLock().unlock();
+    URLManager manager = haServices.get(serviceName);
+    if (manager != null) {
+      manager.markFailed(url);
+    } else {
+      LOG.noServiceFound(serviceName);
+    }
+  }
+
+  @Override
+  public void markSucceededURL(String serviceName, String url, long elapsedNanos) {
+    URLManager manager = haServices.get(serviceName);
+    if (manager != null) {
+      manager.markSucceeded(url, elapsedNanos);
     }
   }
 
   @Override
   public void makeNextActiveURLAvailable(String serviceName) {
-    rwl.writeLock().lock();
-    try {
-      if (haServices.containsKey(serviceName)) {
-        haServices.get(serviceName).makeNextActiveURLAvailable();
-      } else {
-        LOG.noServiceFound(serviceName);
-      }
-    } finally {
-      rwl.writeLock().unlock();
+    URLManager manager = haServices.get(serviceName);
+    if (manager != null) {
+      manager.makeNextActiveURLAvailable();
+    } else {
+      LOG.noServiceFound(serviceName);
     }
   }
 
   @Override
   public List<String> getURLs(String serviceName) {
-    if ( haServices.containsKey(serviceName) ) {
-      return haServices.get(serviceName).getURLs();
+    URLManager manager = haServices.get(serviceName);
+    if (manager != null) {
+      return manager.getURLs();
     } else {
       LOG.noServiceFound(serviceName);
       return Collections.emptyList();
     }
   }
+
+  /**
+   * Stops the background work of all URL managers, e.g. when the topology is undeployed.
+   */
+  public void destroy() {
+    for (URLManager manager : haServices.values()) {
+      manager.destroy();
+    }
+    haServices.clear();
+  }
 }
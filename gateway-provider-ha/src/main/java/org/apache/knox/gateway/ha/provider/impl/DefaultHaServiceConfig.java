@@ -45,6 +45,12 @@ public class DefaultHaServiceConfig implements HaServiceConfig, HaServiceConfigC
 
   private String disableStickySessionForUserAgents;
 
+  private String urlSelectionStrategy = DEFAULT_URL_SELECTION_STRATEGY;
+
+  private String healthCheckPath = DEFAULT_HEALTH_CHECK_PATH;
+
+  private int healthCheckInterval = DEFAULT_HEALTH_CHECK_INTERVAL;
+
   public DefaultHaServiceConfig(String name) {
     this.name = name;
   }
@@ -169,4 +175,34 @@ public class DefaultHaServiceConfig implements HaServiceConfig, HaServiceConfigC
       boolean failoverNonIdempotentRequestEnabled) {
     this.failoverNonIdempotentRequestEnabled = failoverNonIdempotentRequestEnabled;
   }
+
+  @Override
+  public String getUrlSelectionStrategy() {
+    return urlSelectionStrategy;
+  }
+
+  @Override
+  public void setUrlSelectionStrategy(String urlSelectionStrategy) {
+    this.urlSelectionStrategy = urlSelectionStrategy;
+  }
+
+  @Override
+  public String getHealthCheckPath() {
+    return healthCheckPath;
+  }
+
+  @Override
+  public void setHealthCheckPath(String healthCheckPath) {
+    this.healthCheckPath = healthCheckPath;
+  }
+
+  @Override
+  public int getHealthCheckInterval() {
+    return healthCheckInterval;
+  }
+
+  @Override
+  public void setHealthCheckInterval(int healthCheckInterval) {
+    this.healthCheckInterval = healthCheckInterval;
+  }
 }
@@ -24,14 +24,20 @@ import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Keeps the URLs of a service in an immutable snapshot whose head is the active URL.
+ * Every change swaps in a new snapshot, so readers never block and concurrent requests
+ * for the same service do not contend on a monitor.
+ */
 public class DefaultURLManager implements URLManager {
 
   private static final HaMessages LOG = MessagesFactory.get(HaMessages.class);
 
-  private final ConcurrentLinkedQueue<String> urls = new ConcurrentLinkedQueue<>();
+  private final AtomicReference<List<String>> urls = new AtomicReference<>(Collections.emptyList());
 
   @Override
   public boolean supportsConfig(HaServiceConfig config) {
@@ -44,62 +50,76 @@ public class DefaultURLManager implements URLManager {
   }
 
   @Override
-  public synchronized String getActiveURL() {
-    return urls.peek();
+  public String getActiveURL() {
+    return head(urls.get());
   }
 
   @Override
-  public synchronized void setActiveURL(String url) {
-    String top = urls.peek();
-    if (top.equalsIgnoreCase(url)) {
-      return;
-    }
-    if (urls.contains(url)) {
-      urls.remove(url);
-      List<String> remainingList = getURLs();
-      urls.clear();
-      urls.add(url);
-      urls.addAll(remainingList);
-    }
+  public void setActiveURL(String url) {
+    urls.updateAndGet(current -> {
+      String top = head(current);
+      if (top == null || top.equalsIgnoreCase(url) || !current.contains(url)) {
+        return current;
+      }
+      List<String> updated = new ArrayList<>(current.size());
+      updated.add(url);
+      for (String candidate : current) {
+        if (!candidate.equals(url)) {
+          updated.add(candidate);
+        }
+      }
+      return Collections.unmodifiableList(updated);
+    });
   }
 
   @Override
-  public synchronized List<String> getURLs() {
-    return new ArrayList<>(urls);
+  public List<String> getURLs() {
+    return new ArrayList<>(urls.get());
   }
 
   @Override
-  public synchronized void setURLs(List<String> urls) {
+  public void setURLs(List<String> urls) {
     if (urls != null && !urls.isEmpty()) {
-      this.urls.clear();
-      this.urls.addAll(urls);
+      this.urls.set(Collections.unmodifiableList(new ArrayList<>(urls)));
     }
   }
 
   @Override
-  public synchronized void markFailed(String url) {
-    String top = urls.peek();
-    if (top != null) {
-      boolean pushToBottom = false;
-      URI topUri = URI.create(top);
-      URI incomingUri = URI.create(url);
-      String topHostPort = topUri.getHost() + ":" + topUri.getPort();
-      String incomingHostPort = incomingUri.getHost() + ":" + incomingUri.getPort();
-      if (topHostPort.equals(incomingHostPort)) {
-        pushToBottom = true;
-      }
+  public void markFailed(String url) {
+    List<String> previous = urls.getAndUpdate(current -> {
+      String top = head(current);
       //put the failed url at the bottom
-      if (pushToBottom) {
-        String failed = urls.poll();
-        urls.offer(failed);
-        LOG.markedFailedUrl(failed, urls.peek());
+      if (top != null && hostPort(top).equals(hostPort(url))) {
+        return rotate(current);
       }
+      return current;
+    });
+    String top = head(previous);
+    if (top != null && hostPort(top).equals(hostPort(url))) {
+      LOG.markedFailedUrl(top, getActiveURL());
     }
   }
 
   @Override
-  public synchronized void makeNextActiveURLAvailable() {
-    String head = urls.poll();
-    urls.offer(head);
+  public void makeNextActiveURLAvailable() {
+    urls.updateAndGet(DefaultURLManager::rotate);
+  }
+
+  private static String head(List<String> snapshot) {
+    return snapshot.isEmpty() ? null : snapshot.get(0);
+  }
+
+  private static List<String> rotate(List<String> snapshot) {
+    if (snapshot.size() < 2) {
+      return snapshot;
+    }
+    List<String> rotated = new ArrayList<>(snapshot.subList(1, snapshot.size()));
+    rotated.add(snapshot.get(0));
+    return Collections.unmodifiableList(rotated);
+  }
+
+  static String hostPort(String url) {
+    URI uri = URI.create(url);
+    return uri.getHost() + ":" + uri.getPort();
   }
 }
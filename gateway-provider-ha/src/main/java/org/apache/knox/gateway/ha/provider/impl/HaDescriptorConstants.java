@@ -61,4 +61,10 @@ public interface HaDescriptorConstants {
     * default is false (no).
     */
    String FAILOVER_NON_IDEMPOTENT = "failoverNonIdempotentRequestEnabled";
+
+   String URL_SELECTION_STRATEGY = "urlSelectionStrategy";
+
+   String HEALTH_CHECK_PATH = "healthCheckPath";
+
+   String HEALTH_CHECK_INTERVAL = "healthCheckInterval";
 }
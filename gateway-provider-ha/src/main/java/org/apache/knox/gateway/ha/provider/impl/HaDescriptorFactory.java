@@ -44,8 +44,32 @@ public abstract class HaDescriptorFactory implements HaServiceConfigConstants {
     final String stickySessionCookieName = configMap.getOrDefault(STICKY_SESSION_COOKIE_NAME, DEFAULT_STICKY_SESSION_COOKIE_NAME);
     final boolean failoverNonIdempotentRequestEnabled = Boolean.parseBoolean(configMap.getOrDefault(FAILOVER_NON_IDEMPOTENT, Boolean.toString(DEFAULT_FAILOVER_NON_IDEMPOTENT)));
     final String disableLoadBalancingForUserAgentsConfig = configMap.getOrDefault(DISABLE_LB_USER_AGENTS, DEFAULT_DISABLE_LB_USER_AGENTS);
-    return createServiceConfig(serviceName, enabled, maxFailoverAttempts, failoverSleep, zookeeperEnsemble, zookeeperNamespace, stickySessionsEnabled, loadBalancingEnabled,
+    final HaServiceConfig serviceConfig = createServiceConfig(serviceName, enabled, maxFailoverAttempts, failoverSleep, zookeeperEnsemble, zookeeperNamespace, stickySessionsEnabled, loadBalancingEnabled,
             stickySessionCookieName, noFallbackEnabled, disableLoadBalancingForUserAgentsConfig, failoverNonIdempotentRequestEnabled);
+    configureUrlSelection(serviceConfig, configMap.get(CONFIG_URL_SELECTION_STRATEGY),
+        configMap.get(CONFIG_HEALTH_CHECK_PATH), configMap.get(CONFIG_HEALTH_CHECK_INTERVAL));
+    return serviceConfig;
+  }
+
+  /**
+   * Applies the URL selection settings to the service config, keeping the defaults for blank values.
+   *
+   * @param serviceConfig the config to update
+   * @param urlSelectionStrategyValue either roundRobin or weighted
+   * @param healthCheckPathValue path appended to each URL when probing it
+   * @param healthCheckIntervalValue milliseconds between probes, 0 disables them
+   */
+  public static void configureUrlSelection(HaServiceConfig serviceConfig, String urlSelectionStrategyValue,
+                                           String healthCheckPathValue, String healthCheckIntervalValue) {
+    if (StringUtils.isNotBlank(urlSelectionStrategyValue)) {
+      serviceConfig.setUrlSelectionStrategy(urlSelectionStrategyValue.trim());
+    }
+    if (StringUtils.isNotBlank(healthCheckPathValue)) {
+      serviceConfig.setHealthCheckPath(healthCheckPathValue.trim());
+    }
+    if (StringUtils.isNotBlank(healthCheckIntervalValue)) {
+      serviceConfig.setHealthCheckInterval(Integer.parseInt(healthCheckIntervalValue.trim()));
+    }
   }
 
   public static HaServiceConfig createServiceConfig(String serviceName, String enabledValue,
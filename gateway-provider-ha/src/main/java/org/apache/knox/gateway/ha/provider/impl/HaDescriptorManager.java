@@ -70,6 +70,13 @@ public class HaDescriptorManager implements HaDescriptorConstants {
                   serviceElement.setAttribute(DISABLE_LB_USER_AGENTS, config.getStickySessionDisabledUserAgents());
                }
                serviceElement.setAttribute(FAILOVER_NON_IDEMPOTENT, Boolean.toString(config.isFailoverNonIdempotentRequestEnabled()));
+               if (config.getUrlSelectionStrategy() != null) {
+                  serviceElement.setAttribute(URL_SELECTION_STRATEGY, config.getUrlSelectionStrategy());
+               }
+               if (config.getHealthCheckPath() != null && !config.getHealthCheckPath().isEmpty()) {
+                  serviceElement.setAttribute(HEALTH_CHECK_PATH, config.getHealthCheckPath());
+               }
+               serviceElement.setAttribute(HEALTH_CHECK_INTERVAL, Integer.toString(config.getHealthCheckInterval()));
                root.appendChild(serviceElement);
             }
          }
@@ -102,6 +109,10 @@ public class HaDescriptorManager implements HaDescriptorConstants {
                      element.getAttribute(ENABLE_NO_FALLBACK),
                      element.getAttribute(DISABLE_LB_USER_AGENTS),
                      element.getAttribute(FAILOVER_NON_IDEMPOTENT));
+               HaDescriptorFactory.configureUrlSelection(config,
+                     element.getAttribute(URL_SELECTION_STRATEGY),
+                     element.getAttribute(HEALTH_CHECK_PATH),
+                     element.getAttribute(HEALTH_CHECK_INTERVAL));
                descriptor.addServiceConfig(config);
             }
          }
@@ -54,6 +54,26 @@ public interface HaServiceConfigConstants {
     */
    String DISABLE_LB_USER_AGENTS = "disableLoadBalancingForUserAgents";
 
+   /**
+    * How the next URL is chosen on load balancing and failover,
+    * either round robin (default) or weighted by observed latency and errors.
+    */
+   String CONFIG_URL_SELECTION_STRATEGY = "urlSelectionStrategy";
+
+   /**
+    * Path appended to each URL when probing it in the background,
+    * only used by the weighted URL selection strategy.
+    */
+   String CONFIG_HEALTH_CHECK_PATH = "healthCheckPath";
+
+   /**
+    * Milliseconds between background health checks, 0 disables them.
+    */
+   String CONFIG_HEALTH_CHECK_INTERVAL = "healthCheckInterval";
+
+   String URL_SELECTION_STRATEGY_ROUND_ROBIN = "roundRobin";
+   String URL_SELECTION_STRATEGY_WEIGHTED = "weighted";
+
    int DEFAULT_MAX_FAILOVER_ATTEMPTS = 3;
 
    int DEFAULT_FAILOVER_SLEEP = 1000;
@@ -71,4 +91,7 @@ public interface HaServiceConfigConstants {
    String DEFAULT_STICKY_SESSION_COOKIE_NAME = "KNOX_BACKEND";
 
    String DEFAULT_DISABLE_LB_USER_AGENTS = "ClouderaODBCDriverforApacheHive";
+   String DEFAULT_URL_SELECTION_STRATEGY = URL_SELECTION_STRATEGY_ROUND_ROBIN;
+   String DEFAULT_HEALTH_CHECK_PATH = "";
+   int DEFAULT_HEALTH_CHECK_INTERVAL = 0;
 }
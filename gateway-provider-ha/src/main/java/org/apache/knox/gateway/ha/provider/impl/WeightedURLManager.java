@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.ha.provider.impl;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
+import org.apache.knox.gateway.ha.provider.HaServiceConfig;
+import org.apache.knox.gateway.ha.provider.impl.i18n.HaMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * URLManager that picks the next active URL by "power of two choices": two healthy
+ * candidates are drawn at random and the one with the lower cost wins. The cost of a URL
+ * is the exponentially weighted moving average of its response time plus a penalty
+ * proportional to its recent error rate, so slow or failing backends receive less traffic
+ * without being starved of the requests needed to notice their recovery.
+ *
+ * Optionally each URL is probed in the background and excluded from selection while its
+ * probe fails. Probes trust what the dispatch clients of the gateway trust. Selected with
+ * urlSelectionStrategy=weighted in the HaProvider config.
+ */
+public class WeightedURLManager extends DefaultURLManager {
+
+  private static final HaMessages LOG = MessagesFactory.get(HaMessages.class);
+
+  /**
+   * Weight of the newest sample in the moving averages.
+   */
+  static final double EWMA_WEIGHT = 0.2;
+
+  /**
+   * Cost added for an error rate of 1, i.e. a backend that failed every recent request
+   * costs as much as one that takes this long to answer.
+   */
+  static final double FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * Health check connect and read timeout.
+   */
+  private static final int HEALTH_CHECK_TIMEOUT = 5000;
+
+  /**
+   * Keyed by host and port since requests report their full URL, not the configured one.
+   */
+  private final Map<String, BackendStats> stats = new ConcurrentHashMap<>();
+
+  private String serviceName;
+
+  private String healthCheckPath = HaServiceConfigConstants.DEFAULT_HEALTH_CHECK_PATH;
+
+  private ScheduledExecutorService healthCheckScheduler;
+
+  private volatile SSLContext sslContext;
+
+  /*
+   * Created by the first health check, so that the SSL context provided after the
+   * configuration is used.
+   */
+  private CloseableHttpClient healthCheckClient;
+
+  private boolean destroyed;
+
+  @Override
+  public boolean supportsConfig(HaServiceConfig config) {
+    return HaServiceConfigConstants.URL_SELECTION_STRATEGY_WEIGHTED.equalsIgnoreCase(config.getUrlSelectionStrategy());
+  }
+
+  @Override
+  public void setConfig(HaServiceConfig config) {
+    serviceName = config.getServiceName();
+    if (config.getHealthCheckPath() != null) {
+      healthCheckPath = config.getHealthCheckPath();
+    }
+    int interval = config.getHealthCheckInterval();
+    if (interval > 0) {
+      healthCheckScheduler = Executors.newSingleThreadScheduledExecutor(new BasicThreadFactory.Builder()
+          .namingPattern("HaHealthCheck-" + serviceName + "-%d").daemon(true).build());
+      healthCheckScheduler.scheduleWithFixedDelay(this::checkHealth, interval, interval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public void setSslContext(SSLContext sslContext) {
+    this.sslContext = sslContext;
+  }
+
+  @Override
+  public synchronized void setURLs(List<String> urls) {
+    // synchronized so that the statistics kept match the URLs of the last call
+    super.setURLs(urls);
+    Set<String> current = new HashSet<>();
+    for (String url : getURLs()) {
+      current.add(hostPort(url));
+    }
+    stats.keySet().retainAll(current);
+    for (String backend : current) {
+      stats.computeIfAbsent(backend, key -> new BackendStats());
+    }
+  }
+
+  @Override
+  public void markFailed(String url) {
+    BackendStats backend = stats.get(hostPort(url));
+    if (backend != null) {
+      backend.recordFailure();
+    }
+    String top = getActiveURL();
+    if (top != null && hostPort(top).equals(hostPort(url))) {
+      String next = choose(getURLs(), url);
+      if (next != null) {
+        setActiveURL(next);
+        LOG.markedFailedUrl(top, next);
+      } else {
+        super.markFailed(url);
+      }
+    }
+  }
+
+  @Override
+  public void markSucceeded(String url, long elapsedNanos) {
+    BackendStats backend = stats.get(hostPort(url));
+    if (backend != null) {
+      backend.recordSuccess(elapsedNanos);
+    }
+  }
+
+  @Override
+  public void makeNextActiveURLAvailable() {
+    String next = choose(getURLs(), null);
+    if (next != null) {
+      setActiveURL(next);
+      LOG.selectedActiveUrl(next, serviceName);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    if (healthCheckScheduler != null) {
+      healthCheckScheduler.shutdownNow();
+    }
+    synchronized (this) {
+      destroyed = true;
+      if (healthCheckClient != null) {
+        try {
+          healthCheckClient.close();
+        } catch (IOException e) {
+          // Nothing left to release
+        }
+        healthCheckClient = null;
+      }
+    }
+  }
+
+  /**
+   * Picks one of the URLs by comparing the cost of two random healthy candidates.
+   * Unhealthy URLs are only considered when no healthy one is left.
+   *
+   * @param urls    the URLs to choose from
+   * @param exclude a URL whose host and port must not be chosen, may be null
+   * @return the chosen URL or null if there is no candidate
+   */
+  String choose(List<String> urls, String exclude) {
+    String excluded = exclude == null ? null : hostPort(exclude);
+    List<String> candidates = new ArrayList<>(urls.size());
+    List<String> unhealthy = new ArrayList<>(urls.size());
+    for (String url : urls) {
+      if (excluded != null && excluded.equals(hostPort(url))) {
+        continue;
+      }
+      if (statsFor(url).isHealthy()) {
+        candidates.add(url);
+      } else {
+        unhealthy.add(url);
+      }
+    }
+    if (candidates.isEmpty()) {
+      candidates = unhealthy;
+    }
+    switch (candidates.size()) {
+      case 0:
+        return null;
+      case 1:
+        return candidates.get(0);
+      default:
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+          second++;
+        }
+        String a = candidates.get(first);
+        String b = candidates.get(second);
+        return statsFor(a).cost() <= statsFor(b).cost() ? a : b;
+    }
+  }
+
+  BackendStats statsFor(String url) {
+    return stats.computeIfAbsent(hostPort(url), key -> new BackendStats());
+  }
+
+  void checkHealth() {
+    CloseableHttpClient client = getHealthCheckClient();
+    if (client == null) {
+      return;
+    }
+    for (String url : getURLs()) {
+      BackendStats backend = statsFor(url);
+      boolean healthy;
+      String cause = null;
+      try (CloseableHttpResponse response = client.execute(new HttpGet(url + healthCheckPath))) {
+        int status = response.getStatusLine().getStatusCode();
+        EntityUtils.consumeQuietly(response.getEntity());
+        // Anything but a server error proves the backend is serving; secured
+        // backends answer the unauthenticated probe with 401.
+        healthy = status < 500;
+        if (!healthy) {
+          cause = response.getStatusLine().toString();
+        }
+      } catch (IOException | IllegalArgumentException e) {
+        healthy = false;
+        cause = e.toString();
+      }
+      if (backend.setHealthy(healthy)) {
+        if (healthy) {
+          LOG.urlPassedHealthCheck(url);
+        } else {
+          LOG.urlFailedHealthCheck(url, cause);
+        }
+      }
+    }
+  }
+
+  private synchronized CloseableHttpClient getHealthCheckClient() {
+    if (healthCheckClient == null && !destroyed) {
+      RequestConfig requestConfig = RequestConfig.custom()
+          .setConnectTimeout(HEALTH_CHECK_TIMEOUT)
+          .setConnectionRequestTimeout(HEALTH_CHECK_TIMEOUT)
+          .setSocketTimeout(HEALTH_CHECK_TIMEOUT)
+          .build();
+      HttpClientBuilder builder = HttpClientBuilder.create().setDefaultRequestConfig(requestConfig);
+      SSLContext context = sslContext;
+      if (context != null) {
+        builder.setSSLContext(context);
+      }
+      healthCheckClient = builder.build();
+    }
+    return healthCheckClient;
+  }
+
+  /**
+   * Moving averages of one backend. Updates are plain read-modify-write on volatile
+   * fields; a lost sample under contention only delays the average by one request,
+   * which is not worth a lock on the request path.
+   */
+  static final class BackendStats {
+    private volatile double latencyNanos;
+    private volatile double errorRate;
+    private volatile boolean measured;
+    private volatile boolean healthy = true;
+
+    void recordSuccess(long elapsedNanos) {
+      latencyNanos = measured ? latencyNanos + EWMA_WEIGHT * (elapsedNanos - latencyNanos) : elapsedNanos;
+      measured = true;
+      errorRate = errorRate - EWMA_WEIGHT * errorRate;
+    }
+
+    void recordFailure() {
+      errorRate = errorRate + EWMA_WEIGHT * (1 - errorRate);
+    }
+
+    double cost() {
+      return latencyNanos + errorRate * FAILURE_PENALTY_NANOS;
+    }
+
+    boolean isHealthy() {
+      return healthy;
+    }
+
+    /**
+     * @return true if the health state changed
+     */
+    boolean setHealthy(boolean healthy) {
+      boolean changed = this.healthy != healthy;
+      this.healthy = healthy;
+      return changed;
+    }
+  }
+}
@@ -42,4 +42,16 @@ public interface HaMessages {
   @Message(level = MessageLevel.ERROR, text = "Failed to get Zookeeper URLs : {0}")
   void failedToGetZookeeperUrls(Exception e);
 
+  @Message(level = MessageLevel.WARN, text = "Health check of {0} failed, excluding it from selection: {1}")
+  void urlFailedHealthCheck(String url, String cause);
+
+  @Message(level = MessageLevel.INFO, text = "Health check of {0} succeeded, including it in selection again")
+  void urlPassedHealthCheck(String url);
+
+  @Message(level = MessageLevel.DEBUG, text = "Selected {0} as the active URL for service {1}")
+  void selectedActiveUrl(String url, String serviceName);
+
+  @Message(level = MessageLevel.WARN, text = "Failed to create the SSL context for HA health checks, using the JVM default: {0}")
+  void failedToCreateSslContext(String cause);
+
 }
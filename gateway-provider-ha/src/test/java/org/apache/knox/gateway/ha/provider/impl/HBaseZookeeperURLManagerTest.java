@@ -18,6 +18,13 @@
 package org.apache.knox.gateway.ha.provider.impl;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.curator.framework.CuratorFramework;
@@ -98,6 +105,34 @@ public class HBaseZookeeperURLManagerTest {
     doTest(SECURE_NS.substring(1)); // Omit the leading slash from the namespace
   }
 
+  @Test
+  public void testConcurrentRotationKeepsAllURLs() throws Exception {
+    final HBaseZookeeperURLManager manager = new HBaseZookeeperURLManager();
+    final List<String> urls = Arrays.asList("http://host1:8080", "http://host2:8080", "http://host3:8080");
+    manager.setURLs(urls);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<?>> rotations = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        rotations.add(executor.submit(() -> {
+          for (int j = 0; j < 10000; j++) {
+            manager.makeNextActiveURLAvailable();
+            Assert.assertNotNull(manager.getActiveURL());
+          }
+        }));
+      }
+      for (Future<?> rotation : rotations) {
+        rotation.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Assert.assertEquals(new HashSet<>(urls), new HashSet<>(manager.getURLs()));
+    Assert.assertEquals(urls.size(), manager.getURLs().size());
+  }
+
   private void doTest(String namespace) {
     HaServiceConfig config = new DefaultHaServiceConfig("WEBHBASE");
     config.setEnabled(true);
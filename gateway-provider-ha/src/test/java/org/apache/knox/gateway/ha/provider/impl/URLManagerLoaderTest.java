@@ -17,6 +17,7 @@
  */
 package org.apache.knox.gateway.ha.provider.impl;
 
+import org.apache.knox.gateway.ha.provider.HaServiceConfig;
 import org.apache.knox.gateway.ha.provider.URLManager;
 import org.apache.knox.gateway.ha.provider.URLManagerLoader;
 import org.junit.Assert;
@@ -45,4 +46,13 @@ public class URLManagerLoaderTest {
     Assert.assertTrue(manager instanceof DefaultURLManager);
   }
 
+  @Test
+  public void testWeightedURLManager() {
+    HaServiceConfig serviceConfig = HaDescriptorFactory.createServiceConfig("WEBHDFS",
+        "enabled=true;urlSelectionStrategy=weighted");
+    URLManager manager = URLManagerLoader.loadURLManager(serviceConfig);
+    Assert.assertTrue(manager instanceof WeightedURLManager);
+    manager.destroy();
+  }
+
 }
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.ha.provider.impl;
+
+import org.apache.knox.test.mock.MockServer;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WeightedURLManagerTest {
+
+  private static final String URL1 = "http://host1:1234";
+  private static final String URL2 = "http://host2:1234";
+  private static final String URL3 = "http://host3:1234";
+
+  @Test
+  public void testPrefersFasterBackend() {
+    WeightedURLManager manager = new WeightedURLManager();
+    manager.setURLs(Arrays.asList(URL1, URL2));
+    manager.markSucceeded(URL1, TimeUnit.MILLISECONDS.toNanos(500));
+    manager.markSucceeded(URL2, TimeUnit.MILLISECONDS.toNanos(5));
+    for (int i = 0; i < 20; i++) {
+      manager.makeNextActiveURLAvailable();
+      assertEquals(URL2, manager.getActiveURL());
+    }
+  }
+
+  @Test
+  public void testFailedBackendIsPenalized() {
+    WeightedURLManager manager = new WeightedURLManager();
+    manager.setURLs(Arrays.asList(URL1, URL2));
+    manager.markSucceeded(URL1, TimeUnit.MILLISECONDS.toNanos(5));
+    manager.markSucceeded(URL2, TimeUnit.MILLISECONDS.toNanos(50));
+    manager.markFailed(URL1 + "/webhdfs/v1/?op=LISTSTATUS");
+    assertEquals(URL2, manager.getActiveURL());
+    for (int i = 0; i < 20; i++) {
+      manager.makeNextActiveURLAvailable();
+      assertEquals(URL2, manager.getActiveURL());
+    }
+  }
+
+  @Test
+  public void testMarkFailedNeverPicksFailedHost() {
+    WeightedURLManager manager = new WeightedURLManager();
+    List<String> urls = Arrays.asList(URL1, URL2, URL3);
+    manager.setURLs(urls);
+    for (int i = 0; i < 20; i++) {
+      String active = manager.getActiveURL();
+      manager.markFailed(active);
+      assertNotEquals(active, manager.getActiveURL());
+      assertTrue(manager.getURLs().containsAll(urls));
+    }
+  }
+
+  @Test
+  public void testUnhealthyBackendIsSkipped() {
+    WeightedURLManager manager = new WeightedURLManager();
+    manager.setURLs(Arrays.asList(URL1, URL2, URL3));
+    manager.statsFor(URL1).setHealthy(false);
+    manager.statsFor(URL3).setHealthy(false);
+    for (int i = 0; i < 20; i++) {
+      manager.makeNextActiveURLAvailable();
+      assertEquals(URL2, manager.getActiveURL());
+    }
+    // With every backend unhealthy selection falls back to all of them
+    manager.statsFor(URL2).setHealthy(false);
+    manager.makeNextActiveURLAvailable();
+    assertTrue(manager.getURLs().contains(manager.getActiveURL()));
+  }
+
+  @Test
+  public void testSingleURL() {
+    WeightedURLManager manager = new WeightedURLManager();
+    manager.setURLs(Arrays.asList(URL1));
+    manager.markFailed(URL1);
+    assertEquals(URL1, manager.getActiveURL());
+    manager.makeNextActiveURLAvailable();
+    assertEquals(URL1, manager.getActiveURL());
+    assertNull(manager.choose(Arrays.asList(URL1), URL1));
+  }
+
+  @Test
+  public void testHealthCheckExcludesFailingBackend() throws Exception {
+    MockServer server = new MockServer("health", true);
+    try {
+      String url = "http://localhost:" + server.getPort();
+      WeightedURLManager manager = new WeightedURLManager();
+      manager.setURLs(Arrays.asList(url));
+
+      server.expect().method("GET").respond().status(503);
+      manager.checkHealth();
+      assertFalse(manager.statsFor(url).isHealthy());
+
+      // secured backends answer the probe with 401, they are still serving
+      server.expect().method("GET").respond().status(401);
+      manager.checkHealth();
+      assertTrue(manager.statsFor(url).isHealthy());
+
+      // no more probes once destroyed
+      server.expect().method("GET").respond().status(200);
+      manager.destroy();
+      manager.checkHealth();
+      assertEquals(1, server.getCount());
+    } finally {
+      server.stop();
+    }
+  }
+}
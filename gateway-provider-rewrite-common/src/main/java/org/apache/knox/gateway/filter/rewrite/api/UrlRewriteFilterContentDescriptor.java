@@ -27,6 +27,10 @@ public interface UrlRewriteFilterContentDescriptor extends UrlRewriteFilterGroup
 
   UrlRewriteFilterContentDescriptor asType( String type );
 
+  String mode();
+
+  UrlRewriteFilterContentDescriptor mode( String mode );
+
   UrlRewriteFilterBufferDescriptor addBuffer( String path );
 
 }
@@ -87,4 +87,7 @@ public interface UrlRewriteMessages {
 
   @Message( level = MessageLevel.DEBUG, text = "No rewrite rule was found, skipping rewriting JSON request body" )
   void skippingRewritingJsonRequestBody();
+
+  @Message( level = MessageLevel.ERROR, text = "Invalid rewrite filter configuration: {0}" )
+  void invalidRewriteFilterConfiguration( String reason );
 }
@@ -28,6 +28,8 @@ public class UrlRewriteFilterContentDescriptorImpl
 
   private String asType;
 
+  private String mode;
+
   public UrlRewriteFilterContentDescriptorImpl() {
   }
 
@@ -41,6 +43,11 @@ public class UrlRewriteFilterContentDescriptorImpl
     return asType;
   }
 
+  @Override
+  public String mode() {
+    return mode;
+  }
+
   @Override
   public UrlRewriteFilterContentDescriptor type( String type ) {
     this.type = type;
@@ -53,6 +60,12 @@ public class UrlRewriteFilterContentDescriptorImpl
     return this;
   }
 
+  @Override
+  public UrlRewriteFilterContentDescriptor mode( String mode ) {
+    this.mode = mode;
+    return this;
+  }
+
   public void setType(String type ) {
     type( type );
   }
@@ -69,6 +82,14 @@ public class UrlRewriteFilterContentDescriptorImpl
     this.asType = asType;
   }
 
+  public String getMode() {
+    return mode;
+  }
+
+  public void setMode( String mode ) {
+    this.mode = mode;
+  }
+
   @Override
   public UrlRewriteFilterBufferDescriptor addBuffer( String path ) {
     UrlRewriteFilterBufferDescriptor descriptor = new UrlRewriteFilterBufferDescriptorImpl();
@@ -17,16 +17,22 @@
  */
 package org.apache.knox.gateway.filter.rewrite.api;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.filter.rewrite.ext.ScopedMatcher;
 import org.apache.knox.gateway.filter.rewrite.i18n.UrlRewriteMessages;
+import org.apache.knox.gateway.filter.rewrite.i18n.UrlRewriteResources;
 import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteContextImpl;
 import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteFunctionProcessorFactory;
 import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteRuleProcessorHolder;
 import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteStepProcessorHolder;
+import org.apache.knox.gateway.filter.rewrite.impl.xml.XmlStreamingFilterReader;
 import org.apache.knox.gateway.filter.rewrite.spi.UrlRewriteContext;
 import org.apache.knox.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
 import org.apache.knox.gateway.filter.rewrite.spi.UrlRewriteStepStatus;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.i18n.resources.ResourcesFactory;
 import org.apache.knox.gateway.util.urltemplate.Matcher;
 import org.apache.knox.gateway.util.urltemplate.Resolver;
 import org.apache.knox.gateway.util.urltemplate.Template;
@@ -35,10 +41,15 @@ import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 public class UrlRewriteProcessor implements UrlRewriter {
 
   private static final UrlRewriteMessages LOG = MessagesFactory.get( UrlRewriteMessages.class );
+  private static final UrlRewriteResources RES = ResourcesFactory.get( UrlRewriteResources.class );
+
+  private static final int DEFAULT_RULE_MATCH_CACHE_SIZE = 256;
 
   UrlRewriteEnvironment environment;
   UrlRewriteRulesDescriptor descriptor;
@@ -46,6 +57,11 @@ public class UrlRewriteProcessor implements UrlRewriter {
   ScopedMatcher inbound = new ScopedMatcher();
   ScopedMatcher outbound = new ScopedMatcher();
   Map<String,UrlRewriteFunctionProcessor> functions = new HashMap<>();
+  // Implicit rule selection only depends on the URL, direction and service role and the rules are
+  // fixed after initialize(), so it is memoized for URLs that repeat within and across responses.
+  // Every topology has its own processor, hence the cache is sized by gateway configuration and
+  // is null when that size is 0.
+  Cache<RuleMatchKey,Optional<UrlRewriteRuleProcessorHolder>> ruleMatches;
 
   public UrlRewriteProcessor() {
   }
@@ -54,8 +70,19 @@ public class UrlRewriteProcessor implements UrlRewriter {
   public void initialize( UrlRewriteEnvironment environment, UrlRewriteRulesDescriptor descriptor ) {
     this.environment = environment;
     this.descriptor = descriptor;
+    ruleMatches = createRuleMatchCache( environment );
     initializeFunctions( descriptor );
     initializeRules( descriptor );
+    validateFilters( descriptor );
+  }
+
+  private static Cache<RuleMatchKey,Optional<UrlRewriteRuleProcessorHolder>> createRuleMatchCache( UrlRewriteEnvironment environment ) {
+    int size = DEFAULT_RULE_MATCH_CACHE_SIZE;
+    GatewayConfig gatewayConfig = environment == null ? null : environment.getAttribute( GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE );
+    if( gatewayConfig != null ) {
+      size = gatewayConfig.getRewriteRuleMatchCacheSize();
+    }
+    return size > 0 ? Caffeine.newBuilder().maximumSize( size ).build() : null;
   }
 
   @Override
@@ -104,6 +131,25 @@ public class UrlRewriteProcessor implements UrlRewriter {
     }
   }
 
+  // Fail deployment rather than the first request when a filter's content mode can't be honored.
+  private void validateFilters( UrlRewriteRulesDescriptor descriptor ) {
+    for( UrlRewriteFilterDescriptor filter : descriptor.getFilters() ) {
+      for( UrlRewriteFilterContentDescriptor content : filter.getContents() ) {
+        String mode = content.mode();
+        try {
+          if( XmlStreamingFilterReader.STREAMING_MODE.equalsIgnoreCase( mode ) ) {
+            XmlStreamingFilterReader.validate( filter.name(), content );
+          } else if( mode != null && !XmlStreamingFilterReader.DOM_MODE.equalsIgnoreCase( mode ) ) {
+            throw new IllegalArgumentException( RES.unknownContentMode( filter.name(), content.type(), mode ) );
+          }
+        } catch( IllegalArgumentException e ) {
+          LOG.invalidRewriteFilterConfiguration( e.getMessage() );
+          throw e;
+        }
+      }
+    }
+  }
+
   public void destroy() {
     for( UrlRewriteStepProcessorHolder rule : rules.values() ) {
       try {
@@ -135,18 +181,12 @@ public class UrlRewriteProcessor implements UrlRewriter {
     String effectiveRuleName = null;
     if( ruleName == null || "*".equals( ruleName ) ) {
       ruleName = null; // Used for logging later.
-      Matcher<UrlRewriteRuleProcessorHolder>.Match match = null;
-      switch( direction ) {
-        case IN:
-          match = inbound.match( outputUri, serviceRole );
-          break;
-        case OUT:
-          match = outbound.match( outputUri, serviceRole );
-          break;
-      }
-      if( match != null ) {
-        stepHolder = match.getValue();
-        effectiveRuleName = match.getValue().getRuleName();
+      RuleMatchKey key = new RuleMatchKey( outputUri, direction, serviceRole );
+      Optional<UrlRewriteRuleProcessorHolder> match =
+          ruleMatches == null ? matchRule( key ) : ruleMatches.get( key, this::matchRule );
+      if( match.isPresent() ) {
+        stepHolder = match.get();
+        effectiveRuleName = match.get().getRuleName();
       }
     } else if( !ruleName.isEmpty() ) {
       stepHolder = rules.get( ruleName );
@@ -177,4 +217,48 @@ public class UrlRewriteProcessor implements UrlRewriter {
     return outputUri;
   }
 
+  private Optional<UrlRewriteRuleProcessorHolder> matchRule( RuleMatchKey key ) {
+    Matcher<UrlRewriteRuleProcessorHolder>.Match match = null;
+    switch( key.direction ) {
+      case IN:
+        match = inbound.match( key.template, key.serviceRole );
+        break;
+      case OUT:
+        match = outbound.match( key.template, key.serviceRole );
+        break;
+    }
+    return match == null ? Optional.empty() : Optional.ofNullable( match.getValue() );
+  }
+
+  static final class RuleMatchKey {
+    private final Template template;
+    private final Direction direction;
+    private final String serviceRole;
+
+    RuleMatchKey( Template template, Direction direction, String serviceRole ) {
+      this.template = template;
+      this.direction = direction;
+      this.serviceRole = serviceRole;
+    }
+
+    @Override
+    public boolean equals( Object other ) {
+      if( this == other ) {
+        return true;
+      }
+      if( !( other instanceof RuleMatchKey ) ) {
+        return false;
+      }
+      RuleMatchKey that = (RuleMatchKey)other;
+      return direction == that.direction
+          && Objects.equals( serviceRole, that.serviceRole )
+          && template.equals( that.template );
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash( template, direction, serviceRole );
+    }
+  }
+
 }
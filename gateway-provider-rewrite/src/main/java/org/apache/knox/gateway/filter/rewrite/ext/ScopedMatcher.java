@@ -58,7 +58,37 @@ public class ScopedMatcher extends Matcher<UrlRewriteRuleProcessorHolder> {
     return match(input, null);
   }
 
+  /*
+   * Consults the matcher for the requested scope first and then the global one, since a match from
+   * either always wins.  The remaining matchers only need to be walked when one of them has no scope,
+   * which is the only way findBestMatch() can return a match from outside those two.  This keeps the
+   * cost of a miss, the common case for URLs found in response bodies, independent of the number of
+   * services in the topology.
+   */
   public Match match(Template input, String scope) {
+    if (scope != null) {
+      Match match = match(matchers.get(scope), input);
+      if (match != null) {
+        return match;
+      }
+    }
+    if (!GLOBAL_SCOPE.equals(scope)) {
+      Match match = match(matchers.get(GLOBAL_SCOPE), input);
+      if (match != null) {
+        return match;
+      }
+    }
+    if (scope != null && !matchers.containsKey(null)) {
+      return null;
+    }
+    return matchAll(input, scope);
+  }
+
+  private Match match(Matcher<UrlRewriteRuleProcessorHolder> matcher, Template input) {
+    return matcher == null ? null : matcher.match(input);
+  }
+
+  private Match matchAll(Template input, String scope) {
     List<Match> matches = new ArrayList<>();
     for (Matcher<UrlRewriteRuleProcessorHolder> matcher : matchers.values()) {
       Match match = matcher.match(input);
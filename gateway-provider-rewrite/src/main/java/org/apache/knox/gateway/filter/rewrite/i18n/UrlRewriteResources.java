@@ -36,6 +36,15 @@ public interface UrlRewriteResources {
   @Resource( text="Unexpected selected node type {0}" )
   String unexpectedSelectedNodeType( Object node );
 
+  @Resource( text="Path {0} cannot be evaluated in streaming mode: {1}" )
+  String unsupportedStreamingPath( String path, String reason );
+
+  @Resource( text="Filter {0} content {1} cannot use streaming mode: {2}" )
+  String unsupportedStreamingContent( String filter, String type, String reason );
+
+  @Resource( text="Filter {0} content {1} has unknown mode {2}" )
+  String unknownContentMode( String filter, String type, String mode );
+
   @Resource( text="Invalid frontend rewrite function parameter {0}" )
   String invalidFrontendFunctionParameter( String parameter );
 }
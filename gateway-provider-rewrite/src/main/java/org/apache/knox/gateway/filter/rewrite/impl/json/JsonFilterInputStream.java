@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Exposes the byte output of a {@link JsonFilterReader} created over an {@link InputStream}.
+ */
+class JsonFilterInputStream extends InputStream {
+
+  private final JsonFilterReader filter;
+  private final byte[] single = new byte[ 1 ];
+
+  JsonFilterInputStream( JsonFilterReader filter ) {
+    this.filter = filter;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int count = filter.readBytes( single, 0, 1 );
+    return count < 0 ? -1 : single[ 0 ] & 0xFF;
+  }
+
+  @Override
+  public int read( byte[] b, int off, int len ) throws IOException {
+    return filter.readBytes( b, off, len );
+  }
+
+  @Override
+  public void close() throws IOException {
+    filter.close();
+  }
+
+}
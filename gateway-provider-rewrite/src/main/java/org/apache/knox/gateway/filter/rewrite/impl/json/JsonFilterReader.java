@@ -17,10 +17,10 @@
  */
 package org.apache.knox.gateway.filter.rewrite.impl.json;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.json.JsonReadFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -37,11 +37,18 @@ import org.apache.knox.gateway.filter.rewrite.i18n.UrlRewriteMessages;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.util.JsonPath;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
-import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Stack;
 import java.util.regex.Pattern;
 
 class JsonFilterReader extends Reader {
@@ -51,30 +58,48 @@ class JsonFilterReader extends Reader {
   private static final UrlRewriteFilterPathDescriptor.Compiler<JsonPath.Expression> JPATH_COMPILER = new JsonPathCompiler();
   private static final UrlRewriteFilterPathDescriptor.Compiler<Pattern> REGEX_COMPILER = new RegexCompiler();
 
-  private JsonFactory factory;
+  // Both are thread safe once configured so they are shared rather than created per response.
+  private static final JsonFactory FACTORY = new JsonFactory();
+  private static final ObjectMapper MAPPER = new ObjectMapper( FACTORY );
+
   private JsonParser parser;
   private JsonGenerator generator;
-  private ObjectMapper mapper;
 
-  private Reader reader;
-  private int offset;
-  private StringWriter writer;
-  private StringBuffer buffer;
-  private Stack<Level> stack;
+  private Closeable source;
+  private CharSink chars;
+  private ByteSink bytes;
+  private List<Level> levels;
   private Level bufferingLevel;
   private UrlRewriteFilterBufferDescriptor bufferingConfig;
   private UrlRewriteFilterGroupDescriptor config;
 
   JsonFilterReader( Reader reader, UrlRewriteFilterContentDescriptor config ) throws IOException {
-    this.reader = reader;
-    factory = new JsonFactory();
-    mapper = new ObjectMapper();
-    parser = factory.createParser( reader );
-    writer = new StringWriter();
-    buffer = writer.getBuffer();
-    offset = 0;
-    generator = factory.createGenerator( writer );
-    stack = new Stack<>();
+    this.source = reader;
+    parser = FACTORY.createParser( reader );
+    chars = new CharSink();
+    generator = FACTORY.createGenerator( chars );
+    init( config );
+  }
+
+  /**
+   * Creates a filter that writes encoded bytes directly, avoiding the re-encode of its output.
+   * Input is decoded leniently, like the Reader based path does, so malformed bytes become
+   * replacement characters instead of failing the response.  Output must be consumed via
+   * {@link #readBytes(byte[], int, int)}.
+   */
+  JsonFilterReader( InputStream stream, JsonEncoding encoding, UrlRewriteFilterContentDescriptor config ) throws IOException {
+    this.source = stream;
+    CharsetDecoder decoder = Charset.forName( encoding.getJavaName() ).newDecoder()
+        .onMalformedInput( CodingErrorAction.REPLACE )
+        .onUnmappableCharacter( CodingErrorAction.REPLACE );
+    parser = FACTORY.createParser( new InputStreamReader( stream, decoder ) );
+    bytes = new ByteSink();
+    generator = FACTORY.createGenerator( bytes, encoding );
+    init( config );
+  }
+
+  private void init( UrlRewriteFilterContentDescriptor config ) {
+    levels = new ArrayList<>();
     bufferingLevel = null;
     bufferingConfig = null;
     this.config = config;
@@ -87,30 +112,57 @@ class JsonFilterReader extends Reader {
 
   @Override
   public int read( char[] destBuffer, int destOffset, int destCount ) throws IOException {
-    int count = 0;
-    int available = buffer.length() - offset;
+    if( chars == null ) {
+      throw new IllegalStateException( "Filter was created for byte output" );
+    }
+    if( destCount == 0 ) {
+      return 0;
+    }
+    if( chars.available() == 0 && !fill( destCount ) ) {
+      return -1;
+    }
+    return chars.drain( destBuffer, destOffset, destCount );
+  }
 
-    if( available == 0 ) {
-      JsonToken token = parser.nextToken();
-      if( token == null ) {
-        count = -1;
-      } else {
-        processCurrentToken();
-        available = buffer.length() - offset;
-      }
+  int readBytes( byte[] destBuffer, int destOffset, int destCount ) throws IOException {
+    if( bytes == null ) {
+      throw new IllegalStateException( "Filter was created for char output" );
+    }
+    if( destCount == 0 ) {
+      return 0;
     }
+    if( bytes.available() == 0 && !fill( destCount ) ) {
+      return -1;
+    }
+    return bytes.drain( destBuffer, destOffset, destCount );
+  }
 
-    if( available > 0 ) {
-      count = Math.min( destCount, available );
-      buffer.getChars( offset, offset+count, destBuffer, destOffset );
-      offset += count;
-      if( offset == buffer.length() ) {
-        offset = 0;
-        buffer.setLength( 0 );
+  /*
+   * Processes tokens until roughly the requested amount of output is available, so that the
+   * generator is flushed once per read rather than once per token.  Output held in memory is
+   * therefore bounded by the read size plus one token, except within buffered scopes.
+   */
+  private boolean fill( int wanted ) throws IOException {
+    while( available() + Math.max( generator.getOutputBuffered(), 0 ) < wanted ) {
+      if( parser.nextToken() == null ) {
+        break;
       }
+      processCurrentToken();
     }
+    generator.flush();
+    return available() > 0;
+  }
+
+  private int available() {
+    return chars != null ? chars.available() : bytes.available();
+  }
+
+  private Level peekLevel() {
+    return levels.get( levels.size() - 1 );
+  }
 
-    return count;
+  private Level popLevel() {
+    return levels.remove( levels.size() - 1 );
   }
 
   private void processCurrentToken() throws IOException {
@@ -148,19 +200,18 @@ class JsonFilterReader extends Reader {
         // Ignore it.
         break;
     }
-    generator.flush();
   }
 
   private Level pushLevel( String field, JsonNode node, JsonNode scopeNode, UrlRewriteFilterGroupDescriptor scopeConfig ) {
-    if( !stack.isEmpty() ) {
-      Level top = stack.peek();
+    if( !levels.isEmpty() ) {
+      Level top = peekLevel();
       if( scopeNode == null ) {
         scopeNode = top.scopeNode;
         scopeConfig = top.scopeConfig;
       }
     }
     Level level = new Level( field, node, scopeNode, scopeConfig );
-    stack.push( level );
+    levels.add( level );
     return level;
   }
 
@@ -168,14 +219,14 @@ class JsonFilterReader extends Reader {
     JsonNode node;
     Level child;
     Level parent;
-    if( stack.isEmpty() ) {
-      node = mapper.createObjectNode();
+    if( levels.isEmpty() ) {
+      node = MAPPER.createObjectNode();
       child = pushLevel( null, node, node, config );
     } else {
-      child = stack.peek();
+      child = peekLevel();
       if( child.node == null ) {
-        child.node = mapper.createObjectNode();
-        parent = stack.get( stack.size()-2 );
+        child.node = MAPPER.createObjectNode();
+        parent = levels.get( levels.size() - 2 );
         switch( parent.node.asToken() ) {
           case START_ARRAY:
             ((ArrayNode)parent.node ).add( child.node );
@@ -188,7 +239,7 @@ class JsonFilterReader extends Reader {
         }
       } else if( child.isArray() ) {
         parent = child;
-        node = mapper.createObjectNode();
+        node = MAPPER.createObjectNode();
         child = pushLevel( null, node, null, null );
         ((ArrayNode)parent.node ).add( child.node );
       } else {
@@ -203,16 +254,16 @@ class JsonFilterReader extends Reader {
   private void processEndObject() throws IOException {
     Level child;
     Level parent;
-    child = stack.pop();
+    child = popLevel();
     if( child.equals(bufferingLevel) ) {
       filterBufferedNode( child );
-      mapper.writeTree( generator, child.node );
+      MAPPER.writeTree( generator, child.node );
       bufferingLevel = null;
       bufferingConfig = null;
     } else if( bufferingLevel == null ) {
       generator.writeEndObject();
-      if( !stack.isEmpty() ) {
-        parent = stack.peek();
+      if( !levels.isEmpty() ) {
+        parent = peekLevel();
         switch( parent.node.asToken() ) {
           case START_ARRAY:
             ((ArrayNode)parent.node ).removeAll();
@@ -231,14 +282,14 @@ class JsonFilterReader extends Reader {
     JsonNode node;
     Level child;
     Level parent;
-    if( stack.isEmpty() ) {
-      node = mapper.createArrayNode();
+    if( levels.isEmpty() ) {
+      node = MAPPER.createArrayNode();
       child = pushLevel( null, node, node, config );
     } else {
-      child = stack.peek();
+      child = peekLevel();
       if( child.node == null ) {
-        child.node = mapper.createArrayNode();
-        parent = stack.get( stack.size() - 2 );
+        child.node = MAPPER.createArrayNode();
+        parent = levels.get( levels.size() - 2 );
         switch( parent.node.asToken() ) {
           case START_ARRAY:
             ((ArrayNode)parent.node ).add( child.node );
@@ -251,7 +302,7 @@ class JsonFilterReader extends Reader {
         }
       } else if( child.isArray() ) {
         parent = child;
-        child = pushLevel( null, mapper.createArrayNode(), null, null );
+        child = pushLevel( null, MAPPER.createArrayNode(), null, null );
         ((ArrayNode)parent.node ).add( child.node );
       } else {
         throw new IllegalStateException();
@@ -265,16 +316,16 @@ class JsonFilterReader extends Reader {
   private void processEndArray() throws IOException {
     Level child;
     Level parent;
-    child = stack.pop();
+    child = popLevel();
     if( child.equals(bufferingLevel) ) {
       filterBufferedNode( child );
-      mapper.writeTree( generator, child.node );
+      MAPPER.writeTree( generator, child.node );
       bufferingLevel = null;
       bufferingConfig = null;
     } else if( bufferingLevel == null ) {
       generator.writeEndArray();
-      if( !stack.isEmpty() ) {
-        parent = stack.peek();
+      if( !levels.isEmpty() ) {
+        parent = peekLevel();
         switch( parent.node.asToken() ) {
           case START_ARRAY:
             ((ArrayNode)parent.node ).removeAll();
@@ -306,11 +357,11 @@ class JsonFilterReader extends Reader {
     Level child;
     Level parent;
     String value = null;
-    if(stack.isEmpty()) {
+    if(levels.isEmpty()) {
       generator.writeString( parser.getText() );
       return;
     }
-    parent = stack.peek();
+    parent = peekLevel();
     if( parent.isArray() ) {
       ArrayNode array = (ArrayNode)parent.node;
       array.add( parser.getText() );
@@ -321,8 +372,8 @@ class JsonFilterReader extends Reader {
         array.removeAll();
       }
     } else {
-      child = stack.pop();
-      parent = stack.peek();
+      child = popLevel();
+      parent = peekLevel();
       ((ObjectNode)parent.node ).put( child.field, parser.getText() );
       if( bufferingLevel == null ) {
         child.node = parent.node; // Populate the JsonNode of the child for filtering.
@@ -342,20 +393,20 @@ class JsonFilterReader extends Reader {
   private void processValueNumber() throws IOException {
     Level child;
     Level parent;
-    if(stack.isEmpty()) {
+    if(levels.isEmpty()) {
       processedUnbufferedValueNumber();
       return;
     }
-    parent = stack.peek();
+    parent = peekLevel();
     if( parent.isArray() ) {
       if( bufferingLevel != null ) {
         ArrayNode array = (ArrayNode)parent.node;
         processBufferedArrayValueNumber( array );
       }
     } else {
-      child = stack.pop();
+      child = popLevel();
       if( bufferingLevel != null ) {
-        parent = stack.peek();
+        parent = peekLevel();
         ObjectNode object = (ObjectNode)parent.node;
         processBufferedFieldValueNumber( child, object );
       }
@@ -439,11 +490,11 @@ class JsonFilterReader extends Reader {
   private void processValueBoolean() throws IOException {
     Level child;
     Level parent;
-    if(stack.isEmpty()) {
+    if(levels.isEmpty()) {
       generator.writeBoolean(parser.getBooleanValue());
       return;
     }
-    parent = stack.peek();
+    parent = peekLevel();
     if( parent.isArray() ) {
       ((ArrayNode)parent.node ).add( parser.getBooleanValue() );
       //dump();
@@ -451,8 +502,8 @@ class JsonFilterReader extends Reader {
         ((ArrayNode)parent.node ).removeAll();
       }
     } else {
-      child = stack.pop();
-      parent = stack.peek();
+      child = popLevel();
+      parent = peekLevel();
       ((ObjectNode)parent.node ).put( child.field, parser.getBooleanValue() );
       //dump();
       if( bufferingLevel == null ) {
@@ -466,11 +517,11 @@ class JsonFilterReader extends Reader {
 
   private void processValueNull() throws IOException {
     Level child;
-    if(stack.isEmpty()) {
+    if(levels.isEmpty()) {
       generator.writeNull();
       return;
     }
-    Level parent = stack.peek();
+    Level parent = peekLevel();
     if( parent.isArray() ) {
       ((ArrayNode)parent.node ).addNull();
       //dump();
@@ -478,8 +529,8 @@ class JsonFilterReader extends Reader {
         ((ArrayNode)parent.node ).removeAll();
       }
     } else {
-      child = stack.pop();
-      parent = stack.peek();
+      child = popLevel();
+      parent = peekLevel();
       ((ObjectNode)parent.node ).putNull( child.field );
       //dump();
       if( bufferingLevel == null ) {
@@ -609,9 +660,117 @@ class JsonFilterReader extends Reader {
   @Override
   public void close() throws IOException {
     generator.close();
-    writer.close();
     parser.close();
-    reader.close();
+    source.close();
+  }
+
+  /*
+   * Unsynchronized replacements for StringWriter and ByteArrayOutputStream.  Drained content is
+   * reclaimed by compacting before growing so the backing array stays close to the read size.
+   */
+  private static class CharSink extends Writer {
+    private char[] buf = new char[ 1024 ];
+    private int head;
+    private int tail;
+
+    @Override
+    public void write( char[] src, int off, int len ) {
+      reserve( len );
+      System.arraycopy( src, off, buf, tail, len );
+      tail += len;
+    }
+
+    @Override
+    public void write( String src, int off, int len ) {
+      reserve( len );
+      src.getChars( off, off + len, buf, tail );
+      tail += len;
+    }
+
+    @Override
+    public void write( int c ) {
+      reserve( 1 );
+      buf[ tail++ ] = (char)c;
+    }
+
+    int available() {
+      return tail - head;
+    }
+
+    int drain( char[] dest, int off, int len ) {
+      int count = Math.min( len, tail - head );
+      System.arraycopy( buf, head, dest, off, count );
+      head += count;
+      if( head == tail ) {
+        head = 0;
+        tail = 0;
+      }
+      return count;
+    }
+
+    private void reserve( int len ) {
+      if( tail + len > buf.length ) {
+        int size = tail - head;
+        char[] target = size + len > buf.length ? new char[ Math.max( buf.length * 2, size + len ) ] : buf;
+        System.arraycopy( buf, head, target, 0, size );
+        buf = target;
+        head = 0;
+        tail = size;
+      }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static class ByteSink extends OutputStream {
+    private byte[] buf = new byte[ 1024 ];
+    private int head;
+    private int tail;
+
+    @Override
+    public void write( byte[] src, int off, int len ) {
+      reserve( len );
+      System.arraycopy( src, off, buf, tail, len );
+      tail += len;
+    }
+
+    @Override
+    public void write( int b ) {
+      reserve( 1 );
+      buf[ tail++ ] = (byte)b;
+    }
+
+    int available() {
+      return tail - head;
+    }
+
+    int drain( byte[] dest, int off, int len ) {
+      int count = Math.min( len, tail - head );
+      System.arraycopy( buf, head, dest, off, count );
+      head += count;
+      if( head == tail ) {
+        head = 0;
+        tail = 0;
+      }
+      return count;
+    }
+
+    private void reserve( int len ) {
+      if( tail + len > buf.length ) {
+        int size = tail - head;
+        byte[] target = size + len > buf.length ? new byte[ Math.max( buf.length * 2, size + len ) ] : buf;
+        System.arraycopy( buf, head, target, 0, size );
+        buf = target;
+        head = 0;
+        tail = size;
+      }
+    }
   }
 
   private static class Level {
@@ -17,6 +17,7 @@
  */
 package org.apache.knox.gateway.filter.rewrite.impl.json;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriter;
 import org.apache.knox.gateway.filter.rewrite.i18n.UrlRewriteMessages;
@@ -26,6 +27,7 @@ import org.apache.knox.gateway.util.urltemplate.Resolver;
 import org.apache.knox.gateway.util.urltemplate.Template;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.net.URISyntaxException;
 
@@ -49,6 +51,20 @@ public class JsonUrlRewriteFilterReader extends JsonFilterReader {
     this.direction = direction;
   }
 
+  JsonUrlRewriteFilterReader(
+      InputStream stream,
+      JsonEncoding encoding,
+      UrlRewriter rewriter,
+      Resolver resolver,
+      UrlRewriter.Direction direction,
+      UrlRewriteFilterContentDescriptor config )
+          throws IOException {
+    super( stream, encoding, config );
+    this.resolver = resolver;
+    this.rewriter = rewriter;
+    this.direction = direction;
+  }
+
   @Override
   protected String filterValueString(String name, String value, String rule ) {
     /*
@@ -17,6 +17,7 @@
  */
 package org.apache.knox.gateway.filter.rewrite.impl.json;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import org.apache.commons.io.input.ReaderInputStream;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriter;
@@ -26,6 +27,7 @@ import org.apache.knox.gateway.util.urltemplate.Resolver;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 
 public class JsonUrlRewriteStreamFilter implements UrlRewriteStreamFilter {
 
@@ -56,9 +58,34 @@ public class JsonUrlRewriteStreamFilter implements UrlRewriteStreamFilter {
       UrlRewriter.Direction direction,
       UrlRewriteFilterContentDescriptor config )
           throws IOException {
+    JsonEncoding jsonEncoding = getJsonEncoding( encoding );
+    if( jsonEncoding != null ) {
+      return new JsonFilterInputStream(
+          new JsonUrlRewriteFilterReader( stream, jsonEncoding, rewriter, resolver, direction, config ) );
+    }
     return new ReaderInputStream(
         new JsonUrlRewriteFilterReader(
             new InputStreamReader( stream, encoding ), rewriter, resolver, direction, config ), encoding );
   }
 
+  /*
+   * Jackson can generate the UTF encodings directly as bytes.  Anything else goes through a
+   * Reader and is re-encoded on the way out.
+   */
+  static JsonEncoding getJsonEncoding( String encoding ) {
+    if( encoding != null ) {
+      try {
+        String name = Charset.forName( encoding ).name();
+        for( JsonEncoding candidate : JsonEncoding.values() ) {
+          if( candidate.getJavaName().equalsIgnoreCase( name ) ) {
+            return candidate;
+          }
+        }
+      } catch( IllegalArgumentException e ) {
+        // Unknown charsets are left for the Reader based path to report.
+      }
+    }
+    return null;
+  }
+
 }
@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl.xml;
+
+import org.apache.knox.gateway.filter.rewrite.i18n.UrlRewriteResources;
+import org.apache.knox.gateway.i18n.resources.ResourcesFactory;
+
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The subset of XPath that can be evaluated incrementally on StAX events: a location path of child
+ * steps, each optionally constrained by attribute predicates, that ends in an element, an attribute
+ * or text().  For example {@code /configuration/property}, {@code value/text()} or
+ * {@code /apps/app[@state='RUNNING']/@href}.  Names are matched against the qualified name as it
+ * appears in the document.
+ * <p>
+ * Anything that needs to look outside the ancestors of the current event, such as the descendant
+ * or parent axes, positional predicates or functions, is rejected by {@link #compile(String)}.
+ */
+final class XmlStreamPath {
+
+  private static final UrlRewriteResources RES = ResourcesFactory.get( UrlRewriteResources.class );
+
+  private static final String NAME = "[\\p{L}_][\\p{L}\\p{N}_.\\-]*(?::[\\p{L}_][\\p{L}\\p{N}_.\\-]*)?";
+  private static final Pattern STEP = Pattern.compile( "(\\*|" + NAME + ")((?:\\[[^\\]]*\\])*)" );
+  private static final Pattern PREDICATE = Pattern.compile(
+      "\\[\\s*@(" + NAME + ")\\s*(?:=\\s*(?:'([^']*)'|\"([^\"]*)\")\\s*)?\\]" );
+  private static final Pattern ATTRIBUTE = Pattern.compile( "@(" + NAME + ")" );
+  private static final String TEXT = "text()";
+
+  enum Target { ELEMENT, ATTRIBUTE, TEXT }
+
+  /**
+   * The view of an element needed to evaluate a step.
+   */
+  interface Node {
+    QName getName();
+
+    String getAttributeValue( String qualifiedName );
+  }
+
+  private final String expression;
+  private final boolean absolute;
+  private final Step[] steps;
+  private final Target target;
+  private final String attribute;
+
+  private XmlStreamPath( String expression, boolean absolute, Step[] steps, Target target, String attribute ) {
+    this.expression = expression;
+    this.absolute = absolute;
+    this.steps = steps;
+    this.target = target;
+    this.attribute = attribute;
+  }
+
+  static XmlStreamPath compile( String expression ) {
+    if( expression == null || expression.trim().isEmpty() ) {
+      throw unsupported( expression, "empty path" );
+    }
+    String path = expression.trim();
+    if( path.contains( "//" ) ) {
+      throw unsupported( expression, "the descendant axis requires the full document" );
+    }
+    boolean absolute = path.startsWith( "/" );
+    List<String> segments = split( expression, absolute ? path.substring( 1 ) : path );
+    List<Step> steps = new ArrayList<>( segments.size() );
+    Target target = Target.ELEMENT;
+    String attribute = null;
+    for( int i = 0; i < segments.size(); i++ ) {
+      String segment = segments.get( i ).trim();
+      boolean last = i == segments.size() - 1;
+      if( TEXT.equals( segment ) || segment.startsWith( "@" ) ) {
+        if( !last ) {
+          throw unsupported( expression, "only the last step may select an attribute or text()" );
+        }
+        if( TEXT.equals( segment ) ) {
+          target = Target.TEXT;
+        } else {
+          Matcher matcher = ATTRIBUTE.matcher( segment );
+          if( !matcher.matches() ) {
+            throw unsupported( expression, "invalid attribute step " + segment );
+          }
+          target = Target.ATTRIBUTE;
+          attribute = matcher.group( 1 );
+        }
+      } else {
+        steps.add( compileStep( expression, segment ) );
+      }
+    }
+    if( absolute && steps.isEmpty() ) {
+      throw unsupported( expression, "an absolute path must name the root element" );
+    }
+    return new XmlStreamPath( expression, absolute, steps.toArray( new Step[ 0 ] ), target, attribute );
+  }
+
+  private static List<String> split( String expression, String path ) {
+    List<String> segments = new ArrayList<>();
+    int start = 0;
+    int depth = 0;
+    char quote = 0;
+    for( int i = 0; i < path.length(); i++ ) {
+      char c = path.charAt( i );
+      if( quote != 0 ) {
+        if( c == quote ) {
+          quote = 0;
+        }
+      } else if( c == '\'' || c == '"' ) {
+        quote = c;
+      } else if( c == '[' ) {
+        depth++;
+      } else if( c == ']' ) {
+        depth--;
+      } else if( c == '/' && depth == 0 ) {
+        segments.add( path.substring( start, i ) );
+        start = i + 1;
+      }
+    }
+    if( quote != 0 || depth != 0 ) {
+      throw unsupported( expression, "unbalanced predicate" );
+    }
+    segments.add( path.substring( start ) );
+    for( String segment : segments ) {
+      if( segment.trim().isEmpty() ) {
+        throw unsupported( expression, "empty step" );
+      }
+    }
+    return segments;
+  }
+
+  private static Step compileStep( String expression, String segment ) {
+    if( ".".equals( segment ) || "..".equals( segment ) || segment.contains( "::" ) ) {
+      throw unsupported( expression, "only the child axis is supported" );
+    }
+    Matcher matcher = STEP.matcher( segment );
+    if( !matcher.matches() ) {
+      throw unsupported( expression, "only element names, * and attribute predicates are supported in " + segment );
+    }
+    String name = matcher.group( 1 );
+    List<String[]> predicates = new ArrayList<>();
+    String remaining = matcher.group( 2 );
+    Matcher predicate = PREDICATE.matcher( remaining );
+    int end = 0;
+    while( predicate.find() && predicate.start() == end ) {
+      String value = predicate.group( 2 ) != null ? predicate.group( 2 ) : predicate.group( 3 );
+      predicates.add( new String[]{ predicate.group( 1 ), value } );
+      end = predicate.end();
+    }
+    if( end != remaining.length() ) {
+      throw unsupported( expression, "only [@name] and [@name='value'] predicates are supported in " + segment );
+    }
+    return new Step( "*".equals( name ) ? null : name, predicates.toArray( new String[ 0 ][] ) );
+  }
+
+  private static IllegalArgumentException unsupported( String expression, String reason ) {
+    return new IllegalArgumentException( RES.unsupportedStreamingPath( expression, reason ) );
+  }
+
+  String getExpression() {
+    return expression;
+  }
+
+  boolean isAbsolute() {
+    return absolute;
+  }
+
+  Target getTarget() {
+    return target;
+  }
+
+  String getAttribute() {
+    return attribute;
+  }
+
+  int getStepCount() {
+    return steps.length;
+  }
+
+  boolean matchesStep( int index, Node node ) {
+    return steps[ index ].matches( node );
+  }
+
+  /**
+   * Checks whether the element path selects the innermost of the open elements.
+   *
+   * @param frames the open elements, outermost first
+   * @param base the number of frames above the context of relative paths, i.e. the depth of the
+   *             current scope element or zero for the document
+   */
+  boolean matches( List<? extends Node> frames, int base ) {
+    int start = absolute ? 0 : base;
+    if( start + steps.length != frames.size() || frames.isEmpty() ) {
+      return false;
+    }
+    for( int i = 0; i < steps.length; i++ ) {
+      if( !steps[ i ].matches( frames.get( start + i ) ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static String qualifiedName( QName name ) {
+    String prefix = name.getPrefix();
+    if( prefix == null || prefix.isEmpty() ) {
+      return name.getLocalPart();
+    } else {
+      return prefix + ":" + name.getLocalPart();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return expression;
+  }
+
+  private static class Step {
+    private final String name;
+    private final String[][] predicates;
+
+    Step( String name, String[][] predicates ) {
+      this.name = name;
+      this.predicates = predicates;
+    }
+
+    boolean matches( Node node ) {
+      if( name != null && !name.equals( qualifiedName( node.getName() ) ) ) {
+        return false;
+      }
+      for( String[] predicate : predicates ) {
+        String value = node.getAttributeValue( predicate[ 0 ] );
+        if( value == null || ( predicate[ 1 ] != null && !predicate[ 1 ].equals( value ) ) ) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+}
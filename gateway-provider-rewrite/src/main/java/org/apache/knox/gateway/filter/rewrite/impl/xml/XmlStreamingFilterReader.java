@@ -0,0 +1,626 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl.xml;
+
+import org.apache.commons.io.output.StringBuilderWriter;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterApplyDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterBufferDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterDetectDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterGroupDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterPathDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterScopeDescriptor;
+import org.apache.knox.gateway.filter.rewrite.i18n.UrlRewriteResources;
+import org.apache.knox.gateway.i18n.resources.ResourcesFactory;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.Comment;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites XML straight from an {@link XMLEventReader} to an {@link XMLStreamWriter} without
+ * building a DOM.  Paths are limited to what {@link XmlStreamPath} can evaluate, and only the
+ * element currently matched by a {@code <buffer>} is held in memory, so memory use depends on
+ * nesting depth and the size of buffered elements rather than on the size of the document.
+ * <p>
+ * Selected with {@code <content type="*&#47;xml" mode="streaming">}.  Configurations that need the
+ * full document are rejected by {@link #validate(String, UrlRewriteFilterContentDescriptor)} when
+ * the rewrite rules are loaded.
+ */
+public abstract class XmlStreamingFilterReader extends Reader {
+  private static final UrlRewriteResources RES = ResourcesFactory.get( UrlRewriteResources.class );
+
+  public static final String DOM_MODE = "dom";
+  public static final String STREAMING_MODE = "streaming";
+
+  private static final String DEFAULT_XML_VERSION = "1.0";
+
+  private static final UrlRewriteFilterPathDescriptor.Compiler<XmlStreamPath> PATH_COMPILER = new StreamPathCompiler();
+  private static final UrlRewriteFilterPathDescriptor.Compiler<Pattern> REGEX_COMPILER = new RegexCompiler();
+
+  private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+  private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+
+  private Reader reader;
+  private XMLEventReader parser;
+  private StringBuilderWriter sink;
+  private StringBuilder buffer;
+  private int offset;
+  private XMLStreamWriter writer;
+  private List<StreamedElement> frames;
+  private List<Scope> scopes;
+  private BufferedElement buffered;
+  private UrlRewriteFilterBufferDescriptor bufferConfig;
+  private boolean ended;
+
+  protected XmlStreamingFilterReader( Reader reader, UrlRewriteFilterContentDescriptor config ) throws IOException, XMLStreamException {
+    this.reader = reader;
+    sink = new StringBuilderWriter();
+    buffer = sink.getBuilder();
+    offset = 0;
+    frames = new ArrayList<>();
+    scopes = new ArrayList<>();
+    scopes.add( new Scope( 0, config ) );
+    parser = INPUT_FACTORY.createXMLEventReader( reader );
+    writer = OUTPUT_FACTORY.createXMLStreamWriter( sink );
+  }
+
+  // Same restrictions as XmlFilterReader.
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty( XMLInputFactory.SUPPORT_DTD, Boolean.FALSE );
+    factory.setProperty( "javax.xml.stream.isSupportingExternalEntities", Boolean.FALSE );
+    factory.setProperty( "javax.xml.stream.isReplacingEntityReferences", Boolean.FALSE );
+    factory.setProperty( "http://java.sun.com/xml/stream/properties/report-cdata-event", Boolean.TRUE );
+    return factory;
+  }
+
+  protected abstract String filterAttribute( QName elementName, QName attributeName, String attributeValue, String ruleName );
+
+  protected abstract String filterText( QName elementName, String text, String ruleName );
+
+  /**
+   * Checks that every selector of the content descriptor can be evaluated in streaming mode.
+   *
+   * @throws IllegalArgumentException describing the first selector that needs the full document
+   */
+  public static void validate( String filterName, UrlRewriteFilterContentDescriptor content ) {
+    try {
+      validate( content, false );
+    } catch( IllegalArgumentException e ) {
+      throw new IllegalArgumentException( RES.unsupportedStreamingContent( filterName, content.type(), e.getMessage() ), e );
+    }
+  }
+
+  private static void validate( UrlRewriteFilterGroupDescriptor group, boolean inBuffer ) {
+    for( UrlRewriteFilterPathDescriptor selector : group.getSelectors() ) {
+      XmlStreamPath path = (XmlStreamPath)selector.compiledPath( PATH_COMPILER );
+      if( selector instanceof UrlRewriteFilterBufferDescriptor || selector instanceof UrlRewriteFilterScopeDescriptor ) {
+        if( inBuffer ) {
+          throw new IllegalArgumentException( "nested " + describe( selector ) + " is not supported" );
+        }
+        if( path.getTarget() != XmlStreamPath.Target.ELEMENT ) {
+          throw new IllegalArgumentException( describe( selector ) + " must select an element" );
+        }
+        validate( (UrlRewriteFilterGroupDescriptor)selector, selector instanceof UrlRewriteFilterBufferDescriptor );
+      } else if( selector instanceof UrlRewriteFilterDetectDescriptor ) {
+        if( !inBuffer ) {
+          throw new IllegalArgumentException( describe( selector ) + " is only supported within a buffer" );
+        }
+        validateBufferedPath( selector, path );
+        validate( (UrlRewriteFilterGroupDescriptor)selector, true );
+      } else if( selector instanceof UrlRewriteFilterApplyDescriptor ) {
+        if( inBuffer ) {
+          validateBufferedPath( selector, path );
+        }
+      } else {
+        throw new IllegalArgumentException( RES.unexpectedRewritePathSelector( selector ) );
+      }
+    }
+  }
+
+  private static void validateBufferedPath( UrlRewriteFilterPathDescriptor selector, XmlStreamPath path ) {
+    if( path.isAbsolute() ) {
+      throw new IllegalArgumentException( describe( selector ) + " must be relative to the buffered element" );
+    }
+  }
+
+  private static String describe( UrlRewriteFilterPathDescriptor selector ) {
+    String type;
+    if( selector instanceof UrlRewriteFilterBufferDescriptor ) {
+      type = "buffer";
+    } else if( selector instanceof UrlRewriteFilterScopeDescriptor ) {
+      type = "scope";
+    } else if( selector instanceof UrlRewriteFilterDetectDescriptor ) {
+      type = "detect";
+    } else {
+      type = "apply";
+    }
+    return String.format( Locale.ROOT, "%s path=\"%s\"", type, selector.path() );
+  }
+
+  @Override
+  public int read( char[] destBuffer, int destOffset, int destCount ) throws IOException {
+    if( destCount == 0 ) {
+      return 0;
+    }
+    try {
+      while( buffer.length() - offset < destCount && !ended ) {
+        if( parser.hasNext() ) {
+          processEvent( parser.nextEvent() );
+        } else {
+          ended = true;
+        }
+        writer.flush();
+      }
+    } catch( XMLStreamException e ) {
+      throw new IOException( e );
+    }
+    int available = buffer.length() - offset;
+    if( available == 0 ) {
+      return -1;
+    }
+    int count = Math.min( destCount, available );
+    buffer.getChars( offset, offset + count, destBuffer, destOffset );
+    offset += count;
+    if( offset == buffer.length() ) {
+      offset = 0;
+      buffer.setLength( 0 );
+    }
+    return count;
+  }
+
+  private void processEvent( XMLEvent event ) throws XMLStreamException {
+    int type = event.getEventType();
+    switch( type ) {
+      case XMLStreamConstants.START_DOCUMENT:
+        processStartDocument( (StartDocument)event );
+        break;
+      case XMLStreamConstants.END_DOCUMENT:
+        writer.writeEndDocument();
+        break;
+      case XMLStreamConstants.START_ELEMENT:
+        processStartElement( event.asStartElement() );
+        break;
+      case XMLStreamConstants.END_ELEMENT:
+        processEndElement();
+        break;
+      case XMLStreamConstants.CHARACTERS:
+      case XMLStreamConstants.CDATA:
+      case XMLStreamConstants.SPACE:
+        processCharacters( event.asCharacters() );
+        break;
+      case XMLStreamConstants.COMMENT:
+        processComment( (Comment)event );
+        break;
+      default:
+        // Fail if we run into any of these for now, as XmlFilterReader does.
+        throw new IllegalStateException( Integer.toString( type ) );
+    }
+  }
+
+  private void processStartDocument( StartDocument event ) throws XMLStreamException {
+    String version = event.getVersion() == null ? DEFAULT_XML_VERSION : event.getVersion();
+    if( event.encodingSet() ) {
+      writer.writeStartDocument( event.getCharacterEncodingScheme(), version );
+    } else {
+      writer.writeStartDocument( version );
+    }
+  }
+
+  private void processStartElement( StartElement event ) throws XMLStreamException {
+    if( buffered != null ) {
+      BufferedElement element = new BufferedElement( event, buffered );
+      buffered.children.add( element );
+      buffered = element;
+      return;
+    }
+
+    XMLEvent next = parser.peek();
+    boolean empty = next != null && next.isEndElement();
+    StreamedElement element = new StreamedElement( event, empty );
+    frames.add( element );
+    Scope scope = currentScope();
+    UrlRewriteFilterPathDescriptor selector = pickFirstMatchingElement( scope );
+    if( selector instanceof UrlRewriteFilterBufferDescriptor ) {
+      buffered = new BufferedElement( event, null );
+      bufferConfig = (UrlRewriteFilterBufferDescriptor)selector;
+      return;
+    }
+    if( selector instanceof UrlRewriteFilterScopeDescriptor ) {
+      scope = new Scope( frames.size(), (UrlRewriteFilterScopeDescriptor)selector );
+      scopes.add( scope );
+    }
+
+    QName name = event.getName();
+    if( empty ) {
+      writer.writeEmptyElement( prefixOf( name ), name.getLocalPart(), uriOf( name ) );
+    } else {
+      writer.writeStartElement( prefixOf( name ), name.getLocalPart(), uriOf( name ) );
+    }
+    writeNamespaces( event.getNamespaces() );
+    Iterator attributes = event.getAttributes();
+    while( attributes.hasNext() ) {
+      Attribute attribute = (Attribute)attributes.next();
+      writeAttribute( attribute.getName(), streamAttribute( scope, name, attribute ) );
+    }
+  }
+
+  private String streamAttribute( Scope scope, QName elementName, Attribute attribute ) {
+    String value = attribute.getValue();
+    if( scope.config == null || scope.config.getSelectors().isEmpty() ) {
+      return filterAttribute( elementName, attribute.getName(), value, null );
+    }
+    String attributeName = XmlStreamPath.qualifiedName( attribute.getName() );
+    for( UrlRewriteFilterPathDescriptor selector : scope.config.getSelectors() ) {
+      XmlStreamPath path = (XmlStreamPath)selector.compiledPath( PATH_COMPILER );
+      if( path.getTarget() == XmlStreamPath.Target.ATTRIBUTE
+          && path.getAttribute().equals( attributeName )
+          && path.matches( frames, scope.base ) ) {
+        if( selector instanceof UrlRewriteFilterApplyDescriptor ) {
+          value = filterAttribute( elementName, attribute.getName(), value, ((UrlRewriteFilterApplyDescriptor)selector).rule() );
+        }
+        break;
+      }
+    }
+    return value;
+  }
+
+  private void processEndElement() throws XMLStreamException {
+    if( buffered != null ) {
+      if( buffered.parent != null ) {
+        buffered = buffered.parent;
+        return;
+      }
+      processBufferedElement( buffered, bufferConfig );
+      writeBufferedElement( buffered );
+      buffered = null;
+      bufferConfig = null;
+      frames.remove( frames.size() - 1 );
+      return;
+    }
+    if( currentScope().base == frames.size() && scopes.size() > 1 ) {
+      scopes.remove( scopes.size() - 1 );
+    }
+    StreamedElement element = frames.remove( frames.size() - 1 );
+    if( !element.empty ) {
+      writer.writeEndElement();
+    }
+  }
+
+  private void processCharacters( Characters event ) throws XMLStreamException {
+    if( buffered != null ) {
+      buffered.children.add( event );
+      return;
+    }
+    if( frames.isEmpty() ) {
+      // Whitespace outside of the root element is not significant.
+      return;
+    }
+    String value = event.getData();
+    if( !event.isWhiteSpace() ) {
+      Scope scope = currentScope();
+      QName elementName = frames.get( frames.size() - 1 ).getName();
+      if( scope.config == null || scope.config.getSelectors().isEmpty() ) {
+        value = filterText( elementName, value, null );
+      } else {
+        for( UrlRewriteFilterPathDescriptor selector : scope.config.getSelectors() ) {
+          XmlStreamPath path = (XmlStreamPath)selector.compiledPath( PATH_COMPILER );
+          if( path.getTarget() != XmlStreamPath.Target.ATTRIBUTE && path.matches( frames, scope.base ) ) {
+            if( selector instanceof UrlRewriteFilterApplyDescriptor ) {
+              value = filterText( elementName, value, ((UrlRewriteFilterApplyDescriptor)selector).rule() );
+            }
+            break;
+          }
+        }
+      }
+    }
+    if( event.isCData() ) {
+      writer.writeCData( value );
+    } else {
+      writer.writeCharacters( value );
+    }
+  }
+
+  private void processComment( Comment event ) throws XMLStreamException {
+    if( buffered != null ) {
+      buffered.children.add( event );
+    } else {
+      writer.writeComment( event.getText() );
+    }
+  }
+
+  private UrlRewriteFilterPathDescriptor pickFirstMatchingElement( Scope scope ) {
+    if( scope.config != null ) {
+      for( UrlRewriteFilterPathDescriptor selector : scope.config.getSelectors() ) {
+        XmlStreamPath path = (XmlStreamPath)selector.compiledPath( PATH_COMPILER );
+        if( path.getTarget() == XmlStreamPath.Target.ELEMENT && path.matches( frames, scope.base ) ) {
+          return selector;
+        }
+      }
+    }
+    return null;
+  }
+
+  private void processBufferedElement( BufferedElement element, UrlRewriteFilterGroupDescriptor config ) {
+    for( UrlRewriteFilterPathDescriptor selector : config.getSelectors() ) {
+      XmlStreamPath path = (XmlStreamPath)selector.compiledPath( PATH_COMPILER );
+      BufferedElement match = select( element, path, 0 );
+      if( selector instanceof UrlRewriteFilterApplyDescriptor ) {
+        if( match != null ) {
+          String rule = ((UrlRewriteFilterApplyDescriptor)selector).rule();
+          if( path.getTarget() == XmlStreamPath.Target.ATTRIBUTE ) {
+            String value = match.getAttributeValue( path.getAttribute() );
+            match.setAttributeValue( path.getAttribute(), filterAttribute( match.getName(), match.getAttributeName( path.getAttribute() ), value, rule ) );
+          } else {
+            match.setText( filterText( match.getName(), match.getText(), rule ) );
+          }
+        }
+      } else if( selector instanceof UrlRewriteFilterDetectDescriptor ) {
+        if( match != null ) {
+          String value = path.getTarget() == XmlStreamPath.Target.ATTRIBUTE
+              ? match.getAttributeValue( path.getAttribute() ) : match.getText();
+          UrlRewriteFilterDetectDescriptor detect = (UrlRewriteFilterDetectDescriptor)selector;
+          if( detect.compiledValue( REGEX_COMPILER ).matcher( value ).matches() ) {
+            processBufferedElement( element, detect );
+          }
+        }
+      } else {
+        throw new IllegalArgumentException( RES.unexpectedRewritePathSelector( selector ) );
+      }
+    }
+  }
+
+  // Finds the first element in document order selected by the relative path from the context element.
+  private static BufferedElement select( BufferedElement context, XmlStreamPath path, int step ) {
+    if( step == path.getStepCount() ) {
+      if( path.getTarget() == XmlStreamPath.Target.ATTRIBUTE && context.getAttributeValue( path.getAttribute() ) == null ) {
+        return null;
+      }
+      return context;
+    }
+    for( Object child : context.children ) {
+      if( child instanceof BufferedElement && path.matchesStep( step, (BufferedElement)child ) ) {
+        BufferedElement match = select( (BufferedElement)child, path, step + 1 );
+        if( match != null ) {
+          return match;
+        }
+      }
+    }
+    return null;
+  }
+
+  private void writeBufferedElement( BufferedElement element ) throws XMLStreamException {
+    QName name = element.getName();
+    if( element.children.isEmpty() ) {
+      writer.writeEmptyElement( prefixOf( name ), name.getLocalPart(), uriOf( name ) );
+    } else {
+      writer.writeStartElement( prefixOf( name ), name.getLocalPart(), uriOf( name ) );
+    }
+    writeNamespaces( element.event.getNamespaces() );
+    for( Map.Entry<QName,String> attribute : element.attributes.entrySet() ) {
+      writeAttribute( attribute.getKey(), attribute.getValue() );
+    }
+    if( element.children.isEmpty() ) {
+      return;
+    }
+    for( Object child : element.children ) {
+      if( child instanceof BufferedElement ) {
+        writeBufferedElement( (BufferedElement)child );
+      } else if( child instanceof Comment ) {
+        writer.writeComment( ((Comment)child).getText() );
+      } else if( child instanceof Characters && ((Characters)child).isCData() ) {
+        writer.writeCData( ((Characters)child).getData() );
+      } else if( child instanceof Characters ) {
+        writer.writeCharacters( ((Characters)child).getData() );
+      } else {
+        writer.writeCharacters( (String)child );
+      }
+    }
+    writer.writeEndElement();
+  }
+
+  private void writeNamespaces( Iterator namespaces ) throws XMLStreamException {
+    while( namespaces.hasNext() ) {
+      Namespace namespace = (Namespace)namespaces.next();
+      if( namespace.isDefaultNamespaceDeclaration() ) {
+        writer.writeDefaultNamespace( namespace.getNamespaceURI() );
+      } else {
+        writer.writeNamespace( namespace.getPrefix(), namespace.getNamespaceURI() );
+      }
+    }
+  }
+
+  private void writeAttribute( QName name, String value ) throws XMLStreamException {
+    String prefix = prefixOf( name );
+    if( prefix.isEmpty() ) {
+      writer.writeAttribute( name.getLocalPart(), value );
+    } else {
+      writer.writeAttribute( prefix, uriOf( name ), name.getLocalPart(), value );
+    }
+  }
+
+  private static String prefixOf( QName name ) {
+    return name.getPrefix() == null ? "" : name.getPrefix();
+  }
+
+  private static String uriOf( QName name ) {
+    return name.getNamespaceURI() == null ? "" : name.getNamespaceURI();
+  }
+
+  private Scope currentScope() {
+    return scopes.get( scopes.size() - 1 );
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      parser.close();
+      writer.close();
+    } catch( XMLStreamException e ) {
+      throw new IOException( e );
+    }
+    reader.close();
+    frames.clear();
+    scopes.clear();
+  }
+
+  private static class Scope {
+    private final int base;
+    private final UrlRewriteFilterGroupDescriptor config;
+
+    Scope( int base, UrlRewriteFilterGroupDescriptor config ) {
+      this.base = base;
+      this.config = config;
+    }
+  }
+
+  private static class StreamedElement implements XmlStreamPath.Node {
+    private final StartElement event;
+    private final boolean empty;
+
+    StreamedElement( StartElement event, boolean empty ) {
+      this.event = event;
+      this.empty = empty;
+    }
+
+    @Override
+    public QName getName() {
+      return event.getName();
+    }
+
+    @Override
+    public String getAttributeValue( String qualifiedName ) {
+      Iterator attributes = event.getAttributes();
+      while( attributes.hasNext() ) {
+        Attribute attribute = (Attribute)attributes.next();
+        if( qualifiedName.equals( XmlStreamPath.qualifiedName( attribute.getName() ) ) ) {
+          return attribute.getValue();
+        }
+      }
+      return null;
+    }
+  }
+
+  private static class BufferedElement implements XmlStreamPath.Node {
+    private final StartElement event;
+    private final BufferedElement parent;
+    private final Map<QName,String> attributes = new LinkedHashMap<>();
+    // Child BufferedElements, Characters and Comments, or a String once the text has been replaced.
+    private final List<Object> children = new ArrayList<>();
+
+    BufferedElement( StartElement event, BufferedElement parent ) {
+      this.event = event;
+      this.parent = parent;
+      Iterator iterator = event.getAttributes();
+      while( iterator.hasNext() ) {
+        Attribute attribute = (Attribute)iterator.next();
+        attributes.put( attribute.getName(), attribute.getValue() );
+      }
+    }
+
+    @Override
+    public QName getName() {
+      return event.getName();
+    }
+
+    @Override
+    public String getAttributeValue( String qualifiedName ) {
+      QName name = getAttributeName( qualifiedName );
+      return name == null ? null : attributes.get( name );
+    }
+
+    QName getAttributeName( String qualifiedName ) {
+      for( QName name : attributes.keySet() ) {
+        if( qualifiedName.equals( XmlStreamPath.qualifiedName( name ) ) ) {
+          return name;
+        }
+      }
+      return null;
+    }
+
+    void setAttributeValue( String qualifiedName, String value ) {
+      attributes.put( getAttributeName( qualifiedName ), value );
+    }
+
+    String getText() {
+      StringBuilder text = new StringBuilder();
+      appendText( text );
+      return text.toString();
+    }
+
+    private void appendText( StringBuilder text ) {
+      for( Object child : children ) {
+        if( child instanceof BufferedElement ) {
+          ((BufferedElement)child).appendText( text );
+        } else if( child instanceof Characters ) {
+          text.append( ((Characters)child).getData() );
+        } else if( child instanceof String ) {
+          text.append( (String)child );
+        }
+      }
+    }
+
+    void setText( String text ) {
+      children.clear();
+      children.add( text );
+    }
+  }
+
+  private static class StreamPathCompiler implements UrlRewriteFilterPathDescriptor.Compiler<XmlStreamPath> {
+    @Override
+    public XmlStreamPath compile( String expression, XmlStreamPath compiled ) {
+      if( compiled != null ) {
+        return compiled;
+      } else {
+        return XmlStreamPath.compile( expression );
+      }
+    }
+  }
+
+  private static class RegexCompiler implements UrlRewriteFilterPathDescriptor.Compiler<Pattern> {
+    @Override
+    public Pattern compile( String expression, Pattern compiled ) {
+      if( compiled != null ) {
+        return compiled;
+      } else {
+        return Pattern.compile( expression );
+      }
+    }
+  }
+}
@@ -50,6 +50,10 @@ public class XmlUrlRewriteFilterReader extends XmlFilterReader {
 
   //TODO: Need to limit which values are attempted to be filtered by the name.
   private String filterValueString( String value, String rule ) {
+    return filterValueString( rewriter, resolver, direction, value, rule );
+  }
+
+  static String filterValueString( UrlRewriter rewriter, Resolver resolver, UrlRewriter.Direction direction, String value, String rule ) {
     try {
       Template input = Parser.parseLiteral( value );
       if( input != null ) {
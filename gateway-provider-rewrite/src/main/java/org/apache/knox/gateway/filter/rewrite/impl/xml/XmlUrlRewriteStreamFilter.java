@@ -54,6 +54,11 @@ public class XmlUrlRewriteStreamFilter implements UrlRewriteStreamFilter {
       UrlRewriteFilterContentDescriptor config )
           throws IOException {
     try {
+      if( config != null && XmlStreamingFilterReader.STREAMING_MODE.equalsIgnoreCase( config.mode() ) ) {
+        return new ReaderInputStream(
+            new XmlUrlRewriteStreamingFilterReader(
+                new InputStreamReader( stream, encoding ), rewriter, resolver, direction, config ), encoding );
+      }
       return new ReaderInputStream(
           new XmlUrlRewriteFilterReader(
               new InputStreamReader( stream, encoding ), rewriter, resolver, direction, config ), encoding );
@@ -21,25 +21,30 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.util.urltemplate.Expander;
 import org.apache.knox.gateway.util.urltemplate.Matcher;
 import org.apache.knox.gateway.util.urltemplate.Parser;
@@ -90,6 +95,49 @@ public class UrlRewriteProcessorTest {
     processor.destroy();
   }
 
+  @Test
+  public void testImplicitRuleSelectionIsMemoized() throws IOException, URISyntaxException {
+    UrlRewriteEnvironment environment = EasyMock.createNiceMock( UrlRewriteEnvironment.class );
+    EasyMock.replay( environment );
+
+    UrlRewriteProcessor processor = new UrlRewriteProcessor();
+    UrlRewriteRulesDescriptor config = UrlRewriteRulesDescriptorFactory.load(
+        "xml", getTestResourceReader( "rewrite.xml" ) );
+    processor.initialize( environment, config );
+
+    for( int i = 0; i < 3; i++ ) {
+      Template outputUrl = processor.rewrite(
+          null, Parser.parseLiteral( "test-scheme://test-host:1/test-input-path" ), UrlRewriter.Direction.IN, null );
+      assertThat( outputUrl.toString(), is( "test-scheme://test-host:1/test-output-path" ) );
+    }
+    processor.ruleMatches.cleanUp();
+    assertThat( processor.ruleMatches.estimatedSize(), is( 1L ) );
+
+    processor.destroy();
+  }
+
+  @Test
+  public void testRuleMatchCacheCanBeDisabled() throws IOException, URISyntaxException {
+    GatewayConfig gatewayConfig = EasyMock.createNiceMock( GatewayConfig.class );
+    EasyMock.expect( gatewayConfig.getRewriteRuleMatchCacheSize() ).andReturn( 0 ).anyTimes();
+    EasyMock.expect( gatewayConfig.getGlobalRulesServices() ).andReturn( Collections.emptyList() ).anyTimes();
+    UrlRewriteEnvironment environment = EasyMock.createNiceMock( UrlRewriteEnvironment.class );
+    EasyMock.expect( environment.getAttribute( GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE ) ).andReturn( gatewayConfig ).anyTimes();
+    EasyMock.replay( gatewayConfig, environment );
+
+    UrlRewriteProcessor processor = new UrlRewriteProcessor();
+    UrlRewriteRulesDescriptor config = UrlRewriteRulesDescriptorFactory.load(
+        "xml", getTestResourceReader( "rewrite.xml" ) );
+    processor.initialize( environment, config );
+
+    Template outputUrl = processor.rewrite(
+        null, Parser.parseLiteral( "test-scheme://test-host:1/test-input-path" ), UrlRewriter.Direction.IN, null );
+    assertThat( outputUrl.toString(), is( "test-scheme://test-host:1/test-output-path" ) );
+    assertThat( processor.ruleMatches, nullValue() );
+
+    processor.destroy();
+  }
+
   @Test
   public void testMultipleIdenticalRewriteOutputRules() throws IOException, URISyntaxException {
     UrlRewriteEnvironment environment = EasyMock.createNiceMock( UrlRewriteEnvironment.class );
@@ -433,6 +481,41 @@ public class UrlRewriteProcessorTest {
     processor.destroy();
   }
 
+  @Test
+  public void testStreamingContentValidatedOnInitialize() throws Exception {
+    UrlRewriteEnvironment environment = EasyMock.createNiceMock( UrlRewriteEnvironment.class );
+    EasyMock.replay( environment );
+
+    UrlRewriteRulesDescriptor config = UrlRewriteRulesDescriptorFactory.load(
+        "xml", new StringReader(
+            "<rules><filter name=\"test-filter\"><content type=\"*/xml\" mode=\"streaming\">" +
+            "<buffer path=\"/configuration/property\"><detect path=\"name\" value=\"x\">" +
+            "<apply path=\"value\" rule=\"test-rule\"/></detect></buffer></content></filter></rules>" ) );
+    assertThat( config.getFilter( "test-filter" ).getContents().get( 0 ).mode(), is( "streaming" ) );
+    UrlRewriteProcessor processor = new UrlRewriteProcessor();
+    processor.initialize( environment, config );
+    processor.destroy();
+
+    config = UrlRewriteRulesDescriptorFactory.load(
+        "xml", new StringReader(
+            "<rules><filter name=\"test-filter\"><content type=\"*/xml\" mode=\"streaming\">" +
+            "<apply path=\"//property/value\" rule=\"test-rule\"/></content></filter></rules>" ) );
+    try {
+      new UrlRewriteProcessor().initialize( environment, config );
+      fail( "Expected streaming content with a descendant path to be rejected" );
+    } catch( IllegalArgumentException e ) {
+      assertThat( e.getMessage(), containsString( "test-filter" ) );
+      assertThat( e.getMessage(), containsString( "//property/value" ) );
+    }
+
+    config.getFilter( "test-filter" ).getContents().get( 0 ).mode( "unknown" );
+    try {
+      new UrlRewriteProcessor().initialize( environment, config );
+      fail( "Expected unknown content mode to be rejected" );
+    } catch( IllegalArgumentException e ) {
+      assertThat( e.getMessage(), containsString( "unknown" ) );
+    }
+  }
 
   /**
    * Turn a string containing URL parameters, e.g.
@@ -17,6 +17,7 @@
  */
 package org.apache.knox.gateway.filter.rewrite.impl.json;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.jayway.jsonassert.JsonAssert;
 import org.apache.commons.io.IOUtils;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterApplyDescriptor;
@@ -29,8 +30,12 @@ import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteRulesDescriptorFacto
 import org.apache.knox.test.TestUtils;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -41,6 +46,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
 public class JsonFilterReaderTest {
@@ -352,4 +358,98 @@ public class JsonFilterReaderTest {
     output = IOUtils.toString( filter );
     assertThat( output, is( "{\"test-name\":\"\\b\"}" ) );
   }
+
+  @Test
+  public void testByteStreamMatchesReader() throws IOException {
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter" );
+    UrlRewriteFilterContentDescriptor contentConfig = filterConfig.addContent( "text/json" );
+    contentConfig.addApply( "$.links[*].href", "stream-rule" );
+    contentConfig.addBuffer( "$.apps.app[*]" ).addApply( "$.url", "buffer-rule" );
+
+    StringBuilder input = new StringBuilder( "{\"apps\":{\"app\":[" );
+    for( int i = 0; i < 5000; i++ ) {
+      if( i > 0 ) {
+        input.append( ',' );
+      }
+      input.append( "{\"id\":\"app-" ).append( i )
+          .append( "\",\"name\":\"n\u00e9-" ).append( i )
+          .append( "\",\"url\":\"http://host:8088/app/" ).append( i )
+          .append( "\",\"progress\":" ).append( i / 7.0 )
+          .append( ",\"done\":" ).append( i % 2 == 0 )
+          .append( ",\"queue\":null}" );
+    }
+    input.append( "]},\"links\":[" );
+    for( int i = 0; i < 5000; i++ ) {
+      if( i > 0 ) {
+        input.append( ',' );
+      }
+      input.append( "{\"href\":\"http://host:8088/link/" ).append( i ).append( "\"}" );
+    }
+    input.append( "]}" );
+
+    String expected = IOUtils.toString( new RuleJsonFilterReader( new StringReader( input.toString() ), contentConfig ) );
+    assertThat( expected, containsString( "\"url\":\"buffer-rule<http://host:8088/app/1>\"" ) );
+    assertThat( expected, containsString( "\"name\":\"n\u00e9-4999\"" ) );
+
+    JsonFilterInputStream stream = new JsonFilterInputStream( new RuleJsonFilterReader(
+        new ByteArrayInputStream( input.toString().getBytes( StandardCharsets.UTF_8 ) ), JsonEncoding.UTF8, contentConfig ) );
+    // Read with a small buffer to exercise partial drains of the output sink.
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buffer = new byte[ 37 ];
+    for( int count = stream.read( buffer ); count != -1; count = stream.read( buffer ) ) {
+      output.write( buffer, 0, count );
+    }
+    stream.close();
+
+    assertThat( output.toString( StandardCharsets.UTF_8.name() ), is( expected ) );
+  }
+
+  @Test
+  public void testByteStreamReplacesMalformedInput() throws IOException {
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter" );
+    UrlRewriteFilterContentDescriptor contentConfig = filterConfig.addContent( "text/json" );
+    contentConfig.addApply( "$.url", "stream-rule" );
+
+    // 0xC3 starts a two byte sequence that 0x28 can't continue and 0xFF is never valid UTF-8.
+    byte[] input = { '{', '"', 'n', '"', ':', '"', 'a', (byte)0xC3, '(', (byte)0xFF, '"', ',',
+        '"', 'u', 'r', 'l', '"', ':', '"', 'h', '"', '}' };
+
+    String expected = IOUtils.toString( new RuleJsonFilterReader(
+        new InputStreamReader( new ByteArrayInputStream( input ), StandardCharsets.UTF_8 ), contentConfig ) );
+    assertThat( expected, is( "{\"n\":\"a\ufffd(\ufffd\",\"url\":\"stream-rule<h>\"}" ) );
+
+    JsonFilterInputStream stream = new JsonFilterInputStream( new RuleJsonFilterReader(
+        new ByteArrayInputStream( input ), JsonEncoding.UTF8, contentConfig ) );
+    String output = IOUtils.toString( stream, StandardCharsets.UTF_8 );
+    stream.close();
+
+    assertThat( output, is( expected ) );
+  }
+
+  @Test
+  public void testGetJsonEncoding() {
+    assertThat( JsonUrlRewriteStreamFilter.getJsonEncoding( "UTF-8" ), is( JsonEncoding.UTF8 ) );
+    assertThat( JsonUrlRewriteStreamFilter.getJsonEncoding( "utf8" ), is( JsonEncoding.UTF8 ) );
+    assertThat( JsonUrlRewriteStreamFilter.getJsonEncoding( "UTF-16LE" ), is( JsonEncoding.UTF16_LE ) );
+    assertNull( JsonUrlRewriteStreamFilter.getJsonEncoding( "ISO-8859-1" ) );
+    assertNull( JsonUrlRewriteStreamFilter.getJsonEncoding( "no-such-charset" ) );
+    assertNull( JsonUrlRewriteStreamFilter.getJsonEncoding( null ) );
+  }
+
+  private static class RuleJsonFilterReader extends JsonFilterReader {
+    RuleJsonFilterReader( Reader reader, UrlRewriteFilterContentDescriptor config ) throws IOException {
+      super( reader, config );
+    }
+
+    RuleJsonFilterReader( InputStream stream, JsonEncoding encoding, UrlRewriteFilterContentDescriptor config ) throws IOException {
+      super( stream, encoding, config );
+    }
+
+    @Override
+    protected String filterValueString( String name, String value, String rule ) {
+      return rule == null ? value : rule + "<" + value + ">";
+    }
+  }
 }
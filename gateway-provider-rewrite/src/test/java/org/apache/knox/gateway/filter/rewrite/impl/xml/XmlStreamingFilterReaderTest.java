@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl.xml;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterBufferDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterDetectDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteRulesDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteRulesDescriptorFactory;
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteFilterScopeDescriptorImpl;
+import org.apache.knox.test.TestUtils;
+import org.junit.Test;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.fail;
+import static org.xmlmatchers.XmlMatchers.hasXPath;
+import static org.xmlmatchers.transform.XmlConverters.the;
+
+public class XmlStreamingFilterReaderTest {
+
+  private static UrlRewriteFilterContentDescriptor createContent() {
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter-1" );
+    return filterConfig.addContent( "text/xml" ).mode( XmlStreamingFilterReader.STREAMING_MODE );
+  }
+
+  private static String load( String name ) throws IOException {
+    InputStream stream = TestUtils.getResourceStream( XmlFilterReaderTest.class, name );
+    return IOUtils.toString( stream, StandardCharsets.UTF_8 );
+  }
+
+  private static String filter( String input, UrlRewriteFilterContentDescriptor config ) throws IOException, XMLStreamException {
+    return IOUtils.toString( new TestXmlStreamingFilterReader( new StringReader( input ), config ) );
+  }
+
+  @Test
+  public void testNoConfigFiltersEverything() throws Exception {
+    String output = filter( "<root a=\"1\" xmlns:p=\"urn:p\"><p:child p:b=\"2\">text</p:child><empty/></root>", null );
+
+    assertThat( the( output ), hasXPath( "/root/@a", equalTo( "attr:null{1}" ) ) );
+    assertThat( the( output ), hasXPath( "/root/*[local-name()='child']/text()", equalTo( "text:null{text}" ) ) );
+    assertThat( output, containsString( "<empty/>" ) );
+    assertThat( output, containsString( "xmlns:p=\"urn:p\"" ) );
+  }
+
+  @Test
+  public void testStreamedApplyForElements() throws Exception {
+    UrlRewriteFilterContentDescriptor contentConfig = createContent();
+    contentConfig.addApply( "/properties/property/value/text()", "test-rule-2" );
+
+    String output = filter( load( "properties-elements.xml" ), contentConfig );
+
+    assertThat( the( output ), hasXPath( "/properties/property[1]/name/text()", equalTo( "test-name-1" ) ) );
+    assertThat( the( output ), hasXPath( "/properties/property[1]/value/text()", equalTo( "text:test-rule-2{test-value-1}" ) ) );
+    assertThat( the( output ), hasXPath( "/properties/property[3]/value/text()", equalTo( "text:test-rule-2{test-value-3}" ) ) );
+  }
+
+  @Test
+  public void testStreamedApplyWithAttributePredicate() throws Exception {
+    UrlRewriteFilterContentDescriptor contentConfig = createContent();
+    contentConfig.addApply( "/properties/property[@name='test-name-2']/@value", "test-rule-2" );
+
+    String output = filter( load( "properties-attributes.xml" ), contentConfig );
+
+    assertThat( the( output ), hasXPath( "/properties/property[1]/@value", equalTo( "test-value-1" ) ) );
+    assertThat( the( output ), hasXPath( "/properties/property[2]/@value", equalTo( "attr:test-rule-2{test-value-2}" ) ) );
+    assertThat( the( output ), hasXPath( "/properties/property[3]/@value", equalTo( "test-value-3" ) ) );
+  }
+
+  @Test
+  public void testScopedApply() throws Exception {
+    UrlRewriteFilterContentDescriptor contentConfig = createContent();
+    UrlRewriteFilterScopeDescriptorImpl scopeConfig = new UrlRewriteFilterScopeDescriptorImpl();
+    scopeConfig.setPath( "/root/links" );
+    scopeConfig.addApply( "link/@href", "test-rule" );
+    contentConfig.addSelector( scopeConfig );
+
+    String output = filter( "<root><link href=\"a\"/><links><link href=\"b\"/></links></root>", contentConfig );
+
+    assertThat( the( output ), hasXPath( "/root/link/@href", equalTo( "a" ) ) );
+    assertThat( the( output ), hasXPath( "/root/links/link/@href", equalTo( "attr:test-rule{b}" ) ) );
+  }
+
+  @Test
+  public void testBufferedDetectApplyForElements() throws Exception {
+    UrlRewriteFilterContentDescriptor contentConfig = createContent();
+    UrlRewriteFilterBufferDescriptor bufferConfig = contentConfig.addBuffer( "/properties/property" );
+    UrlRewriteFilterDetectDescriptor detectConfig = bufferConfig.addDetect( "name", "test-name-2" );
+    detectConfig.addApply( "value", "test-rule-2" );
+
+    String output = filter( load( "properties-elements.xml" ), contentConfig );
+
+    assertThat( the( output ), hasXPath( "/properties/property[1]/value/text()", equalTo( "test-value-1" ) ) );
+    assertThat( the( output ), hasXPath( "/properties/property[2]/name/text()", equalTo( "test-name-2" ) ) );
+    assertThat( the( output ), hasXPath( "/properties/property[2]/value/text()", equalTo( "text:test-rule-2{test-value-2}" ) ) );
+    assertThat( the( output ), hasXPath( "/properties/property[3]/value/text()", equalTo( "test-value-3" ) ) );
+  }
+
+  @Test
+  public void testBufferedDetectApplyForAttributes() throws Exception {
+    UrlRewriteFilterContentDescriptor contentConfig = createContent();
+    UrlRewriteFilterBufferDescriptor bufferConfig = contentConfig.addBuffer( "/properties/property" );
+    UrlRewriteFilterDetectDescriptor detectConfig = bufferConfig.addDetect( "@name", "test-name-2" );
+    detectConfig.addApply( "@value", "test-rule-2" );
+
+    String output = filter( load( "properties-attributes.xml" ), contentConfig );
+
+    assertThat( the( output ), hasXPath( "/properties/property[1]/@value", equalTo( "test-value-1" ) ) );
+    assertThat( the( output ), hasXPath( "/properties/property[2]/@value", equalTo( "attr:test-rule-2{test-value-2}" ) ) );
+    assertThat( the( output ), hasXPath( "/properties/property[3]/@value", equalTo( "test-value-3" ) ) );
+  }
+
+  @Test
+  public void testEscaping() throws Exception {
+    UrlRewriteFilterContentDescriptor contentConfig = createContent();
+    contentConfig.addApply( "/root/other", "test-rule" );
+
+    String output = filter( "<root a=\"&quot;&lt;\"><![CDATA[<raw>]]>&amp;<!--note--></root>", contentConfig );
+
+    assertThat( output, containsString( "a=\"&quot;&lt;\"" ) );
+    assertThat( output, containsString( "<![CDATA[<raw>]]>&amp;<!--note-->" ) );
+  }
+
+  @Test
+  public void testValidateRejectsPathsNeedingTheDocument() {
+    assertInvalid( "//property/value", "descendant axis" );
+    assertInvalid( "/properties/property[1]/value", "predicates" );
+    assertInvalid( "/properties/property/../value", "child axis" );
+    assertInvalid( "$.url", "$.url" );
+
+    UrlRewriteFilterContentDescriptor contentConfig = createContent();
+    contentConfig.addBuffer( "/properties/property" ).addApply( "/properties/property/value", "test-rule" );
+    try {
+      XmlStreamingFilterReader.validate( "filter-1", contentConfig );
+      fail( "Expected absolute path within a buffer to be rejected" );
+    } catch( IllegalArgumentException e ) {
+      assertThat( e.getMessage(), containsString( "filter-1" ) );
+      assertThat( e.getMessage(), containsString( "relative to the buffered element" ) );
+    }
+  }
+
+  @Test
+  public void testValidateAcceptsServiceDefinitionPaths() {
+    UrlRewriteFilterContentDescriptor contentConfig = createContent();
+    contentConfig.addApply( "/appAttempts/appAttempt/nodeHttpAddress", "test-rule" );
+    contentConfig.addApply( "/properties/property/@value", "test-rule" );
+    UrlRewriteFilterBufferDescriptor bufferConfig = contentConfig.addBuffer( "/configuration/property" );
+    bufferConfig.addDetect( "name", "fs.defaultFS" ).addApply( "value", "test-rule" );
+    bufferConfig.addApply( "value/text()", "test-rule" );
+    XmlStreamingFilterReader.validate( "filter-1", contentConfig );
+  }
+
+  private static void assertInvalid( String path, String reason ) {
+    UrlRewriteFilterContentDescriptor contentConfig = createContent();
+    contentConfig.addApply( path, "test-rule" );
+    try {
+      XmlStreamingFilterReader.validate( "filter-1", contentConfig );
+      fail( "Expected " + path + " to be rejected" );
+    } catch( IllegalArgumentException e ) {
+      assertThat( e.getMessage(), containsString( path ) );
+      assertThat( e.getMessage(), containsString( reason ) );
+    }
+  }
+
+  private static class TestXmlStreamingFilterReader extends XmlStreamingFilterReader {
+    TestXmlStreamingFilterReader( Reader reader, UrlRewriteFilterContentDescriptor config ) throws IOException, XMLStreamException {
+      super( reader, config );
+    }
+
+    @Override
+    protected String filterAttribute( QName elementName, QName attributeName, String attributeValue, String ruleName ) {
+      return "attr:" + ruleName + "{" + attributeValue + "}";
+    }
+
+    @Override
+    protected String filterText( QName elementName, String text, String ruleName ) {
+      return "text:" + ruleName + "{" + text + "}";
+    }
+  }
+}
@@ -29,6 +29,7 @@ import org.apache.knox.gateway.audit.api.AuditServiceFactory;
 import org.apache.knox.gateway.audit.api.Auditor;
 import org.apache.knox.gateway.audit.api.ResourceType;
 import org.apache.knox.gateway.audit.log4j.audit.AuditConstants;
+import org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationService;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.security.GroupPrincipal;
 import org.apache.knox.gateway.security.PrimaryPrincipal;
@@ -38,7 +39,6 @@ import org.apache.knox.gateway.services.security.AliasService;
 import org.apache.knox.gateway.services.security.AliasServiceException;
 import org.apache.knox.gateway.services.security.KeystoreService;
 import org.apache.knox.gateway.services.security.KeystoreServiceException;
-import org.apache.logging.log4j.ThreadContext;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
@@ -81,7 +81,7 @@ public class RemoteAuthFilter implements Filter {
   static final String CONFIG_TRUSTSTORE_TYPE = REMOTE_AUTH + "truststore.type";
   static final String DEFAULT_TRUSTSTORE_TYPE = "JKS";
   static final String WILDCARD = "*";
-  static final String TRACE_ID = "trace_id";
+  static final String TRACE_ID = Log4jCorrelationService.KEY_TRACE_ID;
   static final String REQUEST_ID_HEADER_NAME = "X-Request-Id";
   static final String TRUSTSTORE_CONFIGURATION_CANNOT_BE_RESOLVED_INTO_A_VALID_TRUSTSTORE = "Truststore configuration cannot be resolved into a valid truststore";
 
@@ -239,9 +239,9 @@ public class RemoteAuthFilter implements Filter {
       }
 
       // Add trace ID to the outgoing request if it exists to correlate logs
-      String traceId = ThreadContext.get(TRACE_ID);
+      String traceId = Log4jCorrelationService.getTraceId();
       if (traceId != null) {
-        connection.addRequestProperty(REQUEST_ID_HEADER_NAME, ThreadContext.get(TRACE_ID));
+        connection.addRequestProperty(REQUEST_ID_HEADER_NAME, traceId);
       }
 
       int responseCode = connection.getResponseCode();
@@ -30,6 +30,7 @@ import org.apache.knox.gateway.GatewayServer;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.services.ServiceType;
 import org.apache.knox.gateway.services.GatewayServices;
+import org.apache.knox.gateway.services.ldap.LdapConnectionPoolService;
 import org.apache.knox.gateway.services.security.AliasService;
 import org.apache.knox.gateway.services.security.AliasServiceException;
 import org.apache.shiro.realm.ldap.JndiLdapContextFactory;
@@ -40,6 +41,10 @@ import org.apache.shiro.realm.ldap.JndiLdapContextFactory;
  * compared to regular authentication.
  *
  * <p>
+ * System contexts are taken from the gateway's {@link LdapConnectionPoolService} when it is
+ * enabled, unless <tt>poolingEnabled</tt> is set to <tt>false</tt> on the context factory.
+ *
+ * <p>
  * See {@link KnoxLdapRealm} for typical configuration within <tt>shiro.ini</tt>.
  */
 public class KnoxLdapContextFactory extends JndiLdapContextFactory {
@@ -57,6 +62,11 @@ public class KnoxLdapContextFactory extends JndiLdapContextFactory {
     protected LdapContext createLdapContext(Hashtable env) throws NamingException {
         if (getSystemUsername() != null && getSystemUsername().equals(env.get(Context.SECURITY_PRINCIPAL))) {
             env.put(Context.SECURITY_AUTHENTICATION, getSystemAuthenticationMechanism());
+            // system contexts stay bound as the system user, so they can be reused by later lookups
+            final LdapConnectionPoolService connectionPool = getLdapConnectionPoolService();
+            if (isPoolingEnabled() && connectionPool != null && connectionPool.isEnabled()) {
+                return connectionPool.getSystemLdapContext(env);
+            }
         }
         return super.createLdapContext(env);
     }
@@ -108,6 +118,11 @@ public class KnoxLdapContextFactory extends JndiLdapContextFactory {
         }
     }
 
+    protected LdapConnectionPoolService getLdapConnectionPoolService() {
+        final GatewayServices services = GatewayServer.getGatewayServices();
+        return services == null ? null : services.getService(ServiceType.LDAP_CONNECTION_POOL_SERVICE);
+    }
+
     protected AliasService getAliasService() {
         final GatewayServices services = GatewayServer.getGatewayServices();
         return services.getService(ServiceType.ALIAS_SERVICE);
@@ -19,6 +19,9 @@
 
 package org.apache.knox.gateway.shirorealm;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import org.apache.knox.gateway.GatewayMessages;
 import org.apache.knox.gateway.audit.api.Action;
 import org.apache.knox.gateway.audit.api.ActionOutcome;
@@ -61,6 +64,7 @@ import javax.naming.ldap.LdapContext;
 import javax.naming.ldap.LdapName;
 import javax.naming.ldap.PagedResultsControl;
 import javax.naming.ldap.PagedResultsResponseControl;
+import javax.naming.ldap.Rdn;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -73,6 +77,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -107,6 +112,11 @@ import java.util.regex.Pattern;
  * [urls]
  * **=authcBasic
  *
+ * # optional: ask the directory for the user's groups instead of scanning all groups
+ * # (scan, memberFilter, memberOf or inChain) and cache them for 5 minutes
+ * ldapRealm.groupLookupStrategy = memberFilter
+ * ldapRealm.groupMembershipCacheTtl = 300000
+ *
  * # optional mapping from physical groups to logical application roles
  * ldapRealm.rolesByGroup = \
  *    LDN_USERS: user_role,\
@@ -151,6 +161,49 @@ public class KnoxLdapRealm extends DefaultLdapRealm {
 
     private static final String HASHING_ALGORITHM = "SHA-256";
 
+    private static final String MEMBER_OF = "memberOf";
+
+    // Active Directory's LDAP_MATCHING_RULE_IN_CHAIN, matches nested membership too
+    private static final String MATCHING_RULE_IN_CHAIN = "1.2.840.113556.1.4.1941";
+
+    private static final int DEFAULT_GROUP_MEMBERSHIP_CACHE_SIZE = 10000;
+
+    /**
+     * How the groups of a user are looked up.
+     */
+    enum GroupLookupStrategy {
+      /** Reads every group below the group search base and checks its members, the default */
+      SCAN("scan"),
+      /** Lets the directory find the groups whose member attribute holds the user */
+      MEMBER_FILTER("memberFilter"),
+      /** Reads the memberOf attribute of the user and, up to the nesting depth, of its groups */
+      MEMBER_OF("memberOf"),
+      /** Active Directory only: finds direct and nested groups with LDAP_MATCHING_RULE_IN_CHAIN */
+      IN_CHAIN("inChain");
+
+      private final String configName;
+
+      GroupLookupStrategy(String configName) {
+        this.configName = configName;
+      }
+
+      static GroupLookupStrategy fromConfigName(String configName) {
+        for (GroupLookupStrategy strategy : values()) {
+          if (strategy.configName.equalsIgnoreCase(configName)) {
+            return strategy;
+          }
+        }
+        throw new IllegalArgumentException("Unknown group lookup strategy: " + configName);
+      }
+    }
+
+    /*
+     * Handles one entry of a search result
+     */
+    private interface SearchResultHandler {
+      void handle(SearchResult searchResult) throws NamingException;
+    }
+
     static {
           SUBTREE_SCOPE.setSearchScope(SearchControls.SUBTREE_SCOPE);
           ONELEVEL_SCOPE.setSearchScope(SearchControls.ONELEVEL_SCOPE);
@@ -188,6 +241,14 @@ public class KnoxLdapRealm extends DefaultLdapRealm {
 
     private HashService hashService = new DefaultHashService();
 
+    private GroupLookupStrategy groupLookupStrategy = GroupLookupStrategy.SCAN;
+    private int groupLookupNestingDepth;
+    private long groupMembershipCacheTtl;
+    private long groupMembershipNegativeCacheTtl = -1L;
+    private int groupMembershipCacheSize = DEFAULT_GROUP_MEMBERSHIP_CACHE_SIZE;
+    // group names by user DN, shared by all users of this realm; built on first use
+    private volatile Cache<String, Set<String>> groupMembershipCache;
+
     public KnoxLdapRealm() {
       HashedCredentialsMatcher credentialsMatcher = new HashedCredentialsMatcher(HASHING_ALGORITHM);
       setCredentialsMatcher(credentialsMatcher);
@@ -252,9 +313,6 @@ public class KnoxLdapRealm extends DefaultLdapRealm {
 
     private Set<String> rolesFor(PrincipalCollection principals, final String userName, final LdapContext ldapCtx,
         final LdapContextFactory ldapContextFactory) throws NamingException {
-      final Set<String> roleNames = new HashSet<>();
-      final Set<String> groupNames = new HashSet<>();
-
       String userDn;
       if (userSearchAttributeName == null || userSearchAttributeName.isEmpty()) {
         // memberAttributeValuePrefix and memberAttributeValueSuffix were computed from memberAttributeValueTemplate
@@ -263,6 +321,72 @@ public class KnoxLdapRealm extends DefaultLdapRealm {
         userDn = getUserDn(userName);
       }
 
+      final Cache<String, Set<String>> cache = getGroupMembershipCache();
+      Set<String> cachedGroupNames = cache == null ? null : cache.getIfPresent(userDn);
+      final Set<String> groupNames;
+      if (cachedGroupNames != null) {
+        ShiroLog.usingCachedGroupMembership(cachedGroupNames, userDn);
+        groupNames = new HashSet<>(cachedGroupNames);
+      } else {
+        groupNames = new HashSet<>();
+        final boolean complete = lookupGroups(userName, userDn, ldapCtx, ldapContextFactory, groupNames);
+        if (cache != null) {
+          if (!complete) {
+            ShiroLog.notCachingIncompleteGroupMembership(userDn);
+          } else if (!groupNames.isEmpty() || groupMembershipNegativeCacheTtl != 0) {
+            cache.put(userDn, Collections.unmodifiableSet(new HashSet<>(groupNames)));
+          }
+        }
+      }
+
+      final Set<String> roleNames = new HashSet<>();
+      for (String groupName : groupNames) {
+        String roleName = roleNameFor(groupName);
+        roleNames.add(roleName != null ? roleName : groupName);
+      }
+
+      // save role names and group names in session so that they can be easily looked up outside of this object
+      SecurityUtils.getSubject().getSession().setAttribute(SUBJECT_USER_ROLES, roleNames);
+      SecurityUtils.getSubject().getSession().setAttribute(SUBJECT_USER_GROUPS, groupNames);
+      if (!groupNames.isEmpty() && (principals instanceof MutablePrincipalCollection)) {
+        ((MutablePrincipalCollection)principals).addAll(groupNames, getName());
+      }
+      LOG.lookedUpUserRoles(roleNames, userName);
+
+      return roleNames;
+    }
+
+    /**
+     * Adds the names of the user's groups to the given set.
+     *
+     * @return false if the directory only returned part of the groups, which must not be cached
+     */
+    private boolean lookupGroups(final String userName, final String userDn, final LdapContext ldapCtx,
+        final LdapContextFactory ldapContextFactory, final Set<String> groupNames) throws NamingException {
+      switch (groupLookupStrategy) {
+        case MEMBER_FILTER:
+          // posixGroup members are user names, not DNs
+          final String memberValue = groupObjectClass.equalsIgnoreCase(POSIX_GROUP) ? userName : userDn;
+          return pagedGroupSearch(ldapCtx,
+              "(&(objectClass=" + groupObjectClass + ")(" + memberAttribute + "={0}))", new Object[]{memberValue},
+              groupIdOnlySearchControls(), group -> addGroupName(group, groupNames));
+        case IN_CHAIN:
+          return pagedGroupSearch(ldapCtx,
+              "(&(objectClass=" + groupObjectClass + ")(" + memberAttribute + ":" + MATCHING_RULE_IN_CHAIN + ":={0}))",
+              new Object[]{userDn}, groupIdOnlySearchControls(), group -> addGroupName(group, groupNames));
+        case MEMBER_OF:
+          addGroupsFromMemberOf(userDn, ldapCtx, groupNames);
+          return true;
+        case SCAN:
+        default:
+          final LdapName userLdapDn = new LdapName(userDn);
+          return pagedGroupSearch(ldapCtx, "objectClass=" + groupObjectClass, null, SUBTREE_SCOPE,
+              group -> addGroupIfMember(userLdapDn, group, groupNames, ldapContextFactory));
+      }
+    }
+
+    private boolean pagedGroupSearch(final LdapContext ldapCtx, final String filter, final Object[] filterArgs,
+        final SearchControls searchControls, final SearchResultHandler handler) throws NamingException {
       // Activate paged results
       int pageSize = 100;
       int numResults = 0;
@@ -278,15 +402,13 @@ public class KnoxLdapRealm extends DefaultLdapRealm {
 
           NamingEnumeration<SearchResult> searchResultEnum = null;
           try {
-            searchResultEnum = ldapCtx.search(
-                getGroupSearchBase(),
-                "objectClass=" + groupObjectClass,
-                SUBTREE_SCOPE);
+            searchResultEnum = filterArgs == null
+                ? ldapCtx.search(getGroupSearchBase(), filter, searchControls)
+                : ldapCtx.search(getGroupSearchBase(), filter, filterArgs, searchControls);
 
             while (searchResultEnum != null && searchResultEnum.hasMore()) { // searchResults contains all the groups in search scope
               numResults++;
-              final SearchResult group = searchResultEnum.next();
-              addRoleIfMember(userDn, group, roleNames, groupNames, ldapContextFactory);
+              handler.handle(searchResultEnum.next());
             }
           } catch (PartialResultException e) {
             LOG.ignoringPartialResultException();
@@ -310,31 +432,92 @@ public class KnoxLdapRealm extends DefaultLdapRealm {
           // Re-activate paged results
           ldapCtx.setRequestControls(new Control[]{new PagedResultsControl(pageSize, cookie, Control.CRITICAL)});
         } while (cookie != null);
+        return true;
       } catch (SizeLimitExceededException e) {
         LOG.sizeLimitExceededOnlyRetrieved(numResults);
       } catch(IOException e) {
         LOG.unableToSetupPagedResults();
       }
+      return false;
+    }
 
-      // save role names and group names in session so that they can be easily looked up outside of this object
-      SecurityUtils.getSubject().getSession().setAttribute(SUBJECT_USER_ROLES, roleNames);
-      SecurityUtils.getSubject().getSession().setAttribute(SUBJECT_USER_GROUPS, groupNames);
-      if (!groupNames.isEmpty() && (principals instanceof MutablePrincipalCollection)) {
-        ((MutablePrincipalCollection)principals).addAll(groupNames, getName());
+    private SearchControls groupIdOnlySearchControls() {
+      final SearchControls searchControls = new SearchControls();
+      searchControls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+      searchControls.setReturningAttributes(new String[]{getGroupIdAttribute()});
+      return searchControls;
+    }
+
+    private void addGroupName(final SearchResult group, final Set<String> groupNames) throws NamingException {
+      Attribute attribute = group.getAttributes().get(getGroupIdAttribute());
+      if (attribute != null) {
+        groupNames.add(attribute.get().toString());
       }
-      LOG.lookedUpUserRoles(roleNames, userName);
+    }
 
-      return roleNames;
+    /*
+     * Follows memberOf from the user to its groups and, up to the nesting depth, from groups
+     * to their parent groups. Only groups below the group search base are considered, like
+     * the other strategies do.
+     */
+    private void addGroupsFromMemberOf(final String userDn, final LdapContext ldapCtx,
+        final Set<String> groupNames) throws NamingException {
+      final LdapName groupSearchBaseDn = new LdapName(getGroupSearchBase());
+      final Set<LdapName> visited = new HashSet<>();
+      List<LdapName> level = memberOf(ldapCtx, userDn);
+      for (int depth = 0; !level.isEmpty(); depth++) {
+        final List<LdapName> nextLevel = new ArrayList<>();
+        for (LdapName groupDn : level) {
+          if (!groupDn.startsWith(groupSearchBaseDn) || !visited.add(groupDn)) {
+            continue;
+          }
+          final String groupName = groupNameOf(ldapCtx, groupDn);
+          if (groupName != null) {
+            groupNames.add(groupName);
+          }
+          if (depth < groupLookupNestingDepth) {
+            nextLevel.addAll(memberOf(ldapCtx, groupDn.toString()));
+          }
+        }
+        level = nextLevel;
+      }
+    }
+
+    private List<LdapName> memberOf(final LdapContext ldapCtx, final String dn) throws NamingException {
+      final List<LdapName> groupDns = new ArrayList<>();
+      final Attribute memberOf = ldapCtx.getAttributes(dn, new String[]{MEMBER_OF}).get(MEMBER_OF);
+      if (memberOf != null) {
+        NamingEnumeration<?> values = memberOf.getAll();
+        try {
+          while (values.hasMore()) {
+            groupDns.add(new LdapName(values.next().toString()));
+          }
+        } finally {
+          values.close();
+        }
+      }
+      return groupDns;
+    }
+
+    private String groupNameOf(final LdapContext ldapCtx, final LdapName groupDn) throws NamingException {
+      // the group ID is usually the RDN, e.g. cn, which saves reading the group
+      if (!groupDn.isEmpty()) {
+        final Rdn rdn = groupDn.getRdn(groupDn.size() - 1);
+        if (rdn.getType().equalsIgnoreCase(getGroupIdAttribute())) {
+          return rdn.getValue().toString();
+        }
+      }
+      final Attribute attribute = ldapCtx.getAttributes(groupDn, new String[]{getGroupIdAttribute()}).get(getGroupIdAttribute());
+      return attribute == null ? null : attribute.get().toString();
     }
 
-  private void addRoleIfMember(final String userDn, final SearchResult group,
-      final Set<String> roleNames, final Set<String> groupNames,
+  private void addGroupIfMember(final LdapName userLdapDn, final SearchResult group,
+      final Set<String> groupNames,
       final LdapContextFactory ldapContextFactory) throws NamingException {
 
     NamingEnumeration<? extends Attribute> attributeEnum = null;
     NamingEnumeration<?> e = null;
     try {
-      LdapName userLdapDn = new LdapName(userDn);
       Attribute attribute = group.getAttributes().get(getGroupIdAttribute());
       String groupName = attribute.get().toString();
 
@@ -354,12 +537,6 @@ public class KnoxLdapRealm extends DefaultLdapRealm {
                 ldapContextFactory);
             if (dynamicGroupMember) {
               groupNames.add(groupName);
-              String roleName = roleNameFor(groupName);
-              if (roleName != null) {
-                roleNames.add(roleName);
-              } else {
-                roleNames.add(groupName);
-              }
             }
           } else {
             if (groupObjectClass.equalsIgnoreCase(POSIX_GROUP)){
@@ -367,12 +544,6 @@ public class KnoxLdapRealm extends DefaultLdapRealm {
             }
             if (userLdapDn.equals(new LdapName(attrValue))) {
               groupNames.add(groupName);
-              String roleName = roleNameFor(groupName);
-              if (roleName != null) {
-                roleNames.add(roleName);
-              } else {
-                roleNames.add(groupName);
-              }
               break;
             }
           }
@@ -393,6 +564,44 @@ public class KnoxLdapRealm extends DefaultLdapRealm {
     }
   }
 
+    private Cache<String, Set<String>> getGroupMembershipCache() {
+      if (groupMembershipCacheTtl <= 0) {
+        return null;
+      }
+      Cache<String, Set<String>> cache = groupMembershipCache;
+      if (cache == null) {
+        synchronized (this) {
+          cache = groupMembershipCache;
+          if (cache == null) {
+            final long ttlNanos = TimeUnit.MILLISECONDS.toNanos(groupMembershipCacheTtl);
+            final long negativeTtlNanos = groupMembershipNegativeCacheTtl < 0
+                ? ttlNanos : TimeUnit.MILLISECONDS.toNanos(groupMembershipNegativeCacheTtl);
+            cache = Caffeine.newBuilder()
+                .maximumSize(groupMembershipCacheSize)
+                .expireAfter(new Expiry<String, Set<String>>() {
+                  @Override
+                  public long expireAfterCreate(String userDn, Set<String> groupNames, long currentTime) {
+                    return groupNames.isEmpty() ? negativeTtlNanos : ttlNanos;
+                  }
+
+                  @Override
+                  public long expireAfterUpdate(String userDn, Set<String> groupNames, long currentTime, long currentDuration) {
+                    return expireAfterCreate(userDn, groupNames, currentTime);
+                  }
+
+                  @Override
+                  public long expireAfterRead(String userDn, Set<String> groupNames, long currentTime, long currentDuration) {
+                    return currentDuration;
+                  }
+                })
+                .build();
+            groupMembershipCache = cache;
+          }
+        }
+      }
+      return cache;
+    }
+
     private String roleNameFor(String groupName) {
         return !rolesByGroup.isEmpty() ? rolesByGroup.get(groupName) : groupName;
     }
@@ -504,6 +713,59 @@ public class KnoxLdapRealm extends DefaultLdapRealm {
       this.userSearchAttributeName = userSearchAttributeName;
     }
 
+    public String getGroupLookupStrategy() {
+      return groupLookupStrategy.configName;
+    }
+
+    public void setGroupLookupStrategy(String groupLookupStrategy) {
+      this.groupLookupStrategy = GroupLookupStrategy.fromConfigName(groupLookupStrategy.trim());
+    }
+
+    public int getGroupLookupNestingDepth() {
+      return groupLookupNestingDepth;
+    }
+
+    /**
+     * @param groupLookupNestingDepth how many levels of parent groups the memberOf strategy follows, 0 for direct membership only
+     */
+    public void setGroupLookupNestingDepth(int groupLookupNestingDepth) {
+      this.groupLookupNestingDepth = groupLookupNestingDepth;
+    }
+
+    public long getGroupMembershipCacheTtl() {
+      return groupMembershipCacheTtl;
+    }
+
+    /**
+     * @param groupMembershipCacheTtl how long (in milliseconds) the groups of a user are cached, 0 disables the cache
+     */
+    public void setGroupMembershipCacheTtl(long groupMembershipCacheTtl) {
+      this.groupMembershipCacheTtl = groupMembershipCacheTtl;
+      this.groupMembershipCache = null;
+    }
+
+    public long getGroupMembershipNegativeCacheTtl() {
+      return groupMembershipNegativeCacheTtl;
+    }
+
+    /**
+     * @param groupMembershipNegativeCacheTtl how long (in milliseconds) users without groups are cached;
+     *                                        negative to use the regular TTL, 0 to not cache them
+     */
+    public void setGroupMembershipNegativeCacheTtl(long groupMembershipNegativeCacheTtl) {
+      this.groupMembershipNegativeCacheTtl = groupMembershipNegativeCacheTtl;
+      this.groupMembershipCache = null;
+    }
+
+    public int getGroupMembershipCacheSize() {
+      return groupMembershipCacheSize;
+    }
+
+    public void setGroupMembershipCacheSize(int groupMembershipCacheSize) {
+      this.groupMembershipCacheSize = groupMembershipCacheSize;
+      this.groupMembershipCache = null;
+    }
+
     public String getUserObjectClass() {
       return userObjectClass;
     }
@@ -26,6 +26,8 @@ import org.apache.knox.gateway.i18n.messages.StackTrace;
 import org.apache.shiro.authc.AuthenticationToken;
 import org.apache.shiro.subject.Subject;
 
+import java.util.Set;
+
 @Messages(logger = "org.apache.knox.gateway")
 public interface KnoxShiroMessages {
 
@@ -41,4 +43,10 @@ public interface KnoxShiroMessages {
   @Message(level = MessageLevel.INFO, text = "Successfully logged in: {0}, {1}")
   void successfulLoginAttempt(Subject subject, AuthenticationToken authToken);
 
+  @Message(level = MessageLevel.DEBUG, text = "Using cached groups {0} of user {1}")
+  void usingCachedGroupMembership(Set<String> groupNames, String userDn);
+
+  @Message(level = MessageLevel.DEBUG, text = "Not caching the groups of user {0} since the lookup was incomplete")
+  void notCachingIncompleteGroupMembership(String userDn);
+
 }
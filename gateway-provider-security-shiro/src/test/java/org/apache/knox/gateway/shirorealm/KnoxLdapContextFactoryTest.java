@@ -17,14 +17,21 @@
  */
 package org.apache.knox.gateway.shirorealm;
 
+import org.apache.knox.gateway.services.ldap.LdapConnectionPoolService;
 import org.apache.knox.gateway.services.security.AliasService;
 import org.apache.knox.gateway.services.security.AliasServiceException;
+import org.easymock.Capture;
 import org.easymock.EasyMock;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.naming.Context;
+import javax.naming.ldap.LdapContext;
+import java.util.Hashtable;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 public class KnoxLdapContextFactoryTest {
 
@@ -39,10 +46,40 @@ public class KnoxLdapContextFactoryTest {
      * Test-specific subclass to avoid using GatewayServer static method
      */
     private class TestKnoxLdapContextFactory extends KnoxLdapContextFactory {
+        private LdapConnectionPoolService connectionPoolService;
+
         @Override
         protected AliasService getAliasService() {
             return aliasService;
         }
+
+        @Override
+        protected LdapConnectionPoolService getLdapConnectionPoolService() {
+            return connectionPoolService;
+        }
+    }
+
+    @Test
+    public void testSystemContextIsTakenFromConnectionPool() throws Exception {
+        EasyMock.replay(aliasService);
+        final LdapContext pooledContext = EasyMock.createNiceMock(LdapContext.class);
+        final Capture<Hashtable<?, ?>> environment = Capture.newInstance();
+        final LdapConnectionPoolService connectionPoolService = EasyMock.createNiceMock(LdapConnectionPoolService.class);
+        EasyMock.expect(connectionPoolService.isEnabled()).andReturn(true).anyTimes();
+        EasyMock.expect(connectionPoolService.getSystemLdapContext(EasyMock.capture(environment))).andReturn(pooledContext).once();
+        EasyMock.replay(pooledContext, connectionPoolService);
+
+        final TestKnoxLdapContextFactory factory = new TestKnoxLdapContextFactory();
+        factory.connectionPoolService = connectionPoolService;
+        factory.setUrl("ldap://localhost:33389");
+        factory.setSystemUsername("uid=admin,ou=people,dc=hadoop,dc=apache,dc=org");
+        factory.setSystemPassword("admin-password");
+        factory.setSystemAuthenticationMechanism("simple");
+
+        assertSame(pooledContext, factory.getSystemLdapContext());
+        assertEquals("uid=admin,ou=people,dc=hadoop,dc=apache,dc=org", environment.getValue().get(Context.SECURITY_PRINCIPAL));
+        assertEquals("simple", environment.getValue().get(Context.SECURITY_AUTHENTICATION));
+        EasyMock.verify(connectionPoolService);
     }
 
     @Test
@@ -19,8 +19,24 @@
 
 package org.apache.knox.gateway.shirorealm;
 
+import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.realm.ldap.LdapContextFactory;
+import org.apache.shiro.session.Session;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.easymock.EasyMock;
 import org.junit.Test;
 
+import javax.naming.NamingEnumeration;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.LdapContext;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
@@ -102,4 +118,88 @@ public class KnoxLdapRealmTest {
     realm.setSearchBase("dc=knox,dc=example,dc=com");
     assertEquals(realm.getGroupSearchBase(), "dc=knox,dc=example,dc=com");
   }
+
+  @Test
+  public void verifyDefaultGroupLookupStrategy() {
+    KnoxLdapRealm realm = new KnoxLdapRealm();
+    assertEquals("scan", realm.getGroupLookupStrategy());
+  }
+
+  @Test
+  public void setGetGroupLookupStrategy() {
+    KnoxLdapRealm realm = new KnoxLdapRealm();
+    realm.setGroupLookupStrategy("MEMBEROF");
+    assertEquals("memberOf", realm.getGroupLookupStrategy());
+    realm.setGroupLookupStrategy(" inChain ");
+    assertEquals("inChain", realm.getGroupLookupStrategy());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setUnknownGroupLookupStrategy() {
+    new KnoxLdapRealm().setGroupLookupStrategy("everything");
+  }
+
+  @Test
+  public void testMemberFilterLookupIsCached() throws Exception {
+    KnoxLdapRealm realm = new KnoxLdapRealm();
+    realm.setAuthorizationEnabled(true);
+    realm.setSearchBase("ou=groups,dc=hadoop,dc=apache,dc=org");
+    realm.setMemberAttributeValueTemplate("uid={0},ou=people,dc=hadoop,dc=apache,dc=org");
+    realm.setGroupLookupStrategy("memberFilter");
+    realm.setGroupMembershipCacheTtl(60000L);
+
+    LdapContext ldapContext = EasyMock.createNiceMock(LdapContext.class);
+    EasyMock.expect(ldapContext.search(EasyMock.eq("ou=groups,dc=hadoop,dc=apache,dc=org"),
+        EasyMock.eq("(&(objectClass=groupOfNames)(member={0}))"),
+        EasyMock.aryEq(new Object[]{"uid=guest,ou=people,dc=hadoop,dc=apache,dc=org"}),
+        EasyMock.anyObject(SearchControls.class)))
+        .andReturn(results(new SearchResult("cn=admins", null, new BasicAttributes("cn", "admins")))).once();
+    LdapContextFactory ldapContextFactory = EasyMock.createNiceMock(LdapContextFactory.class);
+    EasyMock.expect(ldapContextFactory.getSystemLdapContext()).andReturn(ldapContext).anyTimes();
+    Session session = EasyMock.createNiceMock(Session.class);
+    Subject subject = EasyMock.createNiceMock(Subject.class);
+    EasyMock.expect(subject.getSession()).andReturn(session).anyTimes();
+    EasyMock.replay(ldapContext, ldapContextFactory, session, subject);
+
+    ThreadContext.bind(subject);
+    try {
+      for (int i = 0; i < 2; i++) {
+        AuthorizationInfo authorizationInfo = realm.queryForAuthorizationInfo(
+            new SimplePrincipalCollection("guest", realm.getName()), ldapContextFactory);
+        assertEquals(Collections.singleton("admins"), authorizationInfo.getRoles());
+      }
+    } finally {
+      ThreadContext.unbindSubject();
+    }
+    EasyMock.verify(ldapContext);
+  }
+
+  private static NamingEnumeration<SearchResult> results(SearchResult... searchResults) {
+    final Iterator<SearchResult> iterator = Arrays.asList(searchResults).iterator();
+    return new NamingEnumeration<SearchResult>() {
+      @Override
+      public SearchResult next() {
+        return iterator.next();
+      }
+
+      @Override
+      public boolean hasMore() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public void close() {
+      }
+
+      @Override
+      public boolean hasMoreElements() {
+        return hasMore();
+      }
+
+      @Override
+      public SearchResult nextElement() {
+        return next();
+      }
+    };
+  }
 }
@@ -23,8 +23,10 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import javax.servlet.Filter;
@@ -60,6 +62,7 @@ import org.apache.knox.gateway.topology.Topology;
 import org.apache.knox.gateway.util.ServletRequestUtils;
 import org.apache.knox.gateway.util.urltemplate.Matcher;
 import org.apache.knox.gateway.util.urltemplate.Parser;
+import org.apache.knox.gateway.util.urltemplate.PathIndex;
 import org.apache.knox.gateway.util.urltemplate.Template;
 
 import static org.apache.knox.gateway.filter.CorrelationHandler.REQUEST_ID_HEADER_NAME;
@@ -85,11 +88,17 @@ public class GatewayFilter implements Filter {
 
   private Set<Holder> holders;
   private Matcher<Chain> chains;
+  /* The same chains, found from the request path without parsing it when their templates allow */
+  private PathIndex<Chain> chainIndex;
+  /* The same chains, by the resource pattern they were added for */
+  private Map<String, Chain> chainsByPattern;
   private FilterConfig config;
 
   public GatewayFilter() {
     holders = new HashSet<>();
     chains = new Matcher<>();
+    chainIndex = new PathIndex<>();
+    chainsByPattern = new LinkedHashMap<>();
   }
 
   @Override
@@ -120,47 +129,55 @@ public class GatewayFilter implements Filter {
     String requestPath = ServletRequestUtils.getRequestPath(httpRequest);
     String requestPathWithQuery = ServletRequestUtils.getRequestPathWithQuery(httpRequest);
 
-    Template pathWithQueryTemplate;
-    try {
-      pathWithQueryTemplate = Parser.parseLiteral( requestPathWithQuery );
-    } catch( URISyntaxException e ) {
-      throw new ServletException( e );
-    }
     String contextWithPathAndQuery = ServletRequestUtils.getContextPathWithQuery(httpRequest);
     LOG.receivedRequest( httpRequest.getMethod(), requestPath );
 
-    servletRequest.setAttribute(
-        AbstractGatewayFilter.SOURCE_REQUEST_URL_ATTRIBUTE_NAME, pathWithQueryTemplate );
     servletRequest.setAttribute(
         AbstractGatewayFilter.SOURCE_REQUEST_CONTEXT_URL_ATTRIBUTE_NAME, contextWithPathAndQuery );
 
-    Matcher<Chain>.Match match = chains.match( pathWithQueryTemplate );
-
-    // if there was no match then look for a default service for the topology
-    if (match == null) {
-      Topology topology = (Topology) servletRequest.getServletContext().getAttribute("org.apache.knox.gateway.topology");
-      if (topology != null) {
-        String defaultServicePath = topology.getDefaultServicePath();
-        if (defaultServicePath != null) {
-          try {
-            String newPathWithQuery = defaultServicePath + "/" + pathWithQueryTemplate;
-            match = chains.match(Parser.parseLiteral(newPathWithQuery));
-            String origUrl = ((HttpServletRequest) servletRequest).getRequestURL().toString();
-            String url = origUrl;
-            if (path == null || "/".equals(path)) {
-              url += defaultServicePath;
-            } else {
-              int index = origUrl.indexOf(path);
-              url = origUrl.substring(0, index) + "/" + defaultServicePath + path;
+    Chain chain = chainIndex.match( requestPath );
+    if( chain != null ) {
+      // The request URL template is only built if a filter asks for it
+      servletRequest = new SourceUrlRequest( httpRequest, requestPathWithQuery );
+    } else {
+      Template pathWithQueryTemplate;
+      try {
+        pathWithQueryTemplate = Parser.parseLiteral( requestPathWithQuery );
+      } catch( URISyntaxException e ) {
+        throw new ServletException( e );
+      }
+      servletRequest.setAttribute(
+          AbstractGatewayFilter.SOURCE_REQUEST_URL_ATTRIBUTE_NAME, pathWithQueryTemplate );
+      Matcher<Chain>.Match match = chains.match( pathWithQueryTemplate );
+
+      // if there was no match then look for a default service for the topology
+      if (match == null) {
+        Topology topology = (Topology) servletRequest.getServletContext().getAttribute("org.apache.knox.gateway.topology");
+        if (topology != null) {
+          String defaultServicePath = topology.getDefaultServicePath();
+          if (defaultServicePath != null) {
+            try {
+              String newPathWithQuery = defaultServicePath + "/" + pathWithQueryTemplate;
+              match = chains.match(Parser.parseLiteral(newPathWithQuery));
+              String origUrl = ((HttpServletRequest) servletRequest).getRequestURL().toString();
+              String url = origUrl;
+              if (path == null || "/".equals(path)) {
+                url += defaultServicePath;
+              } else {
+                int index = origUrl.indexOf(path);
+                url = origUrl.substring(0, index) + "/" + defaultServicePath + path;
+              }
+              servletRequest = new ForwardedRequest((HttpServletRequest) servletRequest,
+                  defaultServicePath,
+                  url);
+            } catch (URISyntaxException e) {
+              throw new ServletException( e );
             }
-            servletRequest = new ForwardedRequest((HttpServletRequest) servletRequest,
-                defaultServicePath,
-                url);
-          } catch (URISyntaxException e) {
-            throw new ServletException( e );
           }
         }
       }
+
+      chain = match == null ? null : match.getValue();
     }
 
     /* If request contains X-Request-Id header use it else use random uuid as correlation id */
@@ -176,7 +193,7 @@ public class GatewayFilter implements Filter {
     if(auditContext == null) {
       auditContext = auditService.createContext();
     }
-    auditContext.setTargetServiceName( match == null ? null : match.getValue().getResourceRole() );
+    auditContext.setTargetServiceName( chain == null ? null : chain.getResourceRole() );
     auditContext.setRemoteIp( getRemoteAddress(servletRequest) );
     auditContext.setRemoteHostname( servletRequest.getRemoteHost() );
     auditService.attachContext(auditContext);
@@ -184,8 +201,7 @@ public class GatewayFilter implements Filter {
         Action.ACCESS, contextWithPathAndQuery, ResourceType.URI,
         ActionOutcome.UNAVAILABLE, RES.requestMethod(((HttpServletRequest)servletRequest).getMethod()));
 
-    if( match != null ) {
-      Chain chain = match.getValue();
+    if( chain != null ) {
       servletRequest.setAttribute( AbstractGatewayFilter.TARGET_SERVICE_ROLE, chain.getResourceRole() );
       try {
         chain.doFilter(
@@ -193,6 +209,13 @@ public class GatewayFilter implements Filter {
                   ? new UrlEncodedFormRequest((HttpServletRequest) servletRequest)
                   : servletRequest,
                 servletResponse);
+      } catch( InvalidSourceUrlException e ) {
+        LOG.failedToParseSourceUrl( requestPathWithQuery, e );
+        auditor.audit( Action.ACCESS, contextWithPathAndQuery, ResourceType.URI, ActionOutcome.FAILURE );
+        if( httpResponse.isCommitted() ) {
+          throw e;
+        }
+        httpResponse.sendError( HttpServletResponse.SC_BAD_REQUEST );
       } catch( IOException | RuntimeException | ThreadDeath | ServletException e ) {
         LOG.failedToExecuteFilter( e );
         auditor.audit( Action.ACCESS, contextWithPathAndQuery, ResourceType.URI, ActionOutcome.FAILURE );
@@ -243,10 +266,55 @@ public class GatewayFilter implements Filter {
       chain = new Chain();
       chain.setResourceRole( holder.getResourceRole() );
       chains.add( holder.template, chain );
+      chainIndex.add( holder.template, chain );
     }
+    chainsByPattern.putIfAbsent( holder.path, chain );
     chain.chainList.add( holder );
   }
 
+  /**
+   * Takes over the filters of another gateway, typically the one this gateway replaces after
+   * a topology change, for every resource whose filter chain is configured the same in both.
+   * The filters taken over keep their initialized instances and are no longer destroyed with
+   * the other gateway, so destroying it afterwards only destroys the filters of the chains that
+   * changed or were removed.
+   *
+   * @param previous the gateway to take the filters from
+   * @return the number of filter chains taken over
+   */
+  public int reuseFilters( GatewayFilter previous ) {
+    final GatewayFilter target = unwrap();
+    final GatewayFilter source = previous.unwrap();
+    int reused = 0;
+    for( Map.Entry<String, Chain> entry : target.chainsByPattern.entrySet() ) {
+      final Chain chain = entry.getValue();
+      final Chain previousChain = source.chainsByPattern.get( entry.getKey() );
+      if( previousChain != null && chain.isConfiguredAs( previousChain ) ) {
+        target.holders.removeAll( chain.chainList );
+        chain.chainList.clear();
+        chain.chainList.addAll( previousChain.chainList );
+        target.holders.addAll( previousChain.chainList );
+        source.holders.removeAll( previousChain.chainList );
+        reused++;
+      }
+    }
+    return reused;
+  }
+
+  /**
+   * @return the number of filter chains, one per resource
+   */
+  public int getChainCount() {
+    return unwrap().chainsByPattern.size();
+  }
+
+  /**
+   * @return the gateway that holds the filter chains, this one unless it decorates another gateway
+   */
+  protected GatewayFilter unwrap() {
+    return this;
+  }
+
   public void addFilter( String path, String name, Filter filter, Map<String,String> params, String resourceRole ) throws URISyntaxException {
     Holder holder = new Holder( path, name, filter, params, resourceRole );
     addHolder( holder );
@@ -321,9 +389,22 @@ public class GatewayFilter implements Filter {
     private void setResourceRole( String resourceRole ) {
       this.resourceRole = resourceRole;
     }
+
+    private boolean isConfiguredAs( Chain other ) {
+      if( !Objects.equals( resourceRole, other.resourceRole ) || chainList.size() != other.chainList.size() ) {
+        return false;
+      }
+      for( int i = 0; i < chainList.size(); i++ ) {
+        if( !chainList.get( i ).isConfiguredAs( other.chainList.get( i ) ) ) {
+          return false;
+        }
+      }
+      return true;
+    }
   }
 
   public class Holder implements Filter, FilterConfig {
+    private String path;
     private Template template;
     private String name;
     private Map<String,String> params;
@@ -331,18 +412,22 @@ public class GatewayFilter implements Filter {
     private Class<? extends Filter> clazz;
     private String type;
     private String resourceRole;
+    private boolean provided;
 
     Holder( String path, String name, Filter filter, Map<String,String> params, String resourceRole ) throws URISyntaxException {
+      this.path = path;
       this.template = Parser.parseTemplate( path );
       this.name = name;
       this.params = params;
       this.instance = filter;
+      this.provided = true;
       this.clazz = filter.getClass();
       this.type = clazz.getCanonicalName();
       this.resourceRole = resourceRole;
     }
 
     Holder( String path, String name, String clazz, Map<String,String> params, String resourceRole ) throws URISyntaxException {
+      this.path = path;
       this.template = Parser.parseTemplate( path );
       this.name = name;
       this.params = params;
@@ -431,6 +516,60 @@ public class GatewayFilter implements Filter {
       return resourceRole;
     }
 
+    /*
+     * Filters given as instances are only the same if they are the same instance.
+     */
+    private boolean isConfiguredAs( Holder other ) {
+      return Objects.equals( name, other.name )
+          && Objects.equals( type, other.type )
+          && Objects.equals( params, other.params )
+          && Objects.equals( resourceRole, other.resourceRole )
+          && ( provided ? instance == other.instance : !other.provided );
+    }
+
+  }
+
+  /**
+   * A request wrapper that parses the request path and query into the
+   * {@link AbstractGatewayFilter#SOURCE_REQUEST_URL_ATTRIBUTE_NAME} template
+   * the first time the attribute is read, for requests whose filter chain was
+   * found without parsing them.
+   */
+  static class SourceUrlRequest extends HttpServletRequestWrapper {
+
+    private final String pathWithQuery;
+
+    SourceUrlRequest(final HttpServletRequest request, final String pathWithQuery) {
+      super(request);
+      this.pathWithQuery = pathWithQuery;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+      Object value = super.getAttribute(name);
+      if (value == null && AbstractGatewayFilter.SOURCE_REQUEST_URL_ATTRIBUTE_NAME.equals(name)) {
+        try {
+          value = Parser.parseLiteral(pathWithQuery);
+          super.setAttribute(name, value);
+        } catch (URISyntaxException e) {
+          throw new InvalidSourceUrlException(e);
+        }
+      }
+      return value;
+    }
+
+  }
+
+  /**
+   * Thrown by {@link SourceUrlRequest} when the request path and query cannot
+   * be parsed, and answered with a 400 by {@link #doFilter}.
+   */
+  static class InvalidSourceUrlException extends IllegalArgumentException {
+
+    InvalidSourceUrlException(final URISyntaxException cause) {
+      super(cause.getMessage(), cause);
+    }
+
   }
 
   /**
@@ -99,6 +99,27 @@ public interface GatewayMessages {
   @Message( level = MessageLevel.DEBUG, text = "Redeployed topology {0}." )
   void redeployedTopology( String clusterName );
 
+  @Message( level = MessageLevel.INFO, text = "Applied topology {0} to its running deployment, kept {1} of {2} filter chains." )
+  void hotRedeployedTopology( String clusterName, int reusedChains, int chains );
+
+  @Message( level = MessageLevel.DEBUG, text = "Topology {0} requires a full deployment, changed deployment entries: {1}" )
+  void topologyRequiresFullDeployment( String clusterName, String changedEntries );
+
+  @Message( level = MessageLevel.WARN, text = "Failed to apply topology {0} to its running deployment, deploying it in full: {1}" )
+  void failedToHotRedeployTopology( String clusterName, @StackTrace(level=MessageLevel.DEBUG) Exception e );
+
+  @Message( level = MessageLevel.INFO, text = "Building the deployments of {0} topologies with {1} threads" )
+  void buildingTopologyDeploymentsInParallel( int topologies, int threads );
+
+  @Message( level = MessageLevel.INFO, text = "Deployed {0} topologies in {1} ms" )
+  void deployedTopologiesInParallel( int topologies, long millis );
+
+  @Message( level = MessageLevel.INFO, text = "Started topology {0} archive {1}, phase times in ms: parse {2}, discovery {3}, contribute {4}, export {5}, start {6}" )
+  void topologyDeploymentPhaseTimes( String topology, String archive, long parse, long discovery, long contribute, long export, long start );
+
+  @Message( level = MessageLevel.INFO, text = "Writing audit events in the background, queue size {0}, dropping events when full: {1}" )
+  void startedAsyncAuditWriter( int queueSize, boolean dropWhenFull );
+
   @Message( level = MessageLevel.INFO, text = "Activating topology {0}" )
   void activatingTopology( String name );
 
@@ -364,6 +385,9 @@ public interface GatewayMessages {
   @Message( level = MessageLevel.WARN, text = "Failed to match path {0}" )
   void failedToMatchPath( String path );
 
+  @Message( level = MessageLevel.WARN, text = "Failed to parse source URL {0}: {1}" )
+  void failedToParseSourceUrl( String url, @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
   @Message( level = MessageLevel.ERROR, text = "Failed to get system ldap connection: {0}" )
   void failedToGetSystemLdapConnection( @StackTrace( level = MessageLevel.DEBUG ) Exception e );
 
@@ -831,4 +855,22 @@ public interface GatewayMessages {
 
   @Message(level = MessageLevel.ERROR, text = "LDAP service not found or not properly registered")
   void ldapServiceNotFound();
+
+  @Message(level = MessageLevel.INFO, text = "Created shared HTTP client for dispatch configuration {0}")
+  void createdSharedHttpClient(String key);
+
+  @Message(level = MessageLevel.INFO, text = "Closed unreferenced shared HTTP client for dispatch configuration {0}")
+  void closedSharedHttpClient(String key);
+
+  @Message(level = MessageLevel.WARN, text = "Failed to close shared HTTP client for dispatch configuration {0}: {1}")
+  void failedToCloseSharedHttpClient(String key, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
+  @Message(level = MessageLevel.WARN, text = "Invalid shared HTTP client grace period {0}, using the default")
+  void invalidHttpClientPoolGracePeriod(String value);
+
+  @Message(level = MessageLevel.WARN, text = "Lost the connection to the remote alias registry, alias lookups read the registry until it is back")
+  void remoteAliasSnapshotSuspended();
+
+  @Message(level = MessageLevel.INFO, text = "Reconnected to the remote alias registry, refilling the remote alias snapshot")
+  void remoteAliasSnapshotResumed();
 }
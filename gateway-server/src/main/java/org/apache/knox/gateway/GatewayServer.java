@@ -17,12 +17,14 @@
  */
 package org.apache.knox.gateway;
 
+import com.codahale.metrics.Gauge;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.knox.gateway.audit.api.Action;
 import org.apache.knox.gateway.audit.api.ActionOutcome;
+import org.apache.knox.gateway.audit.api.AuditService;
 import org.apache.knox.gateway.audit.api.AuditServiceFactory;
 import org.apache.knox.gateway.audit.api.Auditor;
 import org.apache.knox.gateway.audit.api.ResourceType;
@@ -31,8 +33,13 @@ import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.config.GatewayConfigChangeListener;
 import org.apache.knox.gateway.config.GatewayConfigurationException;
 import org.apache.knox.gateway.config.impl.GatewayConfigImpl;
+import org.apache.knox.gateway.deploy.ArchiveComparator;
 import org.apache.knox.gateway.deploy.DeploymentException;
 import org.apache.knox.gateway.deploy.DeploymentFactory;
+import org.apache.knox.gateway.deploy.TopologyDeploymentTimings;
+import org.apache.knox.gateway.deploy.TopologyDeploymentTimings.Phase;
+import org.apache.knox.gateway.descriptor.GatewayDescriptor;
+import org.apache.knox.gateway.descriptor.GatewayDescriptorFactory;
 import org.apache.knox.gateway.filter.CorrelationHandler;
 import org.apache.knox.gateway.filter.HSTSHandler;
 import org.apache.knox.gateway.filter.PortMappingHelperHandler;
@@ -40,6 +47,7 @@ import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.i18n.resources.ResourcesFactory;
 import org.apache.knox.gateway.services.GatewayServices;
 import org.apache.knox.gateway.services.ServiceType;
+import org.apache.knox.gateway.services.metrics.MetricsService;
 import org.apache.knox.gateway.services.registry.ServiceDefinitionRegistry;
 import org.apache.knox.gateway.services.registry.ServiceRegistry;
 import org.apache.knox.gateway.services.security.AliasServiceException;
@@ -73,11 +81,16 @@ import org.eclipse.jetty.server.handler.ContextHandlerCollection;
 import org.eclipse.jetty.server.handler.ErrorHandler;
 import org.eclipse.jetty.server.handler.HandlerCollection;
 import org.eclipse.jetty.server.handler.RequestLogHandler;
+import org.eclipse.jetty.servlet.ServletHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.webapp.Configuration;
 import org.eclipse.jetty.webapp.WebAppContext;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
 import org.jboss.shrinkwrap.api.exporter.ExplodedExporter;
 import org.jboss.shrinkwrap.api.spec.EnterpriseArchive;
 import org.jboss.shrinkwrap.api.spec.WebArchive;
@@ -87,6 +100,7 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
+import javax.servlet.Servlet;
 import javax.servlet.SessionCookieConfig;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -96,8 +110,10 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.Serializable;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
@@ -129,10 +145,15 @@ import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import static org.apache.knox.gateway.config.impl.GatewayConfigImpl.RELOADABLE_CONFIG_FILENAME;
@@ -144,6 +165,8 @@ public class GatewayServer {
       AuditConstants.KNOX_SERVICE_NAME, AuditConstants.KNOX_COMPONENT_NAME);
 
   private static final String TOPOLOGY_EXTENSION = ".topo.";
+  private static final String GATEWAY_DESCRIPTOR_PATH = "/WEB-INF/" + GatewayServlet.GATEWAY_DESCRIPTOR_LOCATION_DEFAULT;
+  private static final String TOPOLOGY_ATTRIBUTE = "org.apache.knox.gateway.topology";
 
   static final String KNOXSESSIONCOOKIENAME = "KNOXSESSIONID";
 
@@ -168,6 +191,9 @@ public class GatewayServer {
 
   private final Set<String> inactiveTopologies = new HashSet<>();
 
+  // Set while the topologies found at startup are deployed
+  private boolean deployingAtStartup;
+
   public static void main( String[] args ) {
     try {
       logSysProps();
@@ -700,9 +726,16 @@ public class GatewayServer {
     gatewayStatusService = services.getService(ServiceType.GATEWAY_STATUS_SERVICE);
     gatewayStatusService.initTopologiesToCheck();
 
+    TopologyDeploymentTimings.getInstance().register(services.getService(ServiceType.METRICS_SERVICE));
+    startAsyncAuditWriter(services.getService(ServiceType.METRICS_SERVICE));
     monitor.addTopologyChangeListener(listener);
     log.loadingTopologiesFromDirectory(topologiesDir.getAbsolutePath());
-    monitor.reloadTopologies();
+    deployingAtStartup = true;
+    try {
+      monitor.reloadTopologies();
+    } finally {
+      deployingAtStartup = false;
+    }
     List<String> autoDeploys = config.getAutoDeployTopologyNames();
     if (autoDeploys != null) {
       for (String topologyName : autoDeploys) {
@@ -805,6 +838,19 @@ public class GatewayServer {
     hadoopXmlResourceMonitor.setupMonitor();
   }
 
+  private void startAsyncAuditWriter(MetricsService metricsService) {
+    final AuditService auditService = AuditServiceFactory.getAuditService();
+    if (config.getAuditQueueSize() > 0) {
+      auditService.startAsyncWriter(config.getAuditQueueSize(), config.isAuditQueueDropWhenFull());
+      log.startedAsyncAuditWriter(config.getAuditQueueSize(), config.isAuditQueueDropWhenFull());
+    }
+    if (metricsService != null) {
+      metricsService.registerGauge("audit.events.recorded", (Gauge<Long>) auditService::getRecordedEventCount);
+      metricsService.registerGauge("audit.events.dropped", (Gauge<Long>) auditService::getDroppedEventCount);
+      metricsService.registerGauge("audit.events.queued", (Gauge<Integer>) auditService::getQueuedEventCount);
+    }
+  }
+
   public synchronized void stop() throws Exception {
     if (!stopped.get()) {
       try {
@@ -813,6 +859,7 @@ public class GatewayServer {
         monitor.stopMonitor();
         jetty.stop();
         jetty.join();
+        AuditServiceFactory.getAuditService().stopAsyncWriter();
         log.stoppedGateway();
         stopped.set(true);
       } catch (Exception e) {
@@ -956,7 +1003,8 @@ public class GatewayServer {
     }
   }
 
-  private synchronized void internalDeployApplications( Topology topology, File topoDir ) throws IOException, ParserConfigurationException, TransformerException, SAXException {
+  // Not synchronized, the deployments of the topologies found at startup are built in parallel
+  private void internalDeployApplications( Topology topology, File topoDir ) throws IOException, ParserConfigurationException, TransformerException, SAXException {
     if( topology != null ) {
       Collection<Application> applications = topology.getApplications();
       if( applications != null ) {
@@ -974,7 +1022,7 @@ public class GatewayServer {
     }
   }
 
-  private synchronized void internalDeployApplication( File topoDir, Application application, String url ) throws IOException, TransformerException, SAXException, ParserConfigurationException {
+  private void internalDeployApplication( File topoDir, Application application, String url ) throws IOException, TransformerException, SAXException, ParserConfigurationException {
     File appsDir = new File( config.getGatewayApplicationsDir() );
     File appDir = new File( appsDir, application.getName() );
     File[] implFiles = appDir.listFiles( new RegexFilenameFilter( "app|app\\..*" ) );
@@ -1011,6 +1059,7 @@ public class GatewayServer {
     log.activatingTopologyArchive( topology.getName(), warDir.getName() );
     try {
       WebAppContext newContext = createWebAppContext( topology, warDir, Urls.decode( warDir.getName() ) );
+      newContext.addLifeCycleListener( new StartPhaseListener( topology.getName(), newContext.getContextPath() ) );
       WebAppContext oldContext = deployments.get( newContext.getContextPath() );
       deployments.put( newContext.getContextPath(), newContext );
       if( oldContext != null ) {
@@ -1106,12 +1155,105 @@ public class GatewayServer {
     }
   }
 
+  /**
+   * Applies a changed topology to its running deployment if nothing but the filter chains of
+   * the deployment changed. The services archive of the topology is created in memory and
+   * compared with the deployed one; if only the gateway descriptor differs, the gateway
+   * servlet takes over the new filter chains and keeps the filters of the unchanged ones.
+   * No archive is exported and no web application is restarted, so the topology stays
+   * available throughout.
+   *
+   * @return false if the topology needs to be deployed in full
+   */
+  private synchronized boolean hotRedeployTopology( Topology topology ) {
+    final String topoName = topology.getName();
+    if( deployments == null || !topology.getApplications().isEmpty() ) {
+      return false;
+    }
+    final String topoPath = "/" + Urls.trimLeadingAndTrailingSlashJoin( config.getGatewayPath(), topoName );
+    final WebAppContext context = deployments.get( topoPath );
+    if( context == null || !context.isAvailable() || hasApplicationDeployments( topoPath ) ) {
+      return false;
+    }
+    final GatewayServlet servlet = findGatewayServlet( context );
+    if( servlet == null ) {
+      return false;
+    }
+
+    try {
+      // The services of the topology are registered again while its archive is created
+      ServiceRegistry sr = getGatewayServices().getService(ServiceType.SERVICE_REGISTRY_SERVICE);
+      if (sr != null) {
+        sr.removeClusterServices( topoName );
+      }
+      final WebArchive war = DeploymentFactory.createServicesDeployment( config, topology );
+      if( war == null ) {
+        return false;
+      }
+      final File warDir = new File( context.getWar() );
+      final Set<String> changedEntries = ArchiveComparator.findChangedEntries( war, warDir );
+      changedEntries.remove( GATEWAY_DESCRIPTOR_PATH );
+      if( !changedEntries.isEmpty() ) {
+        log.topologyRequiresFullDeployment( topoName, changedEntries.toString() );
+        return false;
+      }
+
+      final Asset descriptorAsset = war.get( GATEWAY_DESCRIPTOR_PATH ).getAsset();
+      final GatewayDescriptor descriptor;
+      try( Reader reader = new InputStreamReader( descriptorAsset.openStream(), StandardCharsets.UTF_8 ) ) {
+        descriptor = GatewayDescriptorFactory.load( "xml", reader );
+      }
+      auditor.audit( Action.REDEPLOY, topoName, ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE );
+      final int reusedChains = servlet.reload( descriptor );
+      context.getServletContext().setAttribute( TOPOLOGY_ATTRIBUTE, topology );
+
+      // Keep the deployed descriptor current in case the web application is restarted
+      try( InputStream descriptorStream = descriptorAsset.openStream() ) {
+        FileUtils.copyInputStreamToFile( descriptorStream, new File( warDir, GATEWAY_DESCRIPTOR_PATH ) );
+      }
+      log.hotRedeployedTopology( topoName, reusedChains, servlet.getFilter().getChainCount() );
+      return true;
+    } catch( Exception e ) {
+      log.failedToHotRedeployTopology( topoName, e );
+      return false;
+    }
+  }
+
+  private boolean hasApplicationDeployments( String topoPath ) {
+    final String topoPathSlash = topoPath + "/";
+    for( String contextPath : deployments.keySet() ) {
+      if( contextPath.startsWith( topoPathSlash ) ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static GatewayServlet findGatewayServlet( WebAppContext context ) {
+    final ServletHandler handler = context.getServletHandler();
+    final ServletHolder[] holders = handler == null ? null : handler.getServlets();
+    if( holders != null ) {
+      for( ServletHolder holder : holders ) {
+        final Servlet servlet = holder.getServletInstance();
+        if( servlet instanceof GatewayServlet ) {
+          return (GatewayServlet) servlet;
+        }
+      }
+    }
+    return null;
+  }
+
   // Using an inner class to hide the handleTopologyEvent method from consumers of GatewayServer.
   private class InternalTopologyListener implements TopologyListener {
 
     @Override
     public void handleTopologyEvent( List<TopologyEvent> events ) {
       synchronized ( GatewayServer.this ) {
+        final int threads = config.getStartupTopologyDeploymentThreads();
+        if( deployingAtStartup && threads > 1 && events.size() > 1 ) {
+          handleStartupDeployments( events, calculateAbsoluteDeploymentsDir(), threads );
+          return;
+        }
         for( TopologyEvent event : events ) {
           Topology topology = event.getTopology();
           File deployDir = calculateAbsoluteDeploymentsDir();
@@ -1124,8 +1266,73 @@ public class GatewayServer {
       }
     }
 
+    /**
+     * Deploys the topologies found at startup. Their deployments are built in parallel, then
+     * activated one by one in the order of the topology names, so the contexts are registered
+     * in the same order on every start, before Jetty starts serving.
+     * <p>
+     * Nothing is deployed yet at this point, so there are no running deployments to deactivate
+     * or to apply changes to, as done by {@link #handleCreateDeployment(Topology, File)}.
+     */
+    private void handleStartupDeployments( List<TopologyEvent> events, File deployDir, int threads ) {
+      final long start = System.nanoTime();
+      final List<Topology> topologies = new ArrayList<>();
+      for( TopologyEvent event : events ) {
+        if( event.getType().equals( TopologyEvent.Type.DELETED ) ) {
+          handleDeleteDeployment( event.getTopology(), deployDir );
+        } else {
+          topologies.add( event.getTopology() );
+        }
+      }
+      topologies.sort( Comparator.comparing( Topology::getName ) );
+      log.buildingTopologyDeploymentsInParallel( topologies.size(), threads );
+
+      final ForkJoinPool pool = createDeploymentPool( threads );
+      try {
+        final List<Future<Boolean>> builds = new ArrayList<>( topologies.size() );
+        for( Topology topology : topologies ) {
+          builds.add( pool.submit( () -> buildStartupDeployment( topology, deployDir ) ) );
+        }
+        for( int i = 0; i < topologies.size(); i++ ) {
+          final Topology topology = topologies.get( i );
+          try {
+            final boolean built = builds.get( i ).get();
+            activateDeployment( topology, calculateDeploymentDir( topology ), deployDir, built );
+          } catch( ExecutionException e ) {
+            auditor.audit( Action.DEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.FAILURE );
+            log.failedToDeployTopology( topology.getName(), e.getCause() );
+          } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new DeploymentException( "Interrupted while deploying topology " + topology.getName(), e );
+          } catch( Throwable e ) {
+            auditor.audit( Action.DEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.FAILURE );
+            log.failedToDeployTopology( topology.getName(), e );
+          }
+        }
+      } finally {
+        pool.shutdownNow();
+      }
+      log.deployedTopologiesInParallel( topologies.size(), TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ) );
+    }
+
+    /**
+     * @return true if the deployment was built, false if it already existed
+     */
+    private boolean buildStartupDeployment( Topology topology, File deployDir ) throws IOException, ParserConfigurationException, TransformerException, SAXException {
+      final File topoDir = calculateDeploymentDir( topology );
+      if( topoDir.exists() ) {
+        return false;
+      }
+      auditor.audit( Action.DEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE );
+      checkProviders( topology );
+      log.deployingTopology( topology.getName(), topoDir.getAbsolutePath() );
+      buildDeployment( topology, topoDir, deployDir );
+      return true;
+    }
+
     private void handleDeleteDeployment(Topology topology, File deployDir) {
       log.deletingTopology( topology.getName() );
+      TopologyDeploymentTimings.getInstance().remove( topology.getName() );
       File[] files = deployDir.listFiles( new RegexFilenameFilter( topology.getName() + "\\.(war|topo)\\.[0-9A-Fa-f]+" ) );
       if( files != null ) {
         auditor.audit(Action.UNDEPLOY, topology.getName(), ResourceType.TOPOLOGY,
@@ -1145,43 +1352,111 @@ public class GatewayServer {
     private void handleCreateDeployment(Topology topology, File deployDir) {
       try {
         File topoDir = calculateDeploymentDir( topology );
-        if( !topoDir.exists() ) {
+        final boolean build = !topoDir.exists();
+        if( build ) {
           auditor.audit( Action.DEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE );
+          checkProviders( topology );
 
-//          KNOX-564 - Topology should fail to deploy with no providers configured.
-//TODO:APPS:This should only fail if there are services in the topology.
-          if(topology.getProviders().isEmpty()) {
-            throw new DeploymentException("No providers found inside topology.");
+          if( config.isTopologyHotRedeployEnabled() && hotRedeployTopology( topology ) ) {
+            gatewayStatusService.onTopologyReady(topology.getName());
+            return;
           }
 
           log.deployingTopology( topology.getName(), topoDir.getAbsolutePath() );
           internalDeactivateTopology( topology ); // KNOX-152
-
-          EnterpriseArchive ear = DeploymentFactory.createDeployment( config, topology );
-          if( !deployDir.exists() && !deployDir.mkdirs() ) {
-            throw new DeploymentException( "Failed to create topology deployment temporary directory: " + deployDir.getAbsolutePath() );
-          }
-          File tmp = ear.as( ExplodedExporter.class ).exportExploded( deployDir, topoDir.getName() + ".tmp" );
-          if( !tmp.renameTo( topoDir ) ) {
-            FileUtils.deleteQuietly( tmp );
-            throw new DeploymentException( "Failed to create topology deployment directory: " + topoDir.getAbsolutePath() );
-          }
-          internalDeployApplications( topology, topoDir );
-          internalActivateTopology( topology, topoDir );
-          log.deployedTopology( topology.getName());
-        } else {
-          auditor.audit( Action.REDEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE );
-          log.redeployingTopology( topology.getName(), topoDir.getAbsolutePath() );
-          internalActivateTopology( topology, topoDir );
-          log.redeployedTopology( topology.getName() );
+          buildDeployment( topology, topoDir, deployDir );
         }
-        cleanupTopologyDeployments( deployDir, topology );
-        gatewayStatusService.onTopologyReady(topology.getName());
+        activateDeployment( topology, topoDir, deployDir, build );
       } catch( Throwable e ) {
         auditor.audit( Action.DEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.FAILURE );
         log.failedToDeployTopology( topology.getName(), e );
       }
     }
+
+    private void checkProviders( Topology topology ) {
+      // KNOX-564 - Topology should fail to deploy with no providers configured.
+      //TODO:APPS:This should only fail if there are services in the topology.
+      if(topology.getProviders().isEmpty()) {
+        throw new DeploymentException("No providers found inside topology.");
+      }
+    }
+
+    private void buildDeployment( Topology topology, File topoDir, File deployDir ) throws IOException, ParserConfigurationException, TransformerException, SAXException {
+      final TopologyDeploymentTimings timings = TopologyDeploymentTimings.getInstance();
+      long phaseStart = TopologyDeploymentTimings.start();
+      EnterpriseArchive ear = DeploymentFactory.createDeployment( config, topology );
+      timings.record( topology.getName(), Phase.CONTRIBUTE, phaseStart );
+
+      phaseStart = TopologyDeploymentTimings.start();
+      // Checking the directory after mkdirs() since another deployment may have created it meanwhile
+      if( !deployDir.mkdirs() && !deployDir.isDirectory() ) {
+        throw new DeploymentException( "Failed to create topology deployment temporary directory: " + deployDir.getAbsolutePath() );
+      }
+      File tmp = ear.as( ExplodedExporter.class ).exportExploded( deployDir, topoDir.getName() + ".tmp" );
+      if( !tmp.renameTo( topoDir ) ) {
+        FileUtils.deleteQuietly( tmp );
+        throw new DeploymentException( "Failed to create topology deployment directory: " + topoDir.getAbsolutePath() );
+      }
+      internalDeployApplications( topology, topoDir );
+      timings.record( topology.getName(), Phase.EXPORT, phaseStart );
+    }
+
+    private void activateDeployment( Topology topology, File topoDir, File deployDir, boolean built ) {
+      if( built ) {
+        internalActivateTopology( topology, topoDir );
+        log.deployedTopology( topology.getName());
+      } else {
+        auditor.audit( Action.REDEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE );
+        log.redeployingTopology( topology.getName(), topoDir.getAbsolutePath() );
+        internalActivateTopology( topology, topoDir );
+        log.redeployedTopology( topology.getName() );
+      }
+      cleanupTopologyDeployments( deployDir, topology );
+      gatewayStatusService.onTopologyReady(topology.getName());
+    }
+  }
+
+  private static ForkJoinPool createDeploymentPool( int threads ) {
+    final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    final AtomicInteger threadCount = new AtomicInteger();
+    return new ForkJoinPool( threads, pool -> {
+      final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread( pool );
+      thread.setName( "TopologyDeployment-" + threadCount.incrementAndGet() );
+      thread.setContextClassLoader( classLoader );
+      return thread;
+    }, null, false );
+  }
+
+  /**
+   * Records the time it takes to start the web application of a deployment archive and logs
+   * the phase times of the topology once it has started.
+   */
+  private static class StartPhaseListener extends AbstractLifeCycle.AbstractLifeCycleListener {
+    private final String topologyName;
+    private final String contextPath;
+    private long startingAt;
+
+    StartPhaseListener( String topologyName, String contextPath ) {
+      this.topologyName = topologyName;
+      this.contextPath = contextPath;
+    }
+
+    @Override
+    public void lifeCycleStarting( LifeCycle event ) {
+      startingAt = TopologyDeploymentTimings.start();
+    }
+
+    @Override
+    public void lifeCycleStarted( LifeCycle event ) {
+      final TopologyDeploymentTimings timings = TopologyDeploymentTimings.getInstance();
+      timings.record( topologyName, Phase.START, startingAt );
+      log.topologyDeploymentPhaseTimes( topologyName, contextPath,
+          timings.getLatestMillis( topologyName, Phase.PARSE ),
+          timings.getLatestMillis( topologyName, Phase.DISCOVERY ),
+          timings.getLatestMillis( topologyName, Phase.CONTRIBUTE ),
+          timings.getLatestMillis( topologyName, Phase.EXPORT ),
+          timings.getLatestMillis( topologyName, Phase.START ) );
+    }
   }
 
   private File createArchiveTempDir( File warDir ) {
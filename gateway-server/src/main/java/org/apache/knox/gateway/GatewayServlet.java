@@ -45,6 +45,9 @@ import java.io.InputStreamReader;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GatewayServlet implements Servlet, Filter {
   public static final String GATEWAY_DESCRIPTOR_LOCATION_DEFAULT = "gateway.xml";
@@ -56,7 +59,10 @@ public class GatewayServlet implements Servlet, Filter {
   private static final AuditService auditService = AuditServiceFactory.getAuditService();
 
   private FilterConfigAdapter filterConfig;
-  private GatewayFilter filter;
+  private volatile GatewayFilter filter;
+  /* Requests running on each filter, and the replaced filters waiting for theirs to finish */
+  private final Map<GatewayFilter, Integer> activeRequests = new ConcurrentHashMap<>();
+  private final Set<GatewayFilter> retiredFilters = ConcurrentHashMap.newKeySet();
 
   public GatewayServlet( GatewayFilter filter ) {
     this.filterConfig = null;
@@ -81,6 +87,66 @@ public class GatewayServlet implements Servlet, Filter {
     }
   }
 
+  /**
+   * Replaces the filter with one created from the given gateway descriptor while the servlet
+   * keeps serving. The filter chains of resources that did not change are taken over with
+   * their initialized filters; the filters of the other chains of the current filter are
+   * destroyed once the requests still running on it have finished.
+   *
+   * @param descriptor the gateway descriptor of the changed topology
+   * @return the number of filter chains taken over from the current filter
+   * @throws ServletException if the new filter could not be created
+   */
+  public synchronized int reload( GatewayDescriptor descriptor ) throws ServletException {
+    if( filterConfig == null ) {
+      throw new IllegalStateException( "Gateway servlet is not initialized" );
+    }
+    GatewayFilter replacement;
+    try {
+      replacement = instrument( GatewayFactory.create( descriptor ), filterConfig.getServletContext() );
+    } catch( URISyntaxException e ) {
+      throw new ServletException( e );
+    }
+    replacement.init( filterConfig );
+    GatewayFilter previous = filter;
+    int reused = previous == null ? 0 : replacement.reuseFilters( previous );
+    filter = replacement;
+    if( previous != null ) {
+      retiredFilters.add( previous );
+      destroyIfIdle( previous );
+    }
+    return reused;
+  }
+
+  /*
+   * Counts the request against the current filter, so that it is not destroyed by a reload
+   * while the request runs. A filter replaced while it was being counted is not used.
+   */
+  private GatewayFilter enterFilter() {
+    while( true ) {
+      GatewayFilter f = filter;
+      if( f == null ) {
+        return null;
+      }
+      activeRequests.merge( f, 1, Integer::sum );
+      if( f == filter ) {
+        return f;
+      }
+      exitFilter( f );
+    }
+  }
+
+  private void exitFilter( GatewayFilter f ) {
+    activeRequests.computeIfPresent( f, ( key, count ) -> count == 1 ? null : count - 1 );
+    destroyIfIdle( f );
+  }
+
+  private void destroyIfIdle( GatewayFilter f ) {
+    if( retiredFilters.contains( f ) && !activeRequests.containsKey( f ) && retiredFilters.remove( f ) ) {
+      f.destroy();
+    }
+  }
+
   @Override
   public synchronized void init( ServletConfig servletConfig ) throws ServletException {
     try {
@@ -121,13 +187,15 @@ public class GatewayServlet implements Servlet, Filter {
   public void service( ServletRequest servletRequest, ServletResponse servletResponse ) throws ServletException, IOException {
     try {
       auditService.createContext();
-      GatewayFilter f = filter;
+      GatewayFilter f = enterFilter();
       if( f != null ) {
         try {
           f.doFilter( servletRequest, servletResponse, null );
         } catch( IOException | RuntimeException | ServletException e ) {
           LOG.failedToExecuteFilter( e );
           throw e;
+        } finally {
+          exitFilter( f );
         }
       } else {
         ((HttpServletResponse)servletResponse).setStatus( HttpServletResponse.SC_SERVICE_UNAVAILABLE );
@@ -143,7 +211,7 @@ public class GatewayServlet implements Servlet, Filter {
   public void doFilter( ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain ) throws IOException, ServletException {
     try {
       auditService.createContext();
-      GatewayFilter f = filter;
+      GatewayFilter f = enterFilter();
       if( f != null ) {
         try {
           f.doFilter( servletRequest, servletResponse );
@@ -157,6 +225,8 @@ public class GatewayServlet implements Servlet, Filter {
         } catch( IOException | RuntimeException | ServletException e ) {
           LOG.failedToExecuteFilter( e );
           throw e;
+        } finally {
+          exitFilter( f );
         }
       } else {
         ((HttpServletResponse)servletResponse).setStatus( HttpServletResponse.SC_SERVICE_UNAVAILABLE );
@@ -180,6 +250,11 @@ public class GatewayServlet implements Servlet, Filter {
       filter.destroy();
     }
     filter = null;
+    for( GatewayFilter retired : retiredFilters ) {
+      if( retiredFilters.remove( retired ) ) {
+        retired.destroy();
+      }
+    }
   }
 
   private static GatewayFilter createFilter( InputStream stream, ServletContext servletContext ) throws ServletException {
@@ -188,23 +263,27 @@ public class GatewayServlet implements Servlet, Filter {
       if (stream != null) {
         filter = GatewayFactory.create(createGatewayDescriptor(stream));
       }
-      GatewayConfig gatewayConfig = (GatewayConfig) servletContext.getAttribute(GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE);
-      if (gatewayConfig.isMetricsEnabled()) {
-        GatewayServices gatewayServices = (GatewayServices) servletContext.getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE);
-        MetricsService metricsService = gatewayServices.getService(ServiceType.METRICS_SERVICE);
-        if (metricsService != null) {
-          GatewayFilter instrumentedFilter = metricsService.getInstrumented(filter);
-          if (instrumentedFilter != null) {
-            filter = instrumentedFilter;
-          }
-        }
-      }
-      return filter;
+      return instrument(filter, servletContext);
     } catch( IOException | URISyntaxException e ) {
       throw new ServletException( e );
     }
   }
 
+  private static GatewayFilter instrument( GatewayFilter filter, ServletContext servletContext ) {
+    GatewayConfig gatewayConfig = (GatewayConfig) servletContext.getAttribute(GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE);
+    if (gatewayConfig.isMetricsEnabled()) {
+      GatewayServices gatewayServices = (GatewayServices) servletContext.getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE);
+      MetricsService metricsService = gatewayServices.getService(ServiceType.METRICS_SERVICE);
+      if (metricsService != null) {
+        GatewayFilter instrumentedFilter = metricsService.getInstrumented(filter);
+        if (instrumentedFilter != null) {
+          filter = instrumentedFilter;
+        }
+      }
+    }
+    return filter;
+  }
+
   private static synchronized GatewayDescriptor createGatewayDescriptor(InputStream stream) throws IOException {
     try (InputStreamReader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)){
       return GatewayDescriptorFactory.load("xml", reader);
@@ -134,6 +134,9 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   private static final String HTTP_CLIENT_MAX_CONNECTION = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.maxConnections";
   private static final String HTTP_CLIENT_CONNECTION_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.connectionTimeout";
   private static final String HTTP_CLIENT_SOCKET_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.socketTimeout";
+  private static final String HTTP_CLIENT_MAX_CONNECTION_PER_ROUTE = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.maxConnectionsPerRoute";
+  private static final String HTTP_CLIENT_CONNECTION_TTL = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.connectionTimeToLive";
+  private static final String HTTP_CLIENT_IDLE_CONNECTION_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.idleConnectionTimeout";
   private static final String HTTP_CLIENT_COOKIE_SPEC = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.cookieSpec";
   private static final String THREAD_POOL_MAX = GATEWAY_CONFIG_FILE_PREFIX + ".threadpool.max";
   public static final String HTTP_SERVER_REQUEST_BUFFER = GATEWAY_CONFIG_FILE_PREFIX + ".httpserver.requestBuffer";
@@ -163,6 +166,7 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   public static final String WEBSOCKET_ASYNC_WRITE_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.async.write.timeout";
   public static final String WEBSOCKET_IDLE_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.idle.timeout";
   public static final String WEBSOCKET_MAX_WAIT_BUFFER_COUNT = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.max.wait.buffer.count";
+  public static final String WEBSOCKET_MAX_QUEUED_BYTES = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.max.queued.bytes";
 
 
   /* @since 2.0.0 WebShell config variables */
@@ -205,6 +209,12 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   public static final String REMOTE_ALIAS_SERVICE_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".remote.alias.service.enabled";
   public static final String STRICT_TOPOLOGY_VALIDATION = GATEWAY_CONFIG_FILE_PREFIX + ".strict.topology.validation";
   private static final String TOPOLOGY_REDEPLOYMENT_REQUIRES_CHANGES = GATEWAY_CONFIG_FILE_PREFIX + ".topology.redeploy.requires.changes";
+  private static final String TOPOLOGY_HOT_REDEPLOY_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".topology.hot.redeploy.enabled";
+  private static final String STARTUP_TOPOLOGY_DEPLOYMENT_THREADS = GATEWAY_CONFIG_FILE_PREFIX + ".topology.startup.deployment.threads";
+  private static final String AUDIT_QUEUE_SIZE = GATEWAY_CONFIG_FILE_PREFIX + ".audit.queue.size";
+  private static final String AUDIT_QUEUE_DROP_WHEN_FULL = GATEWAY_CONFIG_FILE_PREFIX + ".audit.queue.drop.when.full";
+  private static final String REWRITE_RULE_MATCH_CACHE_SIZE = GATEWAY_CONFIG_FILE_PREFIX + ".rewrite.rule.match.cache.size";
+  private static final int DEFAULT_REWRITE_RULE_MATCH_CACHE_SIZE = 256;
 
   /**
    * Comma-separated list of topology names, which should be forcibly treated as read-only.
@@ -226,6 +236,7 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   public static final int DEFAULT_WEBSOCKET_ASYNC_WRITE_TIMEOUT = 60000;
   public static final int DEFAULT_WEBSOCKET_IDLE_TIMEOUT = 300000;
   public static final int DEFAULT_WEBSOCKET_MAX_WAIT_BUFFER_COUNT = 100;
+  public static final int DEFAULT_WEBSOCKET_MAX_QUEUED_BYTES = 1024 * 1024;
 
   public static final boolean DEFAULT_WEBSHELL_FEATURE_ENABLED = false;
   public static final boolean DEFAULT_WEBSHELL_AUDIT_LOGGING_ENABLED = false;
@@ -311,6 +322,7 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   private static final String CLOUDERA_MANAGER_SERVICE_DISCOVERY_EXCLUDED_ROLE_TYPES = GATEWAY_CONFIG_FILE_PREFIX + ".cloudera.manager.service.discovery.excluded.role.types";
   private static final String CLOUDERA_MANAGER_SERVICE_DISCOVERY_API_VERSION = GATEWAY_CONFIG_FILE_PREFIX + ".cloudera.manager.service.discovery.api.version";
   private static final String CLOUDERA_MANAGER_SERVICE_DISCOVERY_ROLE_FETCH_STRATEGY = GATEWAY_CONFIG_FILE_PREFIX + ".cloudera.manager.service.discovery.role.fetch.strategy";
+  private static final String CLOUDERA_MANAGER_SERVICE_DISCOVERY_CONCURRENCY = GATEWAY_CONFIG_FILE_PREFIX + ".cloudera.manager.service.discovery.concurrency";
   static final String CLOUDERA_MANAGER_SERVICE_DISCOVERY_SSL_PROTOCOLS = GATEWAY_CONFIG_FILE_PREFIX + ".cloudera.manager.service.discovery.ssl.protocols";
   static final String CLOUDERA_MANAGER_SERVICE_DISCOVERY_SSL_CIPHERS = GATEWAY_CONFIG_FILE_PREFIX +  ".cloudera.manager.service.discovery.ssl.ciphers";
 
@@ -322,12 +334,18 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   private static final String KNOX_TOKEN_EVICTION_INTERVAL = KNOX_TOKEN_PREFIX + ".eviction.interval";
   private static final String KNOX_TOKEN_EVICTION_GRACE_PERIOD = KNOX_TOKEN_PREFIX + ".eviction.grace.period";
   private static final String KNOX_TOKEN_ALIAS_PERSISTENCE_INTERVAL = KNOX_TOKEN_PREFIX + ".state.alias.persistence.interval";
+  private static final String KNOX_TOKEN_DATABASE_BATCH_WINDOW = KNOX_TOKEN_PREFIX + ".state.database.batch.window";
+  private static final String KNOX_TOKEN_DATABASE_BATCH_SIZE = KNOX_TOKEN_PREFIX + ".state.database.batch.size";
+  private static final String KNOX_TOKEN_DATABASE_EXPIRATION_CACHE_TTL = KNOX_TOKEN_PREFIX + ".state.database.expiration.cache.ttl";
   private static final String KNOX_TOKEN_PERMISSIVE_VALIDATION_ENABLED = KNOX_TOKEN_PREFIX + ".permissive.validation";
   private static final String KNOX_TOKEN_HASH_ALGORITHM = KNOX_TOKEN_PREFIX + ".hash.algorithm";
   public static final String KNOX_TOKEN_USER_LIMIT = KNOX_TOKEN_PREFIX + ".limit.per.user";
   private static final long KNOX_TOKEN_EVICTION_INTERVAL_DEFAULT = TimeUnit.MINUTES.toSeconds(5);
   private static final long KNOX_TOKEN_EVICTION_GRACE_PERIOD_DEFAULT = TimeUnit.HOURS.toSeconds(24);
   private static final long KNOX_TOKEN_ALIAS_PERSISTENCE_INTERVAL_DEFAULT = TimeUnit.SECONDS.toSeconds(15);
+  private static final long KNOX_TOKEN_DATABASE_BATCH_WINDOW_DEFAULT = 0L;
+  private static final int KNOX_TOKEN_DATABASE_BATCH_SIZE_DEFAULT = 100;
+  private static final long KNOX_TOKEN_DATABASE_EXPIRATION_CACHE_TTL_DEFAULT = 0L;
   public static final int KNOX_TOKEN_USER_LIMIT_DEFAULT = 10;
   private static final boolean KNOX_TOKEN_PERMISSIVE_VALIDATION_ENABLED_DEFAULT = false;
 
@@ -803,6 +821,35 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
     return t;
   }
 
+  @Override
+  public int getHttpClientMaxConnectionsPerRoute() {
+    return getInt( HTTP_CLIENT_MAX_CONNECTION_PER_ROUTE, -1 );
+  }
+
+  @Override
+  public long getHttpClientConnectionTimeToLive() {
+    return getNetworkTimeout( HTTP_CLIENT_CONNECTION_TTL, "-1" );
+  }
+
+  @Override
+  public long getHttpClientIdleConnectionTimeout() {
+    return getNetworkTimeout( HTTP_CLIENT_IDLE_CONNECTION_TIMEOUT, String.valueOf(TimeUnit.MINUTES.toMillis(1)) );
+  }
+
+  private long getNetworkTimeout(String name, String defaultValue) {
+    long t = -1;
+    String s = get( name, defaultValue );
+    // negative values disable the timeout
+    if ( s != null && !s.trim().startsWith("-") ) {
+      try {
+        t = parseNetworkTimeout( s );
+      } catch ( Exception e ) {
+        // Ignore it and use the default.
+      }
+    }
+    return t;
+  }
+
   @Override
   public String getHttpClientTruststorePath() {
     return get(HTTP_CLIENT_TRUSTSTORE_PATH);
@@ -1079,6 +1126,11 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
     return getInt( WEBSOCKET_MAX_WAIT_BUFFER_COUNT, DEFAULT_WEBSOCKET_MAX_WAIT_BUFFER_COUNT);
   }
 
+  @Override
+  public int getWebsocketMaxQueuedBytes() {
+    return getInt( WEBSOCKET_MAX_QUEUED_BYTES, DEFAULT_WEBSOCKET_MAX_QUEUED_BYTES);
+  }
+
   @Override
   public Map<String, Integer> getGatewayPortMappings() {
 
@@ -1316,6 +1368,31 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
     return getBoolean(TOPOLOGY_REDEPLOYMENT_REQUIRES_CHANGES, false);
   }
 
+  @Override
+  public boolean isTopologyHotRedeployEnabled() {
+    return getBoolean(TOPOLOGY_HOT_REDEPLOY_ENABLED, false);
+  }
+
+  @Override
+  public int getStartupTopologyDeploymentThreads() {
+    return getInt(STARTUP_TOPOLOGY_DEPLOYMENT_THREADS, 1);
+  }
+
+  @Override
+  public int getAuditQueueSize() {
+    return getInt(AUDIT_QUEUE_SIZE, 0);
+  }
+
+  @Override
+  public boolean isAuditQueueDropWhenFull() {
+    return getBoolean(AUDIT_QUEUE_DROP_WHEN_FULL, false);
+  }
+
+  @Override
+  public int getRewriteRuleMatchCacheSize() {
+    return getInt(REWRITE_RULE_MATCH_CACHE_SIZE, DEFAULT_REWRITE_RULE_MATCH_CACHE_SIZE);
+  }
+
   @Override
   public List<String> getXForwardContextAppendServices() {
     String value = get( X_FORWARD_CONTEXT_HEADER_APPEND_SERVICES );
@@ -1383,6 +1460,11 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
     return get(CLOUDERA_MANAGER_SERVICE_DISCOVERY_ROLE_FETCH_STRATEGY, CLOUDERA_MANAGER_SERVICE_DISCOVERY_ROLE_FETCH_STRATEGY_BY_ROLE);
   }
 
+  @Override
+  public int getClouderaManagerServiceDiscoveryConcurrency() {
+    return getInt(CLOUDERA_MANAGER_SERVICE_DISCOVERY_CONCURRENCY, DEFAULT_CM_SERVICE_DISCOVERY_CONCURRENCY);
+  }
+
   @Override
   public Set<String> getClouderaManagerClientSSLProtocols() {
     final List<String> cmClientSSLProtocols = splitConfigValueToList(CLOUDERA_MANAGER_SERVICE_DISCOVERY_SSL_PROTOCOLS);
@@ -1416,6 +1498,21 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
     return getLong(KNOX_TOKEN_ALIAS_PERSISTENCE_INTERVAL, KNOX_TOKEN_ALIAS_PERSISTENCE_INTERVAL_DEFAULT);
   }
 
+  @Override
+  public long getKnoxTokenStateDatabaseBatchWindow() {
+    return getLong(KNOX_TOKEN_DATABASE_BATCH_WINDOW, KNOX_TOKEN_DATABASE_BATCH_WINDOW_DEFAULT);
+  }
+
+  @Override
+  public int getKnoxTokenStateDatabaseBatchSize() {
+    return getInt(KNOX_TOKEN_DATABASE_BATCH_SIZE, KNOX_TOKEN_DATABASE_BATCH_SIZE_DEFAULT);
+  }
+
+  @Override
+  public long getKnoxTokenStateDatabaseExpirationCacheTtl() {
+    return getLong(KNOX_TOKEN_DATABASE_EXPIRATION_CACHE_TTL, KNOX_TOKEN_DATABASE_EXPIRATION_CACHE_TTL_DEFAULT);
+  }
+
   @Override
   public String getKnoxTokenHashAlgorithm() {
     return get(KNOX_TOKEN_HASH_ALGORITHM, HmacAlgorithms.HMAC_SHA_256.getName());
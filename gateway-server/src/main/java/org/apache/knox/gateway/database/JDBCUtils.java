@@ -44,6 +44,21 @@ public class JDBCUtils {
         return exists;
     }
 
+    public static boolean indexExists(String tableName, String indexName, DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            final DatabaseMetaData dbMetadata = connection.getMetaData();
+            final String tableNameToCheck = dbMetadata.storesUpperCaseIdentifiers() ? tableName : tableName.toLowerCase(Locale.ROOT);
+            try (ResultSet indexes = dbMetadata.getIndexInfo(connection.getCatalog(), null, tableNameToCheck, false, true)) {
+                while (indexes.next()) {
+                    if (indexName.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
     public static void createTableFromSQL(String createSqlFileName, DataSource dataSource, ClassLoader classLoader) throws Exception {
         try (InputStream is = classLoader.getResourceAsStream(createSqlFileName);
              Connection connection = dataSource.getConnection();Statement createTableStatement = connection.createStatement()) {
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.deploy;
+
+import org.apache.commons.io.IOUtils;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.Asset;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Compares a deployment archive created in memory with the exploded archive of a running
+ * deployment, to tell whether the deployment can be updated in place.
+ */
+public final class ArchiveComparator {
+
+  private ArchiveComparator() {
+  }
+
+  /**
+   * Files that only exist in the exploded archive, e.g. the temporary files of the web
+   * application, are not reported.
+   *
+   * @param archive     the archive created in memory
+   * @param explodedDir the directory the archive was deployed to
+   * @return the paths of the files of the archive that differ from or are missing in the
+   * exploded archive, e.g. <code>/WEB-INF/gateway.xml</code>
+   * @throws IOException if a file could not be read
+   */
+  public static Set<String> findChangedEntries( Archive<?> archive, File explodedDir ) throws IOException {
+    Set<String> changed = new TreeSet<>();
+    for( Map.Entry<ArchivePath, Node> entry : archive.getContent().entrySet() ) {
+      Asset asset = entry.getValue().getAsset();
+      if( asset == null ) {
+        // A directory
+        continue;
+      }
+      String path = entry.getKey().get();
+      File file = new File( explodedDir, path );
+      if( !file.isFile() || !hasContent( file, asset ) ) {
+        changed.add( path );
+      }
+    }
+    return changed;
+  }
+
+  private static boolean hasContent( File file, Asset asset ) throws IOException {
+    try( InputStream expected = asset.openStream();
+         InputStream actual = Files.newInputStream( file.toPath() ) ) {
+      return IOUtils.contentEquals( expected, actual );
+    }
+  }
+}
@@ -62,9 +62,11 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.ServiceLoader;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 public abstract class DeploymentFactory {
   private static final JAXBContext jaxbContext = getJAXBContext();
@@ -74,7 +76,8 @@ public abstract class DeploymentFactory {
   private static final GatewayMessages log = MessagesFactory.get( GatewayMessages.class );
   private static GatewayServices gatewayServices;
 
-  private static Map<String,Map<String,Map<Version, ServiceDeploymentContributor>>> SERVICE_CONTRIBUTOR_MAP;
+  // Concurrent maps since topologies may be deployed in parallel, each one reloading the service definitions
+  private static Map<String,Map<String,NavigableMap<Version, ServiceDeploymentContributor>>> SERVICE_CONTRIBUTOR_MAP;
   static {
     loadServiceContributors();
   }
@@ -189,6 +192,25 @@ public abstract class DeploymentFactory {
     return ear;
   }
 
+  /**
+   * Creates the web archive of the services of a topology in memory, without the archives
+   * of its applications, e.g. to compare it with the running deployment of the topology.
+   *
+   * @param config the gateway configuration
+   * @param topology the topology
+   * @return the archive, or null if the topology has no services
+   */
+  public static WebArchive createServicesDeployment( GatewayConfig config, Topology topology ) {
+    validateTopology( topology );
+    loadStacksServiceContributors( config );
+    Map<String,List<ProviderDeploymentContributor>> providers = selectContextProviders( topology );
+    Map<String,List<ServiceDeploymentContributor>> services = selectContextServices( topology );
+    if( services.isEmpty() ) {
+      return null;
+    }
+    return createServicesDeployment( config, topology, providers, services );
+  }
+
   private static WebArchive createServicesDeployment(
       GatewayConfig config,
       Topology topology,
@@ -553,9 +575,9 @@ public abstract class DeploymentFactory {
 
   public static ServiceDeploymentContributor getServiceContributor( String role, String name, Version version ) {
     ServiceDeploymentContributor contributor = null;
-    Map<String,Map<Version, ServiceDeploymentContributor>> nameMap = SERVICE_CONTRIBUTOR_MAP.get( role );
+    Map<String,NavigableMap<Version, ServiceDeploymentContributor>> nameMap = SERVICE_CONTRIBUTOR_MAP.get( role );
     if( nameMap != null && !nameMap.isEmpty()) {
-      Map<Version, ServiceDeploymentContributor> versionMap;
+      NavigableMap<Version, ServiceDeploymentContributor> versionMap;
       if ( name == null ) {
         versionMap = nameMap.values().iterator().next();
       } else {
@@ -563,7 +585,7 @@ public abstract class DeploymentFactory {
       }
       if ( versionMap != null && !versionMap.isEmpty()) {
         if( version == null ) {
-          contributor = ((TreeMap<Version, ServiceDeploymentContributor>) versionMap).lastEntry().getValue();
+          contributor = versionMap.lastEntry().getValue();
         } else {
           contributor = versionMap.get( version );
         }
@@ -709,7 +731,7 @@ public abstract class DeploymentFactory {
   }
 
   private static void loadServiceContributors() {
-    SERVICE_CONTRIBUTOR_MAP = new HashMap<>();
+    SERVICE_CONTRIBUTOR_MAP = new ConcurrentHashMap<>();
     ServiceLoader<ServiceDeploymentContributor> loader = ServiceLoader.load( ServiceDeploymentContributor.class );
     Iterator<ServiceDeploymentContributor> contributors = loader.iterator();
     addServiceDeploymentContributors(contributors);
@@ -730,17 +752,10 @@ public abstract class DeploymentFactory {
           log.ignoringServiceContributorWithMissingVersion(contributor.getClass().getName());
           continue;
         }
-        Map<String,Map<Version, ServiceDeploymentContributor>> nameMap = SERVICE_CONTRIBUTOR_MAP.get( contributor.getRole() );
-        if( nameMap == null ) {
-          nameMap = new HashMap<>();
-          SERVICE_CONTRIBUTOR_MAP.put( contributor.getRole(), nameMap );
-        }
-        Map<Version, ServiceDeploymentContributor> versionMap = nameMap.get(contributor.getName());
-        if (versionMap == null) {
-          versionMap = new TreeMap<>();
-          nameMap.put(contributor.getName(), versionMap);
-        }
-        versionMap.put( contributor.getVersion(), contributor );
+        SERVICE_CONTRIBUTOR_MAP
+            .computeIfAbsent( contributor.getRole(), role -> new ConcurrentHashMap<>() )
+            .computeIfAbsent( contributor.getName(), name -> new ConcurrentSkipListMap<>() )
+            .put( contributor.getVersion(), contributor );
       }
    }
 
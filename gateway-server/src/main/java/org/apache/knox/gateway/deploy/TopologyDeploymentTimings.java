@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.deploy;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.knox.gateway.services.metrics.MetricsService;
+
+/**
+ * Times spent in the phases of topology deployments. The latest time of each phase is kept
+ * per topology, so that it can be logged once the topology has started, and the totals of
+ * all deployments are published as gauges of the {@link MetricsService}.
+ * <p>
+ * The phases run in different components, the topology service parses, the descriptor monitor
+ * discovers and the gateway server builds and starts the deployments, so they all record into
+ * the one {@link #getInstance() instance}.
+ */
+public final class TopologyDeploymentTimings {
+
+  public static final String METRICS_PREFIX = "topology.deployment";
+
+  public enum Phase {
+    /** Reading and parsing the topology file. */
+    PARSE,
+    /** Discovering the services of a simple descriptor and generating its topology. */
+    DISCOVERY,
+    /** Running the deployment contributors to create the deployment archive in memory. */
+    CONTRIBUTE,
+    /** Writing the deployment archive and the applications to the deployments directory. */
+    EXPORT,
+    /** Starting the web application of a deployment archive. */
+    START;
+
+    private String metricName() {
+      return name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  private static final TopologyDeploymentTimings INSTANCE = new TopologyDeploymentTimings();
+
+  private final Map<Phase, Totals> totals = new EnumMap<>(Phase.class);
+  private final Map<String, long[]> latestNanos = new ConcurrentHashMap<>();
+
+  TopologyDeploymentTimings() {
+    for (Phase phase : Phase.values()) {
+      totals.put(phase, new Totals());
+    }
+  }
+
+  public static TopologyDeploymentTimings getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @param metricsService the service to publish the gauges with, may be null
+   */
+  public void register(MetricsService metricsService) {
+    if (metricsService == null) {
+      return;
+    }
+    for (Map.Entry<Phase, Totals> entry : totals.entrySet()) {
+      entry.getValue().register(metricsService, MetricRegistry.name(METRICS_PREFIX, entry.getKey().metricName()));
+    }
+  }
+
+  /**
+   * @return the current time, to be passed to {@link #record(String, Phase, long)} at the end of the phase
+   */
+  public static long start() {
+    return System.nanoTime();
+  }
+
+  /**
+   * Records a phase that began at the given time and ends now.
+   *
+   * @param topology the name of the topology
+   * @param phase    the phase
+   * @param start    the time returned by {@link #start()} when the phase began
+   */
+  public void record(String topology, Phase phase, long start) {
+    final long nanos = System.nanoTime() - start;
+    totals.get(phase).add(nanos);
+    latestNanos.computeIfAbsent(topology, name -> new long[Phase.values().length])[phase.ordinal()] = nanos;
+  }
+
+  /**
+   * @return the latest time of the phase for the topology in milliseconds, or -1 if it was not recorded
+   */
+  public long getLatestMillis(String topology, Phase phase) {
+    final long[] nanos = latestNanos.get(topology);
+    return nanos == null || nanos[phase.ordinal()] == 0L ? -1L : TimeUnit.NANOSECONDS.toMillis(nanos[phase.ordinal()]);
+  }
+
+  public long getCount(Phase phase) {
+    return totals.get(phase).count.sum();
+  }
+
+  public long getTotalMillis(Phase phase) {
+    return TimeUnit.NANOSECONDS.toMillis(totals.get(phase).nanos.sum());
+  }
+
+  /**
+   * Forgets the latest times of a topology that was removed.
+   */
+  public void remove(String topology) {
+    latestNanos.remove(topology);
+  }
+
+  private static final class Totals {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+    private void add(long elapsed) {
+      count.increment();
+      nanos.add(elapsed);
+      maxNanos.accumulate(elapsed);
+    }
+
+    private void register(MetricsService metricsService, String prefix) {
+      metricsService.registerGauge(MetricRegistry.name(prefix, "count"), (Gauge<Long>) count::sum);
+      metricsService.registerGauge(MetricRegistry.name(prefix, "time", "total", "ms"),
+          (Gauge<Long>) () -> TimeUnit.NANOSECONDS.toMillis(nanos.sum()));
+      metricsService.registerGauge(MetricRegistry.name(prefix, "time", "max", "ms"),
+          (Gauge<Long>) () -> TimeUnit.NANOSECONDS.toMillis(maxNanos.get()));
+    }
+  }
+}
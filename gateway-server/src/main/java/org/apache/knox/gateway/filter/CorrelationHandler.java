@@ -24,16 +24,17 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.knox.gateway.audit.api.CorrelationContext;
 import org.apache.knox.gateway.audit.api.CorrelationService;
 import org.apache.knox.gateway.audit.api.CorrelationServiceFactory;
 import org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationContext;
-import org.apache.logging.log4j.CloseableThreadContext;
+import org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationService;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.handler.HandlerWrapper;
 
 public class CorrelationHandler extends HandlerWrapper {
   public static final String REQUEST_ID_HEADER_NAME = "X-Request-Id";
-  public static final String TRACE_ID = "trace_id";
+  public static final String TRACE_ID = Log4jCorrelationService.KEY_TRACE_ID;
 
   @Override
   public void handle( String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response )
@@ -45,10 +46,11 @@ public class CorrelationHandler extends HandlerWrapper {
             UUID.randomUUID().toString() :
             request.getHeader(REQUEST_ID_HEADER_NAME);
 
-    correlationService.attachContext(
-            new Log4jCorrelationContext(reqID,
-                null, null));
-    try(CloseableThreadContext.Instance ctc = CloseableThreadContext.put(TRACE_ID, reqID)) {
+    /* The trace ID of the log layouts is the request ID, added to log events by the correlation service */
+    final CorrelationContext correlationContext = new Log4jCorrelationContext(reqID, null, null);
+    correlationService.attachContext(correlationContext);
+    request.setAttribute(CorrelationService.CONTEXT_ATTRIBUTE, correlationContext);
+    try {
       super.handle( target, baseRequest, request, response );
     } finally {
       correlationService.detachContext();
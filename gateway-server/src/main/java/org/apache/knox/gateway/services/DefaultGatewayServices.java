@@ -83,9 +83,14 @@ public class DefaultGatewayServices extends AbstractGatewayServices {
 
     addService(ServiceType.GATEWAY_STATUS_SERVICE, gatewayServiceFactory.create(this, ServiceType.GATEWAY_STATUS_SERVICE, config, options));
 
+    // used by the LDAP service's proxy backends, so it has to be created first
+    addService(ServiceType.LDAP_CONNECTION_POOL_SERVICE, gatewayServiceFactory.create(this, ServiceType.LDAP_CONNECTION_POOL_SERVICE, config, options));
+
     addService(ServiceType.LDAP_ROLES_LOOKUP_SERVICE,  gatewayServiceFactory.create(this, ServiceType.LDAP_ROLES_LOOKUP_SERVICE, config, options));
 
     addService(ServiceType.LDAP_SERVICE, gatewayServiceFactory.create(this, ServiceType.LDAP_SERVICE, config, options));
+
+    addService(ServiceType.HTTP_CLIENT_POOL_SERVICE, gatewayServiceFactory.create(this, ServiceType.HTTP_CLIENT_POOL_SERVICE, config, options));
   }
 
   @Override
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.dispatch;
+
+import org.apache.http.client.HttpClient;
+import org.apache.knox.gateway.GatewayMessages;
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.services.ServiceLifecycleException;
+import org.apache.knox.gateway.services.ServiceType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Default {@link HttpClientPoolService} keeping one reference counted client per configuration key.
+ * <p>
+ * The service is disabled unless <code>gateway.service.httpclientpool.enabled</code> is set to
+ * <code>true</code>; the grace period before an unreferenced client is closed can be set with
+ * <code>gateway.service.httpclientpool.idleClientGracePeriod</code> (seconds).
+ */
+public class DefaultHttpClientPoolService implements HttpClientPoolService {
+
+  private static final GatewayMessages LOG = MessagesFactory.get(GatewayMessages.class);
+
+  static final String ENABLED_PARAM = "enabled";
+  static final String GRACE_PERIOD_PARAM = "idleClientGracePeriod";
+  static final long DEFAULT_GRACE_PERIOD_SECONDS = 300L;
+
+  private final Map<String, SharedClient> clientsByKey = new HashMap<>();
+  private final Map<HttpClient, SharedClient> clients = new IdentityHashMap<>();
+  private ScheduledExecutorService closer;
+  private boolean enabled;
+  private long gracePeriodSeconds = DEFAULT_GRACE_PERIOD_SECONDS;
+
+  @Override
+  public void init(GatewayConfig config, Map<String, String> options) throws ServiceLifecycleException {
+    final String shortName = ServiceType.HTTP_CLIENT_POOL_SERVICE.getShortName();
+    enabled = Boolean.parseBoolean(config.getServiceParameter(shortName, ENABLED_PARAM));
+    final String gracePeriod = config.getServiceParameter(shortName, GRACE_PERIOD_PARAM);
+    if (gracePeriod != null && !gracePeriod.isEmpty()) {
+      try {
+        gracePeriodSeconds = Long.parseLong(gracePeriod.trim());
+      } catch (NumberFormatException e) {
+        LOG.invalidHttpClientPoolGracePeriod(gracePeriod);
+      }
+    }
+    if (enabled) {
+      closer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "http-client-pool-closer");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  @Override
+  public void start() throws ServiceLifecycleException {
+  }
+
+  @Override
+  public synchronized void stop() throws ServiceLifecycleException {
+    if (closer != null) {
+      closer.shutdownNow();
+    }
+    for (SharedClient sharedClient : clients.values()) {
+      close(sharedClient);
+    }
+    clients.clear();
+    clientsByKey.clear();
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  @Override
+  public synchronized HttpClient acquire(String key, Supplier<HttpClient> factory) {
+    SharedClient sharedClient = clientsByKey.get(key);
+    if (sharedClient == null) {
+      sharedClient = new SharedClient(key, factory.get());
+      clientsByKey.put(key, sharedClient);
+      clients.put(sharedClient.client, sharedClient);
+      LOG.createdSharedHttpClient(key);
+    }
+    if (sharedClient.pendingClose != null) {
+      sharedClient.pendingClose.cancel(false);
+      sharedClient.pendingClose = null;
+    }
+    sharedClient.references++;
+    return sharedClient.client;
+  }
+
+  @Override
+  public synchronized boolean release(HttpClient client) {
+    final SharedClient sharedClient = clients.get(client);
+    if (sharedClient == null) {
+      return false;
+    }
+    sharedClient.references--;
+    if (sharedClient.references <= 0) {
+      if (closer == null || gracePeriodSeconds <= 0) {
+        remove(sharedClient);
+      } else {
+        sharedClient.pendingClose = closer.schedule(() -> removeIfUnreferenced(sharedClient), gracePeriodSeconds, TimeUnit.SECONDS);
+      }
+    }
+    return true;
+  }
+
+  synchronized int getReferenceCount(String key) {
+    final SharedClient sharedClient = clientsByKey.get(key);
+    return sharedClient == null ? 0 : sharedClient.references;
+  }
+
+  private synchronized void removeIfUnreferenced(SharedClient sharedClient) {
+    if (sharedClient.references <= 0 && clientsByKey.get(sharedClient.key) == sharedClient) {
+      remove(sharedClient);
+    }
+  }
+
+  private void remove(SharedClient sharedClient) {
+    clientsByKey.remove(sharedClient.key);
+    clients.remove(sharedClient.client);
+    close(sharedClient);
+  }
+
+  private void close(SharedClient sharedClient) {
+    if (sharedClient.client instanceof Closeable) {
+      try {
+        ((Closeable) sharedClient.client).close();
+        LOG.closedSharedHttpClient(sharedClient.key);
+      } catch (IOException e) {
+        LOG.failedToCloseSharedHttpClient(sharedClient.key, e);
+      }
+    }
+  }
+
+  private static class SharedClient {
+    private final String key;
+    private final HttpClient client;
+    private int references;
+    private ScheduledFuture<?> pendingClose;
+
+    SharedClient(String key, HttpClient client) {
+      this.key = key;
+      this.client = client;
+    }
+  }
+}
@@ -176,4 +176,22 @@ public interface LdapMessages {
 
     @Message(level = MessageLevel.ERROR, text = "Failed to lookup roles for user {0}: {1}")
     void ldapRolesLookupFailed(String user, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
+    @Message(level = MessageLevel.INFO, text = "LDAP connection pool is enabled with maxTotalPerKey={0}, maxIdlePerKey={1}, minIdlePerKey={2}")
+    void ldapConnectionPoolEnabled(int maxTotalPerKey, int maxIdlePerKey, int minIdlePerKey);
+
+    @Message(level = MessageLevel.WARN, text = "Invalid LDAP connection pool setting {0}={1}, using the default")
+    void invalidLdapConnectionPoolParameter(String parameter, String value);
+
+    @Message(level = MessageLevel.DEBUG, text = "Opened pooled LDAP connection for {0}")
+    void createdPooledLdapConnection(String key);
+
+    @Message(level = MessageLevel.INFO, text = "Created shared LDAP connection pool for {0} with maxTotal={1}")
+    void createdSharedLdapConnectionPool(String server, int maxTotal);
+
+    @Message(level = MessageLevel.WARN, text = "Failed to return pooled LDAP connection for {0}: {1}")
+    void failedToReleasePooledLdapConnection(String key, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
+    @Message(level = MessageLevel.WARN, text = "Failed to close LDAP connection pool: {0}")
+    void failedToCloseLdapConnectionPool(@StackTrace(level = MessageLevel.DEBUG) Exception e);
 }
@@ -33,8 +33,13 @@ import org.apache.directory.ldap.client.api.LdapConnectionConfig;
 import org.apache.directory.ldap.client.api.LdapConnectionPool;
 import org.apache.directory.ldap.client.api.LdapNetworkConnection;
 import org.apache.directory.ldap.client.api.ValidatingPoolableLdapConnectionFactory;
+import org.apache.knox.gateway.GatewayServer;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.services.GatewayServices;
+import org.apache.knox.gateway.services.ServiceType;
+import org.apache.knox.gateway.services.ldap.LdapConnectionPoolService;
 import org.apache.knox.gateway.services.ldap.LdapMessages;
+import org.apache.knox.gateway.services.ldap.pool.DefaultLdapConnectionPoolService;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -85,6 +90,7 @@ public class LdapProxyBackend implements LdapBackend {
 
     // Connection pool for efficient connection reuse
     private LdapConnectionPool connectionPool;
+    private boolean sharedConnectionPool;
 
     public LdapProxyBackend(String name, Map<String, String> config) {
         this.name = name;
@@ -187,6 +193,14 @@ public class LdapProxyBackend implements LdapBackend {
         // Connection pool configuration (with sensible defaults)
         int maxActive = Integer.parseInt(config.getOrDefault("poolMaxActive", "8"));
 
+        // Prefer the gateway-wide pool, which is shared across configuration reloads and publishes metrics
+        final LdapConnectionPoolService poolService = getLdapConnectionPoolService();
+        if (poolService instanceof DefaultLdapConnectionPoolService && poolService.isEnabled()) {
+            connectionPool = ((DefaultLdapConnectionPoolService) poolService).getConnectionPool(connectionConfig, maxActive);
+            sharedConnectionPool = true;
+            return;
+        }
+
         // Create connection factory
         DefaultLdapConnectionFactory factory = new DefaultLdapConnectionFactory(connectionConfig);
 
@@ -262,12 +276,18 @@ public class LdapProxyBackend implements LdapBackend {
         }
     }
 
+    private LdapConnectionPoolService getLdapConnectionPoolService() {
+        final GatewayServices services = GatewayServer.getGatewayServices();
+        return services == null ? null : services.getService(ServiceType.LDAP_CONNECTION_POOL_SERVICE);
+    }
+
     /**
      * Closes the connection pool and releases all resources.
      * Should be called when the backend is being shut down.
+     * A shared pool is left open, it is closed by the LDAP connection pool service.
      */
     public void close() {
-        if (connectionPool != null) {
+        if (connectionPool != null && !sharedConnectionPool) {
             try {
                 connectionPool.close();
             } catch (Exception e) {
@@ -0,0 +1,384 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.services.ldap.pool;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.commons.pool2.BaseKeyedPooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.apache.directory.ldap.client.api.DefaultLdapConnectionFactory;
+import org.apache.directory.ldap.client.api.LdapConnectionConfig;
+import org.apache.directory.ldap.client.api.LdapConnectionPool;
+import org.apache.directory.ldap.client.api.ValidatingPoolableLdapConnectionFactory;
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.services.ServiceLifecycleException;
+import org.apache.knox.gateway.services.ServiceType;
+import org.apache.knox.gateway.services.ldap.LdapConnectionPoolService;
+import org.apache.knox.gateway.services.ldap.LdapMessages;
+import org.apache.knox.gateway.services.metrics.MetricsService;
+
+import javax.naming.CommunicationException;
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.ldap.InitialLdapContext;
+import javax.naming.ldap.LdapContext;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Default {@link LdapConnectionPoolService}.
+ * <p>
+ * JNDI system contexts, as used by the Shiro LDAP realms, are kept in one keyed pool, with
+ * the limits applying per key. The embedded LDAP proxy gets one shared Apache Directory
+ * API connection pool per upstream server and bind DN from {@link #getConnectionPool}.
+ * <p>
+ * The service is disabled unless <code>gateway.service.ldapconnectionpool.enabled</code> is
+ * set to <code>true</code>. The pools are tuned with the following
+ * <code>gateway.service.ldapconnectionpool.*</code> parameters:
+ * <ul>
+ *   <li>maxTotalPerKey - maximum number of connections per key (default 8)</li>
+ *   <li>maxIdlePerKey - maximum number of idle connections per key (default 8)</li>
+ *   <li>minIdlePerKey - idle connections kept open per key once it was used (default 0)</li>
+ *   <li>maxWaitMillis - how long to wait for a connection of an exhausted pool (default 10000)</li>
+ *   <li>testOnBorrow - validate connections before handing them out (default true)</li>
+ *   <li>timeBetweenEvictionRunsMillis - interval of the idle connection health check (default 30000)</li>
+ *   <li>minEvictableIdleTimeMillis - idle time after which a connection is closed (default 300000)</li>
+ * </ul>
+ */
+public class DefaultLdapConnectionPoolService implements LdapConnectionPoolService {
+
+    private static final LdapMessages LOG = MessagesFactory.get(LdapMessages.class);
+
+    static final String ENABLED_PARAM = "enabled";
+    static final String MAX_TOTAL_PER_KEY_PARAM = "maxTotalPerKey";
+    static final String MAX_IDLE_PER_KEY_PARAM = "maxIdlePerKey";
+    static final String MIN_IDLE_PER_KEY_PARAM = "minIdlePerKey";
+    static final String MAX_WAIT_PARAM = "maxWaitMillis";
+    static final String TEST_ON_BORROW_PARAM = "testOnBorrow";
+    static final String EVICTION_INTERVAL_PARAM = "timeBetweenEvictionRunsMillis";
+    static final String MIN_EVICTABLE_IDLE_TIME_PARAM = "minEvictableIdleTimeMillis";
+
+    static final int DEFAULT_MAX_TOTAL_PER_KEY = 8;
+    static final int DEFAULT_MAX_IDLE_PER_KEY = 8;
+    static final int DEFAULT_MIN_IDLE_PER_KEY = 0;
+    static final long DEFAULT_MAX_WAIT_MILLIS = 10000L;
+    static final long DEFAULT_EVICTION_INTERVAL_MILLIS = 30000L;
+    static final long DEFAULT_MIN_EVICTABLE_IDLE_TIME_MILLIS = 300000L;
+
+    static final String METRICS_PREFIX = "ldap.connection.pool";
+
+    // JDK connection pooling is pointless for contexts that are never closed
+    static final String JNDI_CONNECTION_POOL_PROPERTY = "com.sun.jndi.ldap.connect.pool";
+
+    // Requests no attributes at all, only whether the entry can be read over the connection
+    private static final String[] NO_ATTRIBUTES = {"1.1"};
+
+    /**
+     * Creates the contexts held by the pool.
+     */
+    interface ContextFactory {
+        LdapContext create(Hashtable<String, Object> environment) throws NamingException;
+    }
+
+    private final MetricsService metricsService;
+    private final ContextFactory contextFactory;
+    private final Map<List<Object>, LdapConnectionPool> connectionPools = new ConcurrentHashMap<>();
+    private final Map<String, Gauge<?>> gauges = new ConcurrentHashMap<>();
+
+    private boolean enabled;
+    private int maxTotalPerKey = DEFAULT_MAX_TOTAL_PER_KEY;
+    private int maxIdlePerKey = DEFAULT_MAX_IDLE_PER_KEY;
+    private int minIdlePerKey = DEFAULT_MIN_IDLE_PER_KEY;
+    private long maxWaitMillis = DEFAULT_MAX_WAIT_MILLIS;
+    private boolean testOnBorrow = true;
+    private long evictionIntervalMillis = DEFAULT_EVICTION_INTERVAL_MILLIS;
+    private long minEvictableIdleTimeMillis = DEFAULT_MIN_EVICTABLE_IDLE_TIME_MILLIS;
+    private GenericKeyedObjectPool<SystemContextKey, LdapContext> systemContexts;
+
+    public DefaultLdapConnectionPoolService(MetricsService metricsService) {
+        this(metricsService, environment -> new InitialLdapContext(environment, null));
+    }
+
+    DefaultLdapConnectionPoolService(MetricsService metricsService, ContextFactory contextFactory) {
+        this.metricsService = metricsService;
+        this.contextFactory = contextFactory;
+    }
+
+    @Override
+    public void init(GatewayConfig config, Map<String, String> options) throws ServiceLifecycleException {
+        enabled = Boolean.parseBoolean(getParameter(config, ENABLED_PARAM));
+        if (!enabled) {
+            return;
+        }
+        maxTotalPerKey = (int) getLong(config, MAX_TOTAL_PER_KEY_PARAM, DEFAULT_MAX_TOTAL_PER_KEY);
+        maxIdlePerKey = (int) getLong(config, MAX_IDLE_PER_KEY_PARAM, DEFAULT_MAX_IDLE_PER_KEY);
+        minIdlePerKey = (int) getLong(config, MIN_IDLE_PER_KEY_PARAM, DEFAULT_MIN_IDLE_PER_KEY);
+        maxWaitMillis = getLong(config, MAX_WAIT_PARAM, DEFAULT_MAX_WAIT_MILLIS);
+        final String testOnBorrowValue = getParameter(config, TEST_ON_BORROW_PARAM);
+        testOnBorrow = testOnBorrowValue.isEmpty() || Boolean.parseBoolean(testOnBorrowValue);
+        evictionIntervalMillis = getLong(config, EVICTION_INTERVAL_PARAM, DEFAULT_EVICTION_INTERVAL_MILLIS);
+        minEvictableIdleTimeMillis = getLong(config, MIN_EVICTABLE_IDLE_TIME_PARAM, DEFAULT_MIN_EVICTABLE_IDLE_TIME_MILLIS);
+
+        final GenericKeyedObjectPoolConfig<LdapContext> poolConfig = new GenericKeyedObjectPoolConfig<>();
+        poolConfig.setMaxTotalPerKey(maxTotalPerKey);
+        poolConfig.setMaxIdlePerKey(maxIdlePerKey);
+        poolConfig.setMinIdlePerKey(minIdlePerKey);
+        poolConfig.setMaxWaitMillis(maxWaitMillis);
+        poolConfig.setTestOnBorrow(testOnBorrow);
+        poolConfig.setTestWhileIdle(true);
+        poolConfig.setNumTestsPerEvictionRun(-1);
+        poolConfig.setTimeBetweenEvictionRunsMillis(evictionIntervalMillis);
+        poolConfig.setMinEvictableIdleTimeMillis(minEvictableIdleTimeMillis);
+        poolConfig.setJmxEnabled(false);
+        systemContexts = new GenericKeyedObjectPool<>(new SystemContextPoolFactory(), poolConfig);
+
+        final String prefix = MetricRegistry.name(METRICS_PREFIX, "system");
+        registerGauge(MetricRegistry.name(prefix, "active"), (Gauge<Integer>) systemContexts::getNumActive);
+        registerGauge(MetricRegistry.name(prefix, "idle"), (Gauge<Integer>) systemContexts::getNumIdle);
+        registerGauge(MetricRegistry.name(prefix, "waiters"), (Gauge<Integer>) systemContexts::getNumWaiters);
+        registerGauge(MetricRegistry.name(prefix, "created"), (Gauge<Long>) systemContexts::getCreatedCount);
+        registerGauge(MetricRegistry.name(prefix, "destroyed"), (Gauge<Long>) systemContexts::getDestroyedCount);
+        registerGauge(MetricRegistry.name(prefix, "validationFailures"),
+            (Gauge<Long>) systemContexts::getDestroyedByBorrowValidationCount);
+
+        LOG.ldapConnectionPoolEnabled(maxTotalPerKey, maxIdlePerKey, minIdlePerKey);
+    }
+
+    @Override
+    public void start() throws ServiceLifecycleException {
+    }
+
+    @Override
+    public void stop() throws ServiceLifecycleException {
+        if (metricsService != null) {
+            gauges.forEach(metricsService::removeGauge);
+        }
+        gauges.clear();
+        for (LdapConnectionPool connectionPool : connectionPools.values()) {
+            try {
+                connectionPool.close();
+            } catch (Exception e) {
+                LOG.failedToCloseLdapConnectionPool(e);
+            }
+        }
+        connectionPools.clear();
+        if (systemContexts != null) {
+            systemContexts.close();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public LdapContext getSystemLdapContext(Hashtable<?, ?> environment) throws NamingException {
+        final SystemContextKey key = new SystemContextKey(environment);
+        if (systemContexts == null) {
+            return contextFactory.create(key.newEnvironment());
+        }
+        final LdapContext context;
+        try {
+            context = systemContexts.borrowObject(key);
+        } catch (NamingException e) {
+            throw e;
+        } catch (Exception e) {
+            final NamingException exception = new ServiceUnavailableException("No pooled LDAP connection available for " + key);
+            exception.setRootCause(e);
+            throw exception;
+        }
+        return PooledLdapContext.wrap(this, key, context);
+    }
+
+    /**
+     * Returns the shared pool for connections to the given server as the given user,
+     * creating it on first use.
+     * <p>
+     * Used by the embedded LDAP proxy, whose backends talk to the upstream directory with the
+     * Apache Directory LDAP API rather than JNDI; that is why it is not part of
+     * {@link LdapConnectionPoolService}. Pools are closed when the service stops, not by
+     * their users, so they survive a reload of the LDAP proxy configuration.
+     *
+     * @param connectionConfig the connection settings, including the bind DN and credentials
+     * @param maxTotal         the maximum number of connections, only applied when the pool is created
+     * @return the shared pool
+     */
+    public LdapConnectionPool getConnectionPool(LdapConnectionConfig connectionConfig, int maxTotal) {
+        final List<Object> key = Arrays.asList(connectionConfig.getLdapHost(), connectionConfig.getLdapPort(),
+            connectionConfig.isUseSsl(), connectionConfig.getName(), connectionConfig.getCredentials());
+        return connectionPools.computeIfAbsent(key, k -> createConnectionPool(connectionConfig, maxTotal));
+    }
+
+    private LdapConnectionPool createConnectionPool(LdapConnectionConfig connectionConfig, int maxTotal) {
+        final LdapConnectionPool connectionPool = new LdapConnectionPool(
+            new ValidatingPoolableLdapConnectionFactory(new DefaultLdapConnectionFactory(connectionConfig)));
+        connectionPool.setMaxTotal(maxTotal);
+        connectionPool.setMaxIdle(Math.min(maxIdlePerKey, maxTotal));
+        connectionPool.setMinIdle(minIdlePerKey);
+        connectionPool.setMaxWaitMillis(maxWaitMillis);
+        connectionPool.setTestOnBorrow(testOnBorrow);
+        connectionPool.setTestWhileIdle(true);
+        connectionPool.setNumTestsPerEvictionRun(-1);
+        connectionPool.setTimeBetweenEvictionRunsMillis(evictionIntervalMillis);
+        connectionPool.setMinEvictableIdleTimeMillis(minEvictableIdleTimeMillis);
+
+        final String server = connectionConfig.getLdapHost() + ":" + connectionConfig.getLdapPort();
+        final String prefix = MetricRegistry.name(METRICS_PREFIX, "proxy", server,
+            connectionConfig.getName() == null ? "anonymous" : connectionConfig.getName());
+        registerGauge(MetricRegistry.name(prefix, "active"), (Gauge<Integer>) connectionPool::getNumActive);
+        registerGauge(MetricRegistry.name(prefix, "idle"), (Gauge<Integer>) connectionPool::getNumIdle);
+        registerGauge(MetricRegistry.name(prefix, "waiters"), (Gauge<Integer>) connectionPool::getNumWaiters);
+
+        LOG.createdSharedLdapConnectionPool(server, maxTotal);
+        return connectionPool;
+    }
+
+    /**
+     * Called by {@link PooledLdapContext} when its borrower closes it.
+     */
+    void release(SystemContextKey key, LdapContext context, boolean reusable) {
+        try {
+            if (reusable) {
+                systemContexts.returnObject(key, context);
+            } else {
+                systemContexts.invalidateObject(key, context);
+            }
+        } catch (Exception e) {
+            LOG.failedToReleasePooledLdapConnection(key.toString(), e);
+        }
+    }
+
+    int getNumActive() {
+        return systemContexts == null ? 0 : systemContexts.getNumActive();
+    }
+
+    int getNumIdle() {
+        return systemContexts == null ? 0 : systemContexts.getNumIdle();
+    }
+
+    private void registerGauge(String name, Gauge<?> gauge) {
+        if (metricsService != null) {
+            gauges.put(name, gauge);
+            metricsService.registerGauge(name, gauge);
+        }
+    }
+
+    private static String getParameter(GatewayConfig config, String parameter) {
+        final String value = config.getServiceParameter(ServiceType.LDAP_CONNECTION_POOL_SERVICE.getShortName(), parameter);
+        return value == null ? "" : value.trim();
+    }
+
+    private static long getLong(GatewayConfig config, String parameter, long defaultValue) {
+        final String value = getParameter(config, parameter);
+        if (value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            LOG.invalidLdapConnectionPoolParameter(parameter, value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Identifies the contexts that can be used interchangeably: those created with the same
+     * environment, which includes the provider URL, the principal and its credentials.
+     */
+    static final class SystemContextKey {
+        private final Hashtable<String, Object> environment = new Hashtable<>();
+
+        SystemContextKey(Hashtable<?, ?> source) {
+            for (Map.Entry<?, ?> entry : source.entrySet()) {
+                final String name = String.valueOf(entry.getKey());
+                if (!JNDI_CONNECTION_POOL_PROPERTY.equals(name)) {
+                    // char[] credentials would only be equal to themselves
+                    final Object value = entry.getValue() instanceof char[] ? new String((char[]) entry.getValue()) : entry.getValue();
+                    environment.put(name, value);
+                }
+            }
+        }
+
+        Hashtable<String, Object> newEnvironment() {
+            return new Hashtable<>(environment);
+        }
+
+        /**
+         * @return the value the contexts of this key were created with, null if it was not set
+         */
+        Object getEnvironmentValue(String name) {
+            return environment.get(name);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof SystemContextKey && environment.equals(((SystemContextKey) other).environment);
+        }
+
+        @Override
+        public int hashCode() {
+            return environment.hashCode();
+        }
+
+        // Must not reveal the credentials
+        @Override
+        public String toString() {
+            return environment.get(Context.SECURITY_PRINCIPAL) + "@" + environment.get(Context.PROVIDER_URL);
+        }
+    }
+
+    private class SystemContextPoolFactory extends BaseKeyedPooledObjectFactory<SystemContextKey, LdapContext> {
+        @Override
+        public LdapContext create(SystemContextKey key) throws NamingException {
+            final LdapContext context = contextFactory.create(key.newEnvironment());
+            LOG.createdPooledLdapConnection(key.toString());
+            return context;
+        }
+
+        @Override
+        public PooledObject<LdapContext> wrap(LdapContext context) {
+            return new DefaultPooledObject<>(context);
+        }
+
+        @Override
+        public boolean validateObject(SystemContextKey key, PooledObject<LdapContext> pooledObject) {
+            try {
+                pooledObject.getObject().getAttributes("", NO_ATTRIBUTES);
+                return true;
+            } catch (CommunicationException | ServiceUnavailableException e) {
+                return false;
+            } catch (NamingException e) {
+                // The server answered, so the connection is fine even if the entry may not be read
+                return true;
+            }
+        }
+
+        @Override
+        public void destroyObject(SystemContextKey key, PooledObject<LdapContext> pooledObject) throws NamingException {
+            pooledObject.getObject().close();
+        }
+    }
+}
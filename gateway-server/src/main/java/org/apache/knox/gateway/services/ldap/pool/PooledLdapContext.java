@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.services.ldap.pool;
+
+import javax.naming.CommunicationException;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.ldap.LdapContext;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands a pooled context to one borrower. Closing it returns the context to the pool
+ * instead of closing the connection; the request controls and the environment properties
+ * changed by the borrower are reset first, so the next borrower finds the context as it was
+ * created. A context whose connection failed, or that could not be reset, is discarded.
+ */
+final class PooledLdapContext implements InvocationHandler {
+
+    private final DefaultLdapConnectionPoolService pool;
+    private final DefaultLdapConnectionPoolService.SystemContextKey key;
+    private final LdapContext context;
+    private final Map<String, Object> changedEnvironment = new HashMap<>();
+    private boolean reusable = true;
+    private boolean closed;
+
+    private PooledLdapContext(DefaultLdapConnectionPoolService pool, DefaultLdapConnectionPoolService.SystemContextKey key,
+                              LdapContext context) {
+        this.pool = pool;
+        this.key = key;
+        this.context = context;
+    }
+
+    static LdapContext wrap(DefaultLdapConnectionPoolService pool, DefaultLdapConnectionPoolService.SystemContextKey key,
+                            LdapContext context) {
+        return (LdapContext) Proxy.newProxyInstance(PooledLdapContext.class.getClassLoader(),
+            new Class<?>[] {LdapContext.class}, new PooledLdapContext(pool, key, context));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                close();
+                return null;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "PooledLdapContext[" + key + "]";
+            case "addToEnvironment":
+            case "removeFromEnvironment":
+                final String name = (String) args[0];
+                if (!changedEnvironment.containsKey(name)) {
+                    changedEnvironment.put(name, key.getEnvironmentValue(name));
+                }
+                break;
+            case "reconnect":
+                // changes the connection controls, which are not reset
+                reusable = false;
+                break;
+            default:
+                break;
+        }
+        if (closed) {
+            throw new NamingException("The LDAP context was already returned to the pool");
+        }
+        try {
+            return method.invoke(context, args);
+        } catch (InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof CommunicationException || cause instanceof ServiceUnavailableException) {
+                reusable = false;
+            }
+            throw cause;
+        }
+    }
+
+    private void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pool.release(key, context, reusable && reset());
+    }
+
+    private boolean reset() {
+        try {
+            context.setRequestControls(null);
+            for (Map.Entry<String, Object> entry : changedEnvironment.entrySet()) {
+                if (entry.getValue() == null) {
+                    context.removeFromEnvironment(entry.getKey());
+                } else {
+                    context.addToEnvironment(entry.getKey(), entry.getValue());
+                }
+            }
+            return true;
+        } catch (NamingException e) {
+            return false;
+        }
+    }
+}
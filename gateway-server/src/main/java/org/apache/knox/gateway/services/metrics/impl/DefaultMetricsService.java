@@ -17,6 +17,7 @@
  */
 package org.apache.knox.gateway.services.metrics.impl;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.jvm.BufferPoolMetricSet;
 import com.codahale.metrics.jvm.CachedThreadStatesGaugeSet;
@@ -153,6 +154,23 @@ public class DefaultMetricsService implements MetricsService {
     return instrumentationProvider.getInstrumented(context);
   }
 
+  @Override
+  public void registerGauge(String name, Gauge<?> gauge) {
+    if (config.isMetricsEnabled()) {
+      synchronized (metrics) {
+        metrics.remove(name);
+        metrics.register(name, gauge);
+      }
+    }
+  }
+
+  @Override
+  public void removeGauge(String name, Gauge<?> gauge) {
+    synchronized (metrics) {
+      metrics.removeMatching((metricName, metric) -> metricName.equals(name) && metric == gauge);
+    }
+  }
+
   public Map<Class<?>, InstrumentationProvider> getInstrumentationProviders() {
     return instrumentationProviders;
   }
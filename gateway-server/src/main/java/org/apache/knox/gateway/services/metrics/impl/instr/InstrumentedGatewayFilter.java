@@ -64,6 +64,11 @@ public class InstrumentedGatewayFilter extends GatewayFilter {
     gatewayFilter.addFilter(path, name, clazz, params, resourceRole);
   }
 
+  @Override
+  protected GatewayFilter unwrap() {
+    return gatewayFilter.unwrap();
+  }
+
   @Override
   public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException {
     Timer.Context timerContext = this.timer(servletRequest).time();
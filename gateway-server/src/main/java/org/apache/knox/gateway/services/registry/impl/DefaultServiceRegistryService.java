@@ -80,12 +80,13 @@ public class DefaultServiceRegistryService implements ServiceRegistry, Service {
   }
 
   @Override
-  public void removeClusterServices(String clusterName) {
+  public synchronized void removeClusterServices(String clusterName) {
     registry.remove(clusterName);
   }
 
+  // Synchronized since topologies may be deployed in parallel and the registry is written as a whole
   @Override
-  public boolean registerService(String regCode, String clusterName, String serviceName, List<String> urls) {
+  public synchronized boolean registerService(String regCode, String clusterName, String serviceName, List<String> urls) {
     boolean rc = false;
     // verify the signature of the regCode
     if (regCode == null) {
@@ -98,10 +99,8 @@ public class DefaultServiceRegistryService implements ServiceRegistry, Service {
     if (verified) {
       Map<String,RegEntry> clusterServices = registry.get(clusterName);
       if (clusterServices == null) {
-        synchronized(this) {
-          clusterServices = new HashMap<>();
-          registry.put(clusterName, clusterServices);
-        }
+        clusterServices = new HashMap<>();
+        registry.put(clusterName, clusterServices);
       }
       RegEntry regEntry = new RegEntry();
       regEntry.setClusterName(clusterName);
@@ -24,8 +24,9 @@ import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.Signature;
 import java.security.SignatureException;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.knox.gateway.GatewayMessages;
 import org.apache.knox.gateway.config.GatewayConfig;
@@ -42,7 +43,8 @@ import org.apache.knox.gateway.services.ServiceLifecycleException;
 public class DefaultCryptoService implements CryptoService {
   private static final GatewayMessages LOG = MessagesFactory.get( GatewayMessages.class );
 
-  private static final Map<String,ConfigurableEncryptor> ENCRYPTOR_CACHE = new HashMap<>();
+  // Keyed by cluster and alias, each with the password it was created for
+  private static final Map<String,CachedEncryptor> ENCRYPTOR_CACHE = new ConcurrentHashMap<>();
 
   private AliasService aliasService;
   private KeystoreService keystoreService;
@@ -97,7 +99,7 @@ public class DefaultCryptoService implements CryptoService {
     }
     if (password != null) {
       try {
-        return getEncryptor(clusterName,password).encrypt( clear );
+        return getEncryptor(clusterName,alias,password).encrypt( clear );
       } catch (Exception e) {
         LOG.failedToEncryptPasswordForCluster( clusterName, e );
       }
@@ -117,7 +119,7 @@ public class DefaultCryptoService implements CryptoService {
       ConfigurableEncryptor encryptor;
         password = aliasService.getPasswordFromAliasForCluster(clusterName, alias);
         if (password != null) {
-          encryptor = getEncryptor(clusterName,password );
+          encryptor = getEncryptor(clusterName,alias,password );
           try {
             return encryptor.decrypt( salt, iv, cipherText);
           } catch (Exception e) {
@@ -164,17 +166,31 @@ public class DefaultCryptoService implements CryptoService {
     return null;
   }
 
-  // The assumption here is that lock contention will be less of a performance issue than the cost of object creation.
-  // We have seen via profiling that AESEncryptor instantiation is very expensive.
-  private ConfigurableEncryptor getEncryptor( final String clusterName, final char[] password ) {
-    synchronized(ENCRYPTOR_CACHE) {
-      ConfigurableEncryptor encryptor = ENCRYPTOR_CACHE.get( clusterName );
-      if( encryptor == null ) {
-        encryptor = new ConfigurableEncryptor( String.valueOf( password ) );
+  // We have seen via profiling that encryptor instantiation is very expensive, and each encryptor
+  // caches its derived keys, so encryptors are shared. A changed password replaces the encryptor.
+  private ConfigurableEncryptor getEncryptor( final String clusterName, final String alias, final char[] password ) {
+    final String key = clusterName + "/" + alias;
+    CachedEncryptor cached = ENCRYPTOR_CACHE.get( key );
+    if( cached == null || !Arrays.equals( cached.password, password ) ) {
+      cached = ENCRYPTOR_CACHE.compute( key, (k, current) -> {
+        if( current != null && Arrays.equals( current.password, password ) ) {
+          return current;
+        }
+        ConfigurableEncryptor encryptor = new ConfigurableEncryptor( String.valueOf( password ) );
         encryptor.init(config);
-        ENCRYPTOR_CACHE.put( clusterName, encryptor );
-      }
-      return encryptor;
+        return new CachedEncryptor( password.clone(), encryptor );
+      });
+    }
+    return cached.encryptor;
+  }
+
+  private static final class CachedEncryptor {
+    private final char[] password;
+    private final ConfigurableEncryptor encryptor;
+
+    CachedEncryptor(char[] password, ConfigurableEncryptor encryptor) {
+      this.password = password;
+      this.encryptor = encryptor;
     }
   }
 
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.security.impl;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decrypted copy of the aliases in the remote registry, kept current by the registry
+ * listeners of {@link ZookeeperRemoteAliasService} so that lookups need neither a round trip
+ * nor a decryption.
+ * <p>
+ * The snapshot only answers while the connection to the registry is up; while it is down
+ * the listeners cannot see changes, so lookups go to the registry. It is cleared when the
+ * connection comes back and refills from the listeners and the lookups that miss.
+ * <p>
+ * A lookup that misses reads the registry and may add the value afterwards. Every change
+ * made by the listeners bumps a generation, and a value read before a change is dropped
+ * rather than overwrite the newer state, e.g. resurrect a removed alias.
+ */
+class RemoteAliasSnapshot {
+
+  private final Map<String, String> values = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  private long generation;
+  private volatile boolean connected = true;
+  private volatile long disconnectedSince;
+
+  /**
+   * @return the value of the alias, or null if it is not in the snapshot or the snapshot is not usable
+   */
+  String get(String clusterName, String alias) {
+    final String value = connected ? values.get(key(clusterName, alias)) : null;
+    if (value == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return value;
+  }
+
+  /**
+   * @return the generation to pass to {@link #putIfUnchanged(long, String, String, String)}
+   * after reading a value from the registry
+   */
+  synchronized long getGeneration() {
+    return generation;
+  }
+
+  synchronized void put(String clusterName, String alias, String value) {
+    generation++;
+    values.put(key(clusterName, alias), value);
+  }
+
+  /**
+   * Adds a value read from the registry, unless the snapshot changed since the read started.
+   */
+  synchronized void putIfUnchanged(long readGeneration, String clusterName, String alias, String value) {
+    if (connected && generation == readGeneration) {
+      values.put(key(clusterName, alias), value);
+    }
+  }
+
+  synchronized void remove(String clusterName, String alias) {
+    generation++;
+    values.remove(key(clusterName, alias));
+  }
+
+  /**
+   * @return true if the state changed
+   */
+  synchronized boolean connectionChanged(boolean isConnected) {
+    if (isConnected == connected) {
+      return false;
+    }
+    generation++;
+    if (isConnected) {
+      values.clear();
+      connected = true;
+    } else {
+      disconnectedSince = System.nanoTime();
+      connected = false;
+    }
+    return true;
+  }
+
+  boolean isConnected() {
+    return connected;
+  }
+
+  int size() {
+    return values.size();
+  }
+
+  long getHits() {
+    return hits.sum();
+  }
+
+  long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * @return how long the listeners have not been able to see changes, 0 while connected
+   */
+  long getStaleMillis() {
+    return connected ? 0L : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - disconnectedSince);
+  }
+
+  // Aliases are stored in lower case in the registry (JDK-4891485)
+  private static String key(String clusterName, String alias) {
+    return clusterName + ZookeeperRemoteAliasService.PATH_SEPARATOR + alias.toLowerCase(Locale.ROOT);
+  }
+}
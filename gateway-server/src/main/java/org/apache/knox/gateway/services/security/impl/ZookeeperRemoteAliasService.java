@@ -17,15 +17,21 @@
  */
 package org.apache.knox.gateway.services.security.impl;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.knox.gateway.GatewayMessages;
+import org.apache.knox.gateway.GatewayServer;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.service.config.remote.zk.ZooKeeperClientService;
+import org.apache.knox.gateway.services.GatewayServices;
 import org.apache.knox.gateway.services.ServiceLifecycleException;
+import org.apache.knox.gateway.services.ServiceType;
 import org.apache.knox.gateway.services.config.client.RemoteConfigurationRegistryClient;
 import org.apache.knox.gateway.services.config.client.RemoteConfigurationRegistryClientService;
+import org.apache.knox.gateway.services.metrics.MetricsService;
 import org.apache.knox.gateway.services.security.AbstractAliasService;
 import org.apache.knox.gateway.services.security.AliasService;
 import org.apache.knox.gateway.services.security.AliasServiceException;
@@ -40,6 +46,7 @@ import java.security.cert.Certificate;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -61,6 +68,7 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
     public static final String OPTION_NAME_SHOULD_USE_LOCAL_ALIAS = "zkShouldUseLocalAlias";
     public static final String TOKENS_SUB_NODE_NAME = "tokens";
     public static final String TOKENS_SUB_NODE_PATH = PATH_SEPARATOR + TOKENS_SUB_NODE_NAME;
+    public static final String METRICS_PREFIX = "zookeeper.alias.snapshot";
 
     private static final GatewayMessages LOG = MessagesFactory.get(GatewayMessages.class);
     // N.B. This is ZooKeeper-specific, and should be abstracted when another registry is supported
@@ -124,12 +132,15 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
     private final MasterService ms;
     private final RemoteConfigurationRegistryClientService remoteConfigurationRegistryClientService;
     private final Collection<RemoteTokenStateChangeListener> remoteTokenStateChangeListeners = new HashSet<>();
+    private final RemoteAliasSnapshot snapshot = new RemoteAliasSnapshot();
+    private final Map<String, Gauge<?>> gauges = new HashMap<>();
 
     private RemoteConfigurationRegistryClient remoteClient;
     private ConfigurableEncryptor encryptor;
     private GatewayConfig config;
     private boolean shouldCreateTokensSubNode;
     private boolean shouldUseLocalAliasService;
+    private MetricsService metricsService;
 
     ZookeeperRemoteAliasService(AliasService localAliasService, MasterService ms, RemoteConfigurationRegistryClientService remoteConfigurationRegistryClientService) {
         this.localAliasService = localAliasService;
@@ -260,6 +271,7 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
             if (remoteClient.getEntryData(aliasEntryPath) == null) {
                 throw new IllegalStateException(String.format(Locale.ROOT, "Failed to store alias %s for cluster %s in remote registry", alias, clusterName));
             }
+            snapshot.put(clusterName, alias, value);
         }
     }
 
@@ -276,6 +288,7 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
         if (remoteClient != null) {
             final String aliasEntryPath = buildAliasEntryName(clusterName, alias);
 
+            snapshot.remove(clusterName, alias);
             if (remoteClient.entryExists(aliasEntryPath)) {
                 remoteClient.deleteEntry(aliasEntryPath);
 
@@ -304,11 +317,18 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
 
         /* try to get it from remote registry */
         if (password == null && remoteClient != null) {
+            final String snapshotValue = snapshot.get(clusterName, alias);
+            if (snapshotValue != null) {
+                return snapshotValue.toCharArray();
+            }
+
+            final long snapshotGeneration = snapshot.getGeneration();
             checkPathsExist(remoteClient);
             String encrypted = null;
 
-            if (remoteClient.entryExists(buildAliasEntryName(clusterName, alias))) {
-                encrypted = remoteClient.getEntryData(buildAliasEntryName(clusterName, alias));
+            final String aliasEntryPath = buildAliasEntryName(clusterName, alias);
+            if (remoteClient.entryExists(aliasEntryPath)) {
+                encrypted = remoteClient.getEntryData(aliasEntryPath);
             }
 
             if (encrypted == null) {
@@ -317,11 +337,14 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
                     password = getPasswordFromAliasForCluster(clusterName, alias);
                 }
             } else {
+                final String decrypted;
                 try {
-                    password = decrypt(encrypted).toCharArray();
+                    decrypted = decrypt(encrypted);
                 } catch (final Exception e) {
                     throw new AliasServiceException(e);
                 }
+                snapshot.putIfUnchanged(snapshotGeneration, clusterName, alias, decrypted);
+                password = decrypted.toCharArray();
             }
         }
 
@@ -391,16 +414,20 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
 
             this.shouldUseLocalAliasService = Boolean.parseBoolean(options.getOrDefault(OPTION_NAME_SHOULD_USE_LOCAL_ALIAS, "true"));
 
-            /* Register a listener for aliases entry additions/removals */
+            /* The listeners decrypt the entries they are notified about */
+            encryptor = new ConfigurableEncryptor(new String(ms.getMasterSecret()));
+            encryptor.init(config);
+
+            /* The snapshot is only current while the listeners can see the changes */
+            remoteClient.addConnectionListener(new RemoteConnectionListener());
+
+            /* Register a listener for aliases entry additions/removals, this also fills the snapshot */
             try {
                 remoteClient.addChildEntryListener(PATH_KNOX_ALIAS_STORE_TOPOLOGY, new RemoteAliasChildListener(this));
             } catch (final Exception e) {
                 throw new IllegalStateException("Unable to add listener for path " + PATH_KNOX_ALIAS_STORE_TOPOLOGY, e);
             }
 
-            encryptor = new ConfigurableEncryptor(new String(ms.getMasterSecret()));
-            encryptor.init(config);
-
             this.shouldCreateTokensSubNode = Boolean.parseBoolean(options.getOrDefault(OPTION_NAME_SHOULD_CREATE_TOKENS_SUB_NODE, "false"));
         } else {
             LOG.missingClientConfigurationForRemoteMonitoring();
@@ -409,11 +436,29 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
 
     @Override
     public void start() throws ServiceLifecycleException {
+        final GatewayServices services = GatewayServer.getGatewayServices();
+        metricsService = services == null ? null : services.getService(ServiceType.METRICS_SERVICE);
+        if (remoteClient != null && metricsService != null) {
+            registerGauge("size", (Gauge<Integer>) snapshot::size);
+            registerGauge("hits", (Gauge<Long>) snapshot::getHits);
+            registerGauge("misses", (Gauge<Long>) snapshot::getMisses);
+            registerGauge("connected", (Gauge<Boolean>) snapshot::isConnected);
+            registerGauge(MetricRegistry.name("stale", "ms"), (Gauge<Long>) snapshot::getStaleMillis);
+        }
+    }
 
+    private void registerGauge(String name, Gauge<?> gauge) {
+        final String metricName = MetricRegistry.name(METRICS_PREFIX, name);
+        gauges.put(metricName, gauge);
+        metricsService.registerGauge(metricName, gauge);
     }
 
     @Override
     public void stop() throws ServiceLifecycleException {
+        if (metricsService != null) {
+            gauges.forEach(metricsService::removeGauge);
+        }
+        gauges.clear();
         if (remoteClient != null) {
             try {
                 remoteClient.removeEntryListener(PATH_KNOX_ALIAS_STORE_TOPOLOGY);
@@ -502,6 +547,8 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
                     /* remove listener */
                     client.removeEntryListener(path);
                     if (!alias.isEmpty()) {
+                      snapshot.remove(cluster, alias);
+
                       for (RemoteTokenStateChangeListener changeListener : remoteTokenStateChangeListeners) {
                         changeListener.onRemoved(alias);
                       }
@@ -540,6 +587,22 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
         }
     }
 
+    /**
+     * A listener that suspends the snapshot while the registry connection is down.
+     */
+    private class RemoteConnectionListener implements RemoteConfigurationRegistryClient.ConnectionListener {
+        @Override
+        public void connectionChanged(final RemoteConfigurationRegistryClient client, final boolean connected) {
+            if (snapshot.connectionChanged(connected)) {
+                if (connected) {
+                    LOG.remoteAliasSnapshotResumed();
+                } else {
+                    LOG.remoteAliasSnapshotSuspended();
+                }
+            }
+        }
+    }
+
     /**
      * A listener that listens for changes to node value.
      */
@@ -563,6 +626,7 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
             } catch (Exception e) {
               throw new IllegalArgumentException("An error occurred while trying to decrypt data for alias " + alias, e);
             }
+            snapshot.put(cluster, alias, decryptedData);
 
             //if this is a token related alias, notify listeners
             if (path.contains(TOKENS_SUB_NODE_PATH)) {
@@ -21,6 +21,8 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
 import javax.management.StandardMBean;
@@ -47,6 +49,8 @@ public class TokenStateServiceStatistics extends StandardMBean implements TokenS
   private final AtomicInteger numberOfTokensRenewed = new AtomicInteger(0);
   private final Map<String, AtomicInteger> keystoreInteractions = new ConcurrentHashMap<>();
   private final AtomicLong gatewayCredentialsFileSize = new AtomicLong(0L);
+  private volatile IntSupplier unpersistedTokenStateCount = () -> 0;
+  private volatile LongSupplier oldestUnpersistedTokenStateTime = () -> 0L;
 
   public TokenStateServiceStatistics() {
     super(TokenStateServiceStatisticsMBean.class, false);
@@ -69,6 +73,17 @@ public class TokenStateServiceStatistics extends StandardMBean implements TokenS
     this.gatewayCredentialsFileSize.set(gatewayCredentialsFileSize);
   }
 
+  /**
+   * Registers where the persistence backlog is read from; it is only evaluated when the MBean is queried.
+   *
+   * @param count the number of unpersisted updates
+   * @param oldestUpdateTime the time (epoch millis) of the oldest unpersisted update, 0 if there is none
+   */
+  public void setUnpersistedTokenState(IntSupplier count, LongSupplier oldestUpdateTime) {
+    this.unpersistedTokenStateCount = count;
+    this.oldestUnpersistedTokenStateTime = oldestUpdateTime;
+  }
+
   @Override
   public int getNumberOfTokensAdded() {
     return this.numberOfTokensAdded.get();
@@ -88,4 +103,15 @@ public class TokenStateServiceStatistics extends StandardMBean implements TokenS
   public long getGatewayCredentialsFileSize() {
     return this.gatewayCredentialsFileSize.get();
   }
+
+  @Override
+  public int getUnpersistedTokenStateCount() {
+    return this.unpersistedTokenStateCount.getAsInt();
+  }
+
+  @Override
+  public long getTokenStatePersistenceLag() {
+    final long oldestUpdateTime = this.oldestUnpersistedTokenStateTime.getAsLong();
+    return oldestUpdateTime > 0 ? Math.max(0L, System.currentTimeMillis() - oldestUpdateTime) : 0L;
+  }
 }
@@ -26,12 +26,14 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
@@ -68,7 +70,15 @@ public class AliasBasedTokenStateService extends AbstractPersistentTokenStateSer
 
   private ScheduledExecutorService statePersistenceScheduler;
 
-  private final Set<TokenState> unpersistedState = new HashSet<>();
+  /*
+   * Write-behind queue of the token state to persist, keyed by alias so that repeated updates
+   * of the same alias (e.g. several renewals) are coalesced into the latest value. Producers
+   * never block; the persister snapshots the queue and removes only the entries it has written.
+   */
+  private final Map<String, TokenState> unpersistedState = new ConcurrentHashMap<>();
+
+  // Time (epoch millis) of the oldest update waiting to be persisted, 0 if there is none
+  private final AtomicLong oldestUnpersistedUpdate = new AtomicLong();
 
   private final AtomicBoolean readyForEviction = new AtomicBoolean(false);
 
@@ -104,11 +114,9 @@ public class AliasBasedTokenStateService extends AbstractPersistentTokenStateSer
           // Add the token state to memory
           super.addToken(id, issueTime, expiration, maxLifetime);
 
-          synchronized (unpersistedState) {
-            // The max lifetime entry is added by way of the call to super.addToken(),
-            // so only need to add the expiration entry here.
-            unpersistedState.add(new TokenExpiration(id, expiration));
-          }
+          // The max lifetime entry is added by way of the call to super.addToken(),
+          // so only need to add the expiration entry here.
+          addUnpersistedState(new TokenExpiration(id, expiration));
         } catch (Exception e) {
           log.failedToLoadJournalEntry(Tokens.getTokenIDDisplayText(id), e);
         }
@@ -122,6 +130,7 @@ public class AliasBasedTokenStateService extends AbstractPersistentTokenStateSer
     if (tokenStateServiceStatistics != null) {
       this.gatewayCredentialsFilePath = Paths.get(config.getGatewayKeystoreDir()).resolve(AliasService.NO_CLUSTER_NAME + DefaultKeystoreService.CREDENTIALS_SUFFIX + config.getCredentialStoreType().toLowerCase(Locale.ROOT));
       tokenStateServiceStatistics.setGatewayCredentialsFileSize(this.gatewayCredentialsFilePath.toFile().length());
+      tokenStateServiceStatistics.setUnpersistedTokenState(unpersistedState::size, oldestUnpersistedUpdate::get);
     }
   }
 
@@ -219,15 +228,17 @@ public class AliasBasedTokenStateService extends AbstractPersistentTokenStateSer
     scheduleTokenStatePersistence();
   }
 
+  private void addUnpersistedState(TokenState state) {
+    unpersistedState.put(state.getAlias(), state);
+    oldestUnpersistedUpdate.compareAndSet(0L, System.currentTimeMillis());
+  }
+
   protected void persistTokenState() {
     Set<String> tokenIds = new HashSet<>(); // Collect the tokenIds for logging
 
-    List<TokenState> processing;
-    synchronized (unpersistedState) {
-      // Move unpersisted state to temp collection
-      processing = new ArrayList<>(unpersistedState);
-      unpersistedState.clear();
-    }
+    // Snapshot the unpersisted state; updates arriving from now on are picked up by the next run
+    final long snapshotTime = System.currentTimeMillis();
+    final List<TokenState> processing = new ArrayList<>(unpersistedState.values());
 
     // Create a set of aliases based on the unpersisted TokenState objects
     Map<String, String> aliases = new HashMap<>();
@@ -246,6 +257,11 @@ public class AliasBasedTokenStateService extends AbstractPersistentTokenStateSer
 
       try {
         aliasService.addAliasesForCluster(AliasService.NO_CLUSTER_NAME, aliases);
+        // Drop the written state, unless it has been updated again in the meantime
+        for (TokenState state : processing) {
+          unpersistedState.computeIfPresent(state.getAlias(), (alias, current) -> current == state ? null : current);
+        }
+        oldestUnpersistedUpdate.set(unpersistedState.isEmpty() ? 0L : snapshotTime);
         if (tokenStateServiceStatistics != null) {
           tokenStateServiceStatistics.interactKeystore(TokenStateServiceStatistics.KeystoreInteraction.SAVE_ALIAS);
           tokenStateServiceStatistics.setGatewayCredentialsFileSize(this.gatewayCredentialsFilePath.toFile().length());
@@ -260,10 +276,8 @@ public class AliasBasedTokenStateService extends AbstractPersistentTokenStateSer
           }
         }
       } catch (AliasServiceException e) {
+        // The unpersisted state objects are still queued, so they will be attempted later
         log.failedToCreateTokenStateAliases(e);
-        synchronized (unpersistedState) {
-          unpersistedState.addAll(processing); // Restore the unpersisted state objects so they can be attempted later
-        }
       }
     }
   }
@@ -275,9 +289,7 @@ public class AliasBasedTokenStateService extends AbstractPersistentTokenStateSer
                              long   maxLifetimeDuration) {
     super.addToken(tokenId, issueTime, expiration, maxLifetimeDuration);
 
-    synchronized (unpersistedState) {
-      unpersistedState.add(new TokenExpiration(tokenId, expiration));
-    }
+    addUnpersistedState(new TokenExpiration(tokenId, expiration));
 
     try {
       journal.add(tokenId, issueTime, expiration, maxLifetimeDuration, null);
@@ -288,9 +300,7 @@ public class AliasBasedTokenStateService extends AbstractPersistentTokenStateSer
 
   @Override
   protected void setIssueTime(String tokenId, long issueTime) {
-    synchronized (unpersistedState) {
-      unpersistedState.add(new TokenIssueTime(tokenId, issueTime));
-    }
+    addUnpersistedState(new TokenIssueTime(tokenId, issueTime));
     setIssueTimeInMemory(tokenId, issueTime);
   }
 
@@ -301,9 +311,7 @@ public class AliasBasedTokenStateService extends AbstractPersistentTokenStateSer
   @Override
   protected void setMaxLifetime(final String tokenId, long issueTime, long maxLifetimeDuration) {
     super.setMaxLifetime(tokenId, issueTime, maxLifetimeDuration);
-    synchronized (unpersistedState) {
-      unpersistedState.add(new TokenMaxLifetime(tokenId, issueTime, maxLifetimeDuration));
-    }
+    addUnpersistedState(new TokenMaxLifetime(tokenId, issueTime, maxLifetimeDuration));
   }
 
   @Override
@@ -417,17 +425,6 @@ public class AliasBasedTokenStateService extends AbstractPersistentTokenStateSer
   @Override
   protected void removeTokens(Set<String> tokenIds) {
 
-    // If any of the token IDs is represented among the unpersisted state, remove the associated state
-    synchronized (unpersistedState) {
-      List<TokenState> unpersistedToRemove = new ArrayList<>();
-      for (TokenState state : unpersistedState) {
-        if (tokenIds.contains(state.getTokenId())) {
-          unpersistedToRemove.add(state);
-        }
-      }
-      unpersistedState.removeAll(unpersistedToRemove);
-    }
-
     // Add the max lifetime, metadata and issue time aliases to the list of aliases to remove
     Set<String> aliasesToRemove = new HashSet<>(tokenIds);
     for (String tokenId : tokenIds) {
@@ -436,6 +433,9 @@ public class AliasBasedTokenStateService extends AbstractPersistentTokenStateSer
       aliasesToRemove.add(tokenId + TOKEN_ISSUE_TIME_POSTFIX);
     }
 
+    // If any of the token IDs is represented among the unpersisted state, remove the associated state
+    unpersistedState.keySet().removeAll(aliasesToRemove);
+
     if (!aliasesToRemove.isEmpty()) {
       log.removingTokenStateAliases();
       try {
@@ -463,9 +463,7 @@ public class AliasBasedTokenStateService extends AbstractPersistentTokenStateSer
     updateExpirationInMemory(tokenId, expiration);
 
     //Update the in-memory representation of unpersisted states that will be processed by the state persistence thread
-    synchronized (unpersistedState) {
-      unpersistedState.add(new TokenExpiration(tokenId, expiration));
-    }
+    addUnpersistedState(new TokenExpiration(tokenId, expiration));
   }
 
   protected void updateExpirationInMemory(final String tokenId, long expiration) {
@@ -484,9 +482,7 @@ public class AliasBasedTokenStateService extends AbstractPersistentTokenStateSer
       log.failedToAddJournalEntry(Tokens.getTokenIDDisplayText(tokenId), e);
     }
 
-    synchronized (unpersistedState) {
-      unpersistedState.add(new TokenMetadataState(tokenId, metadata));
-    }
+    addUnpersistedState(new TokenMetadataState(tokenId, metadata));
   }
 
   protected void addMetadataInMemory(String tokenId, TokenMetadata metadata) {
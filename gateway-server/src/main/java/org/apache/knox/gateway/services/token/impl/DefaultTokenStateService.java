@@ -25,12 +25,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.MBeanRegistrationException;
@@ -64,13 +61,7 @@ public class DefaultTokenStateService implements TokenStateService {
 
   protected static final TokenStateServiceMessages log = MessagesFactory.get(TokenStateServiceMessages.class);
 
-  private final Map<String, Long> tokenExpirations = new ConcurrentHashMap<>();
-
-  private final Map<String, Long> tokenIssueTimes = new ConcurrentHashMap<>();
-
-  private final Map<String, Long> maxTokenLifetimes = new ConcurrentHashMap<>();
-
-  private final Map<String, TokenMetadata> metadataMap = new ConcurrentHashMap<>();
+  private final TokenStateStore tokenStates = new TokenStateStore();
 
   // Token eviction interval (in seconds)
   private long tokenEvictionInterval;
@@ -146,7 +137,7 @@ public class DefaultTokenStateService implements TokenStateService {
                              long   maxLifetimeDuration) {
     validateTokenIdentifier(tokenId);
     setIssueTime(tokenId, issueTime);
-    tokenExpirations.put(tokenId, expiration);
+    tokenStates.setExpiration(tokenId, expiration);
     setMaxLifetime(tokenId, issueTime, maxLifetimeDuration);
     log.addedToken(Tokens.getTokenIDDisplayText(tokenId), getTimestampDisplay(expiration));
     if (tokenStateServiceStatistics != null) {
@@ -155,17 +146,17 @@ public class DefaultTokenStateService implements TokenStateService {
   }
 
   protected void setIssueTime(String tokenId, long issueTime) {
-    tokenIssueTimes.put(tokenId, issueTime);
+    tokenStates.setIssueTime(tokenId, issueTime);
   }
 
   @Override
   public long getTokenIssueTime(String tokenId) throws UnknownTokenException {
     validateToken(tokenId);
-    final Long issueTime = tokenIssueTimes.get(tokenId);
-    if (issueTime == null) {
+    final TokenStateStore.State state = tokenStates.get(tokenId);
+    if (state == null || !state.hasIssueTime()) {
       throw new UnknownTokenException(tokenId);
     }
-    return issueTime.longValue();
+    return state.getIssueTime();
   }
 
   @Override
@@ -202,11 +193,11 @@ public class DefaultTokenStateService implements TokenStateService {
       validateToken(tokenId);
     }
 
-    final Long expiration = tokenExpirations.get(tokenId);
-    if (expiration == null) {
+    final TokenStateStore.State state = tokenStates.get(tokenId);
+    if (state == null || !state.hasExpiration()) {
       throw new UnknownTokenException(tokenId);
     }
-    return expiration.longValue();
+    return state.getExpiration();
   }
 
   @Override
@@ -271,7 +262,7 @@ public class DefaultTokenStateService implements TokenStateService {
   }
 
   protected void setMaxLifetime(final String token, long maxLifeTime) {
-    maxTokenLifetimes.put(token, maxLifeTime);
+    tokenStates.setMaxLifetime(token, maxLifeTime);
   }
 
   protected void setMaxLifetime(final String token, long issueTime, long maxLifetimeDuration) {
@@ -284,11 +275,11 @@ public class DefaultTokenStateService implements TokenStateService {
    * @return false, if the service has previously stored the specified token; Otherwise, true.
    */
   protected boolean isUnknown(final String token) {
-    return !tokenExpirations.containsKey(token);
+    return !tokenStates.hasExpiration(token);
   }
 
   protected void updateExpiration(final String tokenId, long expiration) {
-    tokenExpirations.put(tokenId, expiration);
+    tokenStates.setExpiration(tokenId, expiration);
   }
 
   protected void removeToken(final String tokenId) throws UnknownTokenException {
@@ -306,10 +297,7 @@ public class DefaultTokenStateService implements TokenStateService {
   }
 
   private void removeTokenState(final Set<String> tokenIds) {
-    tokenIssueTimes.keySet().removeAll(tokenIds);
-    tokenExpirations.keySet().removeAll(tokenIds);
-    maxTokenLifetimes.keySet().removeAll(tokenIds);
-    metadataMap.keySet().removeAll(tokenIds);
+    tokenStates.remove(tokenIds);
     log.removedTokenState(String.join(", ", Tokens.getDisplayableTokenIDsText(tokenIds)));
   }
 
@@ -320,7 +308,8 @@ public class DefaultTokenStateService implements TokenStateService {
   }
 
   protected long getMaxLifetime(final String tokenId) {
-    return maxTokenLifetimes.getOrDefault(tokenId, 0L);
+    final TokenStateStore.State state = tokenStates.get(tokenId);
+    return state != null && state.hasMaxLifetime() ? state.getMaxLifetime() : 0L;
   }
 
   private void validateTokenIdentifier(final String tokenId) {
@@ -370,9 +359,17 @@ public class DefaultTokenStateService implements TokenStateService {
     return true;
   }
 
+  /**
+   * Collects the tokens to evict. Only the tokens whose in-memory expiration (plus grace
+   * period) has passed are considered, which the token state store finds without visiting
+   * the other tokens; each candidate is still confirmed by {@link #needsEviction(String)}.
+   *
+   * @return the identifiers of the tokens to evict
+   */
   protected Set<String> getExpiredTokens() {
     final Set<String> expiredTokens = new HashSet<>();
-    for (final String tokenId : getTokenIds()) {
+    final long cutoff = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(tokenEvictionGracePeriod);
+    for (final String tokenId : tokenStates.getExpiredTokenIds(cutoff)) {
       try {
         if (needsEviction(tokenId)) {
           log.evictToken(Tokens.getTokenIDDisplayText(tokenId));
@@ -406,20 +403,21 @@ public class DefaultTokenStateService implements TokenStateService {
    * @return
    */
   protected List<String> getTokenIds() {
-    return tokenExpirations.keySet().stream().collect(Collectors.toList());
+    return tokenStates.getTokenIds();
   }
 
   @Override
   public void addMetadata(String tokenId, TokenMetadata metadata) {
-    metadataMap.put(tokenId, metadata);
+    tokenStates.setMetadata(tokenId, metadata);
   }
 
   @Override
   public TokenMetadata getTokenMetadata(String tokenId) throws UnknownTokenException {
-    if (!metadataMap.containsKey(tokenId)) {
+    final TokenStateStore.State state = tokenStates.get(tokenId);
+    if (state == null || state.getMetadata() == null) {
       throw new UnknownTokenException(tokenId);
     }
-    return metadataMap.get(tokenId);
+    return state.getMetadata();
   }
 
   @Override
@@ -438,21 +436,18 @@ public class DefaultTokenStateService implements TokenStateService {
   }
 
   private Collection<KnoxToken> fetchTokens(String userName, boolean createdBy) {
-    final Collection<KnoxToken> tokens = new TreeSet<>();
-    final Predicate<Map.Entry<String, TokenMetadata>> filterPredicate;
+    final Map<String, TokenStateStore.State> states;
     if (userName == null) {
-      filterPredicate = entry -> true;
+      states = tokenStates.getStatesWithMetadata();
+    } else if (createdBy) {
+      states = tokenStates.getStatesByCreatedBy(userName);
     } else {
-      if (createdBy) {
-        filterPredicate = entry -> userName.equals(entry.getValue().getCreatedBy());
-      } else {
-        filterPredicate = entry -> userName.equals(entry.getValue().getUserName());
-      }
+      states = tokenStates.getStatesByUserName(userName);
     }
-    metadataMap.entrySet().stream().filter(filterPredicate).forEach(metadata -> {
-      String tokenId = metadata.getKey();
+    final Collection<KnoxToken> tokens = new TreeSet<>();
+    states.forEach((tokenId, state) -> {
       try {
-        tokens.add(new KnoxToken(tokenId, getTokenIssueTime(tokenId), getTokenExpiration(tokenId), getMaxLifetime(tokenId), metadata.getValue()));
+        tokens.add(new KnoxToken(tokenId, getTokenIssueTime(tokenId), getTokenExpiration(tokenId), getMaxLifetime(tokenId), state.getMetadata()));
       } catch (UnknownTokenException e) {
         // NOP: since this is coming from memory the only reason an UTE is thrown that the token got removed/revoked.
         // In that case we would not want to return it anyway
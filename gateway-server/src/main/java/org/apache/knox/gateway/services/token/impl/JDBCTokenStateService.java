@@ -17,6 +17,8 @@
  */
 package org.apache.knox.gateway.services.token.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.database.DataSourceProvider;
@@ -33,6 +35,7 @@ import org.apache.knox.gateway.util.Tokens;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -42,11 +45,14 @@ import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 public class JDBCTokenStateService extends AbstractPersistentTokenStateService implements TokenMigrationTarget {
+  private static final long EXPIRATION_CACHE_SIZE_LIMIT = 100_000L;
+
   private AliasService aliasService; // connection username/pw and passcode HMAC secret are stored here
   private TokenStateDatabase tokenDatabase;
+  private TokenStateBatchWriter batchWriter; // token state writes go through here to be batched
+  private Cache<String, Long> expirationCache; // null unless a TTL is configured
   private AtomicBoolean initialized = new AtomicBoolean(false);
   private Lock initLock = new ReentrantLock(true);
-  private Lock addMetadataLock = new ReentrantLock(true);
 
   private boolean skipTokenMigration;
   private boolean archiveMigratedTokens;
@@ -73,6 +79,7 @@ public class JDBCTokenStateService extends AbstractPersistentTokenStateService i
         }
         try {
           this.tokenDatabase = new TokenStateDatabase(DataSourceProvider.getDataSource(config, aliasService), config.getDatabaseType());
+          this.batchWriter = new TokenStateBatchWriter(tokenDatabase, config.getKnoxTokenStateDatabaseBatchWindow(), config.getKnoxTokenStateDatabaseBatchSize());
           initialized.set(true);
         } catch (Exception e) {
           throw new ServiceLifecycleException("Error while initiating JDBCTokenStateService: " + e, e);
@@ -83,6 +90,14 @@ public class JDBCTokenStateService extends AbstractPersistentTokenStateService i
         this.migrateExpiredTokens = config.migrateExpiredTokens();
         this.verboseTokenMigration = config.printVerboseTokenMigrationMessages();
         this.tokenMigrationProgressCount = config.getTokenMigrationProgressCount();
+
+        // Answering expiration lookups from memory means a token revoked or renewed by another
+        // gateway instance is not noticed until the entry expires (see KNOX-2658), hence opt-in
+        final long expirationCacheTtl = config.getKnoxTokenStateDatabaseExpirationCacheTtl();
+        if (expirationCacheTtl > 0) {
+          this.expirationCache = Caffeine.newBuilder().expireAfterWrite(expirationCacheTtl, TimeUnit.MILLISECONDS)
+              .maximumSize(EXPIRATION_CACHE_SIZE_LIMIT).build();
+        }
       } finally {
         initLock.unlock();
       }
@@ -104,12 +119,21 @@ public class JDBCTokenStateService extends AbstractPersistentTokenStateService i
     }
   }
 
+  @Override
+  public void stop() throws ServiceLifecycleException {
+    super.stop();
+    if (batchWriter != null) {
+      batchWriter.stop();
+    }
+  }
+
   @Override
   public void addToken(String tokenId, long issueTime, long expiration, long maxLifetimeDuration) {
     try {
-      final boolean added = tokenDatabase.addToken(tokenId, issueTime, expiration, maxLifetimeDuration);
+      final boolean added = batchWriter.addToken(tokenId, issueTime, expiration, maxLifetimeDuration);
       if (added) {
         log.savedTokenInDatabase(Tokens.getTokenIDDisplayText(tokenId));
+        cacheExpiration(tokenId, expiration);
 
         // add in-memory
         super.addToken(tokenId, issueTime, expiration, maxLifetimeDuration);
@@ -158,10 +182,18 @@ public class JDBCTokenStateService extends AbstractPersistentTokenStateService i
       validateToken(tokenId);
     }
 
+    if (expirationCache != null) {
+      final Long cachedExpiration = expirationCache.getIfPresent(tokenId);
+      if (cachedExpiration != null) {
+        return cachedExpiration;
+      }
+    }
+
     try {
       final Long expiration = tokenDatabase.getTokenExpiration(tokenId);
       if (expiration != null) {
         log.fetchedExpirationFromDatabase(Tokens.getTokenIDDisplayText(tokenId), expiration);
+        cacheExpiration(tokenId, expiration);
 
         // Update the in-memory cache to avoid subsequent DB look-ups for the same state
         super.updateExpiration(tokenId, expiration);
@@ -178,9 +210,10 @@ public class JDBCTokenStateService extends AbstractPersistentTokenStateService i
   @Override
   protected void updateExpiration(String tokenId, long expiration) {
     try {
-      final boolean updated = tokenDatabase.updateExpiration(tokenId, expiration);
+      final boolean updated = batchWriter.updateExpiration(tokenId, expiration);
       if (updated) {
         log.updatedExpirationInDatabase(Tokens.getTokenIDDisplayText(tokenId), expiration);
+        cacheExpiration(tokenId, expiration);
 
         // Update in-memory
         super.updateExpiration(tokenId, expiration);
@@ -194,6 +227,18 @@ public class JDBCTokenStateService extends AbstractPersistentTokenStateService i
     }
   }
 
+  private void cacheExpiration(String tokenId, long expiration) {
+    if (expirationCache != null) {
+      expirationCache.put(tokenId, expiration);
+    }
+  }
+
+  private void uncacheExpirations(Collection<String> tokenIds) {
+    if (expirationCache != null) {
+      expirationCache.invalidateAll(tokenIds);
+    }
+  }
+
   @Override
   protected long getMaxLifetime(String tokenId) {
     long maxLifetime = super.getMaxLifetime(tokenId);  // returns 0, if not found in memory
@@ -229,6 +274,7 @@ public class JDBCTokenStateService extends AbstractPersistentTokenStateService i
   protected void removeToken(String tokenId) throws UnknownTokenException {
     try {
       final boolean removed = tokenDatabase.removeToken(tokenId);
+      uncacheExpirations(Collections.singleton(tokenId));
       if (removed) {
         super.removeTokens(Collections.singleton(tokenId));
         log.removedTokenFromDatabase(Tokens.getTokenIDDisplayText(tokenId));
@@ -253,6 +299,7 @@ public class JDBCTokenStateService extends AbstractPersistentTokenStateService i
 
         // remove from in-memory collections
         super.removeTokens(expiredTokenIds);
+        uncacheExpirations(expiredTokenIds);
       }
     } catch (SQLException e) {
       log.errorRemovingTokensFromDatabase(e.getMessage(), e);
@@ -280,28 +327,15 @@ public class JDBCTokenStateService extends AbstractPersistentTokenStateService i
   }
 
   private boolean saveMetadataMapInDatabase(String tokenId, Map<String, String> metadataMap) throws SQLException {
-    addMetadataLock.lock();
-    try {
-      boolean saved = false;
-      for (Map.Entry<String, String> metadataMapEntry : metadataMap.entrySet()) {
-        if (StringUtils.isNotBlank(metadataMapEntry.getValue())) {
-          if (upsertTokenMetadata(tokenId, metadataMapEntry.getKey(), metadataMapEntry.getValue())) {
-            saved = true;
-          }
-        }
+    // Upserts are serialized by the batch writer, so concurrent updates of the same entry
+    // cannot both attempt the insert
+    final Map<String, String> metadataToSave = new HashMap<>();
+    for (Map.Entry<String, String> metadataMapEntry : metadataMap.entrySet()) {
+      if (StringUtils.isNotBlank(metadataMapEntry.getValue())) {
+        metadataToSave.put(metadataMapEntry.getKey(), metadataMapEntry.getValue());
       }
-      return saved;
-    } finally {
-      addMetadataLock.unlock();
-    }
-  }
-
-  private boolean upsertTokenMetadata(String tokenId, String metadataName, String metadataValue) throws SQLException {
-    if (!tokenDatabase.updateMetadata(tokenId, metadataName, metadataValue)) {
-      return tokenDatabase.addMetadata(tokenId, metadataName, metadataValue);
-    } else {
-      return true; //successfully updated
     }
+    return !metadataToSave.isEmpty() && batchWriter.upsertMetadata(tokenId, metadataToSave);
   }
 
   @Override
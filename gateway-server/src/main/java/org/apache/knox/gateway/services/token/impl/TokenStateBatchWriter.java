@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.token.impl;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.knox.gateway.services.security.token.TokenStateServiceException;
+
+import java.sql.SQLException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Group commit for {@link TokenStateDatabase} writes: callers block until their write is
+ * stored, but writes arriving from concurrent callers within a short window are stored by
+ * a single writer thread in one transaction and one JDBC batch per statement, instead of
+ * one connection checkout and round trip each.
+ * <p>
+ * If a batch fails, its writes are retried one by one so that a failing write, e.g. a
+ * duplicate token ID, only fails its own caller.
+ */
+class TokenStateBatchWriter {
+
+  // A caller gives up on a write that is not stored by then, rather than hanging if the writer is gone
+  static final long WRITE_TIMEOUT_SECONDS = 60L;
+
+  private final TokenStateDatabase database;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+  private final ExecutorService writer;
+  private volatile boolean running = true;
+
+  /**
+   * @param database     the database to write to
+   * @param windowMillis how long to wait for more writes once the first one of a batch arrived;
+   *                     with 0 a lone write is stored right away and only the writes that queued
+   *                     up meanwhile are batched, which adds no latency at low load
+   * @param maxBatchSize the maximum number of writes in one batch
+   */
+  TokenStateBatchWriter(TokenStateDatabase database, long windowMillis, int maxBatchSize) {
+    this.database = database;
+    this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, windowMillis));
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    this.writer = Executors.newSingleThreadExecutor(new BasicThreadFactory.Builder()
+        .namingPattern("TokenStateBatchWriter-%d").daemon(true).build());
+    this.writer.execute(this::run);
+  }
+
+  boolean addToken(String tokenId, long issueTime, long expiration, long maxLifetimeDuration) throws SQLException {
+    return await(submit(TokenStateDatabase.Write.addToken(tokenId, issueTime, expiration, maxLifetimeDuration)));
+  }
+
+  boolean updateExpiration(String tokenId, long expiration) throws SQLException {
+    return await(submit(TokenStateDatabase.Write.updateExpiration(tokenId, expiration)));
+  }
+
+  /**
+   * @return true if at least one of the entries was saved
+   */
+  boolean upsertMetadata(String tokenId, Map<String, String> metadata) throws SQLException {
+    final List<CompletableFuture<Boolean>> results = new ArrayList<>(metadata.size());
+    for (Map.Entry<String, String> entry : metadata.entrySet()) {
+      results.add(submit(TokenStateDatabase.Write.upsertMetadata(tokenId, entry.getKey(), entry.getValue())));
+    }
+    boolean saved = false;
+    for (CompletableFuture<Boolean> result : results) {
+      if (await(result)) {
+        saved = true;
+      }
+    }
+    return saved;
+  }
+
+  /**
+   * Stops the writer thread after storing the writes that are already queued. Writes
+   * submitted afterwards are stored by their callers.
+   */
+  void stop() {
+    running = false;
+    writer.shutdownNow();
+    try {
+      writer.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    drain();
+  }
+
+  private CompletableFuture<Boolean> submit(TokenStateDatabase.Write write) {
+    final PendingWrite pending = new PendingWrite(write);
+    queue.add(pending);
+    // the writer might have drained the queue for the last time before this write was added
+    if (!running) {
+      drain();
+    }
+    return pending.result;
+  }
+
+  private void run() {
+    final List<PendingWrite> batch = new ArrayList<>();
+    try {
+      while (running) {
+        batch.add(queue.take());
+        final long deadline = System.nanoTime() + windowNanos;
+        while (batch.size() < maxBatchSize) {
+          final long remaining = deadline - System.nanoTime();
+          final PendingWrite next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+        write(batch);
+        batch.clear();
+      }
+    } catch (InterruptedException e) {
+      // stopped; the writes already taken off the queue are stored here, the remaining ones by stop()
+      if (!batch.isEmpty()) {
+        write(batch);
+      }
+    }
+  }
+
+  private synchronized void drain() {
+    final List<PendingWrite> batch = new ArrayList<>();
+    while (queue.drainTo(batch, maxBatchSize) > 0) {
+      write(batch);
+      batch.clear();
+    }
+  }
+
+  private void write(List<PendingWrite> batch) {
+    // The same metadata entry can only be upserted once per batch; the latest value wins
+    // and answers every caller that asked for it.
+    final Map<Object, List<PendingWrite>> writesByKey = new LinkedHashMap<>();
+    for (PendingWrite pending : batch) {
+      final TokenStateDatabase.Write write = pending.write;
+      final Object key = write.getType() == TokenStateDatabase.Write.Type.UPSERT_METADATA
+          ? new AbstractMap.SimpleImmutableEntry<>(write.getTokenId(), write.getMetadataName())
+          : pending;
+      writesByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(pending);
+    }
+    final List<List<PendingWrite>> groups = new ArrayList<>(writesByKey.values());
+    final List<TokenStateDatabase.Write> writes = new ArrayList<>(groups.size());
+    for (List<PendingWrite> group : groups) {
+      writes.add(group.get(group.size() - 1).write);
+    }
+
+    try {
+      final boolean[] applied = database.applyBatch(writes);
+      for (int i = 0; i < groups.size(); i++) {
+        complete(groups.get(i), applied[i], null);
+      }
+    } catch (SQLException batchFailure) {
+      if (groups.size() == 1) {
+        complete(groups.get(0), false, batchFailure);
+        return;
+      }
+      for (List<PendingWrite> group : groups) {
+        try {
+          final boolean[] applied = database.applyBatch(Collections.singletonList(group.get(group.size() - 1).write));
+          complete(group, applied[0], null);
+        } catch (SQLException e) {
+          complete(group, false, e);
+        }
+      }
+    } catch (RuntimeException e) {
+      for (List<PendingWrite> group : groups) {
+        complete(group, false, e);
+      }
+    }
+  }
+
+  private static void complete(List<PendingWrite> group, boolean applied, Exception failure) {
+    for (PendingWrite pending : group) {
+      if (failure == null) {
+        pending.result.complete(applied);
+      } else {
+        pending.result.completeExceptionally(failure);
+      }
+    }
+  }
+
+  private static boolean await(CompletableFuture<Boolean> result) throws SQLException {
+    try {
+      return result.get(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (TimeoutException e) {
+      throw new TokenStateServiceException("Timed out waiting for the token state to be saved", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TokenStateServiceException("Interrupted while waiting for the token state to be saved", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof SQLException) {
+        throw (SQLException) e.getCause();
+      }
+      throw new TokenStateServiceException("Failed to save the token state", e.getCause());
+    }
+  }
+
+  private static final class PendingWrite {
+    private final TokenStateDatabase.Write write;
+    private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+    PendingWrite(TokenStateDatabase.Write write) {
+      this.write = write;
+    }
+  }
+}
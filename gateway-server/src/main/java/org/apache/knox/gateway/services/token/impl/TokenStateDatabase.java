@@ -28,10 +28,13 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -40,6 +43,10 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 public class TokenStateDatabase {
   static final String TOKENS_TABLE_NAME = "KNOX_TOKENS";
   static final String TOKEN_METADATA_TABLE_NAME = "KNOX_TOKEN_METADATA";
+  static final String EXPIRATION_INDEX_NAME = "KNOX_TOKENS_EXPIRATION_IDX";
+  private static final String CREATE_EXPIRATION_INDEX_SQL = "CREATE INDEX " + EXPIRATION_INDEX_NAME + " ON " + TOKENS_TABLE_NAME + "(expiration)";
+  static final String METADATA_VALUE_INDEX_NAME = "KNOX_TOKEN_METADATA_VALUE_IDX";
+  private static final String CREATE_METADATA_VALUE_INDEX_SQL = "CREATE INDEX " + METADATA_VALUE_INDEX_NAME + " ON " + TOKEN_METADATA_TABLE_NAME + "(md_name, md_value)";
   private static final String ADD_TOKEN_SQL = "INSERT INTO " + TOKENS_TABLE_NAME + "(token_id, issue_time, expiration, max_lifetime) VALUES(?, ?, ?, ?)";
   private static final String REMOVE_TOKEN_SQL = "DELETE FROM " + TOKENS_TABLE_NAME + " WHERE token_id = ?";
   private static final String GET_EXPIRED_TOKENS_SQL = "SELECT token_id FROM " + TOKENS_TABLE_NAME + " WHERE expiration < ? AND expiration > 0";
@@ -53,10 +60,8 @@ public class TokenStateDatabase {
   private static final String GET_METADATA_SQL = "SELECT md_name, md_value FROM " + TOKEN_METADATA_TABLE_NAME + " WHERE token_id = ?";
   private static final String GET_ALL_TOKENS_SQL = "SELECT kt.token_id, kt.issue_time, kt.expiration, kt.max_lifetime, ktm.md_name, ktm.md_value FROM " + TOKENS_TABLE_NAME
       + " kt, " + TOKEN_METADATA_TABLE_NAME + " ktm WHERE kt.token_id = ktm.token_id";
-  private static final String GET_TOKENS_BY_USER_NAME_SQL = GET_ALL_TOKENS_SQL + " AND kt.token_id IN (SELECT token_id FROM " + TOKEN_METADATA_TABLE_NAME + " WHERE md_name = '" + TokenMetadata.USER_NAME + "' AND md_value = ? )"
-      + " ORDER BY kt.issue_time";
-  private static final String GET_TOKENS_CREATED_BY_USER_NAME_SQL = GET_ALL_TOKENS_SQL + " AND kt.token_id IN (SELECT token_id FROM " + TOKEN_METADATA_TABLE_NAME + " WHERE md_name = '" + TokenMetadata.CREATED_BY + "' AND md_value = ? )"
-      + " ORDER BY kt.issue_time";
+  private static final String GET_TOKENS_BY_USER_NAME_SQL = getTokensByMetadataSql(TokenMetadata.USER_NAME);
+  private static final String GET_TOKENS_CREATED_BY_USER_NAME_SQL = getTokensByMetadataSql(TokenMetadata.CREATED_BY);
 
   private final DataSource dataSource;
 
@@ -65,6 +70,20 @@ public class TokenStateDatabase {
     DatabaseType databaseType = DatabaseType.fromString(dbType);
     createTableIfNotExists(TOKENS_TABLE_NAME, databaseType.tokensTableSql());
     createTableIfNotExists(TOKEN_METADATA_TABLE_NAME, databaseType.metadataTableSql());
+    createIndexIfNotExists(TOKENS_TABLE_NAME, EXPIRATION_INDEX_NAME, CREATE_EXPIRATION_INDEX_SQL);
+    createIndexIfNotExists(TOKEN_METADATA_TABLE_NAME, METADATA_VALUE_INDEX_NAME, CREATE_METADATA_VALUE_INDEX_SQL);
+  }
+
+  /*
+   * Selects the tokens, with all of their metadata, that have the given metadata value. The
+   * metadata is joined a second time to select the tokens, so that the lookup is served by
+   * the metadata value index; (token_id, md_name) is the primary key, so the second join
+   * matches at most one row per token.
+   */
+  private static String getTokensByMetadataSql(String metadataName) {
+    return "SELECT kt.token_id, kt.issue_time, kt.expiration, kt.max_lifetime, ktm.md_name, ktm.md_value FROM " + TOKENS_TABLE_NAME + " kt, "
+        + TOKEN_METADATA_TABLE_NAME + " ktm, " + TOKEN_METADATA_TABLE_NAME + " ktf WHERE kt.token_id = ktm.token_id AND kt.token_id = ktf.token_id"
+        + " AND ktf.md_name = '" + metadataName + "' AND ktf.md_value = ? ORDER BY kt.issue_time";
   }
 
   private void createTableIfNotExists(String tableName, String createSqlFileName) throws Exception {
@@ -73,13 +92,21 @@ public class TokenStateDatabase {
     }
   }
 
-  boolean addToken(String tokenId, long issueTime, long expiration, long maxLifetimeDuration) throws SQLException {
-    try (Connection connection = dataSource.getConnection(); PreparedStatement addTokenStatement = connection.prepareStatement(ADD_TOKEN_SQL)) {
-      addTokenStatement.setString(1, tokenId);
-      addTokenStatement.setLong(2, issueTime);
-      addTokenStatement.setLong(3, expiration);
-      addTokenStatement.setLong(4, maxLifetimeDuration < 0 ? maxLifetimeDuration : issueTime + maxLifetimeDuration);
-      return addTokenStatement.executeUpdate() == 1;
+  /*
+   * Eviction selects and deletes tokens by expiration range and token listings select them
+   * by user name or creator, which are full table scans without these indexes. They are
+   * created here rather than in the table scripts so that existing tables get them too.
+   */
+  private void createIndexIfNotExists(String tableName, String indexName, String createIndexSql) throws SQLException {
+    if (!JDBCUtils.indexExists(tableName, indexName, dataSource)) {
+      try (Connection connection = dataSource.getConnection(); Statement createIndexStatement = connection.createStatement()) {
+        createIndexStatement.execute(createIndexSql);
+      } catch (SQLException e) {
+        // another gateway instance sharing the database may have created it in the meantime
+        if (!JDBCUtils.indexExists(tableName, indexName, dataSource)) {
+          throw e;
+        }
+      }
     }
   }
 
@@ -108,14 +135,6 @@ public class TokenStateDatabase {
     }
   }
 
-  boolean updateExpiration(final String tokenId, long expiration) throws SQLException {
-    try (Connection connection = dataSource.getConnection(); PreparedStatement updateTokenExpirationStatement = connection.prepareStatement(UPDATE_TOKEN_EXPIRATION_SQL)) {
-      updateTokenExpirationStatement.setLong(1, expiration);
-      updateTokenExpirationStatement.setString(2, tokenId);
-      return updateTokenExpirationStatement.executeUpdate() == 1;
-    }
-  }
-
   long getMaxLifetime(String tokenId) throws SQLException {
     try (Connection connection = dataSource.getConnection(); PreparedStatement getMaxLifetimeStatement = connection.prepareStatement(GET_MAX_LIFETIME_SQL)) {
       getMaxLifetimeStatement.setString(1, tokenId);
@@ -145,24 +164,81 @@ public class TokenStateDatabase {
     }
   }
 
-  boolean updateMetadata(String tokenId, String metadataName, String metadataValue) throws SQLException {
-    try (Connection connection = dataSource.getConnection(); PreparedStatement updateMetadataStatement = connection.prepareStatement(UPDATE_METADATA_SQL)) {
-      updateMetadataStatement.setString(1, metadataName.equals(TokenMetadata.PASSCODE) ? Base64.encodeBase64String(metadataValue.getBytes(UTF_8)) : metadataValue);
-      updateMetadataStatement.setString(2, tokenId);
-      updateMetadataStatement.setString(3, metadataName);
-      return updateMetadataStatement.executeUpdate() == 1;
+  /**
+   * Applies the given writes in a single transaction with one JDBC batch per statement.
+   * Tokens are inserted before expirations and metadata are updated, so a token and its
+   * metadata may be part of the same call.
+   * <p>
+   * Metadata is upserted by updating all rows first and inserting the ones that did not
+   * exist; the caller must not pass more than one write for the same metadata entry.
+   *
+   * @param writes the writes to apply
+   * @return for each write whether it changed a row; e.g. an expiration update of an unknown token returns false
+   * @throws SQLException if any of the writes failed; none of them is applied then
+   */
+  boolean[] applyBatch(List<Write> writes) throws SQLException {
+    final boolean[] applied = new boolean[writes.size()];
+    try (Connection connection = dataSource.getConnection()) {
+      final boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try {
+        executeBatch(connection, ADD_TOKEN_SQL, writes, indexesOf(writes, Write.Type.ADD_TOKEN, applied, true), applied, false);
+        executeBatch(connection, UPDATE_TOKEN_EXPIRATION_SQL, writes, indexesOf(writes, Write.Type.UPDATE_EXPIRATION, applied, true), applied, false);
+        executeBatch(connection, UPDATE_METADATA_SQL, writes, indexesOf(writes, Write.Type.UPSERT_METADATA, applied, true), applied, true);
+        executeBatch(connection, ADD_METADATA_SQL, writes, indexesOf(writes, Write.Type.UPSERT_METADATA, applied, false), applied, false);
+        connection.commit();
+      } catch (SQLException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(autoCommit);
+      }
+    }
+    return applied;
+  }
+
+  private static List<Integer> indexesOf(List<Write> writes, Write.Type type, boolean[] applied, boolean includeApplied) {
+    final List<Integer> indexes = new ArrayList<>();
+    for (int i = 0; i < writes.size(); i++) {
+      if (writes.get(i).type == type && (includeApplied || !applied[i])) {
+        indexes.add(i);
+      }
     }
+    return indexes;
   }
 
-  boolean addMetadata(String tokenId, String metadataName, String metadataValue) throws SQLException {
-    try (Connection connection = dataSource.getConnection(); PreparedStatement addMetadataStatement = connection.prepareStatement(ADD_METADATA_SQL)) {
-      addMetadataStatement.setString(1, tokenId);
-      addMetadataStatement.setString(2, metadataName);
-      addMetadataStatement.setString(3, metadataName.equals(TokenMetadata.PASSCODE) ? Base64.encodeBase64String(metadataValue.getBytes(UTF_8)) : metadataValue);
-      return addMetadataStatement.executeUpdate() == 1;
+  /*
+   * Upserted metadata is first updated and then inserted where the update did not apply, hence
+   * metadataUpdate tells the UPDATE from the INSERT statement of those writes.
+   */
+  private static void executeBatch(Connection connection, String sql, List<Write> writes, List<Integer> indexes,
+                                   boolean[] applied, boolean metadataUpdate) throws SQLException {
+    if (indexes.isEmpty()) {
+      return;
+    }
+    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+      for (int index : indexes) {
+        writes.get(index).bind(statement, metadataUpdate);
+        statement.addBatch();
+      }
+      final int[] updateCounts = statement.executeBatch();
+      for (int i = 0; i < indexes.size(); i++) {
+        if (updateCounts[i] == Statement.SUCCESS_NO_INFO && metadataUpdate) {
+          // some drivers do not report update counts for batches; the row is needed to tell an update from an insert
+          final Write write = writes.get(indexes.get(i));
+          write.bind(statement, true);
+          applied[indexes.get(i)] = statement.executeUpdate() == 1;
+        } else {
+          applied[indexes.get(i)] = updateCounts[i] == 1 || updateCounts[i] == Statement.SUCCESS_NO_INFO;
+        }
+      }
     }
   }
 
+  private static String encodeMetadata(String metadataName, String metadataValue) {
+    return metadataName.equals(TokenMetadata.PASSCODE) ? Base64.encodeBase64String(metadataValue.getBytes(UTF_8)) : metadataValue;
+  }
+
   TokenMetadata getTokenMetadata(String tokenId) throws SQLException {
     try (Connection connection = dataSource.getConnection(); PreparedStatement getMaxLifetimeStatement = connection.prepareStatement(GET_METADATA_SQL)) {
       getMaxLifetimeStatement.setString(1, tokenId);
@@ -214,4 +290,85 @@ public class TokenStateDatabase {
       }
     }
   }
+
+  /**
+   * A single token state write that can be batched with others, see {@link #applyBatch(List)}.
+   */
+  static final class Write {
+    enum Type { ADD_TOKEN, UPDATE_EXPIRATION, UPSERT_METADATA }
+
+    private final Type type;
+    private final String tokenId;
+    private final long issueTime;
+    private final long expiration;
+    private final long maxLifetimeDuration;
+    private final String metadataName;
+    private final String metadataValue;
+
+    private Write(Type type, String tokenId, long issueTime, long expiration, long maxLifetimeDuration, String metadataName, String metadataValue) {
+      this.type = type;
+      this.tokenId = tokenId;
+      this.issueTime = issueTime;
+      this.expiration = expiration;
+      this.maxLifetimeDuration = maxLifetimeDuration;
+      this.metadataName = metadataName;
+      this.metadataValue = metadataValue;
+    }
+
+    static Write addToken(String tokenId, long issueTime, long expiration, long maxLifetimeDuration) {
+      return new Write(Type.ADD_TOKEN, tokenId, issueTime, expiration, maxLifetimeDuration, null, null);
+    }
+
+    static Write updateExpiration(String tokenId, long expiration) {
+      return new Write(Type.UPDATE_EXPIRATION, tokenId, 0L, expiration, 0L, null, null);
+    }
+
+    static Write upsertMetadata(String tokenId, String metadataName, String metadataValue) {
+      return new Write(Type.UPSERT_METADATA, tokenId, 0L, 0L, 0L, metadataName, metadataValue);
+    }
+
+    Type getType() {
+      return type;
+    }
+
+    String getTokenId() {
+      return tokenId;
+    }
+
+    String getMetadataName() {
+      return metadataName;
+    }
+
+    /*
+     * Binds the parameters of the statement for this type of write; metadataUpdate picks
+     * UPDATE_METADATA_SQL over ADD_METADATA_SQL for upserted metadata.
+     */
+    private void bind(PreparedStatement statement, boolean metadataUpdate) throws SQLException {
+      switch (type) {
+        case ADD_TOKEN:
+          statement.setString(1, tokenId);
+          statement.setLong(2, issueTime);
+          statement.setLong(3, expiration);
+          statement.setLong(4, maxLifetimeDuration < 0 ? maxLifetimeDuration : issueTime + maxLifetimeDuration);
+          break;
+        case UPDATE_EXPIRATION:
+          statement.setLong(1, expiration);
+          statement.setString(2, tokenId);
+          break;
+        case UPSERT_METADATA:
+          if (metadataUpdate) {
+            statement.setString(1, encodeMetadata(metadataName, metadataValue));
+            statement.setString(2, tokenId);
+            statement.setString(3, metadataName);
+          } else {
+            statement.setString(1, tokenId);
+            statement.setString(2, metadataName);
+            statement.setString(3, encodeMetadata(metadataName, metadataValue));
+          }
+          break;
+        default:
+          throw new IllegalArgumentException(type.name());
+      }
+    }
+  }
 }
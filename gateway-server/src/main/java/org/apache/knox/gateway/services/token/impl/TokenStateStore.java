@@ -0,0 +1,369 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.token.impl;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import org.apache.knox.gateway.services.security.token.TokenMetadata;
+
+/**
+ * In-memory token state: one immutable {@link State} per token, so a token costs a single
+ * map entry instead of one boxed entry in each of several maps, plus an index of token IDs
+ * bucketed by expiration time and indexes of token IDs by user name and creator.
+ * <p>
+ * The expiry index lets eviction look only at the buckets that are due instead of every token.
+ * Each bucket covers {@link #EXPIRY_BUCKET_MILLIS} of expiration time, so a token's bucket
+ * only changes when it is renewed. The user indexes let token listings read only the tokens
+ * of the requested user instead of filtering the metadata of every token.
+ */
+final class TokenStateStore {
+
+  static final long EXPIRY_BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  private final Map<String, State> states = new ConcurrentHashMap<>();
+
+  // Bucket sets are plain sets, only touched inside compute() of their bucket
+  private final Map<Long, Set<String>> expiryBuckets = new ConcurrentHashMap<>();
+
+  // Same for the sets of the user indexes, keyed by user name and createdBy metadata
+  private final Map<String, Set<String>> byUserName = new ConcurrentHashMap<>();
+  private final Map<String, Set<String>> byCreatedBy = new ConcurrentHashMap<>();
+
+  State get(String tokenId) {
+    return states.get(tokenId);
+  }
+
+  boolean hasExpiration(String tokenId) {
+    final State state = states.get(tokenId);
+    return state != null && state.hasExpiration();
+  }
+
+  void add(String tokenId, long issueTime, long expiration, long maxLifetime) {
+    update(tokenId, state -> state.withIssueTime(issueTime).withExpiration(expiration).withMaxLifetime(maxLifetime));
+  }
+
+  void setIssueTime(String tokenId, long issueTime) {
+    update(tokenId, state -> state.withIssueTime(issueTime));
+  }
+
+  void setExpiration(String tokenId, long expiration) {
+    update(tokenId, state -> state.withExpiration(expiration));
+  }
+
+  void setMaxLifetime(String tokenId, long maxLifetime) {
+    update(tokenId, state -> state.withMaxLifetime(maxLifetime));
+  }
+
+  void setMetadata(String tokenId, TokenMetadata metadata) {
+    update(tokenId, state -> state.withMetadata(metadata));
+  }
+
+  void remove(Collection<String> tokenIds) {
+    for (String tokenId : tokenIds) {
+      states.computeIfPresent(tokenId, (id, state) -> {
+        unindex(id, state);
+        return null;
+      });
+    }
+  }
+
+  /**
+   * @return the IDs of all tokens with a known expiration
+   */
+  List<String> getTokenIds() {
+    final List<String> tokenIds = new ArrayList<>(states.size());
+    states.forEach((tokenId, state) -> {
+      if (state.hasExpiration()) {
+        tokenIds.add(tokenId);
+      }
+    });
+    return tokenIds;
+  }
+
+  /**
+   * Collects the tokens that expired at or before the cutoff, reading only the due buckets.
+   *
+   * @param cutoff epoch millis
+   * @return the IDs of the expired tokens
+   */
+  Set<String> getExpiredTokenIds(long cutoff) {
+    final long lastBucket = bucketOf(cutoff);
+    final Set<String> candidates = new HashSet<>();
+    for (Long bucket : expiryBuckets.keySet()) {
+      if (bucket <= lastBucket) {
+        expiryBuckets.computeIfPresent(bucket, (key, tokenIds) -> {
+          candidates.addAll(tokenIds);
+          return tokenIds;
+        });
+      }
+    }
+    // The last bucket is only partially due
+    candidates.removeIf(tokenId -> {
+      final State state = states.get(tokenId);
+      return state == null || !state.hasExpiration() || state.getExpiration() > cutoff;
+    });
+    return candidates;
+  }
+
+  /**
+   * @return the tokens with metadata, in no particular order
+   */
+  Map<String, State> getStatesWithMetadata() {
+    return snapshot(state -> state.getMetadata() != null, Function.identity());
+  }
+
+  /**
+   * @param userName the user name in the token metadata
+   * @return the tokens of the user, in no particular order
+   */
+  Map<String, State> getStatesByUserName(String userName) {
+    return lookup(byUserName, userName, state -> userName.equals(state.userName));
+  }
+
+  /**
+   * @param createdBy the creator in the token metadata, i.e. the impersonating user
+   * @return the tokens created by the user on behalf of others, in no particular order
+   */
+  Map<String, State> getStatesByCreatedBy(String createdBy) {
+    return lookup(byCreatedBy, createdBy, state -> createdBy.equals(state.createdBy));
+  }
+
+  /*
+   * Read-only views of a single field, e.g. to inspect the state in tests. They are
+   * rebuilt on every access and are not meant for the request path.
+   */
+
+  Map<String, Long> issueTimes() {
+    return view(State::hasIssueTime, State::getIssueTime);
+  }
+
+  Map<String, Long> expirations() {
+    return view(State::hasExpiration, State::getExpiration);
+  }
+
+  Map<String, Long> maxLifetimes() {
+    return view(State::hasMaxLifetime, State::getMaxLifetime);
+  }
+
+  Map<String, TokenMetadata> metadata() {
+    return view(state -> state.getMetadata() != null, State::getMetadata);
+  }
+
+  private void update(String tokenId, UnaryOperator<State> change) {
+    states.compute(tokenId, (id, current) -> {
+      final State previous = current == null ? State.EMPTY : current;
+      final State updated = change.apply(previous);
+      if (previous.indexedBucket() != updated.indexedBucket()) {
+        unindexExpiry(id, previous);
+        indexExpiry(id, updated);
+      }
+      reindex(byUserName, id, previous.userName, updated.userName);
+      reindex(byCreatedBy, id, previous.createdBy, updated.createdBy);
+      return updated;
+    });
+  }
+
+  private void unindex(String tokenId, State state) {
+    unindexExpiry(tokenId, state);
+    reindex(byUserName, tokenId, state.userName, null);
+    reindex(byCreatedBy, tokenId, state.createdBy, null);
+  }
+
+  private void indexExpiry(String tokenId, State state) {
+    final long bucket = state.indexedBucket();
+    if (bucket != State.NOT_INDEXED) {
+      expiryBuckets.compute(bucket, (key, tokenIds) -> {
+        final Set<String> result = tokenIds == null ? new HashSet<>() : tokenIds;
+        result.add(tokenId);
+        return result;
+      });
+    }
+  }
+
+  private void unindexExpiry(String tokenId, State state) {
+    final long bucket = state.indexedBucket();
+    if (bucket != State.NOT_INDEXED) {
+      expiryBuckets.computeIfPresent(bucket, (key, tokenIds) -> {
+        tokenIds.remove(tokenId);
+        return tokenIds.isEmpty() ? null : tokenIds;
+      });
+    }
+  }
+
+  private static void reindex(Map<String, Set<String>> index, String tokenId, String previousKey, String key) {
+    if (Objects.equals(previousKey, key)) {
+      return;
+    }
+    if (previousKey != null) {
+      index.computeIfPresent(previousKey, (k, tokenIds) -> {
+        tokenIds.remove(tokenId);
+        return tokenIds.isEmpty() ? null : tokenIds;
+      });
+    }
+    if (key != null) {
+      index.compute(key, (k, tokenIds) -> {
+        final Set<String> result = tokenIds == null ? new HashSet<>() : tokenIds;
+        result.add(tokenId);
+        return result;
+      });
+    }
+  }
+
+  /*
+   * The token might change between reading the index and reading its state, so each entry
+   * is re-checked against the current state before it is returned.
+   */
+  private Map<String, State> lookup(Map<String, Set<String>> index, String key, Predicate<State> filter) {
+    final List<String> tokenIds = new ArrayList<>();
+    index.computeIfPresent(key, (k, ids) -> {
+      tokenIds.addAll(ids);
+      return ids;
+    });
+    final Map<String, State> result = new LinkedHashMap<>();
+    for (String tokenId : tokenIds) {
+      final State state = states.get(tokenId);
+      if (state != null && filter.test(state)) {
+        result.put(tokenId, state);
+      }
+    }
+    return result;
+  }
+
+  private static long bucketOf(long expiration) {
+    return Math.floorDiv(expiration, EXPIRY_BUCKET_MILLIS);
+  }
+
+  private <V> Map<String, V> snapshot(Predicate<State> filter, Function<State, V> value) {
+    final Map<String, V> snapshot = new LinkedHashMap<>();
+    states.forEach((tokenId, state) -> {
+      if (filter.test(state)) {
+        snapshot.put(tokenId, value.apply(state));
+      }
+    });
+    return snapshot;
+  }
+
+  private <V> Map<String, V> view(Predicate<State> filter, Function<State, V> value) {
+    return new AbstractMap<String, V>() {
+      @Override
+      public Set<Entry<String, V>> entrySet() {
+        return snapshot(filter, value).entrySet();
+      }
+    };
+  }
+
+  /**
+   * The state of one token. Instances are immutable, fields that were never set are
+   * flagged as absent since every long value, including negative ones, is meaningful.
+   * The indexed user names are copied out of the metadata when it is set, since metadata
+   * instances are mutable.
+   */
+  static final class State {
+    private static final State EMPTY = new State(0L, 0L, 0L, null, null, null, (byte) 0);
+
+    private static final long NOT_INDEXED = Long.MIN_VALUE;
+
+    private static final byte ISSUE_TIME = 1;
+    private static final byte EXPIRATION = 2;
+    private static final byte MAX_LIFETIME = 4;
+
+    private final long issueTime;
+    private final long expiration;
+    private final long maxLifetime;
+    private final TokenMetadata metadata;
+    private final String userName;
+    private final String createdBy;
+    private final byte present;
+
+    private State(long issueTime, long expiration, long maxLifetime, TokenMetadata metadata,
+                  String userName, String createdBy, byte present) {
+      this.issueTime = issueTime;
+      this.expiration = expiration;
+      this.maxLifetime = maxLifetime;
+      this.metadata = metadata;
+      this.userName = userName;
+      this.createdBy = createdBy;
+      this.present = present;
+    }
+
+    boolean hasIssueTime() {
+      return (present & ISSUE_TIME) != 0;
+    }
+
+    long getIssueTime() {
+      return issueTime;
+    }
+
+    boolean hasExpiration() {
+      return (present & EXPIRATION) != 0;
+    }
+
+    long getExpiration() {
+      return expiration;
+    }
+
+    boolean hasMaxLifetime() {
+      return (present & MAX_LIFETIME) != 0;
+    }
+
+    long getMaxLifetime() {
+      return maxLifetime;
+    }
+
+    TokenMetadata getMetadata() {
+      return metadata;
+    }
+
+    /*
+     * Tokens that do not expire are never evicted, so they are not indexed.
+     */
+    private long indexedBucket() {
+      return hasExpiration() && expiration > 0 ? bucketOf(expiration) : NOT_INDEXED;
+    }
+
+    private State withIssueTime(long issueTime) {
+      return new State(issueTime, expiration, maxLifetime, metadata, userName, createdBy, (byte) (present | ISSUE_TIME));
+    }
+
+    private State withExpiration(long expiration) {
+      return new State(issueTime, expiration, maxLifetime, metadata, userName, createdBy, (byte) (present | EXPIRATION));
+    }
+
+    private State withMaxLifetime(long maxLifetime) {
+      return new State(issueTime, expiration, maxLifetime, metadata, userName, createdBy, (byte) (present | MAX_LIFETIME));
+    }
+
+    private State withMetadata(TokenMetadata metadata) {
+      return new State(issueTime, expiration, maxLifetime, metadata,
+          metadata == null ? null : metadata.getUserName(), metadata == null ? null : metadata.getCreatedBy(), present);
+    }
+  }
+}
@@ -33,6 +33,8 @@ import org.apache.knox.gateway.audit.api.Auditor;
 import org.apache.knox.gateway.audit.api.ResourceType;
 import org.apache.knox.gateway.audit.log4j.audit.AuditConstants;
 import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.deploy.TopologyDeploymentTimings;
+import org.apache.knox.gateway.deploy.TopologyDeploymentTimings.Phase;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.service.definition.ServiceDefinition;
 import org.apache.knox.gateway.service.definition.ServiceDefinitionChangeListener;
@@ -138,9 +140,13 @@ public class DefaultTopologyService extends FileAlterationListenerAdaptor implem
     log.loadingTopologyFile(file.getAbsolutePath());
     Topology topology;
     long start = System.currentTimeMillis();
+    final long parseStart = TopologyDeploymentTimings.start();
     while (true) {
       try {
         topology = loadTopologyAttempt(file);
+        if (topology != null) {
+          TopologyDeploymentTimings.getInstance().record(topology.getName(), Phase.PARSE, parseStart);
+        }
         break;
       } catch (IOException | SAXException e) {
         if (System.currentTimeMillis() - start < TIMEOUT) {
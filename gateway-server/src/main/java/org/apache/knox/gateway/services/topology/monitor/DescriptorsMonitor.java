@@ -31,6 +31,8 @@ import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
 import org.apache.knox.gateway.GatewayMessages;
 import org.apache.knox.gateway.GatewayServer;
 import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.deploy.TopologyDeploymentTimings;
+import org.apache.knox.gateway.deploy.TopologyDeploymentTimings.Phase;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.services.security.AliasService;
 import org.apache.knox.gateway.services.topology.impl.DefaultTopologyService;
@@ -94,11 +96,14 @@ public class DescriptorsMonitor extends FileAlterationListenerAdaptor implements
   public void onFileChange(File file) {
     try {
       // When a simple descriptor has been created or modified, generate the new topology descriptor
+      final long discoveryStart = TopologyDeploymentTimings.start();
       Map<String, File> result = SimpleDescriptorHandler.handle(gatewayConfig, file, topologiesDir, aliasService, GatewayServer.getGatewayServices());
       if (result.isEmpty()) {
         LOG.emptyHandleResult(FilenameUtils.getBaseName(file.getAbsolutePath()));
         return;
       }
+      TopologyDeploymentTimings.getInstance().record(FilenameUtils.getBaseName(result.get(SimpleDescriptorHandler.RESULT_TOPOLOGY).getName()),
+          Phase.DISCOVERY, discoveryStart);
 
       LOG.generatedTopologyForDescriptorChange(result.get(SimpleDescriptorHandler.RESULT_TOPOLOGY).getName(), file.getName());
 
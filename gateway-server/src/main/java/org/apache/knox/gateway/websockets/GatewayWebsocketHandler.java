@@ -18,6 +18,7 @@
 package org.apache.knox.gateway.websockets;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.knox.gateway.audit.api.CorrelationServiceFactory;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.services.GatewayServices;
@@ -83,14 +84,21 @@ public class GatewayWebsocketHandler extends WebSocketHandler
   final GatewayConfig config;
   final GatewayServices services;
 
+  /* Statistics of all the connections proxied by this handler */
+  private final WebSocketProxyMetrics metrics = new WebSocketProxyMetrics();
+
 
   public GatewayWebsocketHandler(final GatewayConfig config,
                                  final GatewayServices services) {
     super();
     this.config = config;
     this.services = services;
-    pool = Executors.newFixedThreadPool(POOL_SIZE);
+    // Tasks keep the correlation context of the thread that submitted them
+    pool = CorrelationServiceFactory.getCorrelationService().wrap(Executors.newFixedThreadPool(POOL_SIZE));
     this.concurrentWebshells = new AtomicInteger(0);
+    if (services != null) {
+      metrics.register(services.getService(ServiceType.METRICS_SERVICE));
+    }
   }
 
   @Override
@@ -151,7 +159,7 @@ public class GatewayWebsocketHandler extends WebSocketHandler
       // Upgrade happens here
       final ClientEndpointConfig clientConfig = getClientEndpointConfig(req);
       clientConfig.getUserProperties().put("org.apache.knox.gateway.websockets.truststore", getTruststore());
-      return new ProxyWebSocketAdapter(URI.create(backendURL), pool, clientConfig, config);
+      return new ProxyWebSocketAdapter(URI.create(backendURL), pool, clientConfig, config, metrics);
     } catch (final Exception e) {
       LOG.failedCreatingWebSocket(e);
       throw new RuntimeException(e);
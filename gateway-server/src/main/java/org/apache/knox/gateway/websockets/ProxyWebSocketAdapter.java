@@ -19,11 +19,11 @@ package org.apache.knox.gateway.websockets;
 
 import java.io.IOException;
 import java.net.URI;
-import java.util.List;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.util.Locale;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 import javax.websocket.ClientEndpointConfig;
 import javax.websocket.CloseReason;
@@ -33,16 +33,24 @@ import javax.websocket.WebSocketContainer;
 
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.config.impl.GatewayConfigImpl;
 import org.eclipse.jetty.io.RuntimeIOException;
 import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.websocket.api.BatchMode;
 import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.SuspendToken;
 import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 import java.security.KeyStore;
 /**
  * Handles outbound/inbound Websocket connections and sessions.
+ * <p>
+ * Text and binary messages are relayed asynchronously in both directions. If one side
+ * reads slower than the other one writes, the queued messages are bounded by
+ * {@link GatewayConfig#getWebsocketMaxQueuedBytes()}: beyond that, reading from the
+ * faster side is suspended until the slower side caught up.
  *
  * @since 0.10
  */
@@ -53,19 +61,27 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
   private final URI backend;
 
   /* Session between the frontend (browser) and Knox */
-  private Session frontendSession;
+  private volatile Session frontendSession;
 
   /* Session between the backend (outbound) and Knox */
-  private javax.websocket.Session backendSession;
+  private volatile javax.websocket.Session backendSession;
 
   private WebSocketContainer container;
 
   protected ExecutorService pool;
 
-  /* Message buffer for holding data frames temporarily in memory till connection is setup.
-   Keeping the max size of the buffer as 100 messages for now. */
-  private List<String> messageBuffer = new ArrayList<>();
-  private Lock remoteLock = new ReentrantLock();
+  /* Messages from the frontend, sent once the backend session is set up */
+  private final WebSocketRelay toBackend;
+
+  /* Messages from the backend, held in memory until the frontend connection is set up.
+   The number of messages held before that is limited by the wait buffer count. */
+  private final WebSocketRelay toFrontend;
+
+  private final WebSocketProxyMetrics metrics;
+
+  private final AtomicBoolean opened = new AtomicBoolean();
+
+  private final AtomicBoolean closed = new AtomicBoolean();
 
   protected final GatewayConfig config;
 
@@ -81,11 +97,25 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
 
   public ProxyWebSocketAdapter(final URI backend, final ExecutorService pool, final ClientEndpointConfig clientConfig,
                                GatewayConfig config) {
+    this(backend, pool, clientConfig, config, new WebSocketProxyMetrics());
+  }
+
+  public ProxyWebSocketAdapter(final URI backend, final ExecutorService pool, final ClientEndpointConfig clientConfig,
+                               GatewayConfig config, WebSocketProxyMetrics metrics) {
     super();
     this.backend = backend;
     this.pool = pool;
     this.clientConfig = clientConfig;
     this.config = config;
+    this.metrics = metrics;
+
+    final long maxQueuedBytes = getMaxQueuedBytes(config);
+    this.toBackend = new WebSocketRelay(maxQueuedBytes,
+        new SuspendableSource(this::suspendFrontend),
+        this::onBackendSendFailed, metrics.toBackend());
+    this.toFrontend = new WebSocketRelay(maxQueuedBytes,
+        new SuspendableSource(this::suspendBackend),
+        this::onFrontendSendFailed, metrics.toFrontend());
   }
 
   @Override
@@ -135,29 +165,21 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
       throw new RuntimeIOException(e);
     }
 
-    remoteLock.lock();
     super.onWebSocketConnect(frontEndSession);
     this.frontendSession = frontEndSession;
+    if (opened.compareAndSet(false, true)) {
+      metrics.connectionOpened();
+    }
 
-    final RemoteEndpoint remote = frontEndSession.getRemote();
-    try {
-      if (!messageBuffer.isEmpty()) {
-        flushBufferedMessages(remote);
+    toBackend.connect(new BackendSink(backendSession));
 
-        if (remote.getBatchMode() == BatchMode.ON) {
-          remote.flush();
-        }
-      } else {
-        LOG.debugLog("Message buffer is empty");
-      }
-    } catch (IOException e) {
-      LOG.connectionFailed(e);
-      throw new RuntimeIOException(e);
-    }
-    finally
-    {
-      remoteLock.unlock();
+    /* Sends the messages buffered so far, then keeps forwarding */
+    if (toFrontend.getQueuedMessages() > 0) {
+      LOG.debugLog("Flushing old buffered messages");
+    } else {
+      LOG.debugLog("Message buffer is empty");
     }
+    toFrontend.connect(new FrontendSink(frontEndSession.getRemote()));
   }
 
   @Override
@@ -166,8 +188,12 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
       return;
     }
 
-    throw new UnsupportedOperationException(
-        "Websocket support for binary messages is not supported at this time.");
+    LOG.debugLog("[From Frontend --->] binary message of " + length + " bytes");
+
+    /* Proxy message to backend, the payload array is not reused by the websocket session */
+    if (!toBackend.sendBinary(ByteBuffer.wrap(payload, offset, length))) {
+      onBackendQueueFull();
+    }
   }
 
   @Override
@@ -179,11 +205,8 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
     LOG.logMessage("[From Frontend --->]" + message);
 
     /* Proxy message to backend */
-    try {
-      backendSession.getBasicRemote().sendText(message);
-
-    } catch (IOException e) {
-      LOG.connectionFailed(e);
+    if (!toBackend.sendText(message)) {
+      onBackendQueueFull();
     }
   }
 
@@ -250,80 +273,114 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
       @Override
       public void onMessageText(String message, Object session) {
         LOG.logMessage("[From Backend <---]" + message);
-        remoteLock.lock();
-        final RemoteEndpoint remote = getRemote();
-        try {
-          if (remote == null) {
-            LOG.debugLog("Remote endpoint is null");
-            if (messageBuffer.size() >= config.getWebsocketMaxWaitBufferCount()) {
-              throw new RuntimeIOException("Remote is null and message buffer is full. Cannot buffer anymore ");
-            }
-            LOG.debugLog("Buffering message: " + message);
-            messageBuffer.add(message);
-            return;
-          }
-
-          /* Proxy message to frontend */
-          flushBufferedMessages(remote);
-
-          LOG.debugLog("Sending current message [From Backend <---]: " + message);
-          remote.sendString(message);
-          if (remote.getBatchMode() == BatchMode.ON) {
-            remote.flush();
-          }
-        } catch (IOException e) {
-          LOG.connectionFailed(e);
-          throw new RuntimeIOException(e);
-        }
-        finally
-        {
-          remoteLock.unlock();
+        checkWaitBuffer();
+
+        /* Proxy message to frontend */
+        if (!toFrontend.sendText(message) && !closed.get()) {
+          throw new RuntimeIOException("Frontend is not keeping up and the message queue is full");
         }
       }
 
       @Override
       public void onMessageBinary(byte[] message, boolean last,
           Object session) {
-        throw new UnsupportedOperationException(
-            "Websocket support for binary messages is not supported at this time.");
+        LOG.debugLog("[From Backend <---] binary message of " + message.length + " bytes");
+        checkWaitBuffer();
 
+        /* Proxy message to frontend, the array is not reused by the websocket session */
+        if (!toFrontend.sendBinary(ByteBuffer.wrap(message)) && !closed.get()) {
+          throw new RuntimeIOException("Frontend is not keeping up and the message queue is full");
+        }
       }
 
       @Override
       public void onMessagePong(javax.websocket.PongMessage message, Object session) {
         LOG.logMessage("[From Backend <---]: PING");
-        remoteLock.lock();
-        final RemoteEndpoint remote = getRemote();
-        try {
-          if (remote == null) {
-            LOG.debugLog("Remote endpoint is null");
-            return;
-          }
-
-          /* Proxy Ping message to frontend */
-          flushBufferedMessages(remote);
-
-          LOG.logMessage("Sending current PING [From Backend <---]: ");
-          remote.sendPing(message.getApplicationData());
-          if (remote.getBatchMode() == BatchMode.ON) {
-            remote.flush();
-          }
-        } catch (IOException e) {
-          LOG.connectionFailed(e);
-          throw new RuntimeIOException(e);
-        }
-        finally
-        {
-          remoteLock.unlock();
+        if (getRemote() == null) {
+          LOG.debugLog("Remote endpoint is null");
+          return;
         }
+
+        /* Proxy Ping message to frontend, behind the messages still queued */
+        final ByteBuffer applicationData = message.getApplicationData();
+        final ByteBuffer copy = ByteBuffer.allocate(applicationData.remaining());
+        copy.put(applicationData.duplicate());
+        copy.flip();
+        toFrontend.sendPing(copy);
       }
 
     };
 
   }
 
+  /*
+   * Until the frontend is connected, the backend messages are held in memory; their
+   * number is limited by the wait buffer count.
+   */
+  private void checkWaitBuffer() {
+    if (getRemote() == null) {
+      LOG.debugLog("Remote endpoint is null");
+      if (toFrontend.getQueuedMessages() >= config.getWebsocketMaxWaitBufferCount()) {
+        throw new RuntimeIOException("Remote is null and message buffer is full. Cannot buffer anymore ");
+      }
+      LOG.debugLog("Buffering message");
+    }
+  }
+
+  /*
+   * Reached only if suspending the frontend did not take effect in time
+   */
+  private void onBackendQueueFull() {
+    if (closed.get()) {
+      return;
+    }
+    LOG.onError("Backend " + backend + " is not keeping up and the message queue is full");
+    if (frontendSession != null && frontendSession.isOpen()) {
+      frontendSession.close(StatusCode.TRY_AGAIN_LATER, "Backend is not keeping up");
+    }
+    cleanup();
+  }
+
+  private void onBackendSendFailed(Throwable failure) {
+    LOG.connectionFailed(asException(failure));
+    cleanupOnError(failure);
+  }
+
+  private void onFrontendSendFailed(Throwable failure) {
+    LOG.connectionFailed(asException(failure));
+    cleanupOnError(failure);
+  }
+
+  private SuspendToken suspendFrontend() {
+    final Session session = frontendSession;
+    return session == null ? null : session.suspend();
+  }
+
+  private SuspendToken suspendBackend() {
+    final javax.websocket.Session session = backendSession;
+    /* The Jetty client sessions support flow control, other implementations are not suspended */
+    if (session instanceof Session) {
+      return ((Session) session).suspend();
+    }
+    return null;
+  }
+
   @SuppressWarnings("PMD.DoNotUseThreads")
   private void cleanup() {
+    if (closed.compareAndSet(false, true)) {
+      toBackend.close();
+      toFrontend.close();
+      if (opened.get()) {
+        metrics.connectionClosed();
+      }
+      LOG.debugLog(String.format(Locale.ROOT,
+          "Relayed %d messages (%d bytes) to backend %s and %d messages (%d bytes) back, "
+              + "peak queue %d / %d bytes",
+          toBackend.getForwardedMessages(), toBackend.getForwardedBytes(), backend,
+          toFrontend.getForwardedMessages(), toFrontend.getForwardedBytes(),
+          toBackend.getPeakQueuedBytes(), toFrontend.getPeakQueuedBytes()));
+    }
+
     /* do the cleaning business in separate thread so we don't block */
     pool.execute(new Runnable() {
       @Override
@@ -355,15 +412,143 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
     }
   }
 
-  /*
-   * Function to flush buffered messages. Should be called with remoteLock held
+  WebSocketRelay getRelayToBackend() {
+    return toBackend;
+  }
+
+  WebSocketRelay getRelayToFrontend() {
+    return toFrontend;
+  }
+
+  private static long getMaxQueuedBytes(GatewayConfig config) {
+    final int maxQueuedBytes = config == null ? 0 : config.getWebsocketMaxQueuedBytes();
+    return maxQueuedBytes > 0 ? maxQueuedBytes : GatewayConfigImpl.DEFAULT_WEBSOCKET_MAX_QUEUED_BYTES;
+  }
+
+  private static Exception asException(Throwable failure) {
+    return failure instanceof Exception ? (Exception) failure : new IOException(failure);
+  }
+
+  /**
+   * Suspends reading from a session while the queue of the opposite direction is full.
+   */
+  private static final class SuspendableSource implements WebSocketRelay.Source {
+    private final Supplier<SuspendToken> suspender;
+    private SuspendToken token;
+
+    SuspendableSource(Supplier<SuspendToken> suspender) {
+      this.suspender = suspender;
+    }
+
+    @Override
+    public synchronized void suspend() {
+      if (token == null) {
+        try {
+          token = suspender.get();
+        } catch (IllegalStateException e) {
+          /* The session is closing, there is nothing left to read */
+          LOG.debugLog("Could not suspend the websocket session: " + e);
+        }
+      }
+    }
+
+    @Override
+    public synchronized void resume() {
+      if (token != null) {
+        token.resume();
+        token = null;
+      }
+    }
+  }
+
+  /**
+   * Sends to the browser without blocking.
    */
-  private void flushBufferedMessages(final RemoteEndpoint remote) throws IOException {
-    LOG.debugLog("Flushing old buffered messages");
-    for(String obj:messageBuffer) {
-      LOG.debugLog("Sending old buffered message [From Backend <---]: " + obj);
-      remote.sendString(obj);
+  private static final class FrontendSink implements WebSocketRelay.Sink {
+    private final RemoteEndpoint remote;
+
+    FrontendSink(RemoteEndpoint remote) {
+      this.remote = remote;
+    }
+
+    @Override
+    public void sendText(String message, WebSocketRelay.Callback callback) {
+      LOG.debugLog("Sending current message [From Backend <---]: " + message);
+      remote.sendString(message, writeCallback(callback));
+      flushIfBatching();
+    }
+
+    @Override
+    public void sendBinary(ByteBuffer message, WebSocketRelay.Callback callback) {
+      remote.sendBytes(message, writeCallback(callback));
+      flushIfBatching();
+    }
+
+    @Override
+    public void sendPing(ByteBuffer applicationData, WebSocketRelay.Callback callback) {
+      LOG.logMessage("Sending current PING [From Backend <---]: ");
+      try {
+        remote.sendPing(applicationData);
+        flushIfBatching();
+        callback.completed(null);
+      } catch (IOException e) {
+        callback.completed(e);
+      }
+    }
+
+    private void flushIfBatching() {
+      if (remote.getBatchMode() == BatchMode.ON) {
+        try {
+          remote.flush();
+        } catch (IOException e) {
+          LOG.connectionFailed(e);
+        }
+      }
+    }
+
+    private static WriteCallback writeCallback(WebSocketRelay.Callback callback) {
+      return new WriteCallback() {
+        @Override
+        public void writeFailed(Throwable x) {
+          callback.completed(x);
+        }
+
+        @Override
+        public void writeSuccess() {
+          callback.completed(null);
+        }
+      };
+    }
+  }
+
+  /**
+   * Sends to the backend without blocking.
+   */
+  private static final class BackendSink implements WebSocketRelay.Sink {
+    private final javax.websocket.Session session;
+
+    BackendSink(javax.websocket.Session session) {
+      this.session = session;
+    }
+
+    @Override
+    public void sendText(String message, WebSocketRelay.Callback callback) {
+      session.getAsyncRemote().sendText(message, result -> callback.completed(result.getException()));
+    }
+
+    @Override
+    public void sendBinary(ByteBuffer message, WebSocketRelay.Callback callback) {
+      session.getAsyncRemote().sendBinary(message, result -> callback.completed(result.getException()));
+    }
+
+    @Override
+    public void sendPing(ByteBuffer applicationData, WebSocketRelay.Callback callback) {
+      try {
+        session.getAsyncRemote().sendPing(applicationData);
+        callback.completed(null);
+      } catch (IOException e) {
+        callback.completed(e);
+      }
     }
-    messageBuffer.clear();
   }
 }
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.websockets;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.knox.gateway.services.metrics.MetricsService;
+
+/**
+ * Gateway-wide statistics of the proxied websocket connections, published as gauges of the
+ * {@link MetricsService}: the open connections and, for each direction, the bytes waiting to
+ * be sent, the messages and bytes sent so far and how often a sender had to be suspended.
+ */
+public class WebSocketProxyMetrics {
+
+  public static final String METRICS_PREFIX = "websocket";
+
+  private final AtomicInteger openConnections = new AtomicInteger();
+  private final Direction toBackend = new Direction();
+  private final Direction toFrontend = new Direction();
+
+  /**
+   * @param metricsService the service to publish the gauges with, may be null
+   */
+  public void register(MetricsService metricsService) {
+    if (metricsService == null) {
+      return;
+    }
+    metricsService.registerGauge(MetricRegistry.name(METRICS_PREFIX, "connections", "open"),
+        (Gauge<Integer>) openConnections::get);
+    toBackend.register(metricsService, MetricRegistry.name(METRICS_PREFIX, "to", "backend"));
+    toFrontend.register(metricsService, MetricRegistry.name(METRICS_PREFIX, "to", "frontend"));
+  }
+
+  void connectionOpened() {
+    openConnections.incrementAndGet();
+  }
+
+  void connectionClosed() {
+    openConnections.decrementAndGet();
+  }
+
+  int getOpenConnections() {
+    return openConnections.get();
+  }
+
+  Direction toBackend() {
+    return toBackend;
+  }
+
+  Direction toFrontend() {
+    return toFrontend;
+  }
+
+  static final class Direction {
+    private final LongAdder queuedBytes = new LongAdder();
+    private final LongAdder forwardedMessages = new LongAdder();
+    private final LongAdder forwardedBytes = new LongAdder();
+    private final LongAdder suspensions = new LongAdder();
+
+    private void register(MetricsService metricsService, String prefix) {
+      metricsService.registerGauge(MetricRegistry.name(prefix, "queued", "bytes"), (Gauge<Long>) queuedBytes::sum);
+      metricsService.registerGauge(MetricRegistry.name(prefix, "forwarded", "messages"),
+          (Gauge<Long>) forwardedMessages::sum);
+      metricsService.registerGauge(MetricRegistry.name(prefix, "forwarded", "bytes"), (Gauge<Long>) forwardedBytes::sum);
+      metricsService.registerGauge(MetricRegistry.name(prefix, "suspensions"), (Gauge<Long>) suspensions::sum);
+    }
+
+    void enqueued(long bytes) {
+      queuedBytes.add(bytes);
+    }
+
+    void dequeued(long bytes) {
+      queuedBytes.add(-bytes);
+    }
+
+    void forwarded(long bytes) {
+      forwardedMessages.increment();
+      forwardedBytes.add(bytes);
+    }
+
+    void suspended() {
+      suspensions.increment();
+    }
+
+    long getQueuedBytes() {
+      return queuedBytes.sum();
+    }
+
+    long getForwardedMessages() {
+      return forwardedMessages.sum();
+    }
+
+    long getForwardedBytes() {
+      return forwardedBytes.sum();
+    }
+
+    long getSuspensions() {
+      return suspensions.sum();
+    }
+  }
+}
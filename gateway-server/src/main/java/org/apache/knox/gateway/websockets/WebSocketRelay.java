@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.websockets;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Forwards the messages of one direction of a proxied websocket connection.
+ * <p>
+ * Messages are sent asynchronously, one at a time and in order, so no thread waits for a
+ * slow receiver. Messages that cannot be sent yet, including those arriving before the
+ * receiver is connected, are queued. Once more than <code>maxQueuedBytes</code> are queued,
+ * reading from the sending side is suspended until the queue has drained to half of that.
+ * Binary messages are passed on in the buffers they arrived in.
+ */
+class WebSocketRelay {
+
+  /**
+   * The receiving side. The callback of each send must be completed exactly once.
+   */
+  interface Sink {
+    void sendText(String message, Callback callback);
+
+    void sendBinary(ByteBuffer message, Callback callback);
+
+    void sendPing(ByteBuffer applicationData, Callback callback);
+  }
+
+  interface Callback {
+    /**
+     * @param failure the reason the message could not be sent, null if it was sent
+     */
+    void completed(Throwable failure);
+  }
+
+  /**
+   * Flow control of the sending side.
+   */
+  interface Source {
+    void suspend();
+
+    void resume();
+  }
+
+  private final long maxQueuedBytes;
+  private final Source source;
+  private final Consumer<Throwable> failureHandler;
+  private final WebSocketProxyMetrics.Direction metrics;
+
+  /* All of the following state is guarded by this */
+  private final Deque<Message> queue = new ArrayDeque<>();
+  private long queuedBytes;
+  private long peakQueuedBytes;
+  private long forwardedMessages;
+  private long forwardedBytes;
+  private Sink sink;
+  private boolean sending;
+  private boolean inSend;
+  private boolean completedInSend;
+  private boolean suspended;
+  private boolean closed;
+
+  /**
+   * @param maxQueuedBytes the queue size above which the source is suspended
+   * @param source         suspends and resumes reading from the sending side
+   * @param failureHandler called with the reason a message could not be sent
+   * @param metrics        the gateway-wide statistics of this direction
+   */
+  WebSocketRelay(long maxQueuedBytes, Source source, Consumer<Throwable> failureHandler,
+      WebSocketProxyMetrics.Direction metrics) {
+    this.maxQueuedBytes = maxQueuedBytes;
+    this.source = source;
+    this.failureHandler = failureHandler;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Starts sending to the given receiver, beginning with the messages queued so far.
+   */
+  void connect(Sink sink) {
+    synchronized (this) {
+      this.sink = sink;
+    }
+    drain();
+  }
+
+  /**
+   * @return false if the message was dropped because the queue is full even though the
+   * source was asked to stop sending, or because the relay is closed
+   */
+  boolean sendText(String message) {
+    return enqueue(new Message(MessageType.TEXT, message, null, message.length()));
+  }
+
+  boolean sendBinary(ByteBuffer message) {
+    return enqueue(new Message(MessageType.BINARY, null, message, message.remaining()));
+  }
+
+  boolean sendPing(ByteBuffer applicationData) {
+    return enqueue(new Message(MessageType.PING, null, applicationData, applicationData.remaining()));
+  }
+
+  /**
+   * Drops the queued messages and stops sending.
+   */
+  void close() {
+    final boolean resume;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      metrics.dequeued(queuedBytes);
+      queue.clear();
+      queuedBytes = 0;
+      resume = suspended;
+      suspended = false;
+    }
+    if (resume) {
+      source.resume();
+    }
+  }
+
+  synchronized int getQueuedMessages() {
+    return queue.size();
+  }
+
+  synchronized long getQueuedBytes() {
+    return queuedBytes;
+  }
+
+  synchronized long getPeakQueuedBytes() {
+    return peakQueuedBytes;
+  }
+
+  synchronized long getForwardedMessages() {
+    return forwardedMessages;
+  }
+
+  synchronized long getForwardedBytes() {
+    return forwardedBytes;
+  }
+
+  synchronized boolean isSuspended() {
+    return suspended;
+  }
+
+  private boolean enqueue(Message message) {
+    final boolean suspend;
+    synchronized (this) {
+      if (closed) {
+        return false;
+      }
+      // The source may deliver the message it was reading when it got suspended, but it must
+      // not be able to grow the queue without bounds. A single large message is always accepted.
+      if (!queue.isEmpty() && queuedBytes + message.size > 2 * maxQueuedBytes) {
+        return false;
+      }
+      queue.add(message);
+      queuedBytes += message.size;
+      peakQueuedBytes = Math.max(peakQueuedBytes, queuedBytes);
+      suspend = !suspended && queuedBytes > maxQueuedBytes;
+      if (suspend) {
+        suspended = true;
+      }
+    }
+    metrics.enqueued(message.size);
+    if (suspend) {
+      metrics.suspended();
+      source.suspend();
+    }
+    drain();
+    return true;
+  }
+
+  private void drain() {
+    while (true) {
+      final Message message;
+      final Sink target;
+      synchronized (this) {
+        if (sending || closed || sink == null || queue.isEmpty()) {
+          return;
+        }
+        message = queue.peek();
+        target = sink;
+        sending = true;
+        inSend = true;
+        completedInSend = false;
+      }
+      final AtomicBoolean done = new AtomicBoolean();
+      final Callback callback = failure -> {
+        if (done.compareAndSet(false, true)) {
+          sent(message, failure);
+        }
+      };
+      try {
+        message.sendTo(target, callback);
+      } catch (RuntimeException e) {
+        callback.completed(e);
+      }
+      synchronized (this) {
+        inSend = false;
+        // A send that completes right away is followed up by this loop, not by its callback,
+        // so that a long queue of fast sends does not recurse.
+        if (!completedInSend) {
+          return;
+        }
+      }
+    }
+  }
+
+  private void sent(Message message, Throwable failure) {
+    final boolean resume;
+    final boolean followUp;
+    synchronized (this) {
+      sending = false;
+      if (!closed && queue.peek() == message) {
+        queue.poll();
+        queuedBytes -= message.size;
+        metrics.dequeued(message.size);
+      }
+      if (failure == null) {
+        forwardedMessages++;
+        forwardedBytes += message.size;
+      }
+      resume = suspended && queuedBytes <= maxQueuedBytes / 2;
+      if (resume) {
+        suspended = false;
+      }
+      followUp = !inSend;
+      if (inSend) {
+        completedInSend = true;
+      }
+    }
+    if (failure == null) {
+      metrics.forwarded(message.size);
+    } else {
+      failureHandler.accept(failure);
+    }
+    if (resume) {
+      source.resume();
+    }
+    if (followUp) {
+      drain();
+    }
+  }
+
+  private enum MessageType { TEXT, BINARY, PING }
+
+  private static final class Message {
+    private final MessageType type;
+    private final String text;
+    private final ByteBuffer data;
+    private final long size;
+
+    Message(MessageType type, String text, ByteBuffer data, long size) {
+      this.type = type;
+      this.text = text;
+      this.data = data;
+      this.size = size;
+    }
+
+    void sendTo(Sink sink, Callback callback) {
+      switch (type) {
+        case TEXT:
+          sink.sendText(text, callback);
+          break;
+        case BINARY:
+          sink.sendBinary(data, callback);
+          break;
+        default:
+          sink.sendPing(data, callback);
+          break;
+      }
+    }
+  }
+}
@@ -24,6 +24,7 @@ import org.apache.knox.gateway.audit.api.CorrelationServiceFactory;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.filter.AbstractGatewayFilter;
 import org.apache.knox.gateway.topology.Topology;
+import org.apache.knox.gateway.util.urltemplate.Parser;
 import org.apache.knox.test.category.FastTests;
 import org.apache.knox.test.category.UnitTests;
 import org.easymock.EasyMock;
@@ -41,6 +42,8 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.Map;
 
 import static org.apache.knox.gateway.filter.CorrelationHandler.REQUEST_ID_HEADER_NAME;
 import static org.hamcrest.CoreMatchers.is;
@@ -147,6 +150,14 @@ public class GatewayFilterTest {
 
   }
 
+  public static class TestSourceUrlFilter extends AbstractGatewayFilter {
+    public Object sourceUrl;
+    @Override
+    protected void doFilter( HttpServletRequest request, HttpServletResponse response, FilterChain chain ) throws IOException, ServletException {
+      this.sourceUrl = request.getAttribute( AbstractGatewayFilter.SOURCE_REQUEST_URL_ATTRIBUTE_NAME );
+    }
+  }
+
   public static class TestCorrelationFilter extends AbstractGatewayFilter {
     public String correlation_id;
     public String request_id;
@@ -196,6 +207,85 @@ public class GatewayFilterTest {
 
   }
 
+  @Test
+  public void testSourceRequestUrlOfIndexedPath() throws Exception {
+
+    FilterConfig config = EasyMock.createNiceMock( FilterConfig.class );
+    EasyMock.replay( config );
+
+    HttpServletRequest request = EasyMock.createNiceMock( HttpServletRequest.class );
+    ServletContext context = EasyMock.createNiceMock( ServletContext.class );
+    GatewayConfig gatewayConfig = EasyMock.createNiceMock( GatewayConfig.class );
+    EasyMock.expect( request.getPathInfo() ).andReturn( "/test-path/test-resource" ).anyTimes();
+    EasyMock.expect( request.getQueryString() ).andReturn( "op=LIST" ).anyTimes();
+    EasyMock.expect( request.getServletContext() ).andReturn( context ).anyTimes();
+    EasyMock.expect( context.getAttribute(
+        GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE)).andReturn(gatewayConfig).anyTimes();
+    EasyMock.expect(gatewayConfig.getHeaderNameForRemoteAddress()).andReturn(
+        "Custom-Forwarded-For").anyTimes();
+    EasyMock.replay( request );
+    EasyMock.replay( context );
+    EasyMock.replay( gatewayConfig );
+
+    HttpServletResponse response = EasyMock.createNiceMock( HttpServletResponse.class );
+    EasyMock.replay( response );
+
+    TestRoleFilter other = new TestRoleFilter();
+    TestSourceUrlFilter filter = new TestSourceUrlFilter();
+
+    GatewayFilter gateway = new GatewayFilter();
+    gateway.addFilter( "/test-path/**", "other-filter", other, null, "other-role" );
+    gateway.addFilter( "/test-path/**?**", "test-filter", filter, null, "test-role" );
+    gateway.init( config );
+    gateway.doFilter( request, response );
+    gateway.destroy();
+
+    // the chain is found without parsing the request, the source URL is still available
+    assertThat( filter.sourceUrl, is( Parser.parseLiteral( "/test-path/test-resource?op=LIST" ) ) );
+    assertThat( other.role, nullValue() );
+
+  }
+
+  @Test
+  public void testUnparsableSourceRequestUrlIsBadRequest() throws Exception {
+
+    FilterConfig config = EasyMock.createNiceMock( FilterConfig.class );
+    EasyMock.replay( config );
+
+    HttpServletRequest request = EasyMock.createNiceMock( HttpServletRequest.class );
+    ServletContext context = EasyMock.createNiceMock( ServletContext.class );
+    GatewayConfig gatewayConfig = EasyMock.createNiceMock( GatewayConfig.class );
+    EasyMock.expect( request.getPathInfo() ).andReturn( "/test-path/test-resource" ).anyTimes();
+    // a fragment cannot span lines, so the request cannot be parsed into a template
+    EasyMock.expect( request.getQueryString() ).andReturn( "op=LIST#\n" ).anyTimes();
+    EasyMock.expect( request.getServletContext() ).andReturn( context ).anyTimes();
+    EasyMock.expect( context.getAttribute(
+        GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE)).andReturn(gatewayConfig).anyTimes();
+    EasyMock.expect(gatewayConfig.getHeaderNameForRemoteAddress()).andReturn(
+        "Custom-Forwarded-For").anyTimes();
+    EasyMock.replay( request );
+    EasyMock.replay( context );
+    EasyMock.replay( gatewayConfig );
+
+    HttpServletResponse response = EasyMock.createNiceMock( HttpServletResponse.class );
+    EasyMock.expect( response.isCommitted() ).andReturn( false ).anyTimes();
+    response.sendError( HttpServletResponse.SC_BAD_REQUEST );
+    EasyMock.expectLastCall().once();
+    EasyMock.replay( response );
+
+    TestSourceUrlFilter filter = new TestSourceUrlFilter();
+
+    GatewayFilter gateway = new GatewayFilter();
+    gateway.addFilter( "/test-path/**?**", "test-filter", filter, null, "test-role" );
+    gateway.init( config );
+    gateway.doFilter( request, response );
+    gateway.destroy();
+
+    assertThat( filter.sourceUrl, nullValue() );
+    EasyMock.verify( response );
+
+  }
+
   /**
    * make sure request id passed by request to knox is picked up as a correlation id
    * @throws Exception
@@ -359,4 +449,66 @@ public class GatewayFilterTest {
     gateway.doFilter(request, response, chain);
     gateway.destroy();
   }
+
+  @Test
+  public void testReuseFiltersOfUnchangedChains() throws Exception {
+    FilterConfig config = EasyMock.createNiceMock( FilterConfig.class );
+    EasyMock.replay( config );
+
+    Filter kept = EasyMock.createStrictMock( Filter.class );
+    kept.destroy();
+    EasyMock.expectLastCall().once();
+    Filter changed = EasyMock.createStrictMock( Filter.class );
+    changed.destroy();
+    EasyMock.expectLastCall().once();
+    Filter replacement = EasyMock.createStrictMock( Filter.class );
+    replacement.destroy();
+    EasyMock.expectLastCall().once();
+    Filter removed = EasyMock.createStrictMock( Filter.class );
+    removed.destroy();
+    EasyMock.expectLastCall().once();
+    EasyMock.replay( kept, changed, replacement, removed );
+
+    GatewayFilter previous = new GatewayFilter();
+    previous.addFilter( "/kept/**", "kept", kept, null, "KEPT" );
+    previous.addFilter( "/changed/**", "changed", changed, null, "CHANGED" );
+    previous.addFilter( "/removed/**", "removed", removed, null, "REMOVED" );
+    previous.init( config );
+
+    GatewayFilter gateway = new GatewayFilter();
+    gateway.addFilter( "/kept/**", "kept", kept, null, "KEPT" );
+    gateway.addFilter( "/changed/**", "changed", replacement, null, "CHANGED" );
+    gateway.init( config );
+
+    assertThat( gateway.reuseFilters( previous ), is( 1 ) );
+    assertThat( gateway.getChainCount(), is( 2 ) );
+
+    // Only destroys the filters that were not taken over
+    previous.destroy();
+    EasyMock.verify( changed, removed );
+
+    gateway.destroy();
+    EasyMock.verify( kept, replacement );
+  }
+
+  @Test
+  public void testReuseFiltersComparesFilterConfiguration() throws Exception {
+    Map<String, String> params = Collections.singletonMap( "param", "value" );
+    String filterClass = TestRoleFilter.class.getName();
+
+    GatewayFilter previous = new GatewayFilter();
+    previous.addFilter( "/same/**", "filter", filterClass, params, "SAME" );
+    previous.addFilter( "/params/**", "filter", filterClass, params, "PARAMS" );
+    previous.addFilter( "/role/**", "filter", filterClass, params, "ROLE" );
+    previous.addFilter( "/length/**", "filter", filterClass, params, "LENGTH" );
+
+    GatewayFilter gateway = new GatewayFilter();
+    gateway.addFilter( "/same/**", "filter", filterClass, params, "SAME" );
+    gateway.addFilter( "/params/**", "filter", filterClass, Collections.singletonMap( "param", "other" ), "PARAMS" );
+    gateway.addFilter( "/role/**", "filter", filterClass, params, "OTHER" );
+    gateway.addFilter( "/length/**", "filter", filterClass, params, "LENGTH" );
+    gateway.addFilter( "/length/**", "second", filterClass, params, "LENGTH" );
+
+    assertThat( gateway.reuseFilters( previous ), is( 1 ) );
+  }
 }
@@ -17,9 +17,13 @@
  */
 package org.apache.knox.gateway;
 
+import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.config.GatewayConfigChangeListener;
 import org.apache.knox.gateway.config.impl.GatewayConfigImpl;
+import org.apache.knox.gateway.topology.Application;
+import org.apache.knox.gateway.topology.Topology;
 import org.easymock.EasyMock;
+import org.eclipse.jetty.webapp.WebAppContext;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -32,7 +36,9 @@ import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
+import java.util.Collections;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -136,4 +142,64 @@ public class GatewayServerTest {
       GatewayServer.unregisterConfigChangeListener(listener);
     }
   }
+
+  @Test
+  public void testHotRedeployRequiresRunningDeployment() throws Exception {
+    GatewayServer server = new GatewayServer(createHotRedeployConfig());
+    assertFalse(hotRedeploy(server, createTopology()));
+  }
+
+  @Test
+  public void testHotRedeployRequiresAvailableDeployment() throws Exception {
+    WebAppContext context = EasyMock.createNiceMock(WebAppContext.class);
+    EasyMock.expect(context.isAvailable()).andReturn(false).atLeastOnce();
+    EasyMock.replay(context);
+    GatewayServer server = new GatewayServer(createHotRedeployConfig());
+    setDeployments(server, context);
+
+    assertFalse(hotRedeploy(server, createTopology()));
+    EasyMock.verify(context);
+  }
+
+  @Test
+  public void testHotRedeployNotUsedForApplications() throws Exception {
+    WebAppContext context = EasyMock.createStrictMock(WebAppContext.class);
+    EasyMock.replay(context);
+    GatewayServer server = new GatewayServer(createHotRedeployConfig());
+    setDeployments(server, context);
+    Topology topology = createTopology();
+    Application application = new Application();
+    application.setName("app");
+    topology.addApplication(application);
+
+    // Applications are deployed as web applications of their own
+    assertFalse(hotRedeploy(server, topology));
+    EasyMock.verify(context);
+  }
+
+  private static GatewayConfig createHotRedeployConfig() {
+    GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+    EasyMock.expect(config.getGatewayPath()).andReturn("gateway").anyTimes();
+    EasyMock.expect(config.isTopologyHotRedeployEnabled()).andReturn(true).anyTimes();
+    EasyMock.replay(config);
+    return config;
+  }
+
+  private static Topology createTopology() {
+    Topology topology = new Topology();
+    topology.setName("sandbox");
+    return topology;
+  }
+
+  private static void setDeployments(GatewayServer server, WebAppContext context) throws Exception {
+    Field deploymentsField = GatewayServer.class.getDeclaredField("deployments");
+    deploymentsField.setAccessible(true);
+    deploymentsField.set(server, Collections.singletonMap("/gateway/sandbox", context));
+  }
+
+  private static boolean hotRedeploy(GatewayServer server, Topology topology) throws Exception {
+    Method hotRedeployMethod = GatewayServer.class.getDeclaredMethod("hotRedeployTopology", Topology.class);
+    hotRedeployMethod.setAccessible(true);
+    return (Boolean) hotRedeployMethod.invoke(server, topology);
+  }
 }
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway;
+
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.descriptor.GatewayDescriptorFactory;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class GatewayServletTest {
+
+  @Test
+  public void testReloadDestroysIdleFilter() throws Exception {
+    BlockingGatewayFilter previous = new BlockingGatewayFilter();
+    GatewayServlet servlet = createServlet( previous );
+
+    servlet.reload( GatewayDescriptorFactory.create() );
+
+    assertNotSame( previous, servlet.getFilter() );
+    assertEquals( 1, previous.destroyed.get() );
+  }
+
+  @Test
+  public void testReloadDefersDestroyUntilRequestsFinish() throws Exception {
+    BlockingGatewayFilter previous = new BlockingGatewayFilter();
+    GatewayServlet servlet = createServlet( previous );
+    HttpServletRequest request = EasyMock.createNiceMock( HttpServletRequest.class );
+    HttpServletResponse response = EasyMock.createNiceMock( HttpServletResponse.class );
+    EasyMock.replay( request, response );
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> running = executor.submit( () -> {
+        servlet.service( request, response );
+        return null;
+      } );
+      assertTrue( previous.entered.await( 10, TimeUnit.SECONDS ) );
+
+      servlet.reload( GatewayDescriptorFactory.create() );
+      // The running request still uses the filters of the replaced gateway
+      assertEquals( 0, previous.destroyed.get() );
+
+      previous.release.countDown();
+      running.get( 10, TimeUnit.SECONDS );
+      assertEquals( 1, previous.destroyed.get() );
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // Destroying the servlet does not destroy the replaced gateway again
+    servlet.destroy();
+    assertEquals( 1, previous.destroyed.get() );
+  }
+
+  private static GatewayServlet createServlet( GatewayFilter filter ) throws Exception {
+    GatewayConfig gatewayConfig = EasyMock.createNiceMock( GatewayConfig.class );
+    ServletContext context = EasyMock.createNiceMock( ServletContext.class );
+    EasyMock.expect( context.getAttribute( GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE ) ).andReturn( gatewayConfig ).anyTimes();
+    ServletConfig config = EasyMock.createNiceMock( ServletConfig.class );
+    EasyMock.expect( config.getServletContext() ).andReturn( context ).anyTimes();
+    EasyMock.replay( gatewayConfig, context, config );
+
+    GatewayServlet servlet = new GatewayServlet( filter );
+    servlet.init( config );
+    return servlet;
+  }
+
+  private static class BlockingGatewayFilter extends GatewayFilter {
+    private final CountDownLatch entered = new CountDownLatch( 1 );
+    private final CountDownLatch release = new CountDownLatch( 1 );
+    private final AtomicInteger destroyed = new AtomicInteger();
+
+    @Override
+    public void doFilter( ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain ) {
+      entered.countDown();
+      try {
+        assertTrue( release.await( 10, TimeUnit.SECONDS ) );
+      } catch( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public void destroy() {
+      destroyed.incrementAndGet();
+      super.destroy();
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.deploy;
+
+import org.apache.commons.io.FileUtils;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.exporter.ExplodedExporter;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ArchiveComparatorTest {
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testUnchangedArchive() throws Exception {
+    File warDir = export( createArchive( "<gateway/>" ) );
+    // Files added by the web application are not part of the comparison
+    FileUtils.writeStringToFile( new File( warDir, "META-INF/temp/work" ), "x", StandardCharsets.UTF_8 );
+
+    assertTrue( ArchiveComparator.findChangedEntries( createArchive( "<gateway/>" ), warDir ).isEmpty() );
+  }
+
+  @Test
+  public void testChangedEntry() throws Exception {
+    File warDir = export( createArchive( "<gateway/>" ) );
+
+    assertEquals( Collections.singleton( "/WEB-INF/gateway.xml" ),
+        ArchiveComparator.findChangedEntries( createArchive( "<gateway><resource/></gateway>" ), warDir ) );
+  }
+
+  @Test
+  public void testMissingEntry() throws Exception {
+    File warDir = export( createArchive( "<gateway/>" ) );
+    WebArchive archive = createArchive( "<gateway/>" );
+    archive.addAsWebInfResource( new StringAsset( "<rules/>" ), "rewrite.xml" );
+
+    assertEquals( Collections.singleton( "/WEB-INF/rewrite.xml" ),
+        ArchiveComparator.findChangedEntries( archive, warDir ) );
+  }
+
+  private static WebArchive createArchive( String gatewayDescriptor ) {
+    WebArchive archive = ShrinkWrap.create( WebArchive.class, "%2F" );
+    archive.setWebXML( new StringAsset( "<web-app/>" ) );
+    archive.addAsWebInfResource( new StringAsset( gatewayDescriptor ), "gateway.xml" );
+    return archive;
+  }
+
+  private File export( WebArchive archive ) throws Exception {
+    return archive.as( ExplodedExporter.class ).exportExploded( folder.newFolder(), "war" );
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.deploy;
+
+import com.codahale.metrics.Gauge;
+import org.apache.knox.gateway.deploy.TopologyDeploymentTimings.Phase;
+import org.apache.knox.gateway.services.metrics.MetricsService;
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.eq;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TopologyDeploymentTimingsTest {
+
+  @Test
+  public void testLatestTimesPerTopology() {
+    TopologyDeploymentTimings timings = new TopologyDeploymentTimings();
+    long start = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos( 50 );
+    timings.record( "sandbox", Phase.CONTRIBUTE, start );
+
+    assertTrue( timings.getLatestMillis( "sandbox", Phase.CONTRIBUTE ) >= 50 );
+    assertEquals( -1, timings.getLatestMillis( "sandbox", Phase.EXPORT ) );
+    assertEquals( -1, timings.getLatestMillis( "admin", Phase.CONTRIBUTE ) );
+
+    // A redeployment replaces the latest time
+    timings.record( "sandbox", Phase.CONTRIBUTE, System.nanoTime() );
+    assertTrue( timings.getLatestMillis( "sandbox", Phase.CONTRIBUTE ) < 50 );
+
+    timings.remove( "sandbox" );
+    assertEquals( -1, timings.getLatestMillis( "sandbox", Phase.CONTRIBUTE ) );
+  }
+
+  @Test
+  public void testTotals() {
+    TopologyDeploymentTimings timings = new TopologyDeploymentTimings();
+    long start = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos( 20 );
+    timings.record( "sandbox", Phase.EXPORT, start );
+    timings.record( "admin", Phase.EXPORT, start );
+
+    assertEquals( 2, timings.getCount( Phase.EXPORT ) );
+    assertTrue( timings.getTotalMillis( Phase.EXPORT ) >= 40 );
+    assertEquals( 0, timings.getCount( Phase.START ) );
+  }
+
+  @Test
+  public void testRegisterGauges() {
+    Capture<Gauge<?>> countGauge = Capture.newInstance();
+    MetricsService metricsService = EasyMock.createNiceMock( MetricsService.class );
+    metricsService.registerGauge( eq( "topology.deployment.parse.count" ), capture( countGauge ) );
+    metricsService.registerGauge( anyString(), anyObject() );
+    EasyMock.expectLastCall().times( 14 );
+    EasyMock.replay( metricsService );
+
+    TopologyDeploymentTimings timings = new TopologyDeploymentTimings();
+    timings.register( metricsService );
+    timings.record( "sandbox", Phase.PARSE, System.nanoTime() );
+
+    EasyMock.verify( metricsService );
+    assertEquals( 1L, countGauge.getValue().getValue() );
+  }
+}
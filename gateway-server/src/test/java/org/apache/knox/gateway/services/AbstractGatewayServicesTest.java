@@ -67,7 +67,9 @@ public class AbstractGatewayServicesTest {
         ServiceType.REMOTE_CONFIGURATION_MONITOR,
         ServiceType.GATEWAY_STATUS_SERVICE,
         ServiceType.LDAP_SERVICE,
-        ServiceType.LDAP_ROLES_LOOKUP_SERVICE
+        ServiceType.LDAP_ROLES_LOOKUP_SERVICE,
+        ServiceType.HTTP_CLIENT_POOL_SERVICE,
+        ServiceType.LDAP_CONNECTION_POOL_SERVICE
     };
 
     assertNotEquals(ServiceType.values(), orderedServiceTypes);
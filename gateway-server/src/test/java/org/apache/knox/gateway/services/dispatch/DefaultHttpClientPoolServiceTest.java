@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.dispatch;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultHttpClientPoolServiceTest {
+
+  private DefaultHttpClientPoolService createService(String enabled, String gracePeriod) throws Exception {
+    GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+    EasyMock.expect(config.getServiceParameter("httpclientpool", "enabled")).andReturn(enabled).anyTimes();
+    EasyMock.expect(config.getServiceParameter("httpclientpool", "idleClientGracePeriod")).andReturn(gracePeriod).anyTimes();
+    EasyMock.replay(config);
+    DefaultHttpClientPoolService service = new DefaultHttpClientPoolService();
+    service.init(config, Collections.emptyMap());
+    return service;
+  }
+
+  @Test
+  public void testDisabledByDefault() throws Exception {
+    assertFalse(createService("", "").isEnabled());
+  }
+
+  @Test
+  public void testClientsAreSharedPerKeyAndClosedWhenUnreferenced() throws Exception {
+    DefaultHttpClientPoolService service = createService("true", "0");
+    assertTrue(service.isEnabled());
+
+    CloseableHttpClient client = EasyMock.createMock(CloseableHttpClient.class);
+    client.close();
+    EasyMock.expectLastCall().once();
+    EasyMock.replay(client);
+
+    AtomicInteger created = new AtomicInteger();
+    HttpClient first = service.acquire("webhdfs", () -> {
+      created.incrementAndGet();
+      return client;
+    });
+    HttpClient second = service.acquire("webhdfs", () -> {
+      created.incrementAndGet();
+      return EasyMock.createMock(CloseableHttpClient.class);
+    });
+    assertSame(first, second);
+    assertEquals(1, created.get());
+    assertEquals(2, service.getReferenceCount("webhdfs"));
+
+    assertTrue(service.release(first));
+    assertEquals(1, service.getReferenceCount("webhdfs"));
+    assertTrue(service.release(second));
+    assertEquals(0, service.getReferenceCount("webhdfs"));
+    assertFalse(service.release(first));
+
+    EasyMock.verify(client);
+    service.stop();
+  }
+
+  @Test
+  public void testClientSurvivesReacquireWithinGracePeriod() throws Exception {
+    DefaultHttpClientPoolService service = createService("true", "300");
+
+    CloseableHttpClient client = EasyMock.createMock(CloseableHttpClient.class);
+    client.close();
+    EasyMock.expectLastCall().once();
+    EasyMock.replay(client);
+
+    HttpClient first = service.acquire("hive", () -> client);
+    service.release(first);
+    // e.g. the topology is redeployed before the grace period expires
+    HttpClient second = service.acquire("hive", () -> EasyMock.createMock(CloseableHttpClient.class));
+    assertSame(first, second);
+
+    // remaining clients are closed when the gateway stops
+    service.stop();
+    EasyMock.verify(client);
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.services.factory;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.knox.gateway.services.ServiceType;
+import org.apache.knox.gateway.services.ldap.LdapConnectionPoolService;
+import org.apache.knox.gateway.services.ldap.pool.DefaultLdapConnectionPoolService;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LdapConnectionPoolServiceFactoryTest extends ServiceFactoryTest {
+
+  private final LdapConnectionPoolServiceFactory serviceFactory = new LdapConnectionPoolServiceFactory();
+
+  @Before
+  public void setUp() throws Exception {
+    initConfig();
+  }
+
+  @Test
+  public void testBasics() throws Exception {
+    super.testBasics(serviceFactory, ServiceType.MASTER_SERVICE, ServiceType.LDAP_CONNECTION_POOL_SERVICE);
+  }
+
+  @Test
+  public void shouldReturnDefaultLdapConnectionPoolService() throws Exception {
+    final LdapConnectionPoolService ldapConnectionPoolService = (LdapConnectionPoolService) serviceFactory.create(gatewayServices, ServiceType.LDAP_CONNECTION_POOL_SERVICE, gatewayConfig, options);
+    assertTrue(ldapConnectionPoolService instanceof DefaultLdapConnectionPoolService);
+    ldapConnectionPoolService.init(gatewayConfig, options);
+    assertFalse(ldapConnectionPoolService.isEnabled());
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.services.ldap.pool;
+
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.services.metrics.MetricsService;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.naming.CommunicationException;
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.directory.SearchControls;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DefaultLdapConnectionPoolServiceTest {
+
+    private final List<LdapContext> createdContexts = new ArrayList<>();
+    private DefaultLdapConnectionPoolService service;
+
+    @After
+    public void tearDown() throws Exception {
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    private DefaultLdapConnectionPoolService createService(String enabled, MetricsService metricsService) throws Exception {
+        final GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+        EasyMock.expect(config.getServiceParameter("ldapconnectionpool", "enabled")).andReturn(enabled).anyTimes();
+        EasyMock.replay(config);
+        service = new DefaultLdapConnectionPoolService(metricsService, environment -> {
+            final LdapContext context = EasyMock.createNiceMock(LdapContext.class);
+            EasyMock.replay(context);
+            createdContexts.add(context);
+            return context;
+        });
+        service.init(config, Collections.emptyMap());
+        return service;
+    }
+
+    private static Hashtable<String, Object> systemEnvironment(String password) {
+        final Hashtable<String, Object> environment = new Hashtable<>();
+        environment.put(Context.PROVIDER_URL, "ldap://localhost:33389");
+        environment.put(Context.SECURITY_PRINCIPAL, "uid=guest,ou=people,dc=hadoop,dc=apache,dc=org");
+        environment.put(Context.SECURITY_CREDENTIALS, password);
+        environment.put(DefaultLdapConnectionPoolService.JNDI_CONNECTION_POOL_PROPERTY, "true");
+        return environment;
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        createService("", null);
+        assertFalse(service.isEnabled());
+
+        service.getSystemLdapContext(systemEnvironment("guest-password")).close();
+        service.getSystemLdapContext(systemEnvironment("guest-password")).close();
+        assertEquals(2, createdContexts.size());
+    }
+
+    @Test
+    public void testContextIsReusedAfterClose() throws Exception {
+        createService("true", null);
+        assertTrue(service.isEnabled());
+
+        final LdapContext first = service.getSystemLdapContext(systemEnvironment("guest-password"));
+        assertEquals(1, service.getNumActive());
+        first.close();
+        assertEquals(0, service.getNumActive());
+        assertEquals(1, service.getNumIdle());
+
+        final LdapContext second = service.getSystemLdapContext(systemEnvironment("guest-password"));
+        second.close();
+        assertEquals(1, createdContexts.size());
+        assertNotSame(first, second);
+
+        try {
+            first.search("dc=hadoop,dc=apache,dc=org", "(uid=guest)", new SearchControls());
+            fail("A returned context must not be usable");
+        } catch (NamingException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testContextsArePooledPerCredentials() throws Exception {
+        createService("true", null);
+
+        final LdapContext guest = service.getSystemLdapContext(systemEnvironment("guest-password"));
+        final LdapContext other = service.getSystemLdapContext(systemEnvironment("other-password"));
+        guest.close();
+        other.close();
+        service.getSystemLdapContext(systemEnvironment("other-password")).close();
+
+        assertEquals(2, createdContexts.size());
+        assertEquals(2, service.getNumIdle());
+    }
+
+    @Test
+    public void testBorrowerChangesAreReset() throws Exception {
+        final LdapContext context = EasyMock.createNiceMock(LdapContext.class);
+        context.addToEnvironment(Context.REFERRAL, "ignore");
+        EasyMock.expectLastCall().andReturn(null).once();
+        context.setRequestControls(EasyMock.aryEq(new Control[0]));
+        EasyMock.expectLastCall().once();
+        context.setRequestControls(null);
+        EasyMock.expectLastCall().once();
+        context.removeFromEnvironment(Context.REFERRAL);
+        EasyMock.expectLastCall().andReturn("ignore").once();
+        EasyMock.replay(context);
+
+        final GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+        EasyMock.expect(config.getServiceParameter("ldapconnectionpool", "enabled")).andReturn("true").anyTimes();
+        EasyMock.replay(config);
+        service = new DefaultLdapConnectionPoolService(null, environment -> context);
+        service.init(config, Collections.emptyMap());
+
+        final LdapContext pooled = service.getSystemLdapContext(systemEnvironment("guest-password"));
+        pooled.addToEnvironment(Context.REFERRAL, "ignore");
+        pooled.setRequestControls(new Control[0]);
+        pooled.close();
+
+        EasyMock.verify(context);
+        assertEquals(1, service.getNumIdle());
+    }
+
+    @Test
+    public void testBrokenContextIsDiscarded() throws Exception {
+        final LdapContext broken = EasyMock.createNiceMock(LdapContext.class);
+        EasyMock.expect(broken.search(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyObject(SearchControls.class)))
+            .andThrow(new CommunicationException("connection closed")).once();
+        broken.close();
+        EasyMock.expectLastCall().once();
+        EasyMock.replay(broken);
+        final LdapContext healthy = EasyMock.createNiceMock(LdapContext.class);
+        EasyMock.replay(healthy);
+        final List<LdapContext> contexts = new ArrayList<>(List.of(broken, healthy));
+
+        final GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+        EasyMock.expect(config.getServiceParameter("ldapconnectionpool", "enabled")).andReturn("true").anyTimes();
+        EasyMock.replay(config);
+        service = new DefaultLdapConnectionPoolService(null, environment -> contexts.remove(0));
+        service.init(config, Collections.emptyMap());
+
+        final LdapContext pooled = service.getSystemLdapContext(systemEnvironment("guest-password"));
+        try {
+            pooled.search("dc=hadoop,dc=apache,dc=org", "(uid=guest)", new SearchControls());
+            fail("The communication failure must be passed on");
+        } catch (CommunicationException e) {
+            // expected
+        }
+        pooled.close();
+
+        EasyMock.verify(broken);
+        assertEquals(0, service.getNumIdle());
+        service.getSystemLdapContext(systemEnvironment("guest-password")).close();
+        assertTrue(contexts.isEmpty());
+    }
+
+    @Test
+    public void testGaugesAreRegisteredAndRemoved() throws Exception {
+        final MetricsService metricsService = EasyMock.createMock(MetricsService.class);
+        metricsService.registerGauge(EasyMock.startsWith("ldap.connection.pool.system."), EasyMock.anyObject());
+        EasyMock.expectLastCall().times(6);
+        metricsService.removeGauge(EasyMock.startsWith("ldap.connection.pool.system."), EasyMock.anyObject());
+        EasyMock.expectLastCall().times(6);
+        EasyMock.replay(metricsService);
+
+        createService("true", metricsService);
+        service.stop();
+        service = null;
+
+        EasyMock.verify(metricsService);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.security.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RemoteAliasSnapshotTest {
+
+  @Test
+  public void testLookupIgnoresAliasCase() {
+    final RemoteAliasSnapshot snapshot = new RemoteAliasSnapshot();
+    snapshot.put("sandbox", "knox.test.Alias", "secret");
+
+    assertEquals("secret", snapshot.get("sandbox", "KNOX.TEST.ALIAS"));
+    assertNull(snapshot.get("development", "knox.test.alias"));
+    assertEquals(1, snapshot.getHits());
+    assertEquals(1, snapshot.getMisses());
+  }
+
+  @Test
+  public void testReadBeforeChangeIsDropped() {
+    final RemoteAliasSnapshot snapshot = new RemoteAliasSnapshot();
+    snapshot.put("sandbox", "alias", "secret");
+
+    // a lookup misses, reads the registry, and meanwhile the alias is removed
+    final long generation = snapshot.getGeneration();
+    snapshot.remove("sandbox", "alias");
+    snapshot.putIfUnchanged(generation, "sandbox", "alias", "secret");
+    assertNull(snapshot.get("sandbox", "alias"));
+
+    snapshot.putIfUnchanged(snapshot.getGeneration(), "sandbox", "alias", "secret");
+    assertEquals("secret", snapshot.get("sandbox", "alias"));
+  }
+
+  @Test
+  public void testNotUsedWhileDisconnected() throws Exception {
+    final RemoteAliasSnapshot snapshot = new RemoteAliasSnapshot();
+    snapshot.put("sandbox", "alias", "secret");
+
+    assertTrue(snapshot.connectionChanged(false));
+    assertFalse(snapshot.connectionChanged(false));
+    assertFalse(snapshot.isConnected());
+    assertNull(snapshot.get("sandbox", "alias"));
+    Thread.sleep(5L);
+    assertTrue(snapshot.getStaleMillis() > 0L);
+
+    // nothing read from the registry while disconnected is kept
+    snapshot.putIfUnchanged(snapshot.getGeneration(), "sandbox", "other", "value");
+    assertEquals(1, snapshot.size());
+
+    // changes may have been missed, so the snapshot starts over
+    assertTrue(snapshot.connectionChanged(true));
+    assertEquals(0, snapshot.size());
+    assertEquals(0L, snapshot.getStaleMillis());
+    assertNull(snapshot.get("sandbox", "alias"));
+  }
+}
@@ -38,6 +38,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.cert.Certificate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -165,7 +166,7 @@ public class AliasBasedTokenStateServiceTest extends DefaultTokenStateServiceTes
 
     Map<String, Long> tokenExpirations = getTokenExpirationsField(tss, 2);
     Map<String, Long> maxTokenLifetimes = getMaxTokenLifetimesField(tss, 2);
-    Map<String, Map<String, TokenMetadata>> metadata = getMetadataMapField(tss, 2);
+    Map<String, TokenMetadata> metadata = getMetadataMapField(tss, 2);
     Map<String, Long> tokenIssueTimes = getTokenIssueTimesField(tss, 2);
 
     final long evictionInterval = TimeUnit.SECONDS.toMillis(3);
@@ -540,7 +541,7 @@ public class AliasBasedTokenStateServiceTest extends DefaultTokenStateServiceTes
     Map<String, Long> maxTokenLifetimes = getMaxTokenLifetimesField(tss);
     Map<String, Long> tokenIssueTimes = getTokenIssueTimesField(tss, 3);
 
-    Set<AliasBasedTokenStateService.TokenState> unpersistedState = getUnpersistedStateField(tss);
+    Collection<AliasBasedTokenStateService.TokenState> unpersistedState = getUnpersistedStateField(tss);
 
     assertEquals("Expected the tokens expirations to have been added in the base class cache.",
                  TOKEN_COUNT,
@@ -626,7 +627,7 @@ public class AliasBasedTokenStateServiceTest extends DefaultTokenStateServiceTes
     Map<String, Long> maxTokenLifetimes = getMaxTokenLifetimesField(tss);
     Map<String, Long> tokenIssueTimes = getTokenIssueTimesField(tss, 3);
 
-    Set<AliasBasedTokenStateService.TokenState> unpersistedState = getUnpersistedStateField(tss);
+    Collection<AliasBasedTokenStateService.TokenState> unpersistedState = getUnpersistedStateField(tss);
 
     assertEquals("Expected the tokens expirations to have been added in the base class cache.",
                  TOKEN_COUNT,
@@ -674,6 +675,29 @@ public class AliasBasedTokenStateServiceTest extends DefaultTokenStateServiceTes
     }
   }
 
+  @Test
+  public void testRepeatedUpdatesAreCoalesced() throws Exception {
+    final AliasBasedTokenStateService tss = (AliasBasedTokenStateService) createTokenStateService();
+    final String tokenId = UUID.randomUUID().toString();
+    final long issueTime = System.currentTimeMillis();
+    tss.addToken(tokenId, issueTime, issueTime + 1000L, TimeUnit.HOURS.toMillis(1));
+    tss.updateExpiration(tokenId, issueTime + 2000L);
+    tss.updateExpiration(tokenId, issueTime + 3000L);
+
+    final List<AliasBasedTokenStateService.TokenState> unpersistedTokenStates = new ArrayList<>(getUnpersistedStateField(tss, 0));
+    assertEquals(3, unpersistedTokenStates.size()); // expiration + max + issue time
+    for (AliasBasedTokenStateService.TokenState state : unpersistedTokenStates) {
+      if (state.getAlias().equals(tokenId)) {
+        assertEquals(String.valueOf(issueTime + 3000L), state.getAliasValue());
+      }
+    }
+
+    tss.persistTokenState();
+    assertTrue(getUnpersistedStateField(tss, 0).isEmpty());
+    assertEquals(String.valueOf(issueTime + 3000L),
+                 new String(tss.aliasService.getPasswordFromAliasForCluster(AliasService.NO_CLUSTER_NAME, tokenId)));
+  }
+
   private boolean containsAlias(List<AliasBasedTokenStateService.TokenState> unpersistedTokenStates, String expectedAlias) {
     for(AliasBasedTokenStateService.TokenState tokenState : unpersistedTokenStates) {
       if (tokenState.getAlias().equals(expectedAlias)) {
@@ -843,7 +867,11 @@ public class AliasBasedTokenStateServiceTest extends DefaultTokenStateServiceTes
   }
 
   private static Map<String, Long> getTokenExpirationsField(TokenStateService tss, int level) throws Exception {
-    return (Map<String, Long>) getField(tss, level, "tokenExpirations");
+    return getTokenStatesField(tss, level).expirations();
+  }
+
+  private static TokenStateStore getTokenStatesField(TokenStateService tss, int level) throws Exception {
+    return (TokenStateStore) getField(tss, level, "tokenStates");
   }
 
   private static Object getField(TokenStateService tss, int level, String fieldName) throws Exception {
@@ -865,23 +893,23 @@ public class AliasBasedTokenStateServiceTest extends DefaultTokenStateServiceTes
   }
 
   private static Map<String, Long> getMaxTokenLifetimesField(TokenStateService tss, int level) throws Exception {
-    return (Map<String, Long>) getField(tss, level, "maxTokenLifetimes");
+    return getTokenStatesField(tss, level).maxLifetimes();
   }
 
   private static Map<String, Long> getTokenIssueTimesField(TokenStateService tss, int level) throws Exception {
-    return (Map<String, Long>) getField(tss, level, "tokenIssueTimes");
+    return getTokenStatesField(tss, level).issueTimes();
   }
 
-  private static Map<String, Map<String, TokenMetadata>> getMetadataMapField(TokenStateService tss, int level) throws Exception {
-    return (Map<String, Map<String, TokenMetadata>>) getField(tss, level, "metadataMap");
+  private static Map<String, TokenMetadata> getMetadataMapField(TokenStateService tss, int level) throws Exception {
+    return getTokenStatesField(tss, level).metadata();
   }
 
-  private static Set<AliasBasedTokenStateService.TokenState> getUnpersistedStateField(TokenStateService tss) throws Exception {
+  private static Collection<AliasBasedTokenStateService.TokenState> getUnpersistedStateField(TokenStateService tss) throws Exception {
     return getUnpersistedStateField(tss, 1);
   }
 
-  private static Set<AliasBasedTokenStateService.TokenState> getUnpersistedStateField(TokenStateService tss, int level) throws Exception {
-    return (Set<AliasBasedTokenStateService.TokenState>) getField(tss, level, "unpersistedState");
+  private static Collection<AliasBasedTokenStateService.TokenState> getUnpersistedStateField(TokenStateService tss, int level) throws Exception {
+    return ((Map<String, AliasBasedTokenStateService.TokenState>) getField(tss, level, "unpersistedState")).values();
   }
 
   private static class TestJournalEntry implements JournalEntry {
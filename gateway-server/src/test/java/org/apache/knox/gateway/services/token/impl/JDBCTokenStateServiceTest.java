@@ -26,6 +26,7 @@ import org.apache.knox.gateway.database.DatabaseType;
 import org.apache.knox.gateway.services.security.AliasService;
 import org.apache.knox.gateway.services.security.token.KnoxToken;
 import org.apache.knox.gateway.services.security.token.TokenMetadata;
+import org.apache.knox.gateway.services.security.token.TokenStateServiceException;
 import org.apache.knox.gateway.services.security.token.UnknownTokenException;
 import org.apache.knox.gateway.services.security.token.impl.TokenMAC;
 import org.easymock.EasyMock;
@@ -46,14 +47,18 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class JDBCTokenStateServiceTest {
 
@@ -77,6 +82,7 @@ public class JDBCTokenStateServiceTest {
     EasyMock.expect(gatewayConfig.getDatabaseType()).andReturn(DatabaseType.HSQL.type()).anyTimes();
     EasyMock.expect(gatewayConfig.getDatabaseConnectionUrl()).andReturn(CONNECTION_URL).anyTimes();
     EasyMock.expect(gatewayConfig.getDatabaseName()).andReturn(DB_NAME).anyTimes();
+    EasyMock.expect(gatewayConfig.getKnoxTokenStateDatabaseBatchSize()).andReturn(50).anyTimes();
     final AliasService aliasService = EasyMock.createNiceMock(AliasService.class);
     EasyMock.expect(aliasService.getPasswordFromAliasForGateway(AbstractDataSourceFactory.DATABASE_USER_ALIAS_NAME)).andReturn(USERNAME.toCharArray()).anyTimes();
     EasyMock.expect(aliasService.getPasswordFromAliasForGateway(AbstractDataSourceFactory.DATABASE_PASSWORD_ALIAS_NAME)).andReturn(PASSWORD.toCharArray()).anyTimes();
@@ -237,9 +243,7 @@ public class JDBCTokenStateServiceTest {
 
     // set token expiration to 3 in-memory
     // we still expect 2 because in-memory lookup should be skipped while fetching token expiration
-    final Map<String, Long> tokenExpirations = new ConcurrentHashMap<>();
-    tokenExpirations.put(tokenId, 3L);
-    FieldUtils.writeField(jdbcTokenStateService, "tokenExpirations", tokenExpirations, true);
+    ((TokenStateStore) FieldUtils.readField(jdbcTokenStateService, "tokenStates", true)).setExpiration(tokenId, 3L);
 
     assertEquals(2, jdbcTokenStateService.getTokenExpiration(tokenId));
     assertEquals(2, getLongTokenAttributeFromDatabase(tokenId, TokenStateDatabase.GET_TOKEN_EXPIRATION_SQL));
@@ -273,9 +277,7 @@ public class JDBCTokenStateServiceTest {
 
     // set token metadata back to original in the in-memory cache with disabled=false
     // we still expect an enabled token because in-memory lookup should be skipped while fetching token metadata
-    final Map<String, TokenMetadata> metadataMap = new ConcurrentHashMap<>();
-    metadataMap.put(tokenId, tokenMetadata);
-    FieldUtils.writeField(jdbcTokenStateService, "metadataMap", metadataMap, true);
+    ((TokenStateStore) FieldUtils.readField(jdbcTokenStateService, "tokenStates", true)).setMetadata(tokenId, tokenMetadata);
 
     assertTrue(jdbcTokenStateService.getTokenMetadata(tokenId).isEnabled());
     assertEquals("true", getStringTokenAttributeFromDatabase(tokenId, getSelectMetadataSql(TokenMetadata.ENABLED)));
@@ -302,6 +304,63 @@ public class JDBCTokenStateServiceTest {
     assertEquals(1, getLongTokenAttributeFromDatabase(null, GET_TOKENS_COUNT_SQL));  //the one that never expires should remain
   }
 
+  @Test
+  public void testConcurrentChangesAreBatched() throws Exception {
+    truncateDatabase();
+    final int threadCount = 8;
+    final int tokensPerThread = 50;
+    final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      final List<Future<List<String>>> results = new ArrayList<>();
+      for (int t = 0; t < threadCount; t++) {
+        results.add(executor.submit(() -> {
+          final List<String> tokenIds = new ArrayList<>();
+          for (int i = 0; i < tokensPerThread; i++) {
+            final String tokenId = UUID.randomUUID().toString();
+            jdbcTokenStateService.addToken(tokenId, 1, 2, 100);
+            jdbcTokenStateService.addMetadata(tokenId, new TokenMetadata("batchUser", "comment"));
+            jdbcTokenStateService.updateExpiration(tokenId, 3);
+            tokenIds.add(tokenId);
+          }
+          return tokenIds;
+        }));
+      }
+      for (Future<List<String>> result : results) {
+        for (String tokenId : result.get(1, TimeUnit.MINUTES)) {
+          assertEquals(3, getLongTokenAttributeFromDatabase(tokenId, TokenStateDatabase.GET_TOKEN_EXPIRATION_SQL));
+          assertEquals("batchUser", getStringTokenAttributeFromDatabase(tokenId, getSelectMetadataSql(TokenMetadata.USER_NAME)));
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(threadCount * tokensPerThread, getLongTokenAttributeFromDatabase(null, GET_TOKENS_COUNT_SQL));
+    assertEquals(threadCount * tokensPerThread, jdbcTokenStateService.getTokens("batchUser").size());
+  }
+
+  @Test
+  public void testFailedWriteOnlyFailsItsCaller() throws Exception {
+    final String tokenId = UUID.randomUUID().toString();
+    jdbcTokenStateService.addToken(tokenId, 1, 1, 1);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final String otherTokenId = UUID.randomUUID().toString();
+      final Future<?> duplicate = executor.submit(() -> jdbcTokenStateService.addToken(tokenId, 1, 1, 1));
+      final Future<?> other = executor.submit(() -> jdbcTokenStateService.addToken(otherTokenId, 1, 1, 1));
+      other.get(1, TimeUnit.MINUTES);
+      try {
+        duplicate.get(1, TimeUnit.MINUTES);
+        fail("Adding the same token twice should have failed");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof TokenStateServiceException);
+      }
+      assertEquals(1, getLongTokenAttributeFromDatabase(otherTokenId, TokenStateDatabase.GET_TOKEN_EXPIRATION_SQL));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   private long getLongTokenAttributeFromDatabase(String tokenId, String sql) throws SQLException {
     try (Connection conn = getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
       if (tokenId != null) {
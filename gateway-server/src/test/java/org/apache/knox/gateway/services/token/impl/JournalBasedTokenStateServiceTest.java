@@ -318,14 +318,16 @@ public class JournalBasedTokenStateServiceTest extends DefaultTokenStateServiceT
     }
 
     private static Map<String, Long> getTokenExpirationsField(TokenStateService tss) throws Exception {
-        Field tokenExpirationsField = tss.getClass().getSuperclass().getSuperclass().getDeclaredField("tokenExpirations");
-        tokenExpirationsField.setAccessible(true);
-        return (Map<String, Long>) tokenExpirationsField.get(tss);
+        return getTokenStatesField(tss).expirations();
     }
 
     private static Map<String, Long> getMaxTokenLifetimesField(TokenStateService tss) throws Exception {
-        Field maxTokenLifetimesField = tss.getClass().getSuperclass().getSuperclass().getDeclaredField("maxTokenLifetimes");
-        maxTokenLifetimesField.setAccessible(true);
-        return (Map<String, Long>) maxTokenLifetimesField.get(tss);
+        return getTokenStatesField(tss).maxLifetimes();
+    }
+
+    private static TokenStateStore getTokenStatesField(TokenStateService tss) throws Exception {
+        Field tokenStatesField = tss.getClass().getSuperclass().getSuperclass().getDeclaredField("tokenStates");
+        tokenStatesField.setAccessible(true);
+        return (TokenStateStore) tokenStatesField.get(tss);
     }
 }
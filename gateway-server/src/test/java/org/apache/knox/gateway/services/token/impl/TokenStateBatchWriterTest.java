@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.token.impl;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+public class TokenStateBatchWriterTest {
+
+  @Test
+  public void testStopStoresTheBatchInHand() throws Exception {
+    final TokenStateDatabase database = EasyMock.createMock(TokenStateDatabase.class);
+    EasyMock.expect(database.applyBatch(EasyMock.<List<TokenStateDatabase.Write>>anyObject())).andReturn(new boolean[]{true}).once();
+    EasyMock.replay(database);
+
+    // a long window keeps the writer waiting for more writes with the first one in hand
+    final TokenStateBatchWriter batchWriter = new TokenStateBatchWriter(database, TimeUnit.MINUTES.toMillis(10), 100);
+    final CompletableFuture<Boolean> added = new CompletableFuture<>();
+    final Thread caller = new Thread(() -> {
+      try {
+        added.complete(batchWriter.addToken("token", 1L, 2L, 3L));
+      } catch (Exception e) {
+        added.completeExceptionally(e);
+      }
+    });
+    caller.start();
+
+    // the caller waits for its write once it is queued, and the queue is empty again once the writer took it
+    final BlockingQueue<?> queue = getQueue(batchWriter);
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (caller.getState() != Thread.State.TIMED_WAITING) {
+      assertTrue("write was not submitted", System.nanoTime() < deadline);
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    while (!queue.isEmpty()) {
+      assertTrue("write was not taken by the writer", System.nanoTime() < deadline);
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+
+    batchWriter.stop();
+
+    assertTrue(added.get(10, TimeUnit.SECONDS));
+    EasyMock.verify(database);
+  }
+
+  private static BlockingQueue<?> getQueue(TokenStateBatchWriter batchWriter) throws Exception {
+    final Field queue = TokenStateBatchWriter.class.getDeclaredField("queue");
+    queue.setAccessible(true);
+    return (BlockingQueue<?>) queue.get(batchWriter);
+  }
+}
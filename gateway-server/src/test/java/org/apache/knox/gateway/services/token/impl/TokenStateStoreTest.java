@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.services.token.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.knox.gateway.services.security.token.TokenMetadata;
+import org.junit.Test;
+
+public class TokenStateStoreTest {
+
+  @Test
+  public void testExpiredTokensAreFoundByBucket() {
+    final TokenStateStore store = new TokenStateStore();
+    final long now = 10 * TokenStateStore.EXPIRY_BUCKET_MILLIS + 500;
+    store.add("expired", 1L, now - TokenStateStore.EXPIRY_BUCKET_MILLIS, -1L);
+    store.add("expiredInSameBucket", 1L, now - 1, -1L);
+    store.add("validInSameBucket", 1L, now + 1, -1L);
+    store.add("valid", 1L, now + TokenStateStore.EXPIRY_BUCKET_MILLIS, -1L);
+    store.add("neverExpires", 1L, -1L, -1L);
+
+    assertEquals(new HashSet<>(Arrays.asList("expired", "expiredInSameBucket")), store.getExpiredTokenIds(now));
+    assertEquals(5, store.getTokenIds().size());
+  }
+
+  @Test
+  public void testRenewalMovesTokenToNewBucket() {
+    final TokenStateStore store = new TokenStateStore();
+    final long now = 10 * TokenStateStore.EXPIRY_BUCKET_MILLIS;
+    store.add("token", 1L, now - TokenStateStore.EXPIRY_BUCKET_MILLIS, -1L);
+    assertEquals(Collections.singleton("token"), store.getExpiredTokenIds(now));
+
+    store.setExpiration("token", now + 2 * TokenStateStore.EXPIRY_BUCKET_MILLIS);
+    assertTrue(store.getExpiredTokenIds(now).isEmpty());
+    assertEquals(Collections.singleton("token"), store.getExpiredTokenIds(now + 3 * TokenStateStore.EXPIRY_BUCKET_MILLIS));
+  }
+
+  @Test
+  public void testRemovedTokensAreNotExpired() {
+    final TokenStateStore store = new TokenStateStore();
+    store.add("token", 1L, 1L, -1L);
+    store.setMetadata("token", new TokenMetadata("user"));
+    store.remove(Collections.singleton("token"));
+
+    assertNull(store.get("token"));
+    assertTrue(store.getExpiredTokenIds(Long.MAX_VALUE).isEmpty());
+    assertTrue(store.metadata().isEmpty());
+  }
+
+  @Test
+  public void testPartialState() {
+    final TokenStateStore store = new TokenStateStore();
+    store.setIssueTime("token", 42L);
+    assertFalse(store.hasExpiration("token"));
+    assertTrue(store.getTokenIds().isEmpty());
+    assertEquals(Long.valueOf(42L), store.issueTimes().get("token"));
+    assertTrue(store.maxLifetimes().isEmpty());
+
+    store.setMaxLifetime("token", -1L);
+    assertTrue(store.get("token").hasMaxLifetime());
+    assertEquals(-1L, store.get("token").getMaxLifetime());
+
+    final Set<String> expired = store.getExpiredTokenIds(Long.MAX_VALUE);
+    assertTrue(expired.isEmpty());
+  }
+
+  @Test
+  public void testTokensAreIndexedByUser() {
+    final TokenStateStore store = new TokenStateStore();
+    store.add("own", 1L, -1L, -1L);
+    store.setMetadata("own", new TokenMetadata("alice"));
+    final TokenMetadata impersonated = new TokenMetadata("bob");
+    impersonated.setCreatedBy("alice");
+    store.add("impersonated", 1L, -1L, -1L);
+    store.setMetadata("impersonated", impersonated);
+    store.add("noMetadata", 1L, -1L, -1L);
+
+    assertEquals(Collections.singleton("own"), store.getStatesByUserName("alice").keySet());
+    assertEquals(Collections.singleton("impersonated"), store.getStatesByUserName("bob").keySet());
+    assertEquals(Collections.singleton("impersonated"), store.getStatesByCreatedBy("alice").keySet());
+    assertTrue(store.getStatesByCreatedBy("bob").isEmpty());
+    assertTrue(store.getStatesByUserName("nobody").isEmpty());
+  }
+
+  @Test
+  public void testUserIndexFollowsMetadataChangesAndRemoval() {
+    final TokenStateStore store = new TokenStateStore();
+    store.setMetadata("token", new TokenMetadata("alice"));
+    store.setExpiration("token", 1L);
+    assertEquals(Collections.singleton("token"), store.getStatesByUserName("alice").keySet());
+
+    store.setMetadata("token", new TokenMetadata("bob"));
+    assertTrue(store.getStatesByUserName("alice").isEmpty());
+    assertEquals(Collections.singleton("token"), store.getStatesByUserName("bob").keySet());
+
+    store.remove(Collections.singleton("token"));
+    assertTrue(store.getStatesByUserName("bob").isEmpty());
+  }
+}
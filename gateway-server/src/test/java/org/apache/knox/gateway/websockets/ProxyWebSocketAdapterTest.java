@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.websockets;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+public class ProxyWebSocketAdapterTest {
+
+  @Test
+  public void testFailedBackendSendClosesFrontend() throws Exception {
+    final ExecutorService pool = EasyMock.createNiceMock(ExecutorService.class);
+    final Session frontendSession = EasyMock.createNiceMock(Session.class);
+    EasyMock.expect(frontendSession.isOpen()).andReturn(true).anyTimes();
+    frontendSession.close(StatusCode.SERVER_ERROR, "backend is gone");
+    EasyMock.expectLastCall().once();
+    EasyMock.replay(pool, frontendSession);
+
+    final ProxyWebSocketAdapter adapter = new ProxyWebSocketAdapter(URI.create("ws://localhost:9999/ws"), pool, null);
+    setField(adapter, "frontendSession", frontendSession);
+
+    // the frontend must not keep queueing frames towards a backend that can no longer be written to
+    final Method onBackendSendFailed = ProxyWebSocketAdapter.class.getDeclaredMethod("onBackendSendFailed", Throwable.class);
+    onBackendSendFailed.setAccessible(true);
+    onBackendSendFailed.invoke(adapter, new IOException("backend is gone"));
+
+    EasyMock.verify(frontendSession);
+    assertTrue(((AtomicBoolean) getField(adapter, "closed")).get());
+  }
+
+  private static void setField(Object target, String name, Object value) throws Exception {
+    final Field field = ProxyWebSocketAdapter.class.getDeclaredField(name);
+    field.setAccessible(true);
+    field.set(target, value);
+  }
+
+  private static Object getField(Object target, String name) throws Exception {
+    final Field field = ProxyWebSocketAdapter.class.getDeclaredField(name);
+    field.setAccessible(true);
+    return field.get(target);
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.websockets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class WebSocketRelayTest {
+
+  private RecordingSink sink;
+  private RecordingSource source;
+  private List<Throwable> failures;
+  private WebSocketProxyMetrics metrics;
+  private WebSocketRelay relay;
+
+  @Before
+  public void setUp() {
+    sink = new RecordingSink();
+    source = new RecordingSource();
+    failures = new ArrayList<>();
+    metrics = new WebSocketProxyMetrics();
+    relay = new WebSocketRelay(10, source, failures::add, metrics.toFrontend());
+  }
+
+  @Test
+  public void testMessagesAreQueuedUntilConnected() {
+    assertTrue(relay.sendText("one"));
+    assertTrue(relay.sendText("two"));
+    assertEquals(2, relay.getQueuedMessages());
+    assertTrue(sink.sent.isEmpty());
+
+    sink.completeInline = true;
+    relay.connect(sink);
+
+    assertEquals(2, sink.sent.size());
+    assertEquals("one", sink.sent.get(0));
+    assertEquals("two", sink.sent.get(1));
+    assertEquals(0, relay.getQueuedMessages());
+    assertEquals(2, relay.getForwardedMessages());
+    assertEquals(6, relay.getForwardedBytes());
+    assertEquals(0, metrics.toFrontend().getQueuedBytes());
+    assertEquals(2, metrics.toFrontend().getForwardedMessages());
+  }
+
+  @Test
+  public void testOnlyOneSendIsInFlight() {
+    relay.connect(sink);
+    relay.sendText("one");
+    relay.sendText("two");
+
+    assertEquals(1, sink.sent.size());
+    sink.complete(null);
+    assertEquals(2, sink.sent.size());
+    assertEquals("two", sink.sent.get(1));
+    sink.complete(null);
+    assertEquals(0, relay.getQueuedMessages());
+  }
+
+  @Test
+  public void testBinaryMessagesKeepTheirBuffer() {
+    sink.completeInline = true;
+    relay.connect(sink);
+    final ByteBuffer payload = ByteBuffer.wrap("binary".getBytes(StandardCharsets.UTF_8), 1, 4);
+    relay.sendBinary(payload);
+
+    assertSame(payload, sink.sent.get(0));
+    assertEquals(4, relay.getForwardedBytes());
+  }
+
+  @Test
+  public void testSourceIsSuspendedWhileQueueIsFull() {
+    relay.connect(sink);
+    relay.sendText("12345");
+    relay.sendText("12345");
+    assertEquals(0, source.suspensions);
+
+    relay.sendText("1");
+    assertEquals(1, source.suspensions);
+    assertTrue(relay.isSuspended());
+    assertEquals(1, metrics.toFrontend().getSuspensions());
+
+    /* 6 bytes left in the queue */
+    sink.complete(null);
+    assertEquals(0, source.resumptions);
+
+    /* 1 byte left */
+    sink.complete(null);
+    assertEquals(1, source.resumptions);
+    assertFalse(relay.isSuspended());
+    assertEquals(11, relay.getPeakQueuedBytes());
+  }
+
+  @Test
+  public void testQueueIsBoundedWhenSourceKeepsSending() {
+    assertTrue(relay.sendText("1234567890"));
+    assertTrue(relay.sendText("1234567890"));
+    assertFalse(relay.sendText("1"));
+    assertEquals(2, relay.getQueuedMessages());
+  }
+
+  @Test
+  public void testLargeMessageIsAcceptedIntoEmptyQueue() {
+    assertTrue(relay.sendText("a message larger than twice the limit"));
+    assertTrue(relay.isSuspended());
+  }
+
+  @Test
+  public void testFailedSendIsReportedAndNextMessageIsSent() {
+    relay.connect(sink);
+    relay.sendText("one");
+    relay.sendText("two");
+
+    final Exception failure = new Exception("broken");
+    sink.complete(failure);
+
+    assertEquals(1, failures.size());
+    assertSame(failure, failures.get(0));
+    assertEquals(2, sink.sent.size());
+    assertEquals(0, relay.getForwardedMessages());
+  }
+
+  @Test
+  public void testSinkExceptionIsReportedAsFailure() {
+    sink.throwOnSend = true;
+    relay.connect(sink);
+    relay.sendText("one");
+
+    assertEquals(1, failures.size());
+    assertEquals(0, relay.getQueuedMessages());
+  }
+
+  @Test
+  public void testCloseDropsQueueAndResumesSource() {
+    relay.connect(sink);
+    relay.sendText("1234567890");
+    relay.sendText("1");
+    assertTrue(relay.isSuspended());
+
+    relay.close();
+    assertEquals(0, relay.getQueuedMessages());
+    assertEquals(0, metrics.toFrontend().getQueuedBytes());
+    assertEquals(1, source.resumptions);
+    assertFalse(relay.sendText("late"));
+
+    /* Completing the send in flight after close must not corrupt the counters */
+    sink.complete(null);
+    assertEquals(0, relay.getQueuedBytes());
+    assertEquals(1, sink.sent.size());
+  }
+
+  @Test
+  public void testLongQueueOfInlineCompletionsDoesNotRecurse() {
+    final WebSocketRelay unbounded = new WebSocketRelay(Long.MAX_VALUE / 4, source, failures::add,
+        metrics.toBackend());
+    for (int i = 0; i < 100000; i++) {
+      unbounded.sendText("x");
+    }
+    sink.completeInline = true;
+    unbounded.connect(sink);
+    assertEquals(100000, sink.sent.size());
+    assertTrue(failures.isEmpty());
+  }
+
+  private static final class RecordingSink implements WebSocketRelay.Sink {
+    private final List<Object> sent = new ArrayList<>();
+    private WebSocketRelay.Callback pending;
+    private boolean completeInline;
+    private boolean throwOnSend;
+
+    @Override
+    public void sendText(String message, WebSocketRelay.Callback callback) {
+      send(message, callback);
+    }
+
+    @Override
+    public void sendBinary(ByteBuffer message, WebSocketRelay.Callback callback) {
+      send(message, callback);
+    }
+
+    @Override
+    public void sendPing(ByteBuffer applicationData, WebSocketRelay.Callback callback) {
+      send(applicationData, callback);
+    }
+
+    private void send(Object message, WebSocketRelay.Callback callback) {
+      if (throwOnSend) {
+        throw new IllegalStateException("closed");
+      }
+      sent.add(message);
+      if (completeInline) {
+        callback.completed(null);
+      } else {
+        pending = callback;
+      }
+    }
+
+    void complete(Throwable failure) {
+      final WebSocketRelay.Callback callback = pending;
+      pending = null;
+      callback.completed(failure);
+    }
+  }
+
+  private static final class RecordingSource implements WebSocketRelay.Source {
+    private int suspensions;
+    private int resumptions;
+
+    @Override
+    public void suspend() {
+      suspensions++;
+    }
+
+    @Override
+    public void resume() {
+      resumptions++;
+    }
+  }
+}
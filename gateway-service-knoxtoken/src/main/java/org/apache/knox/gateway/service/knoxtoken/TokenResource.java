@@ -33,6 +33,7 @@ import java.util.Enumeration;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
@@ -147,6 +148,8 @@ public class TokenResource {
   static final String KNOX_TOKEN_USER_LIMIT_PER_USER = TOKEN_PARAM_PREFIX + "limit.per.user";
   static final String KNOX_TOKEN_USER_LIMIT_EXCEEDED_ACTION = TOKEN_PARAM_PREFIX + "user.limit.exceeded.action";
   private static final String METADATA_QUERY_PARAM_PREFIX = "md_";
+  static final String QUERY_PARAMETER_OFFSET = "offset";
+  static final String QUERY_PARAMETER_LIMIT = "limit";
   private static final String TOKEN_ENABLE_DELEGATED_AUTH = TOKEN_PARAM_PREFIX + "enable.delegated.auth";
   private static final long TOKEN_TTL_DEFAULT = 30000L;
   static final String TOKEN_API_PATH = "knoxtoken/api/v1";
@@ -503,6 +506,15 @@ public class TokenResource {
         }
       });
 
+      final int offset;
+      final int limit;
+      try {
+        offset = getPagingParameter(uriInfo, QUERY_PARAMETER_OFFSET, 0);
+        limit = getPagingParameter(uriInfo, QUERY_PARAMETER_LIMIT, -1);
+      } catch (IllegalArgumentException e) {
+        return Response.status(Response.Status.BAD_REQUEST).entity("{\n  \"error\": \"" + e.getMessage() + "\"\n}\n").build();
+      }
+
       final String userName = uriInfo.getQueryParameters().getFirst("userName");
       final String createdBy = uriInfo.getQueryParameters().getFirst("createdBy");
       final String userNameOrCreatedBy = uriInfo.getQueryParameters().getFirst("userNameOrCreatedBy");
@@ -536,8 +548,40 @@ public class TokenResource {
           }
         });
       }
-      return Response.status(Response.Status.OK).entity(JsonUtils.renderAsJsonString(Collections.singletonMap("tokens", tokens))).build();
+      if (offset == 0 && limit < 0) {
+        return Response.status(Response.Status.OK).entity(JsonUtils.renderAsJsonString(Collections.singletonMap("tokens", tokens))).build();
+      }
+      final List<KnoxToken> page = tokens.stream().skip(offset).limit(limit < 0 ? Long.MAX_VALUE : limit).collect(Collectors.toList());
+      final Map<String, Object> response = new LinkedHashMap<>();
+      response.put("tokens", page);
+      response.put("total", tokens.size());
+      response.put(QUERY_PARAMETER_OFFSET, offset);
+      if (limit >= 0) {
+        response.put(QUERY_PARAMETER_LIMIT, limit);
+      }
+      return Response.status(Response.Status.OK).entity(JsonUtils.renderAsJsonString(response)).build();
+    }
+  }
+
+  /*
+   * Paging parameters of the token listing; the tokens are sorted, so pages are stable as
+   * long as no tokens are added or removed in between.
+   */
+  private static int getPagingParameter(UriInfo uriInfo, String name, int defaultValue) {
+    final String value = uriInfo.getQueryParameters().getFirst(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    final int parsed;
+    try {
+      parsed = Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(name + " must be a non-negative integer", e);
+    }
+    if (parsed < 0) {
+      throw new IllegalArgumentException(name + " must be a non-negative integer");
     }
+    return parsed;
   }
 
   @GET
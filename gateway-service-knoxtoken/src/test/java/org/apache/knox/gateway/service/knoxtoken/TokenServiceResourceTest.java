@@ -1244,12 +1244,41 @@ public class TokenServiceResourceTest {
   private Response getUserTokensResponse(TokenResource tokenResource, boolean createdBy) {
     final MultivaluedMap<String, String> queryParameters = new MultivaluedHashMap<>();
     queryParameters.put(createdBy ? "createdBy" : "userName", Arrays.asList(USER_NAME));
+    return getUserTokensResponse(tokenResource, queryParameters);
+  }
+
+  private Response getUserTokensResponse(TokenResource tokenResource, MultivaluedMap<String, String> queryParameters) {
     final UriInfo uriInfo = EasyMock.createNiceMock(UriInfo.class);
     EasyMock.expect(uriInfo.getQueryParameters()).andReturn(queryParameters).anyTimes();
     EasyMock.replay(uriInfo);
     return tokenResource.getUserTokens(uriInfo);
   }
 
+  @Test
+  public void testUserTokensArePaged() throws Exception {
+    configureCommonExpectations(new HashMap<>(), Boolean.TRUE);
+    final TokenResource tr = new TokenResource();
+    tr.request = request;
+    tr.context = context;
+    tr.init();
+    for (int i = 0; i < 5; i++) {
+      acquireToken(tr);
+    }
+
+    final MultivaluedMap<String, String> queryParameters = new MultivaluedHashMap<>();
+    queryParameters.putSingle("userName", USER_NAME);
+    queryParameters.putSingle(TokenResource.QUERY_PARAMETER_OFFSET, "3");
+    queryParameters.putSingle(TokenResource.QUERY_PARAMETER_LIMIT, "10");
+    final Map<String, Object> page = (Map<String, Object>) JsonUtils.getObjectFromJsonString(getUserTokensResponse(tr, queryParameters).getEntity().toString());
+    assertEquals(2, ((Collection<?>) page.get("tokens")).size());
+    assertEquals(5, page.get("total"));
+    assertEquals(3, page.get("offset"));
+    assertEquals(10, page.get("limit"));
+
+    queryParameters.putSingle(TokenResource.QUERY_PARAMETER_LIMIT, "-1");
+    assertEquals(400, getUserTokensResponse(tr, queryParameters).getStatus());
+  }
+
   @Test
   public void testTokenLimitPerUserExceeded() throws Exception {
     try {
@@ -36,6 +36,7 @@ import org.apache.knox.gateway.service.config.remote.config.RemoteConfigurationR
 import org.apache.knox.gateway.services.ServiceLifecycleException;
 import org.apache.knox.gateway.services.config.client.RemoteConfigurationRegistryClient;
 import org.apache.knox.gateway.services.config.client.RemoteConfigurationRegistryClient.ChildEntryListener;
+import org.apache.knox.gateway.services.config.client.RemoteConfigurationRegistryClient.ConnectionListener;
 import org.apache.knox.gateway.services.config.client.RemoteConfigurationRegistryClient.EntryListener;
 import org.apache.knox.gateway.services.security.AliasService;
 import org.apache.zookeeper.ZooDefs;
@@ -267,6 +268,12 @@ class CuratorClientService implements ZooKeeperClientService {
             }
         }
 
+        @Override
+        public void addConnectionListener(ConnectionListener listener) {
+            delegate.getConnectionStateListenable().addListener(
+                (client, newState) -> listener.connectionChanged(this, newState.isConnected()));
+        }
+
         @Override
         public String authenticationType() {
             return config.getAuthType();
@@ -18,17 +18,20 @@
 package org.apache.knox.gateway.shell.table;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
 
 public class CSVKnoxShellTableBuilder extends KnoxShellTableBuilder {
 
+  // handle comma's within quoted string values for single col
+  private static final Pattern SEPARATOR = Pattern.compile(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)");
+
   private boolean withHeaders;
 
   CSVKnoxShellTableBuilder(KnoxShellTable table) {
@@ -51,9 +54,8 @@ public class CSVKnoxShellTableBuilder extends KnoxShellTableBuilder {
   }
 
   public KnoxShellTable string(String csvString) throws IOException {
-    try (InputStream is = new ByteArrayInputStream(csvString.getBytes(StandardCharsets.UTF_8));
-        Reader stringStreamReader = new InputStreamReader(is, StandardCharsets.UTF_8);
-        BufferedReader csvReader = new BufferedReader(stringStreamReader);) {
+    // read the string in place instead of copying it into an encoded byte array first
+    try (BufferedReader csvReader = new BufferedReader(new StringReader(csvString))) {
       buildTableFromCSVReader(csvReader);
     }
     return this.table;
@@ -70,8 +72,7 @@ public class CSVKnoxShellTableBuilder extends KnoxShellTableBuilder {
       if (!addingHeaders) {
         this.table.row();
       }
-      // handle comma's within quoted string values for single col
-      String[] data = row.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)", -1);
+      String[] data = SEPARATOR.split(row, -1);
 
       for (String value : data) {
         if (addingHeaders) {
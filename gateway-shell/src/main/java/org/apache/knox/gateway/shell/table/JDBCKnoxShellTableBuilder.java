@@ -23,6 +23,8 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import org.apache.knox.gateway.shell.jdbc.JDBCUtils;
@@ -126,16 +128,19 @@ public class JDBCKnoxShellTableBuilder extends KnoxShellTableBuilder {
     for (int i = 1; i < colCount + 1; i++) {
       this.table.header(metadata.getColumnName(i));
     }
+    // rows are appended as they are read, so the result set is held only once; columns
+    // are read by index, which saves a lookup by name per value
     while (resultSet.next()) {
-      this.table.row();
+      final List<Comparable<? extends Object>> row = new ArrayList<>(colCount);
       for (int i = 1; i < colCount + 1; i++) {
         try {
-          table.value(resultSet.getObject(metadata.getColumnName(i), Comparable.class));
+          row.add(resultSet.getObject(i, Comparable.class));
         }
         catch (SQLException e) {
-          table.value(resultSet.getString(metadata.getColumnName(i)));
+          row.add(resultSet.getString(i));
         }
       }
+      this.table.rows.add(row);
     }
   }
 
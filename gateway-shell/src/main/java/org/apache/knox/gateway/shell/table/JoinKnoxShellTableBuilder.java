@@ -18,8 +18,9 @@
 package org.apache.knox.gateway.shell.table;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class JoinKnoxShellTableBuilder extends KnoxShellTableBuilder {
 
@@ -58,31 +59,40 @@ public class JoinKnoxShellTableBuilder extends KnoxShellTableBuilder {
       return on(leftIndex, rightIndex);
     }
 
+  /**
+   * Inner join of the left and right tables on the given columns. The right table is
+   * indexed by its join column once, so every left row is matched with a single hash
+   * lookup; if several right rows have the same key, the first one is joined. Left rows
+   * without a key are kept as they are.
+   */
   public KnoxShellTable on(int leftIndex, int rightIndex) {
     if (title != null) {
       this.table.title(title);
     }
 
-    this.table.headers.addAll(new ArrayList<>(left.headers));
-    for (List<Comparable<? extends Object>> row : left.rows) {
-      this.table.rows.add(new ArrayList<>(row));
+    this.table.headers.addAll(left.headers);
+    this.table.headers.addAll(right.headers);
+
+    final Map<Object, List<Comparable<? extends Object>>> rightRows = new HashMap<>();
+    for (List<Comparable<? extends Object>> rightRow : right.rows) {
+      final Comparable<? extends Object> rightKey = rightRow.get(rightIndex);
+      if (rightKey != null) {
+        rightRows.putIfAbsent(rightKey, rightRow);
+      }
     }
-    List<Comparable<? extends Object>> row;
-    Comparable<? extends Object> leftKey;
-    int matchedIndex;
 
-    this.table.headers.addAll(new ArrayList<>(right.headers));
-    for (Iterator<List<Comparable<? extends Object>>> it = this.table.rows.iterator(); it.hasNext();) {
-      row = it.next();
-      leftKey = row.get(leftIndex);
+    for (List<Comparable<? extends Object>> leftRow : left.rows) {
+      final Comparable<? extends Object> leftKey = leftRow.get(leftIndex);
+      final List<Comparable<? extends Object>> row = new ArrayList<>(leftRow.size() + right.headers.size());
+      row.addAll(leftRow);
       if (leftKey != null) {
-        matchedIndex = right.values(rightIndex).indexOf(leftKey);
-        if (matchedIndex > -1) {
-          row.addAll(right.rows.get(matchedIndex));
-        } else {
-          it.remove();
+        final List<Comparable<? extends Object>> matched = rightRows.get(leftKey);
+        if (matched == null) {
+          continue;
         }
+        row.addAll(matched);
       }
+      this.table.rows.add(row);
     }
     return this.table;
   }
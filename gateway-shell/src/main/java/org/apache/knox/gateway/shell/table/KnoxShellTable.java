@@ -86,16 +86,13 @@ public class KnoxShellTable {
   }
 
   public List<Comparable<? extends Object>> values(int colIndex) {
-    List<Comparable<? extends Object>> col = new ArrayList<>();
+    List<Comparable<? extends Object>> col = new ArrayList<>(rows.size());
     rows.forEach(row -> col.add(row.get(colIndex)));
     return col;
   }
 
   public List<Comparable<? extends Object>> values(String colName) {
-    int colIndex = headers.indexOf(colName);
-    List<Comparable<? extends Object>> col = new ArrayList<>();
-    rows.forEach(row -> col.add(row.get(colIndex)));
-    return col;
+    return values(headers.indexOf(colName));
   }
 
   private Conversions getConversion(Comparable<? extends Object> colIndex) {
@@ -133,38 +130,45 @@ public class KnoxShellTable {
   }
 
   private double[] toDoubleArray(String colName) throws IllegalArgumentException {
-    List<Comparable<? extends Object>> col = values(colName);
-    double[] colArray = new double[col.size()];
+    return toDoubleArray(headers.indexOf(colName));
+  }
+
+  /*
+   * Reads the column straight into a primitive array, without boxing it into an
+   * intermediate list first. Blank strings count as 0.
+   */
+  double[] toDoubleArray(int colIndex) throws IllegalArgumentException {
+    double[] colArray = new double[rows.size()];
     Conversions conversionMethod = null;
-    for (int i = 0; i < col.size(); i++) {
-      Object v = col.get(i);
+    for (int i = 0; i < colArray.length; i++) {
+      Comparable<? extends Object> v = rows.get(i).get(colIndex);
       if (v instanceof String && ((String) v).trim().isEmpty()) {
-        col.set(i, "0");
+        v = "0";
       }
       if (i == 0) {
-        conversionMethod = getConversion(col.get(i));
+        conversionMethod = getConversion(v);
       }
       switch (conversionMethod) {
         case DOUBLE:
-          colArray[i] = (Double) col.get(i);
+          colArray[i] = (Double) v;
           break;
         case INTEGER:
-          colArray[i] = (Integer) col.get(i);
+          colArray[i] = (Integer) v;
           break;
         case FLOAT:
-          colArray[i] = (Float) col.get(i);
+          colArray[i] = (Float) v;
           break;
         case BYTE:
-          colArray[i] = (Byte) col.get(i);
+          colArray[i] = (Byte) v;
           break;
         case SHORT:
-          colArray[i] = (Short) col.get(i);
+          colArray[i] = (Short) v;
           break;
         case LONG:
-          colArray[i] = (double) (Long) col.get(i);
+          colArray[i] = (double) (Long) v;
           break;
         case STRING:
-          colArray[i] = Double.parseDouble((String) col.get(i));
+          colArray[i] = Double.parseDouble((String) v);
           break;
       }
     }
@@ -389,18 +393,19 @@ public class KnoxShellTable {
 
   public KnoxShellTable select(String cols) {
     KnoxShellTable table = new KnoxShellTable();
-    List<List<Comparable<? extends Object>>> columns = new ArrayList<>();
     cols = cols.trim();
     String[] colnames = cols.split("\\s*,\\s*");
-    for (String colName : colnames) {
-      table.header(colName);
-      columns.add(values(headers.indexOf(colName)));
+    int[] colIndexes = new int[colnames.length];
+    for (int i = 0; i < colnames.length; i++) {
+      table.header(colnames[i]);
+      colIndexes[i] = headers.indexOf(colnames[i]);
     }
-    for (int i = 0; i < rows.size(); i++) {
-      table.row();
-      for (List<Comparable<? extends Object>> col : columns) {
-        table.value(col.get(i));
+    for (List<Comparable<? extends Object>> row : rows) {
+      List<Comparable<? extends Object>> selected = new ArrayList<>(colIndexes.length);
+      for (int colIndex : colIndexes) {
+        selected.add(row.get(colIndex));
       }
+      table.rows.add(selected);
     }
     return table;
   }
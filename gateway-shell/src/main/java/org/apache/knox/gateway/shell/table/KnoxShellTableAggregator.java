@@ -17,9 +17,18 @@
  */
 package org.apache.knox.gateway.shell.table;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.math3.stat.StatUtils;
+
 public class KnoxShellTableAggregator {
   private KnoxShellTable tableToAggregate;
   private String[] cols;
+  private String groupBy;
 
   public KnoxShellTableAggregator(KnoxShellTable table) {
     tableToAggregate = table;
@@ -30,9 +39,29 @@ public class KnoxShellTableAggregator {
     return this;
   }
 
+  /**
+   * Aggregates the columns per distinct value of the given column instead of over the
+   * whole table. The result has one row per group, in the order the groups first appear,
+   * and one column per function and aggregated column, e.g. "sum(A)".
+   * @param col the column to group by
+   * @return this aggregator
+   */
+  public KnoxShellTableAggregator groupBy(String col) {
+    this.groupBy = col;
+    return this;
+  }
+
   public KnoxShellTable functions(String funcs) {
     String[] functions = funcs.split("\\s*,\\s*");
+    // each column is converted once, whatever the number of functions
+    double[][] values = new double[cols.length][];
+    for (int i = 0; i < cols.length; i++) {
+      values[i] = tableToAggregate.toDoubleArray(tableToAggregate.headers.indexOf(cols[i]));
+    }
+    return groupBy == null ? aggregate(functions, values) : aggregateGroups(functions, values);
+  }
 
+  private KnoxShellTable aggregate(String[] functions, double[][] values) {
     KnoxShellTable table = new KnoxShellTable();
     table.header("");
     for (String col : cols) {
@@ -42,33 +71,85 @@ public class KnoxShellTableAggregator {
     for (String func : functions) {
       table.row();
       table.value(func);
+      for (double[] colValues : values) {
+        table.value(executeFunction(colValues, func));
+      }
+    }
+    return table;
+  }
+
+  private KnoxShellTable aggregateGroups(String[] functions, double[][] values) {
+    KnoxShellTable table = new KnoxShellTable();
+    table.header(groupBy);
+    for (String func : functions) {
       for (String col : cols) {
-        table.value(executeFunction(col, func));
+        table.header(func + "(" + col + ")");
+      }
+    }
+
+    // one hash pass to find the rows of each group
+    final int groupByIndex = tableToAggregate.headers.indexOf(groupBy);
+    final Map<Comparable<? extends Object>, RowIndexes> groups = new LinkedHashMap<>();
+    for (int row = 0; row < tableToAggregate.rows.size(); row++) {
+      groups.computeIfAbsent(tableToAggregate.rows.get(row).get(groupByIndex), key -> new RowIndexes()).add(row);
+    }
+
+    for (Map.Entry<Comparable<? extends Object>, RowIndexes> group : groups.entrySet()) {
+      final List<double[]> groupValues = new ArrayList<>(values.length);
+      for (double[] colValues : values) {
+        groupValues.add(group.getValue().select(colValues));
+      }
+      table.row();
+      table.value(group.getKey());
+      for (String func : functions) {
+        for (double[] colValues : groupValues) {
+          table.value(executeFunction(colValues, func));
+        }
       }
     }
     return table;
   }
 
-  private Double executeFunction(String col, String func) {
+  private static Double executeFunction(double[] values, String func) {
     Double value = 0.0d;
     if ("min".equalsIgnoreCase(func)) {
-      value = tableToAggregate.min(col);
+      value = StatUtils.min(values);
     }
     else if ("max".equalsIgnoreCase(func)) {
-      value = tableToAggregate.max(col);
+      value = StatUtils.max(values);
     }
     else if ("mean".equalsIgnoreCase(func)) {
-      value = tableToAggregate.mean(col);
+      value = StatUtils.mean(values);
     }
     else if ("mode".equalsIgnoreCase(func)) {
-      value = tableToAggregate.mode(col);
+      value = StatUtils.mode(values)[0];
     }
     else if ("median".equalsIgnoreCase(func)) {
-      value = tableToAggregate.median(col);
+      value = StatUtils.percentile(values, 50);
     }
     else if ("sum".equalsIgnoreCase(func)) {
-      value = tableToAggregate.sum(col);
+      value = StatUtils.sum(values);
     }
     return value;
   }
+
+  private static final class RowIndexes {
+    private int[] indexes = new int[4];
+    private int size;
+
+    void add(int index) {
+      if (size == indexes.length) {
+        indexes = Arrays.copyOf(indexes, size * 2);
+      }
+      indexes[size++] = index;
+    }
+
+    double[] select(double[] colValues) {
+      final double[] selected = new double[size];
+      for (int i = 0; i < size; i++) {
+        selected[i] = colValues[indexes[i]];
+      }
+      return selected;
+    }
+  }
 }
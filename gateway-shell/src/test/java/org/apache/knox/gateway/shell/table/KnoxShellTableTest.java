@@ -422,8 +422,8 @@ public class KnoxShellTableTest {
         return false;
       }
     }).times(2);
-    expect(resultSet.getObject("BOOK_ID", Comparable.class)).andReturn("1").times(1);
-    expect(resultSet.getObject("TITLE", Comparable.class)).andReturn("Apache Knox: The Definitive Guide").times(1);
+    expect(resultSet.getObject(1, Comparable.class)).andReturn("1").times(1);
+    expect(resultSet.getObject(2, Comparable.class)).andReturn("Apache Knox: The Definitive Guide").times(1);
     expect(metadata.getTableName(1)).andReturn("BOOK");
     expect(metadata.getColumnCount()).andReturn(2);
     expect(metadata.getColumnName(1)).andReturn("BOOK_ID").anyTimes();
@@ -731,6 +731,43 @@ knox:000> test.aggregate() columns "A,B,C" functions "min, max, mean, median, mo
       assertEquals(500.0, report.cell(1,5).value);
   }
 
+  @Test
+  public void testAggregateGroupBy() throws Exception {
+    KnoxShellTable table = new KnoxShellTable();
+    table.header("K").header("A").header("B");
+    table.row().value("x").value(100).value("200");
+    table.row().value("y").value(200).value("300");
+    table.row().value("x").value(300).value("");
+    KnoxShellTable report = table.aggregate().columns("A,B").groupBy("K").functions("sum,max");
+
+    assertEquals(Arrays.asList("K", "sum(A)", "sum(B)", "max(A)", "max(B)"), report.getHeaders());
+    assertEquals(2, report.getRows().size());
+    assertEquals(Arrays.asList("x", 400.0, 200.0, 300.0, 200.0), report.getRows().get(0));
+    assertEquals(Arrays.asList("y", 200.0, 300.0, 200.0, 300.0), report.getRows().get(1));
+  }
+
+  @Test
+  public void testJoinUsesFirstMatchingRow() {
+    KnoxShellTable left = new KnoxShellTable();
+    left.header("id").header("name");
+    left.row().value(1).value("a");
+    left.row().value(2).value("b");
+    left.row().value(3).value("c");
+
+    KnoxShellTable right = new KnoxShellTable();
+    right.header("ref").header("value");
+    right.row().value(2).value("first");
+    right.row().value(2).value("second");
+    right.row().value(1).value("only");
+
+    KnoxShellTable joined = KnoxShellTable.builder().join().left(left).right(right).on("id", "ref");
+
+    assertEquals(Arrays.asList("id", "name", "ref", "value"), joined.getHeaders());
+    assertEquals(2, joined.getRows().size());
+    assertEquals(Arrays.asList(1, "a", 1, "only"), joined.getRows().get(0));
+    assertEquals(Arrays.asList(2, "b", 2, "first"), joined.getRows().get(1));
+  }
+
   @Test
   public void shouldReturnDifferentCallHistoryForDifferentTables() throws Exception {
     final KnoxShellTable table1 = new KnoxShellTable();
@@ -50,6 +50,7 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
   public static final int DEFAULT_WEBSOCKET_ASYNC_WRITE_TIMEOUT = 60000;
   public static final int DEFAULT_WEBSOCKET_IDLE_TIMEOUT = 300000;
   public static final int DEFAULT_WEBSOCKET_MAX_WAIT_BUFFER_COUNT = 100;
+  public static final int DEFAULT_WEBSOCKET_MAX_QUEUED_BYTES = 1024 * 1024;
   private static final boolean DEFAULT_WEBSHELL_FEATURE_ENABLED = false ;
   private static final boolean DEFAULT_WEBSHELL_AUDIT_LOGGING_ENABLED = false;
   public static final int DEFAULT_WEBSHELL_MAX_CONCURRENT_SESSIONS = 3;
@@ -447,6 +448,21 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
     return -1;
   }
 
+  @Override
+  public int getHttpClientMaxConnectionsPerRoute() {
+    return -1;
+  }
+
+  @Override
+  public long getHttpClientConnectionTimeToLive() {
+    return -1;
+  }
+
+  @Override
+  public long getHttpClientIdleConnectionTimeout() {
+    return -1;
+  }
+
   @Override
   public int getHttpClientSocketTimeout() {
     return -1;
@@ -641,6 +657,11 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
     return DEFAULT_WEBSOCKET_MAX_WAIT_BUFFER_COUNT;
   }
 
+  @Override
+  public int getWebsocketMaxQueuedBytes() {
+    return DEFAULT_WEBSOCKET_MAX_QUEUED_BYTES;
+  }
+
   @Override
   public boolean isMetricsEnabled() {
     return false;
@@ -863,6 +884,31 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
     return false;
   }
 
+  @Override
+  public boolean isTopologyHotRedeployEnabled() {
+    return false;
+  }
+
+  @Override
+  public int getStartupTopologyDeploymentThreads() {
+    return 1;
+  }
+
+  @Override
+  public int getAuditQueueSize() {
+    return 0;
+  }
+
+  @Override
+  public boolean isAuditQueueDropWhenFull() {
+    return false;
+  }
+
+  @Override
+  public int getRewriteRuleMatchCacheSize() {
+    return 256;
+  }
+
   @Override
   public List<String> getXForwardContextAppendServices() {
     return null;
@@ -918,6 +964,11 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
     return CLOUDERA_MANAGER_SERVICE_DISCOVERY_ROLE_FETCH_STRATEGY_BY_ROLE;
   }
 
+  @Override
+  public int getClouderaManagerServiceDiscoveryConcurrency() {
+    return DEFAULT_CM_SERVICE_DISCOVERY_CONCURRENCY;
+  }
+
   @Override
   public Set<String> getClouderaManagerClientSSLProtocols() {
     return Set.of();
@@ -948,6 +999,21 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
     return 0;
   }
 
+  @Override
+  public long getKnoxTokenStateDatabaseBatchWindow() {
+    return 0;
+  }
+
+  @Override
+  public int getKnoxTokenStateDatabaseBatchSize() {
+    return 0;
+  }
+
+  @Override
+  public long getKnoxTokenStateDatabaseExpirationCacheTtl() {
+    return 0;
+  }
+
   @Override
   public String getKnoxTokenHashAlgorithm() {
     return null;
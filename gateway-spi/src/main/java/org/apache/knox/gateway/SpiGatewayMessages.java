@@ -150,4 +150,25 @@ public interface SpiGatewayMessages {
 
   @Message( level = MessageLevel.ERROR, text = "Async support is not enabled. SSEDispatch request failed." )
   void asyncSupportNotEnabled();
+
+  @Message( level = MessageLevel.DEBUG, text = "Falling back to blocking dispatch for {0}, the response is rewritten by the gateway" )
+  void asyncDispatchFallbackToBlocking(String url);
+
+  @Message( level = MessageLevel.WARN, text = "Client connection closed during async dispatch: {0}" )
+  void asyncDispatchClientError(String error);
+
+  @Message( level = MessageLevel.WARN, text = "Async dispatch cancelled: {0}" )
+  void asyncDispatchCancelled(String url);
+
+  @Message( level = MessageLevel.DEBUG, text = "Non-blocking read of the inbound request body is not available, dispatching with the blocking client: {0}" )
+  void asyncRequestBodyBlockingRead(String error);
+
+  @Message( level = MessageLevel.WARN, text = "Async dispatch timed out after {0} ms" )
+  void asyncDispatchTimedOut(long timeout);
+
+  @Message( level = MessageLevel.INFO, text = "HTTP client connection pool for {0}: max total {1}, max per route {2}, connection TTL {3} ms, idle timeout {4} ms" )
+  void setHttpClientConnectionPool(String serviceRole, int maxTotal, int maxPerRoute, long timeToLive, long idleTimeout);
+
+  @Message( level = MessageLevel.WARN, text = "Failed to evict idle HTTP client connections: {0}" )
+  void connectionEvictionFailed(@StackTrace(level=MessageLevel.DEBUG) Exception e);
 }
@@ -119,6 +119,8 @@ public interface GatewayConfig {
 
   int DEFAULT_CM_SERVICE_DISCOVERY_MAX_RETRY_ATTEMPTS = 3;
 
+  int DEFAULT_CM_SERVICE_DISCOVERY_CONCURRENCY = 8;
+
   String DEFAULT_API_SERVICES_VIEW_VERSION = "v1";
   boolean DEFAULT_GROUP_UI_SERVICES = false;
 
@@ -259,6 +261,23 @@ public interface GatewayConfig {
 
   int getHttpClientSocketTimeout();
 
+  /**
+   * @return the maximum number of pooled dispatch connections per backend route, or -1 to allow
+   * {@link #getHttpClientMaxConnections()} connections for every route
+   */
+  int getHttpClientMaxConnectionsPerRoute();
+
+  /**
+   * @return the maximum lifetime of a pooled dispatch connection in milliseconds, or -1 for no limit
+   */
+  long getHttpClientConnectionTimeToLive();
+
+  /**
+   * @return the time in milliseconds after which idle pooled dispatch connections are evicted,
+   * or -1 to keep idle connections until the backend closes them
+   */
+  long getHttpClientIdleConnectionTimeout();
+
   /**
    * Returns the configured value for the path to the truststore to be used by the HTTP client instance
    * connecting to a service from the Gateway.
@@ -485,6 +504,13 @@ public interface GatewayConfig {
    */
   int getWebsocketMaxWaitBufferCount();
 
+  /**
+   * Max bytes of messages that may be queued per direction of a proxied websocket connection
+   * before reading from the sending side is suspended.
+   * @return queue size in bytes
+   */
+  int getWebsocketMaxQueuedBytes();
+
   boolean isMetricsEnabled();
 
   boolean isJmxMetricsReportingEnabled();
@@ -729,6 +755,47 @@ public interface GatewayConfig {
    */
   boolean topologyRedeploymentRequiresChanges();
 
+  /**
+   * @return true if a changed topology whose deployment only differs in its
+   *         filter chains is applied to the running deployment, instead of
+   *         exporting a new deployment and starting a new web application for it
+   *
+   * @since 3.0.0
+   */
+  boolean isTopologyHotRedeployEnabled();
+
+  /**
+   * @return the number of threads building the deployments of the topologies found at
+   *         startup in parallel; with 1 or less they are deployed one after the other
+   *
+   * @since 3.0.0
+   */
+  int getStartupTopologyDeploymentThreads();
+
+  /**
+   * @return the maximum number of audit events waiting for the background audit writer;
+   *         with 0 or less audit events are written on the request thread
+   *
+   * @since 3.0.0
+   */
+  int getAuditQueueSize();
+
+  /**
+   * @return true if audit events are dropped, instead of making the request thread wait,
+   *         when the audit queue is full
+   *
+   * @since 3.0.0
+   */
+  boolean isAuditQueueDropWhenFull();
+
+  /**
+   * @return the maximum number of URLs whose implicit rewrite rule is remembered by the
+   *         rewrite processor of a topology; 0 or less matches the rules for every URL
+   *
+   * @since 3.0.0
+   */
+  int getRewriteRuleMatchCacheSize();
+
   /**
    * Returns a list of services that need service name appended to
    * X-Forward-Context header as a result of which the new header would look
@@ -802,6 +869,15 @@ public interface GatewayConfig {
 
   String getClouderaManagerServiceDiscoveryRoleFetchStrategy();
 
+  /**
+   * @return the maximum number of services whose configurations are fetched from
+   *         Cloudera Manager concurrently, shared by all clusters being discovered;
+   *         1 discovers the services of a cluster one after the other
+   *
+   * @since 3.0.0
+   */
+  int getClouderaManagerServiceDiscoveryConcurrency();
+
   Set<String> getClouderaManagerClientSSLProtocols();
 
   List<String> getClouderaManagerClientSSLCiphers();
@@ -830,6 +906,25 @@ public interface GatewayConfig {
    */
   long getKnoxTokenStateAliasPersistenceInterval();
 
+  /**
+   * @return how long (in milliseconds) the database token state service waits for further
+   *         token state changes before writing them to the database in a single batch; with 0
+   *         only the changes that queued up while the previous batch was written are batched
+   */
+  long getKnoxTokenStateDatabaseBatchWindow();
+
+  /**
+   * @return the maximum number of token state changes written to the database in a single batch
+   */
+  int getKnoxTokenStateDatabaseBatchSize();
+
+  /**
+   * @return how long (in milliseconds) the database token state service may answer token expiration
+   *         lookups from memory; 0 means every lookup goes to the database, which is required for
+   *         changes made by other gateway instances to be visible right away
+   */
+  long getKnoxTokenStateDatabaseExpirationCacheTtl();
+
   /**
    * @return the HMAC algorithm name to be used to sign generated Knox Token content (e.g. the token.id claim)
    */
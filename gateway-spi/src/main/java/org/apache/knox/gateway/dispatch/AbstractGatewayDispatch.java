@@ -19,10 +19,10 @@ package org.apache.knox.gateway.dispatch;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationService;
 import org.apache.knox.gateway.filter.GatewayResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.logging.log4j.ThreadContext;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -40,7 +40,7 @@ public abstract class AbstractGatewayDispatch implements Dispatch {
   private static final Set<String> REQUEST_EXCLUDE_HEADERS = new HashSet<>(Arrays.asList(
       "Host", "Authorization", "Content-Length", "Transfer-Encoding"));
   protected static final String REQUEST_ID_HEADER_NAME = "X-Request-Id";
-  protected static final String TRACE_ID = "trace_id";
+  protected static final String TRACE_ID = Log4jCorrelationService.KEY_TRACE_ID;
 
   protected  HttpClient client;
 
@@ -133,12 +133,14 @@ public abstract class AbstractGatewayDispatch implements Dispatch {
      Only do this when
       1. incoming request does not have X-Request-Id header (if it has no need to add)
       2. This header is not in exclude header list
-      3. This header is present in the MDC context
+      3. There is a trace ID, see Log4jCorrelationService#getTraceId()
      **/
     if(StringUtils.isBlank(inboundRequest.getHeader(REQUEST_ID_HEADER_NAME)) &&
-        !getOutboundRequestExcludeHeaders().contains( REQUEST_ID_HEADER_NAME ) &&
-        ThreadContext.containsKey(TRACE_ID)) {
-      outboundRequest.addHeader( REQUEST_ID_HEADER_NAME,  ThreadContext.get(TRACE_ID));
+        !getOutboundRequestExcludeHeaders().contains( REQUEST_ID_HEADER_NAME )) {
+      final String traceId = Log4jCorrelationService.getTraceId();
+      if (traceId != null) {
+        outboundRequest.addHeader( REQUEST_ID_HEADER_NAME, traceId );
+      }
     }
 
     while( headerNames.hasMoreElements() ) {
@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.knox.gateway.audit.api.Action;
+import org.apache.knox.gateway.audit.api.ActionOutcome;
+import org.apache.knox.gateway.audit.api.CorrelationContext;
+import org.apache.knox.gateway.audit.api.CorrelationService;
+import org.apache.knox.gateway.audit.api.CorrelationServiceFactory;
+import org.apache.knox.gateway.audit.api.ResourceType;
+import org.apache.knox.gateway.config.Configure;
+import org.apache.knox.gateway.config.Default;
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.filter.GatewayResponse;
+import org.apache.knox.gateway.services.GatewayServices;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.FilterConfig;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link ConfigurableDispatch} that executes outbound requests on the shared
+ * async HTTP client instead of holding the Jetty request thread until the backend
+ * has answered.
+ * <p>
+ * The inbound request is put into async mode, the request body is streamed to the
+ * backend as the client sends it and the response body is relayed to the client with
+ * non-blocking servlet writes. Responses that are rewritten by the gateway
+ * ({@link GatewayResponse}) need a pull based {@link java.io.InputStream} and are
+ * dispatched with the blocking client, as are all requests when async support is
+ * not enabled for the topology.
+ */
+public class AsyncConfigurableDispatch extends ConfigurableDispatch implements AsyncDispatch {
+
+  static final int DEFAULT_ASYNC_BUFFER_SIZE = 8 * 1024;
+  static final int DEFAULT_MAX_ASYNC_BUFFERED_BYTES = 256 * 1024;
+  static final long DEFAULT_ASYNC_TIMEOUT = 5 * 60 * 1000L;
+
+  protected HttpAsyncClient asyncClient;
+  private final boolean asyncSupported;
+  private int asyncBufferSize = DEFAULT_ASYNC_BUFFER_SIZE;
+  private int maxAsyncBufferedBytes = DEFAULT_MAX_ASYNC_BUFFERED_BYTES;
+  private long asyncTimeout = DEFAULT_ASYNC_TIMEOUT;
+
+  public AsyncConfigurableDispatch(FilterConfig filterConfig) {
+    GatewayConfig gatewayConfig = (GatewayConfig) filterConfig.getServletContext().getAttribute(GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE);
+    String topologyName = (String) filterConfig.getServletContext().getAttribute(GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE);
+    this.asyncSupported = gatewayConfig.isAsyncSupported() || gatewayConfig.isTopologyAsyncSupported(topologyName);
+    if (asyncSupported) {
+      HttpAsyncClientFactory asyncClientFactory = new DefaultHttpAsyncClientFactory();
+      this.asyncClient = asyncClientFactory.createAsyncHttpClient(filterConfig);
+
+      if (asyncClient instanceof CloseableHttpAsyncClient) {
+        ((CloseableHttpAsyncClient) this.asyncClient).start();
+      }
+    }
+  }
+
+  @Configure
+  protected void setAsyncBufferSize(@Default("8192") int size) {
+    this.asyncBufferSize = size > 0 ? size : DEFAULT_ASYNC_BUFFER_SIZE;
+  }
+
+  @Configure
+  protected void setMaxAsyncBufferedBytes(@Default("262144") int size) {
+    this.maxAsyncBufferedBytes = size > 0 ? size : DEFAULT_MAX_ASYNC_BUFFERED_BYTES;
+  }
+
+  /**
+   * Bounds the whole exchange, including relaying the response body to the client.
+   */
+  @Configure
+  protected void setAsyncTimeout(@Default("300000") long timeout) {
+    this.asyncTimeout = timeout > 0 ? timeout : DEFAULT_ASYNC_TIMEOUT;
+  }
+
+  @Override
+  protected HttpEntity createRequestEntity(HttpServletRequest request) throws IOException {
+    if (!asyncSupported || isKerberosSecured()) {
+      // SPNEGO may need to replay the request body, which the async entity cannot do
+      return super.createRequestEntity(request);
+    }
+    String contentType = request.getContentType();
+    return new AsyncRequestEntity(request.getInputStream(), request.getContentLength(),
+        contentType == null ? null : ContentType.parse(contentType));
+  }
+
+  @Override
+  protected void executeRequest(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest,
+                                HttpServletResponse outboundResponse) throws IOException {
+    HttpEntity requestEntity = getRequestEntity(outboundRequest);
+    // Any other request body, e.g. the replayable one used with Kerberos, is read blocking,
+    // which must not happen on the I/O threads of the async client
+    if (!asyncSupported || outboundResponse instanceof GatewayResponse || !inboundRequest.isAsyncSupported()
+        || (requestEntity != null && !(requestEntity instanceof AsyncRequestEntity))) {
+      LOG.asyncDispatchFallbackToBlocking(outboundRequest.getURI().toString());
+      super.executeRequest(outboundRequest, inboundRequest, outboundResponse);
+      return;
+    }
+
+    if (!isKerberosSecured()) {
+      addCredentialsToRequest(outboundRequest);
+    }
+
+    AsyncContext asyncContext = inboundRequest.startAsync();
+    asyncContext.setTimeout(asyncTimeout);
+
+    if (requestEntity instanceof AsyncRequestEntity && !((AsyncRequestEntity) requestEntity).startNonBlocking()) {
+      // The body can only be read blocking, which must not happen on the I/O threads of the async client
+      try {
+        super.executeRequest(outboundRequest, inboundRequest, outboundResponse);
+      } finally {
+        asyncContext.complete();
+      }
+      return;
+    }
+
+    final URI url = outboundRequest.getURI();
+    HttpAsyncRequestProducer producer = HttpAsyncMethods.create(outboundRequest);
+    AsyncResponseRelay relay = new AsyncResponseRelay(asyncContext,
+        inboundResponse -> writeOutboundResponseHeaders(outboundRequest, inboundRequest, outboundResponse, inboundResponse),
+        asyncBufferSize, maxAsyncBufferedBytes);
+    asyncContext.addListener(relay);
+
+    LOG.dispatchRequest(outboundRequest.getMethod(), url);
+    auditor.audit(Action.DISPATCH, url.toString(), ResourceType.URI, ActionOutcome.UNAVAILABLE, RES.requestMethod(outboundRequest.getMethod()));
+    Future<HttpResponse> exchange = asyncClient.execute(producer, relay, new AsyncDispatchCallback(url, relay));
+    relay.setExchange(exchange);
+  }
+
+  /**
+   * Copies status and headers of the inbound response, the body follows through the relay.
+   */
+  protected void writeOutboundResponseHeaders(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest,
+                                              HttpServletResponse outboundResponse, HttpResponse inboundResponse) {
+    int statusCode = inboundResponse.getStatusLine().getStatusCode();
+    LOG.dispatchResponseStatusCode(statusCode);
+    outboundResponseWrapper(outboundRequest, inboundRequest, outboundResponse);
+    outboundResponse.setStatus(statusCode);
+    copyResponseHeaderFields(outboundResponse, inboundResponse);
+    HttpEntity entity = inboundResponse.getEntity();
+    if (entity != null) {
+      outboundResponse.setContentType(getInboundResponseContentType(entity));
+    }
+    auditor.audit(Action.DISPATCH, outboundRequest.getURI().toString(), ResourceType.URI, ActionOutcome.SUCCESS, RES.responseStatus(statusCode));
+  }
+
+  private static HttpEntity getRequestEntity(HttpUriRequest outboundRequest) {
+    if (outboundRequest instanceof HttpEntityEnclosingRequest) {
+      return ((HttpEntityEnclosingRequest) outboundRequest).getEntity();
+    }
+    return null;
+  }
+
+  @Override
+  public void destroy() {
+    try {
+      if (asyncClient instanceof CloseableHttpAsyncClient) {
+        ((CloseableHttpAsyncClient) asyncClient).close();
+      }
+    } catch (IOException e) {
+      LOG.errorClosingHttpClient(e);
+    }
+  }
+
+  public HttpAsyncClient getAsyncClient() {
+    return asyncClient;
+  }
+
+  private static class AsyncDispatchCallback implements FutureCallback<HttpResponse> {
+    private static final CorrelationService CORRELATION_SERVICE = CorrelationServiceFactory.getCorrelationService();
+
+    private final URI url;
+    private final AsyncResponseRelay relay;
+    // Created on the request thread, the callbacks run on the I/O threads of the async client
+    private final CorrelationContext correlationContext = CORRELATION_SERVICE.getContext();
+
+    AsyncDispatchCallback(URI url, AsyncResponseRelay relay) {
+      this.url = url;
+      this.relay = relay;
+    }
+
+    @Override
+    public void completed(HttpResponse response) {
+      correlated(() -> {
+        try {
+          relay.finish();
+        } catch (IOException e) {
+          LOG.asyncDispatchClientError(e.getMessage());
+          relay.abort(HttpStatus.SC_BAD_GATEWAY);
+        }
+      });
+    }
+
+    @Override
+    public void failed(Exception ex) {
+      correlated(() -> {
+        // We do not want to expose back end host. port end points to clients, see JIRA KNOX-58
+        auditor.audit(Action.DISPATCH, url.toString(), ResourceType.URI, ActionOutcome.FAILURE);
+        LOG.dispatchServiceConnectionException(url, ex);
+        relay.abort(HttpStatus.SC_BAD_GATEWAY);
+      });
+    }
+
+    @Override
+    public void cancelled() {
+      correlated(() -> {
+        LOG.asyncDispatchCancelled(url.toString());
+        relay.abort(HttpStatus.SC_BAD_GATEWAY);
+      });
+    }
+
+    private void correlated(Runnable task) {
+      if (correlationContext == null) {
+        task.run();
+        return;
+      }
+      CORRELATION_SERVICE.attachContext(correlationContext);
+      try {
+        task.run();
+      } finally {
+        CORRELATION_SERVICE.detachContext();
+      }
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A request entity backed by the inbound {@link ServletInputStream} that can feed the
+ * async HTTP client without blocking.
+ * <p>
+ * Until {@link #startNonBlocking()} is called the entity behaves like a plain
+ * {@link InputStreamEntity} so it can still be used by the blocking dispatch path.
+ * Once started, bytes are only read when the container reports them as available and
+ * the outbound connection is suspended whenever the client has nothing more to give.
+ * The async client must only be given a started entity, since {@link #produceContent}
+ * runs on its I/O threads and must never block on the inbound stream.
+ */
+public class AsyncRequestEntity extends InputStreamEntity implements HttpAsyncContentProducer, ReadListener {
+
+  private final ServletInputStream input;
+  private final ByteBuffer buffer = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE);
+  private volatile IOControl ioControl;
+  private volatile boolean nonBlocking;
+  private volatile boolean endOfStream;
+  private volatile Throwable error;
+
+  public AsyncRequestEntity(final ServletInputStream input, final long length, final ContentType contentType) {
+    super(input, length, contentType);
+    this.input = input;
+    buffer.flip();
+  }
+
+  /**
+   * Switches the entity to non-blocking reads. Must be called after the inbound request
+   * has been put into async mode.
+   *
+   * @return <code>true</code> if the container accepted the read listener
+   */
+  public boolean startNonBlocking() {
+    try {
+      input.setReadListener(this);
+      nonBlocking = true;
+    } catch (IllegalStateException | UnsupportedOperationException e) {
+      DefaultDispatch.LOG.asyncRequestBodyBlockingRead(e.getMessage());
+      nonBlocking = false;
+    }
+    return nonBlocking;
+  }
+
+  @Override
+  public synchronized void produceContent(final ContentEncoder encoder, final IOControl ioctl) throws IOException {
+    this.ioControl = ioctl;
+    if (!nonBlocking) {
+      throw new IOException("The request body can only be produced once non-blocking reads were started");
+    }
+    while (true) {
+      if (error != null) {
+        throw new IOException(error);
+      }
+      if (buffer.hasRemaining()) {
+        encoder.write(buffer);
+        if (buffer.hasRemaining()) {
+          // The outbound channel is full, wait for the next produceContent callback
+          return;
+        }
+      }
+      if (endOfStream) {
+        encoder.complete();
+        return;
+      }
+      if (!input.isReady()) {
+        // onDataAvailable, onAllDataRead or onError will request output again. They may
+        // already have run before the suspension and found nothing to wake up, so check
+        // once more after suspending.
+        ioctl.suspendOutput();
+        if (error == null && !input.isReady()) {
+          return;
+        }
+        ioctl.requestOutput();
+        continue;
+      }
+      buffer.clear();
+      int read = input.read(buffer.array(), 0, buffer.capacity());
+      if (read < 0) {
+        endOfStream = true;
+        buffer.limit(0);
+      } else {
+        buffer.limit(read);
+      }
+    }
+  }
+
+  @Override
+  public void onDataAvailable() {
+    requestOutput();
+  }
+
+  @Override
+  public void onAllDataRead() {
+    requestOutput();
+  }
+
+  @Override
+  public void onError(final Throwable t) {
+    error = t;
+    requestOutput();
+  }
+
+  private void requestOutput() {
+    IOControl control = ioControl;
+    if (control != null) {
+      control.requestOutput();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!nonBlocking) {
+      input.close();
+    }
+  }
+}
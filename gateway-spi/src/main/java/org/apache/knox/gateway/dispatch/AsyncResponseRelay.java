@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.AsyncByteConsumer;
+import org.apache.http.protocol.HttpContext;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Future;
+
+/**
+ * Relays an inbound response body from the async HTTP client to the servlet response
+ * using non-blocking servlet writes.
+ * <p>
+ * Chunks received from the backend are queued until the container can accept them.
+ * Once more than <code>maxBufferedBytes</code> are queued, input from the backend is
+ * suspended and only resumed after the queue has been drained by
+ * {@link #onWritePossible()}, so a slow client never causes unbounded buffering.
+ * <p>
+ * Registered as {@link AsyncListener} it also ends exchanges that exceed the async
+ * timeout of the inbound request, answering with 504 if nothing was committed yet.
+ */
+public class AsyncResponseRelay extends AsyncByteConsumer<HttpResponse> implements WriteListener, AsyncListener {
+
+  public interface ResponseHeadersHandler {
+    void onResponseHeaders(HttpResponse inboundResponse) throws IOException;
+  }
+
+  private final AsyncContext asyncContext;
+  private final ResponseHeadersHandler headersHandler;
+  private final int maxBufferedBytes;
+  private final Queue<byte[]> pending = new ArrayDeque<>();
+  private HttpResponse inboundResponse;
+  private ServletOutputStream output;
+  private IOControl ioControl;
+  private long pendingBytes;
+  private boolean inputSuspended;
+  private boolean unflushed;
+  private boolean finished;
+  private boolean released;
+  private volatile Future<HttpResponse> exchange;
+
+  public AsyncResponseRelay(AsyncContext asyncContext, ResponseHeadersHandler headersHandler,
+                            int bufferSize, int maxBufferedBytes) {
+    super(bufferSize);
+    this.asyncContext = asyncContext;
+    this.headersHandler = headersHandler;
+    this.maxBufferedBytes = maxBufferedBytes;
+  }
+
+  @Override
+  protected void onResponseReceived(final HttpResponse response) throws IOException {
+    this.inboundResponse = response;
+    headersHandler.onResponseHeaders(response);
+    if (response.getEntity() != null) {
+      ServletOutputStream stream = asyncContext.getResponse().getOutputStream();
+      synchronized (this) {
+        output = stream;
+      }
+      // The container calls onWritePossible once the stream is ready
+      stream.setWriteListener(this);
+    }
+  }
+
+  @Override
+  protected void onByteReceived(final ByteBuffer buf, final IOControl ioctl) throws IOException {
+    byte[] chunk = new byte[buf.remaining()];
+    buf.get(chunk);
+    synchronized (this) {
+      ioControl = ioctl;
+      pending.add(chunk);
+      pendingBytes += chunk.length;
+      if (pendingBytes >= maxBufferedBytes && !inputSuspended) {
+        inputSuspended = true;
+        ioctl.suspendInput();
+      }
+    }
+    drain();
+  }
+
+  @Override
+  protected HttpResponse buildResult(final HttpContext context) {
+    return inboundResponse;
+  }
+
+  @Override
+  public void onWritePossible() throws IOException {
+    drain();
+  }
+
+  @Override
+  public void onError(final Throwable t) {
+    DefaultDispatch.LOG.asyncDispatchClientError(t.getMessage());
+    synchronized (this) {
+      pending.clear();
+      pendingBytes = 0;
+    }
+    // Stops reading from the backend, the dispatch callback releases the async context
+    stopExchange();
+  }
+
+  @Override
+  public void onTimeout(final AsyncEvent event) {
+    DefaultDispatch.LOG.asyncDispatchTimedOut(event.getAsyncContext().getTimeout());
+    // Answer first, cancelling may report the exchange as failed right away
+    abort(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+    stopExchange();
+  }
+
+  @Override
+  public void onComplete(final AsyncEvent event) {
+    // released by finish or abort
+  }
+
+  @Override
+  public void onError(final AsyncEvent event) {
+    // the exchange reports its own failures through the dispatch callback
+  }
+
+  @Override
+  public void onStartAsync(final AsyncEvent event) {
+    // registered after the request went async
+  }
+
+  public void setExchange(Future<HttpResponse> exchange) {
+    this.exchange = exchange;
+  }
+
+  /**
+   * Marks the backend response as fully received and completes the servlet response
+   * as soon as all queued bytes have been written.
+   */
+  public void finish() throws IOException {
+    synchronized (this) {
+      finished = true;
+    }
+    drain();
+  }
+
+  /**
+   * Aborts the relay after a backend failure, reporting the given status to the client
+   * if nothing has been committed yet.
+   */
+  public synchronized void abort(int statusCode) {
+    if (released) {
+      return;
+    }
+    pending.clear();
+    pendingBytes = 0;
+    try {
+      HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+      if (!response.isCommitted()) {
+        response.sendError(statusCode, "Service connection error");
+      }
+    } catch (Exception e) {
+      DefaultDispatch.LOG.failedToSendErrorToClient(e);
+    } finally {
+      release();
+    }
+  }
+
+  public synchronized long getPendingBytes() {
+    return pendingBytes;
+  }
+
+  private synchronized void drain() throws IOException {
+    if (released) {
+      return;
+    }
+    if (output == null) {
+      if (finished) {
+        release();
+      }
+      return;
+    }
+    while (output.isReady()) {
+      byte[] chunk = pending.poll();
+      if (chunk == null) {
+        if (finished) {
+          release();
+        } else {
+          if (unflushed) {
+            unflushed = false;
+            output.flush();
+          }
+          if (inputSuspended && ioControl != null) {
+            inputSuspended = false;
+            ioControl.requestInput();
+          }
+        }
+        return;
+      }
+      pendingBytes -= chunk.length;
+      output.write(chunk);
+      unflushed = true;
+    }
+  }
+
+  private void stopExchange() {
+    Future<HttpResponse> future = exchange;
+    if (future != null) {
+      future.cancel(true);
+    } else {
+      cancel();
+    }
+  }
+
+  private void release() {
+    released = true;
+    asyncContext.complete();
+  }
+}
@@ -154,13 +154,20 @@ public class DefaultDispatch extends AbstractGatewayDispatch {
       writeOutboundResponse(outboundRequest, inboundRequest, outboundResponse, inboundResponse);
    }
 
+  /**
+   * @return true if the Hadoop cluster is Kerberos enabled, the client then authenticates with SPNEGO
+   */
+  protected static boolean isKerberosSecured() {
+    return Boolean.parseBoolean(System.getProperty(GatewayConfig.HADOOP_KERBEROS_SECURED));
+  }
+
   protected HttpResponse executeOutboundRequest( HttpUriRequest outboundRequest ) throws IOException {
     LOG.dispatchRequest( outboundRequest.getMethod(), outboundRequest.getURI() );
     HttpResponse inboundResponse;
 
     try {
       auditor.audit( Action.DISPATCH, outboundRequest.getURI().toString(), ResourceType.URI, ActionOutcome.UNAVAILABLE, RES.requestMethod( outboundRequest.getMethod() ) );
-      if( !Boolean.parseBoolean(System.getProperty(GatewayConfig.HADOOP_KERBEROS_SECURED))) {
+      if( !isKerberosSecured() ) {
         // Hadoop cluster not Kerberos enabled
         addCredentialsToRequest( outboundRequest );
       }
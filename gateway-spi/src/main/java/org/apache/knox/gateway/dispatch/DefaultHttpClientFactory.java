@@ -27,6 +27,7 @@ import java.util.List;
 import javax.net.ssl.SSLContext;
 import javax.servlet.FilterConfig;
 
+import com.codahale.metrics.MetricRegistry;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
 import org.apache.http.ssl.SSLContextBuilder;
@@ -39,6 +40,7 @@ import org.apache.knox.gateway.SpiGatewayMessages;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.services.GatewayServices;
+import org.apache.knox.gateway.services.dispatch.HttpClientPoolService;
 import org.apache.knox.gateway.services.metrics.MetricsService;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
@@ -56,6 +58,8 @@ import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.cookie.Cookie;
 import org.apache.http.impl.DefaultConnectionReuseStrategy;
@@ -78,6 +82,11 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
   static final String PARAMETER_RETRY_NON_SAFE_REQUEST = "retryNonSafeRequest";
   /* do not retry non-idempotent requests OOTB */
   static final boolean DEFAULT_PARAMETER_RETRY_NON_SAFE_REQUEST = false;
+  static final String PARAMETER_MAX_CONNECTIONS_PER_ROUTE = "httpclient.maxConnectionsPerRoute";
+  static final String PARAMETER_CONNECTION_TIME_TO_LIVE = "httpclient.connectionTimeToLive";
+  static final String PARAMETER_IDLE_CONNECTION_TIMEOUT = "httpclient.idleConnectionTimeout";
+  static final String CONNECTION_POOL_METRICS_PREFIX = "http-client-pool";
+  static final String SHARED_CONNECTION_POOL_METRICS_PREFIX = "shared-http-client-pool";
 
   @Override
   public HttpClient createHttpClient(FilterConfig filterConfig) {
@@ -86,15 +95,16 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
     GatewayConfig gatewayConfig = (GatewayConfig) filterConfig.getServletContext().getAttribute(GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE);
     GatewayServices services = (GatewayServices) filterConfig.getServletContext()
         .getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE);
+    MetricsService metricsService = null;
     if (gatewayConfig != null && gatewayConfig.isMetricsEnabled()) {
-      MetricsService metricsService = services.getService(ServiceType.METRICS_SERVICE);
+      metricsService = services.getService(ServiceType.METRICS_SERVICE);
       builder = metricsService.getInstrumented(HttpClientBuilder.class);
     } else {
       builder = HttpClients.custom();
     }
 
     SSLContext sslContext = createSSLContext(services, filterConfig, serviceRole);
-    setSSLSocketFactory(sslContext, filterConfig, builder);
+    setConnectionManager(sslContext, filterConfig, builder, serviceRole, services, metricsService);
 
     if (Boolean.parseBoolean(System.getProperty(GatewayConfig.HADOOP_KERBEROS_SECURED))) {
       CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
@@ -138,18 +148,52 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
     return builder.build();
   }
 
-  private void setSSLSocketFactory(SSLContext sslContext, FilterConfig filterConfig, HttpClientBuilder builder) {
-    int maxConnections = getMaxConnections(filterConfig);
+  private void setConnectionManager(SSLContext sslContext, FilterConfig filterConfig, HttpClientBuilder builder,
+                                    String serviceRole, GatewayServices services, MetricsService metricsService) {
+    final int maxConnections = getMaxConnections(filterConfig);
+    final int maxConnectionsPerRoute = getMaxConnectionsPerRoute(filterConfig, maxConnections);
+    final long timeToLive = getConnectionTimeToLive(filterConfig);
+    final long idleTimeout = getIdleConnectionTimeout(filterConfig);
+
+    final Registry<ConnectionSocketFactory> socketFactoryRegistry;
     if (FipsUtils.isFipsEnabledWithBCProvider()) {
-      builder.setConnectionManager(FipsConnectionManagerFactory.createConnectionManager(sslContext, maxConnections));
+      socketFactoryRegistry = FipsConnectionManagerFactory.createSocketFactoryRegistry(sslContext);
     } else {
-      builder.setMaxConnTotal(maxConnections);
-      builder.setMaxConnPerRoute(maxConnections);
       // Conditionally set a custom SSLContext
-      if (sslContext != null) {
-        builder.setSSLSocketFactory(new SSLConnectionSocketFactory(sslContext));
-      }
+      socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+          .register("http", PlainConnectionSocketFactory.getSocketFactory())
+          .register("https", sslContext != null ? new SSLConnectionSocketFactory(sslContext) : SSLConnectionSocketFactory.getSocketFactory())
+          .build();
+    }
+
+    final PooledHttpClientConnectionManager connectionManager =
+        new PooledHttpClientConnectionManager(socketFactoryRegistry, timeToLive, idleTimeout);
+    connectionManager.setMaxTotal(maxConnections);
+    connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+    LOG.setHttpClientConnectionPool(serviceRole == null ? "N/A" : serviceRole, maxConnections, maxConnectionsPerRoute, timeToLive, idleTimeout);
+
+    if (metricsService != null) {
+      connectionManager.registerMetrics(metricsService, getConnectionPoolMetricsPrefix(filterConfig, services, serviceRole));
+    }
+    builder.setConnectionManager(connectionManager);
+  }
+
+  /**
+   * A client of its own has its pool gauges named after the topology. A client acquired from an
+   * enabled {@link HttpClientPoolService} is used by every topology with the same dispatch settings,
+   * so its gauges are gateway wide and named after those settings instead.
+   * <p>
+   * This method is package private to allow access to unit tests
+   */
+  static String getConnectionPoolMetricsPrefix(FilterConfig filterConfig, GatewayServices services, String serviceRole) {
+    final String service = serviceRole == null ? filterConfig.getFilterName() : serviceRole;
+    final HttpClientPoolService clientPool = services == null ? null : services.getService(ServiceType.HTTP_CLIENT_POOL_SERVICE);
+    if (clientPool != null && clientPool.isEnabled()) {
+      final String settings = Integer.toHexString(GatewayDispatchFilter.getHttpClientKey(filterConfig).hashCode());
+      return MetricRegistry.name(SHARED_CONNECTION_POOL_METRICS_PREFIX, service, settings);
     }
+    final String topology = (String) filterConfig.getServletContext().getAttribute(GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE);
+    return MetricRegistry.name(CONNECTION_POOL_METRICS_PREFIX, topology == null ? "N/A" : topology, service);
   }
 
   private boolean doesRetryParamExist(final FilterConfig filterConfig) {
@@ -339,6 +383,61 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
     return maxConnections;
   }
 
+  protected int getMaxConnectionsPerRoute( FilterConfig filterConfig, int maxConnections ) {
+    int maxConnectionsPerRoute = -1;
+    GatewayConfig config =
+        (GatewayConfig)filterConfig.getServletContext().getAttribute( GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE );
+    if( config != null ) {
+      maxConnectionsPerRoute = config.getHttpClientMaxConnectionsPerRoute();
+    }
+    String str = filterConfig.getInitParameter( PARAMETER_MAX_CONNECTIONS_PER_ROUTE );
+    if( str != null ) {
+      try {
+        maxConnectionsPerRoute = Integer.parseInt( str );
+      } catch ( NumberFormatException e ) {
+        // Ignore it and use the default.
+      }
+    }
+    // A single route may use the whole pool unless limited explicitly
+    return maxConnectionsPerRoute > 0 ? Math.min( maxConnectionsPerRoute, maxConnections ) : maxConnections;
+  }
+
+  protected static long getConnectionTimeToLive( FilterConfig filterConfig ) {
+    long timeToLive = -1;
+    GatewayConfig globalConfig =
+        (GatewayConfig)filterConfig.getServletContext().getAttribute( GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE );
+    if( globalConfig != null ) {
+      timeToLive = globalConfig.getHttpClientConnectionTimeToLive();
+    }
+    String str = filterConfig.getInitParameter( PARAMETER_CONNECTION_TIME_TO_LIVE );
+    if( str != null ) {
+      try {
+        timeToLive = parseTimeout( str );
+      } catch ( Exception e ) {
+        // Ignore it and use the default.
+      }
+    }
+    return timeToLive;
+  }
+
+  protected static long getIdleConnectionTimeout( FilterConfig filterConfig ) {
+    long idleTimeout = -1;
+    GatewayConfig globalConfig =
+        (GatewayConfig)filterConfig.getServletContext().getAttribute( GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE );
+    if( globalConfig != null ) {
+      idleTimeout = globalConfig.getHttpClientIdleConnectionTimeout();
+    }
+    String str = filterConfig.getInitParameter( PARAMETER_IDLE_CONNECTION_TIMEOUT );
+    if( str != null ) {
+      try {
+        idleTimeout = parseTimeout( str );
+      } catch ( Exception e ) {
+        // Ignore it and use the default.
+      }
+    }
+    return idleTimeout;
+  }
+
   protected static int getConnectionTimeout( FilterConfig filterConfig ) {
     int timeout = -1;
     GatewayConfig globalConfig =
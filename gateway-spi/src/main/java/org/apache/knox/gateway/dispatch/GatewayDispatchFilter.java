@@ -23,6 +23,9 @@ import org.apache.knox.gateway.SpiGatewayMessages;
 import org.apache.knox.gateway.config.ConfigurationInjectorBuilder;
 import org.apache.knox.gateway.filter.AbstractGatewayFilter;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.services.GatewayServices;
+import org.apache.knox.gateway.services.ServiceType;
+import org.apache.knox.gateway.services.dispatch.HttpClientPoolService;
 import org.apache.knox.gateway.util.RegExUtils;
 import org.apache.knox.gateway.util.WhitelistUtils;
 
@@ -36,9 +39,11 @@ import java.lang.reflect.Constructor;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.util.Collections;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class GatewayDispatchFilter extends AbstractGatewayFilter {
 
@@ -54,6 +59,8 @@ public class GatewayDispatchFilter extends AbstractGatewayFilter {
 
   private HttpClient httpClient;
 
+  private HttpClientPoolService httpClientPool;
+
   private static Map<String, Adapter> createMethodAdapters() {
     Map<String, Adapter> map = new HashMap<>();
     map.put("GET", new GetAdapter());
@@ -82,7 +89,14 @@ public class GatewayDispatchFilter extends AbstractGatewayFilter {
       } else {
         httpClientFactory = new DefaultHttpClientFactory();
       }
-      httpClient = httpClientFactory.createHttpClient(filterConfig);
+      final HttpClientPoolService clientPool = getHttpClientPoolService(filterConfig);
+      if (clientPool != null && clientPool.isEnabled()) {
+        final HttpClientFactory factory = httpClientFactory;
+        httpClient = clientPool.acquire(getHttpClientKey(filterConfig), () -> factory.createHttpClient(filterConfig));
+        httpClientPool = clientPool;
+      } else {
+        httpClient = httpClientFactory.createHttpClient(filterConfig);
+      }
       dispatch.setHttpClient(httpClient);
       dispatch.init();
     }
@@ -92,6 +106,10 @@ public class GatewayDispatchFilter extends AbstractGatewayFilter {
   public void destroy() {
     synchronized(lock) {
       dispatch.destroy();
+      if (httpClientPool != null && httpClientPool.release(httpClient)) {
+        // the shared client is closed by the pool once it is no longer referenced
+        return;
+      }
       try {
         if (httpClient instanceof  CloseableHttpClient) {
           ((CloseableHttpClient) httpClient).close();
@@ -102,6 +120,26 @@ public class GatewayDispatchFilter extends AbstractGatewayFilter {
     }
   }
 
+  private static HttpClientPoolService getHttpClientPoolService(FilterConfig filterConfig) {
+    final GatewayServices services = (GatewayServices) filterConfig.getServletContext()
+        .getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE);
+    return services == null ? null : services.getService(ServiceType.HTTP_CLIENT_POOL_SERVICE);
+  }
+
+  /**
+   * Dispatch filters with identical init parameters get identical clients from the
+   * {@link HttpClientFactory}, so they can share one.
+   */
+  static String getHttpClientKey(FilterConfig filterConfig) {
+    final Map<String, String> params = new TreeMap<>();
+    final Enumeration<String> names = filterConfig.getInitParameterNames();
+    while (names != null && names.hasMoreElements()) {
+      final String name = names.nextElement();
+      params.put(name, filterConfig.getInitParameter(name));
+    }
+    return params.toString();
+  }
+
   public Dispatch getDispatch() {
     synchronized(lock) {
       return dispatch;
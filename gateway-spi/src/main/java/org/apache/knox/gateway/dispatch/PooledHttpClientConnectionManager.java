@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.knox.gateway.services.metrics.MetricsService;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * A {@link PoolingHttpClientConnectionManager} for dispatch clients that
+ * <ul>
+ *   <li>closes expired and idle connections from a single background thread shared by all managers</li>
+ *   <li>optionally publishes leased, pending, available and max gauges for the whole pool and for
+ *   every route through the {@link MetricsService}</li>
+ * </ul>
+ */
+public class PooledHttpClientConnectionManager extends PoolingHttpClientConnectionManager {
+
+  static final long EVICTION_INTERVAL_MS = TimeUnit.SECONDS.toMillis(5);
+
+  private static final Set<PooledHttpClientConnectionManager> MANAGERS = ConcurrentHashMap.newKeySet();
+
+  private static final ScheduledExecutorService EVICTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "http-client-connection-evictor");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  static {
+    EVICTOR.scheduleWithFixedDelay(PooledHttpClientConnectionManager::evictAll,
+        EVICTION_INTERVAL_MS, EVICTION_INTERVAL_MS, TimeUnit.MILLISECONDS);
+  }
+
+  private final long idleTimeout;
+  private final Map<String, Gauge<Integer>> gauges = new ConcurrentHashMap<>();
+  private MetricsService metricsService;
+  private String metricsPrefix;
+
+  /**
+   * @param registry the socket factories for plain and TLS connections
+   * @param timeToLive maximum lifetime of a connection in milliseconds, -1 for no limit
+   * @param idleTimeout time in milliseconds after which an idle connection is closed, -1 to keep it
+   */
+  public PooledHttpClientConnectionManager(Registry<ConnectionSocketFactory> registry, long timeToLive, long idleTimeout) {
+    super(registry, null, null, null, timeToLive, TimeUnit.MILLISECONDS);
+    this.idleTimeout = idleTimeout;
+    MANAGERS.add(this);
+  }
+
+  /**
+   * Publishes the pool gauges under the given prefix. Route gauges are added as soon as
+   * the pool has opened a connection to that route.
+   */
+  public synchronized void registerMetrics(MetricsService metricsService, String metricsPrefix) {
+    this.metricsService = metricsService;
+    this.metricsPrefix = metricsPrefix;
+    registerGauge(MetricRegistry.name(metricsPrefix, "leased"), () -> getTotalStats().getLeased());
+    registerGauge(MetricRegistry.name(metricsPrefix, "pending"), () -> getTotalStats().getPending());
+    registerGauge(MetricRegistry.name(metricsPrefix, "available"), () -> getTotalStats().getAvailable());
+    registerGauge(MetricRegistry.name(metricsPrefix, "max"), () -> getTotalStats().getMax());
+  }
+
+  void evict() {
+    closeExpiredConnections();
+    if (idleTimeout > 0) {
+      closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+    }
+    registerRouteMetrics();
+  }
+
+  private synchronized void registerRouteMetrics() {
+    if (metricsService == null) {
+      return;
+    }
+    for (HttpRoute route : getRoutes()) {
+      String routePrefix = MetricRegistry.name(metricsPrefix, "route", route.getTargetHost().toHostString());
+      if (!gauges.containsKey(MetricRegistry.name(routePrefix, "leased"))) {
+        registerRouteGauge(routePrefix, "leased", route, PoolStats::getLeased);
+        registerRouteGauge(routePrefix, "pending", route, PoolStats::getPending);
+        registerRouteGauge(routePrefix, "available", route, PoolStats::getAvailable);
+      }
+    }
+  }
+
+  private void registerRouteGauge(String routePrefix, String name, HttpRoute route, ToIntFunction<PoolStats> stat) {
+    registerGauge(MetricRegistry.name(routePrefix, name), () -> stat.applyAsInt(getStats(route)));
+  }
+
+  private void registerGauge(String name, Gauge<Integer> gauge) {
+    gauges.put(name, gauge);
+    metricsService.registerGauge(name, gauge);
+  }
+
+  private synchronized void removeMetrics() {
+    if (metricsService != null) {
+      gauges.forEach(metricsService::removeGauge);
+      gauges.clear();
+      metricsService = null;
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    MANAGERS.remove(this);
+    removeMetrics();
+    super.shutdown();
+  }
+
+  private static void evictAll() {
+    for (PooledHttpClientConnectionManager manager : MANAGERS) {
+      try {
+        manager.evict();
+      } catch (RuntimeException e) {
+        // Keep evicting the remaining pools
+        DefaultDispatch.LOG.connectionEvictionFailed(e);
+      }
+    }
+  }
+}
@@ -33,19 +33,21 @@ public class FipsConnectionManagerFactory {
     private static final SpiGatewayMessages LOG = MessagesFactory.get(SpiGatewayMessages.class);
 
     public static PoolingHttpClientConnectionManager createConnectionManager(SSLContext sslContext, int maxConnections) {
+        PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager(createSocketFactoryRegistry(sslContext));
+        connManager.setMaxTotal(maxConnections);
+        connManager.setDefaultMaxPerRoute(maxConnections);
+        return connManager;
+    }
+
+    public static Registry<ConnectionSocketFactory> createSocketFactoryRegistry(SSLContext sslContext) {
         LOG.configureInterceptingSocket();
         BCInterceptingConnectionSocketFactory BCInterceptingConnectionSocketFactory = sslContext != null ?
                 new BCInterceptingConnectionSocketFactory(new SSLConnectionSocketFactory(sslContext))
                 : new BCInterceptingConnectionSocketFactory(SSLConnectionSocketFactory.getSocketFactory());
 
-        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+        return RegistryBuilder.<ConnectionSocketFactory>create()
                 .register("http", new BCInterceptingConnectionSocketFactory(PlainConnectionSocketFactory.getSocketFactory()))
                 .register("https", BCInterceptingConnectionSocketFactory)
                 .build();
-
-        PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
-        connManager.setMaxTotal(maxConnections);
-        connManager.setDefaultMaxPerRoute(maxConnections);
-        return connManager;
     }
 }
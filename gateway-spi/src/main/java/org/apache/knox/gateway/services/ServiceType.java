@@ -40,7 +40,9 @@ public enum ServiceType {
   REMOTE_CONFIGURATION_MONITOR("RemoteConfigurationMonitor"),
   GATEWAY_STATUS_SERVICE("GatewayStatusService"),
   LDAP_SERVICE("LDAPService"),
-  LDAP_ROLES_LOOKUP_SERVICE("LDAPRoleLookupService");
+  LDAP_ROLES_LOOKUP_SERVICE("LDAPRoleLookupService"),
+  HTTP_CLIENT_POOL_SERVICE("HttpClientPoolService"),
+  LDAP_CONNECTION_POOL_SERVICE("LdapConnectionPoolService");
 
   private final String serviceTypeName;
   private final String shortName;
@@ -58,6 +58,14 @@ public interface RemoteConfigurationRegistryClient extends AutoCloseable {
 
     boolean isBackwardsCompatible();
 
+    /**
+     * Registers a listener for the connection to the registry, which is told when listeners
+     * can miss changes because the connection was lost, and when it is back. Clients that do
+     * not track their connection never call it.
+     */
+    default void addConnectionListener(ConnectionListener listener) {
+    }
+
     interface ChildEntryListener {
 
         enum Type {
@@ -69,6 +77,10 @@ public interface RemoteConfigurationRegistryClient extends AutoCloseable {
         void childEvent(RemoteConfigurationRegistryClient client, ChildEntryListener.Type type, String path);
     }
 
+    interface ConnectionListener {
+        void connectionChanged(RemoteConfigurationRegistryClient client, boolean connected);
+    }
+
     interface EntryListener {
         void entryChanged(RemoteConfigurationRegistryClient client, String path, byte[] data);
     }
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.dispatch;
+
+import org.apache.http.client.HttpClient;
+import org.apache.knox.gateway.services.Service;
+
+import java.util.function.Supplier;
+
+/**
+ * Hands out outbound HTTP clients that are shared by all dispatch filters with an
+ * identical client configuration, across topologies.
+ * <p>
+ * Clients are reference counted: every {@link #acquire(String, Supplier)} must be paired
+ * with a {@link #release(HttpClient)}. A client that is no longer referenced is kept for a
+ * grace period so that pooled keep-alive connections survive a topology redeploy.
+ */
+public interface HttpClientPoolService extends Service {
+
+  /**
+   * @return <code>true</code> if dispatch filters should use shared clients
+   */
+  boolean isEnabled();
+
+  /**
+   * Returns the shared client for the given key, creating it with the given factory if needed.
+   *
+   * @param key the client configuration key
+   * @param factory creates a new client when no shared client exists for the key
+   * @return the shared client
+   */
+  HttpClient acquire(String key, Supplier<HttpClient> factory);
+
+  /**
+   * Releases a client previously returned by {@link #acquire(String, Supplier)}.
+   *
+   * @param client the shared client
+   * @return <code>true</code> if the client was managed by this service
+   */
+  boolean release(HttpClient client);
+}
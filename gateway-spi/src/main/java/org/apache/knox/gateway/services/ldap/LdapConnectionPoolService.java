@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.services.ldap;
+
+import org.apache.knox.gateway.services.Service;
+
+import javax.naming.NamingException;
+import javax.naming.ldap.LdapContext;
+import java.util.Hashtable;
+
+/**
+ * Keeps bound LDAP connections of system (service account) users open across requests, so
+ * that lookups done on behalf of a user do not pay for a new TCP connection, TLS handshake
+ * and bind each time.
+ * <p>
+ * Connections are pooled per environment, i.e. per provider URL, principal, credentials and
+ * connection settings, and are validated before they are handed out.
+ */
+public interface LdapConnectionPoolService extends Service {
+
+    /**
+     * @return <code>true</code> if system contexts should be taken from this service
+     */
+    boolean isEnabled();
+
+    /**
+     * Borrows a bound context for the given environment, creating one if no idle context is
+     * available. Closing the returned context hands it back to the pool; request controls and
+     * environment properties changed by the borrower are reset at that point.
+     *
+     * @param environment the JNDI environment the context would be created with
+     * @return a pooled context that must be closed after use
+     * @throws NamingException if no context could be created or the pool is exhausted
+     */
+    LdapContext getSystemLdapContext(Hashtable<?, ?> environment) throws NamingException;
+}
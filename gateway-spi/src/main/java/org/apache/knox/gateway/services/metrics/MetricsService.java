@@ -17,6 +17,7 @@
  */
 package org.apache.knox.gateway.services.metrics;
 
+import com.codahale.metrics.Gauge;
 import org.apache.knox.gateway.services.Service;
 
 public interface MetricsService extends Service {
@@ -25,4 +26,23 @@ public interface MetricsService extends Service {
 
   <T> T getInstrumented(Class<T> clazz);
 
+  /**
+   * Registers a gauge under the given name, replacing a gauge previously registered
+   * under the same name. Does nothing if metrics are disabled.
+   *
+   * @param name the metric name
+   * @param gauge the gauge to register
+   */
+  default void registerGauge(String name, Gauge<?> gauge) {
+  }
+
+  /**
+   * Removes the given gauge if it is still the one registered under the given name.
+   *
+   * @param name the metric name
+   * @param gauge the gauge previously passed to {@link #registerGauge(String, Gauge)}
+   */
+  default void removeGauge(String name, Gauge<?> gauge) {
+  }
+
 }
@@ -17,11 +17,16 @@
  */
 package org.apache.knox.gateway.services.security.impl;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.KeySpec;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
@@ -35,12 +40,26 @@ import org.apache.knox.gateway.i18n.GatewaySpiMessages;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.services.security.EncryptionResult;
 
+/**
+ * Password based encryption with a key derived by PBKDF2 from the pass phrase and a salt.
+ * <p>
+ * Deriving a key is deliberately expensive, so encryption reuses one salt and its key for
+ * {@link #KEY_EPOCH_MILLIS} before moving on to a new salt, and the keys of recently seen
+ * salts are cached for decryption. Every encryption still uses a fresh random IV.
+ */
 public class ConfigurableEncryptor {
   private static final GatewaySpiMessages LOG = MessagesFactory.get( GatewaySpiMessages.class );
 
   private static final int ITERATION_COUNT = 65536;
   private static final int KEY_LENGTH = 128;
 
+  static final long KEY_EPOCH_MILLIS = TimeUnit.HOURS.toMillis(1);
+  static final int DERIVED_KEY_CACHE_SIZE = 256;
+
+  // The default algorithm of the preferred provider, which does not block on /dev/random
+  // like getInstanceStrong() does
+  private static final SecureRandom RANDOM = new SecureRandom();
+
   private char[] passPhrase;
   private String alg = "AES";
   private String pbeAlg = "PBKDF2WithHmacSHA1";
@@ -48,6 +67,18 @@ public class ConfigurableEncryptor {
   private int saltSize = 8;
   private int iterationCount = ITERATION_COUNT;
   private int keyLength = KEY_LENGTH;
+  private long keyEpochMillis = KEY_EPOCH_MILLIS;
+
+  private final Object keyEpochLock = new Object();
+  private volatile KeyEpoch keyEpoch;
+  private final Map<ByteBuffer, SecretKey> derivedKeys = Collections.synchronizedMap(
+      new LinkedHashMap<ByteBuffer, SecretKey>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, SecretKey> eldest) {
+          return size() > DERIVED_KEY_CACHE_SIZE;
+        }
+      });
+  private final ThreadLocal<Cipher> ciphers = new ThreadLocal<>();
 
   public ConfigurableEncryptor(String passPhrase) {
     this.passPhrase = passPhrase.toCharArray();
@@ -79,9 +110,16 @@ public class ConfigurableEncryptor {
       if (keyLength != null) {
       this.keyLength = Integer.parseInt(keyLength);
       }
+      // keys derived with the previous settings must not be used anymore
+      keyEpoch = null;
+      derivedKeys.clear();
     }
   }
 
+  void setKeyEpochMillis(long keyEpochMillis) {
+    this.keyEpochMillis = keyEpochMillis;
+  }
+
   public SecretKey getKeyFromPassword(String passPhrase, byte[] salt) {
     SecretKeyFactory factory;
     SecretKey key = null;
@@ -102,24 +140,78 @@ public class ConfigurableEncryptor {
   }
 
   public EncryptionResult encrypt(byte[] plain) throws Exception {
-    byte[] salt = new byte[saltSize];
-    SecureRandom.getInstanceStrong().nextBytes(salt);
-
-    SecretKey tmp = getKeyFromPassword(new String(passPhrase), salt);
-    SecretKey secret = new SecretKeySpec(tmp.getEncoded(), alg);
-    Cipher ecipher = Cipher.getInstance(transformation);
-    ecipher.init(Cipher.ENCRYPT_MODE, secret);
-    return new EncryptionResult(salt,
+    final KeyEpoch epoch = currentKeyEpoch();
+    Cipher ecipher = getCipher();
+    ecipher.init(Cipher.ENCRYPT_MODE, epoch.key, RANDOM);
+    return new EncryptionResult(epoch.salt.clone(),
         ecipher.getParameters().getParameterSpec(IvParameterSpec.class).getIV(),
         ecipher.doFinal(plain));
   }
 
   public byte[] decrypt(byte[] salt, byte[] iv, byte[] encrypt) throws Exception {
-    SecretKey tmp = getKeyFromPassword(new String(passPhrase), salt);
-    SecretKey secret = new SecretKeySpec(tmp.getEncoded(), alg);
+    final ByteBuffer cacheKey = salt == null ? null : ByteBuffer.wrap(salt.clone());
+    SecretKey secret = cacheKey == null ? null : derivedKeys.get(cacheKey);
+    final boolean cached = secret != null;
+    if (!cached) {
+      secret = deriveKey(salt);
+    }
 
-    Cipher dcipher = Cipher.getInstance(transformation);
+    Cipher dcipher = getCipher();
     dcipher.init(Cipher.DECRYPT_MODE, secret, new IvParameterSpec(iv));
-    return dcipher.doFinal(encrypt);
+    final byte[] decrypted = dcipher.doFinal(encrypt);
+    // only cache once the key proved right, so that made-up salts cannot evict the real ones
+    if (!cached && cacheKey != null) {
+      derivedKeys.put(cacheKey, secret);
+    }
+    return decrypted;
+  }
+
+  private KeyEpoch currentKeyEpoch() {
+    KeyEpoch epoch = keyEpoch;
+    if (epoch == null || epoch.isOver(keyEpochMillis)) {
+      synchronized (keyEpochLock) {
+        epoch = keyEpoch;
+        if (epoch == null || epoch.isOver(keyEpochMillis)) {
+          final byte[] salt = new byte[saltSize];
+          RANDOM.nextBytes(salt);
+          epoch = new KeyEpoch(salt, deriveKey(salt));
+          derivedKeys.put(ByteBuffer.wrap(salt.clone()), epoch.key);
+          keyEpoch = epoch;
+        }
+      }
+    }
+    return epoch;
+  }
+
+  private SecretKey deriveKey(byte[] salt) {
+    SecretKey tmp = getKeyFromPassword(new String(passPhrase), salt);
+    return new SecretKeySpec(tmp.getEncoded(), alg);
+  }
+
+  /*
+   * Cipher instances are not thread safe, but can be reused by re-initializing them
+   */
+  private Cipher getCipher() throws Exception {
+    Cipher cipher = ciphers.get();
+    if (cipher == null || !cipher.getAlgorithm().equals(transformation)) {
+      cipher = Cipher.getInstance(transformation);
+      ciphers.set(cipher);
+    }
+    return cipher;
+  }
+
+  private static final class KeyEpoch {
+    private final byte[] salt;
+    private final SecretKey key;
+    private final long started = System.currentTimeMillis();
+
+    KeyEpoch(byte[] salt, SecretKey key) {
+      this.salt = salt;
+      this.key = key;
+    }
+
+    boolean isOver(long epochMillis) {
+      return System.currentTimeMillis() - started >= epochMillis;
+    }
   }
 }
@@ -28,4 +28,14 @@ public interface TokenStateServiceStatisticsMBean {
   Map<String, Integer> getKeystoreInteractions();
 
   long getGatewayCredentialsFileSize();
+
+  /**
+   * @return the number of token state updates waiting to be persisted
+   */
+  int getUnpersistedTokenStateCount();
+
+  /**
+   * @return how long (in milliseconds) the oldest update waiting to be persisted has been waiting
+   */
+  long getTokenStatePersistenceLag();
 }
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.CookieSpecs;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.services.GatewayServices;
+import org.apache.knox.gateway.services.ServiceType;
+import org.apache.knox.gateway.services.security.KeystoreService;
+import org.apache.knox.test.mock.MockServletInputStream;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertSame;
+
+public class AsyncConfigurableDispatchTest {
+
+  private static final URI URL = URI.create("http://localhost:8080/service");
+
+  private AsyncConfigurableDispatch dispatch;
+
+  @Before
+  public void setUp() throws Exception {
+    dispatch = createDispatch();
+    // The backend is replaced by a mock
+    ((CloseableHttpAsyncClient) dispatch.getAsyncClient()).close();
+  }
+
+  @After
+  public void tearDown() {
+    dispatch.destroy();
+  }
+
+  @Test
+  public void testExchangeIsBoundedByAsyncTimeout() throws Exception {
+    AsyncContext asyncContext = createMock(AsyncContext.class);
+    asyncContext.setTimeout(AsyncConfigurableDispatch.DEFAULT_ASYNC_TIMEOUT);
+    EasyMock.expectLastCall().once();
+    // the relay answers timeouts
+    asyncContext.addListener(EasyMock.anyObject(AsyncListener.class));
+    EasyMock.expectLastCall().once();
+
+    HttpServletRequest inboundRequest = createMock(HttpServletRequest.class);
+    expect(inboundRequest.isAsyncSupported()).andReturn(true).anyTimes();
+    expect(inboundRequest.startAsync()).andReturn(asyncContext).once();
+    HttpServletResponse outboundResponse = EasyMock.createNiceMock(HttpServletResponse.class);
+
+    HttpAsyncClient asyncClient = createMock(HttpAsyncClient.class);
+    expect(asyncClient.execute(EasyMock.anyObject(HttpAsyncRequestProducer.class),
+        EasyMock.<HttpAsyncResponseConsumer<HttpResponse>>anyObject(),
+        EasyMock.<FutureCallback<HttpResponse>>anyObject())).andReturn(null).once();
+    replay(asyncContext, inboundRequest, outboundResponse, asyncClient);
+    dispatch.asyncClient = asyncClient;
+
+    dispatch.executeRequest(new HttpGet(URL), inboundRequest, outboundResponse);
+
+    EasyMock.verify(asyncContext, inboundRequest, asyncClient);
+  }
+
+  @Test
+  public void testBlockingRequestBodyIsDispatchedOnRequestThread() throws Exception {
+    AsyncContext asyncContext = createMock(AsyncContext.class);
+    asyncContext.setTimeout(AsyncConfigurableDispatch.DEFAULT_ASYNC_TIMEOUT);
+    EasyMock.expectLastCall().once();
+    asyncContext.complete();
+    EasyMock.expectLastCall().once();
+
+    HttpServletRequest inboundRequest = createMock(HttpServletRequest.class);
+    expect(inboundRequest.isAsyncSupported()).andReturn(true).anyTimes();
+    expect(inboundRequest.startAsync()).andReturn(asyncContext).once();
+    HttpServletResponse outboundResponse = EasyMock.createNiceMock(HttpServletResponse.class);
+
+    // The mock stream does not support read listeners, so its body can only be read blocking
+    byte[] body = "hello".getBytes(StandardCharsets.UTF_8);
+    HttpPost outboundRequest = new HttpPost(URL);
+    outboundRequest.setEntity(new AsyncRequestEntity(new MockServletInputStream(new ByteArrayInputStream(body)), body.length, null));
+
+    final Thread requestThread = Thread.currentThread();
+    HttpClient client = createMock(HttpClient.class);
+    expect(client.execute(outboundRequest)).andAnswer(() -> {
+      assertSame(requestThread, Thread.currentThread());
+      return new BasicHttpResponse(HttpVersion.HTTP_1_1, 204, "No Content");
+    }).once();
+    // nothing may be dispatched through the async client
+    HttpAsyncClient asyncClient = createMock(HttpAsyncClient.class);
+    replay(asyncContext, inboundRequest, outboundResponse, client, asyncClient);
+    dispatch.asyncClient = asyncClient;
+    dispatch.setHttpClient(client);
+
+    dispatch.executeRequest(outboundRequest, inboundRequest, outboundResponse);
+
+    EasyMock.verify(asyncContext, inboundRequest, client, asyncClient);
+  }
+
+  @Test
+  public void testOtherRequestBodiesAreNotDispatchedAsync() throws Exception {
+    // e.g. the replayable body created for Kerberos secured clusters, which is read blocking
+    HttpServletRequest inboundRequest = createMock(HttpServletRequest.class);
+    expect(inboundRequest.isAsyncSupported()).andReturn(true).anyTimes();
+    HttpServletResponse outboundResponse = EasyMock.createNiceMock(HttpServletResponse.class);
+
+    byte[] body = "hello".getBytes(StandardCharsets.UTF_8);
+    HttpPost outboundRequest = new HttpPost(URL);
+    outboundRequest.setEntity(new InputStreamEntity(new ByteArrayInputStream(body), body.length));
+
+    final Thread requestThread = Thread.currentThread();
+    HttpClient client = createMock(HttpClient.class);
+    expect(client.execute(outboundRequest)).andAnswer(() -> {
+      assertSame(requestThread, Thread.currentThread());
+      return new BasicHttpResponse(HttpVersion.HTTP_1_1, 204, "No Content");
+    }).once();
+    // neither the request is made async nor anything dispatched through the async client
+    HttpAsyncClient asyncClient = createMock(HttpAsyncClient.class);
+    replay(inboundRequest, outboundResponse, client, asyncClient);
+    dispatch.asyncClient = asyncClient;
+    dispatch.setHttpClient(client);
+
+    dispatch.executeRequest(outboundRequest, inboundRequest, outboundResponse);
+
+    EasyMock.verify(inboundRequest, client, asyncClient);
+  }
+
+  private static AsyncConfigurableDispatch createDispatch() {
+    KeystoreService keystoreService = createMock(KeystoreService.class);
+    expect(keystoreService.getTruststoreForHttpClient()).andReturn(null).anyTimes();
+
+    GatewayConfig gatewayConfig = EasyMock.createNiceMock(GatewayConfig.class);
+    expect(gatewayConfig.isAsyncSupported()).andReturn(true).anyTimes();
+    expect(gatewayConfig.getHttpClientMaxConnections()).andReturn(32).anyTimes();
+    expect(gatewayConfig.getHttpClientConnectionTimeout()).andReturn(20000).anyTimes();
+    expect(gatewayConfig.getHttpClientSocketTimeout()).andReturn(20000).anyTimes();
+    expect(gatewayConfig.getHttpClientCookieSpec()).andReturn(CookieSpecs.STANDARD).anyTimes();
+
+    GatewayServices gatewayServices = createMock(GatewayServices.class);
+    expect(gatewayServices.getService(ServiceType.KEYSTORE_SERVICE)).andReturn(keystoreService).anyTimes();
+
+    ServletContext servletContext = EasyMock.createNiceMock(ServletContext.class);
+    expect(servletContext.getAttribute(GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE)).andReturn(gatewayConfig).anyTimes();
+    expect(servletContext.getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE)).andReturn(gatewayServices).anyTimes();
+    expect(servletContext.getAttribute(GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE)).andReturn("test").anyTimes();
+
+    FilterConfig filterConfig = EasyMock.createNiceMock(FilterConfig.class);
+    expect(filterConfig.getServletContext()).andReturn(servletContext).anyTimes();
+    expect(filterConfig.getInitParameter("useTwoWaySsl")).andReturn("false").anyTimes();
+
+    replay(keystoreService, gatewayConfig, gatewayServices, servletContext, filterConfig);
+    return new AsyncConfigurableDispatch(filterConfig);
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncRequestEntityTest {
+
+  @Test
+  public void testDataArrivingBeforeSuspensionIsNotLost() throws Exception {
+    TestInputStream input = new TestInputStream("hello");
+    AsyncRequestEntity entity = new AsyncRequestEntity(input, 5, null);
+    assertTrue(entity.startNonBlocking());
+    assertSame(entity, input.listener);
+
+    // The container reports the data between isReady() and suspendOutput(), so the wakeup
+    // of onDataAvailable() is requested before the suspension and has no effect
+    input.ready = false;
+    input.onNotReady = () -> {
+      input.ready = true;
+      entity.onDataAvailable();
+    };
+
+    IOControl ioControl = EasyMock.createStrictMock(IOControl.class);
+    ioControl.requestOutput();
+    ioControl.suspendOutput();
+    ioControl.requestOutput();
+    EasyMock.replay(ioControl);
+
+    TestEncoder encoder = new TestEncoder();
+    entity.produceContent(encoder, ioControl);
+
+    assertEquals("hello", encoder.bytes.toString(StandardCharsets.UTF_8.name()));
+    assertTrue(encoder.completed);
+    EasyMock.verify(ioControl);
+  }
+
+  @Test
+  public void testOutputIsSuspendedUntilDataIsAvailable() throws Exception {
+    TestInputStream input = new TestInputStream("hello");
+    AsyncRequestEntity entity = new AsyncRequestEntity(input, 5, null);
+    assertTrue(entity.startNonBlocking());
+
+    IOControl ioControl = EasyMock.createStrictMock(IOControl.class);
+    ioControl.suspendOutput();
+    ioControl.requestOutput();
+    EasyMock.replay(ioControl);
+
+    input.ready = false;
+    TestEncoder encoder = new TestEncoder();
+    entity.produceContent(encoder, ioControl);
+    assertEquals(0, encoder.bytes.size());
+    assertFalse(encoder.completed);
+
+    input.ready = true;
+    entity.onDataAvailable();
+    EasyMock.verify(ioControl);
+
+    EasyMock.reset(ioControl);
+    EasyMock.replay(ioControl);
+    entity.produceContent(encoder, ioControl);
+    assertEquals("hello", encoder.bytes.toString(StandardCharsets.UTF_8.name()));
+    assertTrue(encoder.completed);
+  }
+
+  @Test(expected = IOException.class)
+  public void testBodyIsNotProducedWithBlockingReads() throws Exception {
+    AsyncRequestEntity entity = new AsyncRequestEntity(new TestInputStream("hello"), 5, null);
+    entity.produceContent(new TestEncoder(), EasyMock.createNiceMock(IOControl.class));
+  }
+
+  private static class TestInputStream extends ServletInputStream {
+    private final InputStream stream;
+    private ReadListener listener;
+    private boolean ready = true;
+    private Runnable onNotReady;
+
+    TestInputStream(String content) {
+      this.stream = new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean isFinished() {
+      return false;
+    }
+
+    @Override
+    public boolean isReady() {
+      if (!ready && onNotReady != null) {
+        Runnable callback = onNotReady;
+        onNotReady = null;
+        callback.run();
+        return false;
+      }
+      return ready;
+    }
+
+    @Override
+    public void setReadListener(ReadListener readListener) {
+      this.listener = readListener;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return stream.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return stream.read(b, off, len);
+    }
+  }
+
+  private static class TestEncoder implements ContentEncoder {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private boolean completed;
+
+    @Override
+    public int write(ByteBuffer src) {
+      int written = src.remaining();
+      while (src.hasRemaining()) {
+        bytes.write(src.get());
+      }
+      return written;
+    }
+
+    @Override
+    public void complete() {
+      completed = true;
+    }
+
+    @Override
+    public boolean isCompleted() {
+      return completed;
+    }
+  }
+}
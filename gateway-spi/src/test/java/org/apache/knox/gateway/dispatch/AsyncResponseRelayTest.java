@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.IOControl;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class AsyncResponseRelayTest {
+
+  @Test
+  public void testBackpressureSuspendsAndResumesBackend() throws Exception {
+    TestOutputStream output = new TestOutputStream();
+    HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+    EasyMock.expect(response.getOutputStream()).andReturn(output).anyTimes();
+    AsyncContext asyncContext = EasyMock.createMock(AsyncContext.class);
+    EasyMock.expect(asyncContext.getResponse()).andReturn(response).anyTimes();
+    asyncContext.complete();
+    EasyMock.expectLastCall().once();
+    IOControl ioControl = EasyMock.createMock(IOControl.class);
+    ioControl.suspendInput();
+    EasyMock.expectLastCall().once();
+    ioControl.requestInput();
+    EasyMock.expectLastCall().once();
+    EasyMock.replay(response, asyncContext, ioControl);
+
+    AsyncResponseRelay relay = new AsyncResponseRelay(asyncContext, inboundResponse -> { }, 16, 8);
+    BasicHttpResponse inboundResponse = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+    inboundResponse.setEntity(new StringEntity("unused"));
+    relay.onResponseReceived(inboundResponse);
+    assertSame(relay, output.listener);
+
+    // The client is not ready, everything stays queued and the backend is suspended
+    output.ready = false;
+    relay.onByteReceived(ByteBuffer.wrap("hello".getBytes(StandardCharsets.UTF_8)), ioControl);
+    relay.onByteReceived(ByteBuffer.wrap(" world".getBytes(StandardCharsets.UTF_8)), ioControl);
+    assertEquals(11, relay.getPendingBytes());
+    assertEquals(0, output.bytes.size());
+
+    // Once the client can take more data the queue is drained and the backend resumed
+    output.ready = true;
+    relay.onWritePossible();
+    assertEquals(0, relay.getPendingBytes());
+    assertEquals("hello world", output.bytes.toString(StandardCharsets.UTF_8.name()));
+
+    relay.finish();
+    EasyMock.verify(asyncContext, ioControl);
+  }
+
+  @Test
+  public void testAbortCompletesOnlyOnce() throws Exception {
+    HttpServletResponse response = EasyMock.createMock(HttpServletResponse.class);
+    EasyMock.expect(response.isCommitted()).andReturn(false).once();
+    response.sendError(EasyMock.eq(HttpServletResponse.SC_BAD_GATEWAY), EasyMock.anyString());
+    EasyMock.expectLastCall().once();
+    AsyncContext asyncContext = EasyMock.createMock(AsyncContext.class);
+    EasyMock.expect(asyncContext.getResponse()).andReturn(response).anyTimes();
+    asyncContext.complete();
+    EasyMock.expectLastCall().once();
+    EasyMock.replay(response, asyncContext);
+
+    AsyncResponseRelay relay = new AsyncResponseRelay(asyncContext, inboundResponse -> { }, 16, 8);
+    relay.abort(HttpServletResponse.SC_BAD_GATEWAY);
+    relay.abort(HttpServletResponse.SC_BAD_GATEWAY);
+    relay.finish();
+
+    EasyMock.verify(response, asyncContext);
+  }
+
+  private static class TestOutputStream extends ServletOutputStream {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private WriteListener listener;
+    private boolean ready = true;
+
+    @Override
+    public boolean isReady() {
+      return ready;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      this.listener = writeListener;
+    }
+
+    @Override
+    public void write(int b) {
+      bytes.write(b);
+    }
+  }
+}
@@ -24,6 +24,8 @@ import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -34,6 +36,7 @@ import org.apache.http.client.config.RequestConfig;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.services.GatewayServices;
 import org.apache.knox.gateway.services.ServiceType;
+import org.apache.knox.gateway.services.dispatch.HttpClientPoolService;
 import org.apache.knox.gateway.services.security.AliasService;
 import org.apache.knox.gateway.services.security.KeystoreService;
 import org.junit.Test;
@@ -49,6 +52,7 @@ import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
+import java.util.Collections;
 
 public class DefaultHttpClientFactoryTest {
 
@@ -60,6 +64,9 @@ public class DefaultHttpClientFactoryTest {
     GatewayConfig gatewayConfig = createMock(GatewayConfig.class);
     expect(gatewayConfig.isMetricsEnabled()).andReturn(false).once();
     expect(gatewayConfig.getHttpClientMaxConnections()).andReturn(32).once();
+    expect(gatewayConfig.getHttpClientMaxConnectionsPerRoute()).andReturn(-1).once();
+    expect(gatewayConfig.getHttpClientConnectionTimeToLive()).andReturn(-1L).once();
+    expect(gatewayConfig.getHttpClientIdleConnectionTimeout()).andReturn(60000L).once();
     expect(gatewayConfig.getHttpClientConnectionTimeout()).andReturn(20000).once();
     expect(gatewayConfig.getHttpClientSocketTimeout()).andReturn(20000).once();
     expect(gatewayConfig.getHttpClientCookieSpec()).andReturn(CookieSpecs.STANDARD).anyTimes();
@@ -75,6 +82,9 @@ public class DefaultHttpClientFactoryTest {
     expect(filterConfig.getServletContext()).andReturn(servletContext).atLeastOnce();
     expect(filterConfig.getInitParameter("useTwoWaySsl")).andReturn("false").once();
     expect(filterConfig.getInitParameter("httpclient.maxConnections")).andReturn(null).once();
+    expect(filterConfig.getInitParameter("httpclient.maxConnectionsPerRoute")).andReturn(null).once();
+    expect(filterConfig.getInitParameter("httpclient.connectionTimeToLive")).andReturn(null).once();
+    expect(filterConfig.getInitParameter("httpclient.idleConnectionTimeout")).andReturn(null).once();
     expect(filterConfig.getInitParameter("httpclient.connectionTimeout")).andReturn(null).once();
     expect(filterConfig.getInitParameter("httpclient.socketTimeout")).andReturn(null).once();
     expect(filterConfig.getInitParameter("serviceRole")).andReturn(null).once();
@@ -232,6 +242,36 @@ public class DefaultHttpClientFactoryTest {
     verify(gatewayConfig, servletContext, filterConfig);
   }
 
+  @Test
+  public void testConnectionPoolMetricsPrefix() throws Exception {
+    HttpClientPoolService clientPool = createMock(HttpClientPoolService.class);
+    expect(clientPool.isEnabled()).andReturn(false).once();
+    expect(clientPool.isEnabled()).andReturn(true).once();
+
+    GatewayServices gatewayServices = createMock(GatewayServices.class);
+    expect(gatewayServices.getService(ServiceType.HTTP_CLIENT_POOL_SERVICE)).andReturn(clientPool).anyTimes();
+
+    ServletContext servletContext = createMock(ServletContext.class);
+    expect(servletContext.getAttribute(GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE)).andReturn("sandbox").anyTimes();
+
+    FilterConfig filterConfig = createMock(FilterConfig.class);
+    expect(filterConfig.getServletContext()).andReturn(servletContext).anyTimes();
+    expect(filterConfig.getInitParameterNames()).andReturn(Collections.enumeration(Collections.singletonList("serviceRole"))).anyTimes();
+    expect(filterConfig.getInitParameter("serviceRole")).andReturn("WEBHDFS").anyTimes();
+
+    replay(clientPool, gatewayServices, servletContext, filterConfig);
+
+    assertEquals("http-client-pool.sandbox.WEBHDFS",
+        DefaultHttpClientFactory.getConnectionPoolMetricsPrefix(filterConfig, gatewayServices, "WEBHDFS"));
+
+    // A shared client serves every topology, so its gauges must not carry the first topology's name
+    String sharedPrefix = DefaultHttpClientFactory.getConnectionPoolMetricsPrefix(filterConfig, gatewayServices, "WEBHDFS");
+    assertTrue(sharedPrefix.startsWith("shared-http-client-pool.WEBHDFS."));
+    assertFalse(sharedPrefix.contains("sandbox"));
+
+    verify(clientPool);
+  }
+
   private KeyStore loadKeyStore(String keyStoreFile, String password, String storeType)
       throws CertificateException, IOException, KeyStoreException, NoSuchAlgorithmException {
     KeyStore keyStore = KeyStore.getInstance(storeType);
@@ -249,6 +289,9 @@ public class DefaultHttpClientFactoryTest {
     GatewayConfig gatewayConfig = createMock(GatewayConfig.class);
     expect(gatewayConfig.isMetricsEnabled()).andReturn(false).anyTimes();
     expect(gatewayConfig.getHttpClientMaxConnections()).andReturn(32).anyTimes();
+    expect(gatewayConfig.getHttpClientMaxConnectionsPerRoute()).andReturn(-1).anyTimes();
+    expect(gatewayConfig.getHttpClientConnectionTimeToLive()).andReturn(-1L).anyTimes();
+    expect(gatewayConfig.getHttpClientIdleConnectionTimeout()).andReturn(60000L).anyTimes();
     expect(gatewayConfig.getHttpClientConnectionTimeout()).andReturn(20000).anyTimes();
     expect(gatewayConfig.getHttpClientSocketTimeout()).andReturn(20000).anyTimes();
     expect(gatewayConfig.getHttpClientCookieSpec()).andReturn(CookieSpecs.STANDARD).anyTimes();
@@ -264,6 +307,9 @@ public class DefaultHttpClientFactoryTest {
     expect(filterConfigSafe.getServletContext()).andReturn(servletContext).atLeastOnce();
     expect(filterConfigSafe.getInitParameter("useTwoWaySsl")).andReturn("false").once();
     expect(filterConfigSafe.getInitParameter("httpclient.maxConnections")).andReturn(null).once();
+    expect(filterConfigSafe.getInitParameter("httpclient.maxConnectionsPerRoute")).andReturn(null).once();
+    expect(filterConfigSafe.getInitParameter("httpclient.connectionTimeToLive")).andReturn(null).once();
+    expect(filterConfigSafe.getInitParameter("httpclient.idleConnectionTimeout")).andReturn(null).once();
     expect(filterConfigSafe.getInitParameter("httpclient.connectionTimeout")).andReturn(null).once();
     expect(filterConfigSafe.getInitParameter("httpclient.socketTimeout")).andReturn(null).once();
     expect(filterConfigSafe.getInitParameter("httpclient.cookieSpec")).andReturn(null).anyTimes();
@@ -275,6 +321,9 @@ public class DefaultHttpClientFactoryTest {
     expect(filterConfigUnSafe.getServletContext()).andReturn(servletContext).atLeastOnce();
     expect(filterConfigUnSafe.getInitParameter("useTwoWaySsl")).andReturn("false").once();
     expect(filterConfigUnSafe.getInitParameter("httpclient.maxConnections")).andReturn(null).once();
+    expect(filterConfigUnSafe.getInitParameter("httpclient.maxConnectionsPerRoute")).andReturn(null).once();
+    expect(filterConfigUnSafe.getInitParameter("httpclient.connectionTimeToLive")).andReturn(null).once();
+    expect(filterConfigUnSafe.getInitParameter("httpclient.idleConnectionTimeout")).andReturn(null).once();
     expect(filterConfigUnSafe.getInitParameter("httpclient.connectionTimeout")).andReturn(null).once();
     expect(filterConfigUnSafe.getInitParameter("httpclient.socketTimeout")).andReturn(null).once();
     expect(filterConfigUnSafe.getInitParameter("serviceRole")).andReturn(null).once();
@@ -293,4 +342,32 @@ public class DefaultHttpClientFactoryTest {
 
     verify(keystoreService, gatewayConfig, gatewayServices, servletContext, filterConfigSafe, filterConfigUnSafe);
   }
+
+  @Test
+  public void testMaxConnectionsPerRoute() {
+    GatewayConfig gatewayConfig = createMock(GatewayConfig.class);
+    expect(gatewayConfig.getHttpClientMaxConnectionsPerRoute()).andReturn(-1).times(3);
+
+    ServletContext servletContext = createMock(ServletContext.class);
+    expect(servletContext.getAttribute(GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE)).andReturn(gatewayConfig).atLeastOnce();
+
+    FilterConfig defaultConfig = createMock(FilterConfig.class);
+    expect(defaultConfig.getServletContext()).andReturn(servletContext).atLeastOnce();
+    expect(defaultConfig.getInitParameter("httpclient.maxConnectionsPerRoute")).andReturn(null).once();
+
+    FilterConfig routeConfig = createMock(FilterConfig.class);
+    expect(routeConfig.getServletContext()).andReturn(servletContext).atLeastOnce();
+    expect(routeConfig.getInitParameter("httpclient.maxConnectionsPerRoute")).andReturn("8").once();
+
+    FilterConfig tooLargeConfig = createMock(FilterConfig.class);
+    expect(tooLargeConfig.getServletContext()).andReturn(servletContext).atLeastOnce();
+    expect(tooLargeConfig.getInitParameter("httpclient.maxConnectionsPerRoute")).andReturn("64").once();
+
+    replay(gatewayConfig, servletContext, defaultConfig, routeConfig, tooLargeConfig);
+
+    DefaultHttpClientFactory factory = new DefaultHttpClientFactory();
+    assertEquals(32, factory.getMaxConnectionsPerRoute(defaultConfig, 32));
+    assertEquals(8, factory.getMaxConnectionsPerRoute(routeConfig, 32));
+    assertEquals(32, factory.getMaxConnectionsPerRoute(tooLargeConfig, 32));
+  }
 }
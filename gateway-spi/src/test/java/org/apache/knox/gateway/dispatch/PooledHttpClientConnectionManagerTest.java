@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import com.codahale.metrics.Gauge;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.knox.gateway.services.metrics.MetricsService;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.eq;
+import static org.junit.Assert.assertEquals;
+
+public class PooledHttpClientConnectionManagerTest {
+
+  @Test
+  public void testPoolGaugesAreRegisteredAndRemoved() {
+    MetricsService metricsService = EasyMock.createMock(MetricsService.class);
+    for (String name : new String[] {"leased", "pending", "available", "max"}) {
+      metricsService.registerGauge(eq("http-client-pool.sandbox.WEBHDFS." + name), anyObject(Gauge.class));
+      EasyMock.expectLastCall().once();
+      metricsService.removeGauge(eq("http-client-pool.sandbox.WEBHDFS." + name), anyObject(Gauge.class));
+      EasyMock.expectLastCall().once();
+    }
+    EasyMock.replay(metricsService);
+
+    Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+        .build();
+    PooledHttpClientConnectionManager manager = new PooledHttpClientConnectionManager(registry, -1, 1000);
+    manager.setMaxTotal(16);
+    manager.setDefaultMaxPerRoute(4);
+    manager.registerMetrics(metricsService, "http-client-pool.sandbox.WEBHDFS");
+
+    // No route has been used yet, so no route gauges are added
+    manager.evict();
+    assertEquals(16, manager.getTotalStats().getMax());
+
+    manager.shutdown();
+    EasyMock.verify(metricsService);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.security.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.knox.gateway.services.security.EncryptionResult;
+import org.apache.knox.test.category.FastTests;
+import org.apache.knox.test.category.UnitTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@Category( { UnitTests.class, FastTests.class } )
+public class ConfigurableEncryptorTest {
+
+  @Test
+  public void testEncryptionsWithinEpochShareTheSalt() throws Exception {
+    ConfigurableEncryptor encryptor = new ConfigurableEncryptor("password");
+    EncryptionResult first = encryptor.encrypt("larry");
+    EncryptionResult second = encryptor.encrypt("larry");
+
+    assertArrayEquals(first.salt, second.salt);
+    assertFalse(Arrays.equals(first.iv, second.iv));
+    assertFalse(Arrays.equals(first.cipher, second.cipher));
+    assertEquals("larry", decrypt(encryptor, first));
+    assertEquals("larry", decrypt(encryptor, second));
+  }
+
+  @Test
+  public void testSaltRotatesWhenEpochIsOver() throws Exception {
+    ConfigurableEncryptor encryptor = new ConfigurableEncryptor("password");
+    encryptor.setKeyEpochMillis(0L);
+    EncryptionResult first = encryptor.encrypt("larry");
+    EncryptionResult second = encryptor.encrypt("larry");
+
+    assertFalse(Arrays.equals(first.salt, second.salt));
+    // keys of earlier epochs still decrypt
+    assertEquals("larry", decrypt(encryptor, first));
+    assertEquals("larry", decrypt(encryptor, second));
+  }
+
+  @Test
+  public void testOtherInstanceDecrypts() throws Exception {
+    EncryptionResult result = new ConfigurableEncryptor("password").encrypt("larry");
+    assertEquals("larry", decrypt(new ConfigurableEncryptor("password"), result));
+  }
+
+  @Test
+  public void testConcurrentUse() throws Exception {
+    final ConfigurableEncryptor encryptor = new ConfigurableEncryptor("password");
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<Void>> results = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        final String clear = "thread" + t;
+        results.add(executor.submit(() -> {
+          for (int i = 0; i < 100; i++) {
+            assertEquals(clear + i, decrypt(encryptor, encryptor.encrypt(clear + i)));
+          }
+          return null;
+        }));
+      }
+      for (Future<Void> result : results) {
+        result.get(1, TimeUnit.MINUTES);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static String decrypt(ConfigurableEncryptor encryptor, EncryptionResult result) throws Exception {
+    return new String(encryptor.decrypt(result.salt, result.iv, result.cipher), StandardCharsets.UTF_8);
+  }
+}
@@ -76,4 +76,32 @@ public interface AuditService {
    */
   <T> T execute( AuditContext context, Callable<T> callable ) throws Exception;
 
+  /**
+   * Makes the auditors queue their events for a background writer instead of writing them on the calling thread.
+   *
+   * @param queueSize The maximum number of events waiting to be written.
+   * @param dropWhenFull Whether events are dropped, instead of waiting for room, when the queue is full.
+   */
+  void startAsyncWriter( int queueSize, boolean dropWhenFull );
+
+  /**
+   * Writes the events still queued and makes the auditors write their events on the calling thread again.
+   */
+  void stopAsyncWriter();
+
+  /**
+   * @return The number of audit events written or queued to be written.
+   */
+  long getRecordedEventCount();
+
+  /**
+   * @return The number of audit events dropped because the queue of the background writer was full.
+   */
+  long getDroppedEventCount();
+
+  /**
+   * @return The number of audit events waiting for the background writer.
+   */
+  int getQueuedEventCount();
+
 }
\ No newline at end of file
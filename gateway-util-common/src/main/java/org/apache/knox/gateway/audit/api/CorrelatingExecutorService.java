@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.audit.api;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every task within the correlation context of the thread that submitted it.
+ * See {@link CorrelationService#wrap(ExecutorService)}.
+ */
+final class CorrelatingExecutorService extends AbstractExecutorService {
+  private final ExecutorService delegate;
+  private final CorrelationService correlationService;
+
+  CorrelatingExecutorService( ExecutorService delegate, CorrelationService correlationService ) {
+    this.delegate = delegate;
+    this.correlationService = correlationService;
+  }
+
+  /*
+   * submit() and invoke*() of AbstractExecutorService all end up here with the task
+   * wrapped in a future, so the context is captured once per task.
+   */
+  @Override
+  public void execute( Runnable command ) {
+    delegate.execute( correlationService.wrap( command ) );
+  }
+
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    return delegate.shutdownNow();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return delegate.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return delegate.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination( long timeout, TimeUnit unit ) throws InterruptedException {
+    return delegate.awaitTermination( timeout, unit );
+  }
+}
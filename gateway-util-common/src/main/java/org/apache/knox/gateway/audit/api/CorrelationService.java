@@ -18,11 +18,22 @@
 package org.apache.knox.gateway.audit.api;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Manipulates the correlations context associated with the current thread.
+ * <p>
+ * Work handed over to other threads keeps the correlation context of the thread that
+ * handed it over when it is wrapped with one of the {@code wrap} methods, or when it is
+ * submitted to an executor returned by {@link #wrap(ExecutorService)}.
  */
 public interface CorrelationService {
+  /**
+   * The request attribute holding the correlation context of a request, for code that
+   * handles the request outside of the thread it arrived on.
+   */
+  String CONTEXT_ATTRIBUTE = CorrelationContext.class.getName();
+
   /**
    * Returns the current attached correlation context if any.
    *
@@ -56,6 +67,33 @@ public interface CorrelationService {
    */
   <T> T execute( CorrelationContext context, Callable<T> callable ) throws Exception;
 
+  /**
+   * Captures the current attached correlation context, if any, for the given task.
+   * The captured context is attached around the task's invocation, on whichever thread it runs.
+   * @param task The task to run within the current correlation context.  May not be null.
+   * @return The wrapped task, or the task itself if there is no attached context.
+   */
+  Runnable wrap( Runnable task );
+
+  /**
+   * Captures the current attached correlation context, if any, for the given task.
+   * The captured context is attached around the task's invocation, on whichever thread it runs.
+   * @param task The task to call within the current correlation context.  May not be null.
+   * @param <T> Type of callable
+   * @return The wrapped task, or the task itself if there is no attached context.
+   */
+  <T> Callable<T> wrap( Callable<T> task );
+
+  /**
+   * Returns an executor that runs each task within the correlation context that was attached
+   * when the task was submitted.  Shutting down the returned executor shuts down the given one.
+   * @param executor The executor to run the tasks.  May not be null.
+   * @return The correlating executor.
+   */
+  default ExecutorService wrap( ExecutorService executor ) {
+    return new CorrelatingExecutorService( executor, this );
+  }
+
   /**
    * Attaches the externalized correlation context
    * @param externalizedContext The externalized correlation context
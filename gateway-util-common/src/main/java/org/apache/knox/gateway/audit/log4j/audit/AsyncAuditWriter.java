@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.audit.log4j.audit;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.status.StatusLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes audit events on a background thread, so that request threads only capture the
+ * event and queue it instead of waiting for the audit appenders.
+ * <p>
+ * The writer takes whatever has queued up since its last write, up to {@link #MAX_BATCH_SIZE}
+ * events, and flags the last one as the end of the batch, which lets buffered log4j appenders
+ * flush once per batch instead of once per event.
+ * <p>
+ * When the queue is full, callers either wait for room, so no event is lost, or drop their
+ * event and count it.
+ */
+final class AsyncAuditWriter {
+
+  static final int MAX_BATCH_SIZE = 256;
+
+  private static final long POLL_MILLIS = 100L;
+
+  private final BlockingQueue<PendingEvent> queue;
+  private final boolean dropWhenFull;
+  private final LongAdder dropped;
+  private final ExecutorService writer;
+  private volatile boolean running = true;
+
+  /**
+   * @param queueSize    the maximum number of events waiting to be written
+   * @param dropWhenFull whether events are dropped, instead of waiting for room, when the queue is full
+   * @param dropped      counts the dropped events
+   */
+  AsyncAuditWriter(int queueSize, boolean dropWhenFull, LongAdder dropped) {
+    this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+    this.dropWhenFull = dropWhenFull;
+    this.dropped = dropped;
+    this.writer = Executors.newSingleThreadExecutor(new BasicThreadFactory.Builder()
+        .namingPattern("AuditWriter-%d").daemon(true).build());
+    this.writer.execute(this::run);
+  }
+
+  /**
+   * @return false if the event was dropped because the queue is full
+   */
+  boolean submit(Logger logger, LogEvent event) {
+    final PendingEvent pending = new PendingEvent(logger, event);
+    if (dropWhenFull) {
+      if (!queue.offer(pending)) {
+        dropped.increment();
+        return false;
+      }
+    } else {
+      try {
+        queue.put(pending);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        pending.event.setEndOfBatch(true);
+        write(pending);
+        return true;
+      }
+    }
+    // the writer might have drained the queue for the last time before this event was added
+    if (!running) {
+      drain();
+    }
+    return true;
+  }
+
+  int getQueuedEventCount() {
+    return queue.size();
+  }
+
+  /**
+   * Stops the writer thread after writing the events that are already queued. Events
+   * submitted afterwards are written by their callers.
+   */
+  void stop() {
+    running = false;
+    // Not interrupted, an appender could be in the middle of writing to a channel
+    writer.shutdown();
+    try {
+      writer.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    drain();
+  }
+
+  private void run() {
+    final List<PendingEvent> batch = new ArrayList<>(MAX_BATCH_SIZE);
+    try {
+      while (running) {
+        final PendingEvent first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first != null) {
+          batch.add(first);
+          queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+          write(batch);
+          batch.clear();
+        }
+      }
+    } catch (InterruptedException e) {
+      // stopped; the remaining events are drained by stop()
+    }
+  }
+
+  private synchronized void drain() {
+    final List<PendingEvent> batch = new ArrayList<>(MAX_BATCH_SIZE);
+    while (queue.drainTo(batch, MAX_BATCH_SIZE) > 0) {
+      write(batch);
+      batch.clear();
+    }
+  }
+
+  private static void write(List<PendingEvent> batch) {
+    final int last = batch.size() - 1;
+    for (int i = 0; i <= last; i++) {
+      final PendingEvent pending = batch.get(i);
+      pending.event.setEndOfBatch(i == last);
+      write(pending);
+    }
+  }
+
+  private static void write(PendingEvent pending) {
+    try {
+      // The logger was found enabled when the event was captured, the logger config only
+      // applies its own filters before passing the event to the appenders
+      pending.logger.get().log(pending.event);
+    } catch (RuntimeException e) {
+      // A failing appender must not stop the writer thread
+      StatusLogger.getLogger().error("Failed to write audit event", e);
+    }
+  }
+
+  private static final class PendingEvent {
+    private final Logger logger;
+    private final LogEvent event;
+
+    PendingEvent(Logger logger, LogEvent event) {
+      this.logger = logger;
+      this.event = event;
+    }
+  }
+}
@@ -100,4 +100,29 @@ public class Log4jAuditService implements AuditService {
     return auditor;
   }
 
+  @Override
+  public void startAsyncWriter(int queueSize, boolean dropWhenFull) {
+    Log4jAuditor.startAsyncWriter(queueSize, dropWhenFull);
+  }
+
+  @Override
+  public void stopAsyncWriter() {
+    Log4jAuditor.stopAsyncWriter();
+  }
+
+  @Override
+  public long getRecordedEventCount() {
+    return Log4jAuditor.getRecordedEventCount();
+  }
+
+  @Override
+  public long getDroppedEventCount() {
+    return Log4jAuditor.getDroppedEventCount();
+  }
+
+  @Override
+  public int getQueuedEventCount() {
+    return Log4jAuditor.getQueuedEventCount();
+  }
+
 }
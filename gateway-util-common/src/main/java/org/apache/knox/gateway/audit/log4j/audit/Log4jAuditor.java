@@ -23,13 +23,22 @@ import org.apache.knox.gateway.audit.api.Auditor;
 import org.apache.knox.gateway.audit.api.CorrelationContext;
 import org.apache.knox.gateway.audit.api.CorrelationService;
 import org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationService;
+import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.core.ContextDataInjector;
+import org.apache.logging.log4j.core.LogEvent;
 import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.core.impl.ContextDataInjectorFactory;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.apache.logging.log4j.util.SortedArrayStringMap;
+import org.apache.logging.log4j.util.StringMap;
 
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Log4jAuditor implements Auditor {
 
@@ -45,6 +54,12 @@ public class Log4jAuditor implements Auditor {
   /* List of parameters to be masked */
   private static List<String> maskedParams = new ArrayList<>();
 
+  /* Shared by all auditors; null while events are written on the calling thread */
+  private static volatile AsyncAuditWriter asyncWriter;
+  private static final LongAdder recordedEvents = new LongAdder();
+  private static final LongAdder droppedEvents = new LongAdder();
+  private static final ContextDataInjector CONTEXT_DATA_INJECTOR = ContextDataInjectorFactory.createInjector();
+
   static {
     /* add defaults */
     maskedParams.add("knoxtoken");
@@ -101,6 +116,14 @@ public class Log4jAuditor implements Auditor {
 
   private void auditLog( String action, String resourceName, String resourceType, String outcome, String message ) {
     if ( logger.isInfoEnabled() ) {
+      final AsyncAuditWriter writer = asyncWriter;
+      if ( writer != null ) {
+        if ( writer.submit( logger, createEvent( action, resourceName, resourceType, outcome, message ) ) ) {
+          recordedEvents.increment();
+        }
+        return;
+      }
+      recordedEvents.increment();
       ThreadContext.put( AuditConstants.MDC_ACTION_KEY, action );
       ThreadContext.put( AuditConstants.MDC_RESOURCE_NAME_KEY, maskTokenFromURL(resourceName) );
       ThreadContext.put( AuditConstants.MDC_RESOURCE_TYPE_KEY, resourceType );
@@ -119,6 +142,68 @@ public class Log4jAuditor implements Auditor {
     }
   }
 
+  /*
+   * The event carries a copy of the context data as it is now, i.e. the thread context and
+   * the correlation context, since it is written later on another thread. The audit fields
+   * are added to the copy only, which spares the thread context map being copied on each
+   * of their puts and removes.
+   */
+  private LogEvent createEvent( String action, String resourceName, String resourceType, String outcome, String message ) {
+    final StringMap contextData = CONTEXT_DATA_INJECTOR.injectContextData( null, new SortedArrayStringMap() );
+    contextData.putValue( AuditConstants.MDC_ACTION_KEY, action );
+    contextData.putValue( AuditConstants.MDC_RESOURCE_NAME_KEY, maskTokenFromURL(resourceName) );
+    contextData.putValue( AuditConstants.MDC_RESOURCE_TYPE_KEY, resourceType );
+    contextData.putValue( AuditConstants.MDC_OUTCOME_KEY, outcome );
+    contextData.putValue( AuditConstants.MDC_SERVICE_KEY, serviceName );
+    contextData.putValue( AuditConstants.MDC_COMPONENT_KEY, componentName );
+    return Log4jLogEvent.newBuilder()
+        .setLoggerName( logger.getName() )
+        .setLoggerFqcn( Log4jAuditor.class.getName() )
+        .setLevel( Level.INFO )
+        .setMessage( new SimpleMessage( message ) )
+        .setContextData( contextData )
+        .setContextStack( ThreadContext.getImmutableStack() )
+        .setThreadName( Thread.currentThread().getName() )
+        .setTimeMillis( System.currentTimeMillis() )
+        .build();
+  }
+
+  /**
+   * Makes all auditors queue their events for a background writer instead of writing them
+   * on the calling thread. A writer that is already running is stopped first.
+   *
+   * @param queueSize    the maximum number of events waiting to be written
+   * @param dropWhenFull whether events are dropped, instead of waiting for room, when the queue is full
+   */
+  static synchronized void startAsyncWriter( int queueSize, boolean dropWhenFull ) {
+    stopAsyncWriter();
+    asyncWriter = new AsyncAuditWriter( queueSize, dropWhenFull, droppedEvents );
+  }
+
+  /**
+   * Writes the queued events and goes back to writing events on the calling thread.
+   */
+  static synchronized void stopAsyncWriter() {
+    final AsyncAuditWriter writer = asyncWriter;
+    if ( writer != null ) {
+      asyncWriter = null;
+      writer.stop();
+    }
+  }
+
+  static long getRecordedEventCount() {
+    return recordedEvents.sum();
+  }
+
+  static long getDroppedEventCount() {
+    return droppedEvents.sum();
+  }
+
+  static int getQueuedEventCount() {
+    final AsyncAuditWriter writer = asyncWriter;
+    return writer == null ? 0 : writer.getQueuedEventCount();
+  }
+
   @Override
   public String getComponentName() {
     return componentName;
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.audit.log4j.correlation;
+
+import static org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationService.KEY_CORRELATION_CONTEXT;
+import static org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationService.KEY_PARENT_REQUEST_ID;
+import static org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationService.KEY_REQUEST_ID;
+import static org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationService.KEY_ROOT_REQUEST_ID;
+import static org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationService.KEY_TRACE_ID;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.knox.gateway.audit.api.CorrelationContext;
+import org.apache.logging.log4j.core.util.ContextDataProvider;
+
+/**
+ * Adds the correlation context of the current thread to the context data of log events.
+ * <p>
+ * Log4j only asks for the data when it creates an event, so attaching and detaching a
+ * correlation context costs a thread local write instead of a copy of the thread context
+ * map per key, and requests that log nothing never pay for it. Registered as a service
+ * in META-INF/services.
+ */
+public class Log4jCorrelationContextDataProvider implements ContextDataProvider {
+
+  @Override
+  public Map<String, String> supplyContextData() {
+    final CorrelationContext context = Log4jCorrelationService.currentContext();
+    if (context == null) {
+      return Collections.emptyMap();
+    }
+    final Map<String, String> data = new HashMap<>(8);
+    data.put(KEY_CORRELATION_CONTEXT, "true");
+    putIfNotNull(data, KEY_REQUEST_ID, context.getRequestId());
+    putIfNotNull(data, KEY_PARENT_REQUEST_ID, context.getParentRequestId());
+    putIfNotNull(data, KEY_ROOT_REQUEST_ID, context.getRootRequestId());
+    putIfNotNull(data, KEY_TRACE_ID, context.getRequestId());
+    return data;
+  }
+
+  private static void putIfNotNull(Map<String, String> data, String key, String value) {
+    if (value != null) {
+      data.put(key, value);
+    }
+  }
+}
@@ -34,41 +34,90 @@ public class Log4jCorrelationService implements CorrelationService {
   public static final String KEY_ROOT_REQUEST_ID = KEY_CORRELATION_CONTEXT + "_rootRequestId";
   public static final String KEY_PARENT_REQUEST_ID = KEY_CORRELATION_CONTEXT + "_parentRequestId";
   public static final String KEY_REQUEST_ID = KEY_CORRELATION_CONTEXT + "_requestId";
+  /* The request ID under the name used by the gateway log layouts */
+  public static final String KEY_TRACE_ID = "trace_id";
+
+  // Only read into the log4j context data when a log event is created, see Log4jCorrelationContextDataProvider
+  private static final ThreadLocal<CorrelationContext> CONTEXT = new ThreadLocal<>();
+
+  static CorrelationContext currentContext() {
+    return CONTEXT.get();
+  }
+
+  /**
+   * Returns the trace ID of the current thread, i.e. the one put into the thread context
+   * if any, else the request ID of the attached correlation context.
+   *
+   * @return The trace ID.  May be null.
+   */
+  public static String getTraceId() {
+    final String traceId = ThreadContext.get(KEY_TRACE_ID);
+    if (traceId != null) {
+      return traceId;
+    }
+    final CorrelationContext context = CONTEXT.get();
+    return context == null ? null : context.getRequestId();
+  }
 
   @Override
   public CorrelationContext getContext() {
-    if (ThreadContext.get(KEY_CORRELATION_CONTEXT) == null) {
-      return null;
-    }
-    return new Log4jCorrelationContext(
-              ThreadContext.get(KEY_REQUEST_ID), ThreadContext.get(KEY_PARENT_REQUEST_ID), ThreadContext.get(KEY_ROOT_REQUEST_ID));
+    return CONTEXT.get();
   }
 
   @Override
   public void attachContext(CorrelationContext context) {
     if (context != null) {
-      ThreadContext.put(KEY_CORRELATION_CONTEXT, "true");
-      ThreadContext.put(KEY_REQUEST_ID, context.getRequestId());
-      ThreadContext.put(KEY_PARENT_REQUEST_ID, context.getParentRequestId());
-      ThreadContext.put(KEY_ROOT_REQUEST_ID, context.getRootRequestId());
+      CONTEXT.set(context);
     }
   }
 
   @Override
   public void detachContext() {
-    ThreadContext.remove(KEY_CORRELATION_CONTEXT);
-    ThreadContext.remove(KEY_REQUEST_ID);
-    ThreadContext.remove(KEY_PARENT_REQUEST_ID);
-    ThreadContext.remove(KEY_ROOT_REQUEST_ID);
+    CONTEXT.remove();
   }
 
   @Override
   public <T> T execute(CorrelationContext context, Callable<T> callable) throws Exception {
+    final CorrelationContext previous = CONTEXT.get();
     try {
       attachContext(context);
       return callable.call();
     } finally {
-      detachContext();
+      restoreContext(previous);
+    }
+  }
+
+  @Override
+  public Runnable wrap(Runnable task) {
+    final CorrelationContext context = CONTEXT.get();
+    if (context == null) {
+      return task;
+    }
+    return () -> {
+      final CorrelationContext previous = CONTEXT.get();
+      CONTEXT.set(context);
+      try {
+        task.run();
+      } finally {
+        restoreContext(previous);
+      }
+    };
+  }
+
+  @Override
+  public <T> Callable<T> wrap(Callable<T> task) {
+    final CorrelationContext context = CONTEXT.get();
+    if (context == null) {
+      return task;
+    }
+    return () -> execute(context, task);
+  }
+
+  private static void restoreContext(CorrelationContext previous) {
+    if (previous == null) {
+      CONTEXT.remove();
+    } else {
+      CONTEXT.set(previous);
     }
   }
 
@@ -165,6 +165,82 @@ public class AuditServiceTest {
     checkLogEventContexts( event, cc, ac );
   }
 
+  @Test
+  public void testAsyncWriter() {
+    int iterations = 1000;
+
+    AuditContext ac = auditService.createContext();
+    ac.setUsername( username );
+    ac.setProxyUsername( proxyUsername );
+    ac.setRemoteIp( remoteIp );
+    ac.setRemoteHostname( remoteHostname );
+    ac.setTargetServiceName( targetServiceName );
+
+    auditService.attachContext(ac);
+
+    CorrelationContext cc = Log4jCorrelationContext.random();
+    correlationService.attachContext(cc);
+
+    long recorded = auditService.getRecordedEventCount();
+    auditService.startAsyncWriter( 16, false );
+    try {
+      for( int i = 0; i < iterations; i++ ) {
+        auditor.audit( "action" + i, "resource" + i, "resource type" + i, "outcome" + i, "message" + i );
+      }
+    } finally {
+      auditService.stopAsyncWriter();
+    }
+
+    auditService.detachContext();
+    correlationService.detachContext();
+    assertThat( CollectAppender.queue.size(), is( iterations ) );
+    assertThat( auditService.getRecordedEventCount() - recorded, is( (long) iterations ) );
+    assertThat( auditService.getQueuedEventCount(), is( 0 ) );
+
+    //Events are written on another thread but carry the contexts of the auditing thread
+    String threadName = Thread.currentThread().getName();
+    Iterator<LogEvent> iterator = CollectAppender.queue.iterator();
+    int counter = 0;
+    while(iterator.hasNext()) {
+      LogEvent event = iterator.next();
+      checkLogEventContexts( event, cc, ac );
+
+      ReadOnlyStringMap eventContextData = event.getContextData();
+      assertThat( eventContextData.getValue( AuditConstants.MDC_ACTION_KEY ), is( "action" + counter ) );
+      assertThat( eventContextData.getValue( AuditConstants.MDC_RESOURCE_NAME_KEY ), is( "resource" + counter ) );
+      assertThat( eventContextData.getValue( AuditConstants.MDC_OUTCOME_KEY ), is( "outcome" + counter ) );
+      assertThat( event.getMessage().getFormattedMessage(), is( "message" + counter ) );
+      assertThat( event.getThreadName(), is( threadName ) );
+
+      counter++;
+    }
+    assertThat( auditService.getContext(), nullValue() );
+    assertThat( correlationService.getContext(), nullValue() );
+
+    //Back to writing on the calling thread
+    auditor.audit( "action", "resource", "resource type", "outcome", "message" );
+    assertThat( CollectAppender.queue.size(), is( iterations + 1 ) );
+  }
+
+  @Test
+  public void testAsyncWriterCountsDroppedEvents() {
+    int iterations = 1000;
+    long recorded = auditService.getRecordedEventCount();
+    long dropped = auditService.getDroppedEventCount();
+    auditService.startAsyncWriter( 1, true );
+    try {
+      for( int i = 0; i < iterations; i++ ) {
+        auditor.audit( "action", "resource", "resource type", "outcome", "message" );
+      }
+    } finally {
+      auditService.stopAsyncWriter();
+    }
+
+    long written = auditService.getRecordedEventCount() - recorded;
+    assertThat( written + auditService.getDroppedEventCount() - dropped, is( (long) iterations ) );
+    assertThat( (long) CollectAppender.queue.size(), is( written ) );
+  }
+
   private void checkLogEventContexts( LogEvent event, CorrelationContext expectedCorrelationContext, AuditContext expectedAuditContext ) {
     AuditContext context = Log4jAuditContext.of(event);
     assertThat( context.getUsername(), is( expectedAuditContext.getUsername() ) );
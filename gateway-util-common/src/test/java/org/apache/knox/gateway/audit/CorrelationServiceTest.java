@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.audit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsNull.nullValue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.knox.gateway.audit.api.CorrelationContext;
+import org.apache.knox.gateway.audit.api.CorrelationService;
+import org.apache.knox.gateway.audit.api.CorrelationServiceFactory;
+import org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationContext;
+import org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationService;
+import org.apache.knox.test.log.CollectAppender;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.core.LogEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CorrelationServiceTest {
+  private static final CorrelationService correlationService = CorrelationServiceFactory.getCorrelationService();
+  private static final Logger logger = LogManager.getLogger( "audit.forward" );
+
+  @Before
+  public void setUp() {
+    tearDown();
+  }
+
+  @After
+  public void tearDown() {
+    correlationService.detachContext();
+    CollectAppender.queue.clear();
+  }
+
+  @Test
+  public void testContextIsAddedToLogEvents() {
+    CorrelationContext cc = Log4jCorrelationContext.random();
+    correlationService.attachContext( cc );
+
+    // Only log events carry the context, the thread context is left alone
+    assertThat( ThreadContext.get( Log4jCorrelationService.KEY_REQUEST_ID ), nullValue() );
+    logger.info( "message" );
+
+    correlationService.detachContext();
+    logger.info( "message" );
+
+    assertThat( CollectAppender.queue.size(), is( 2 ) );
+    LogEvent event = CollectAppender.queue.poll();
+    checkCorrelationContext( event, cc );
+    assertThat( event.getContextData().getValue( Log4jCorrelationService.KEY_TRACE_ID ), is( cc.getRequestId() ) );
+    assertThat( Log4jCorrelationContext.of( CollectAppender.queue.poll() ), nullValue() );
+  }
+
+  @Test
+  public void testExecuteRestoresPreviousContext() throws Exception {
+    CorrelationContext outer = Log4jCorrelationContext.random();
+    CorrelationContext inner = Log4jCorrelationContext.random();
+    correlationService.attachContext( outer );
+
+    CorrelationContext seen = correlationService.execute( inner, correlationService::getContext );
+
+    assertThat( seen, sameInstance( inner ) );
+    assertThat( correlationService.getContext(), sameInstance( outer ) );
+  }
+
+  @Test
+  public void testWrappedExecutorPropagatesContext() throws Exception {
+    CorrelationContext cc = Log4jCorrelationContext.random();
+    ExecutorService executor = correlationService.wrap( Executors.newSingleThreadExecutor() );
+    try {
+      correlationService.attachContext( cc );
+      executor.submit( () -> logger.info( "message" ) ).get( 1, TimeUnit.MINUTES );
+      assertThat( executor.submit( correlationService::getContext ).get( 1, TimeUnit.MINUTES ), sameInstance( cc ) );
+
+      // The worker thread does not keep the context of a task
+      correlationService.detachContext();
+      assertThat( executor.submit( correlationService::getContext ).get( 1, TimeUnit.MINUTES ), nullValue() );
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat( CollectAppender.queue.size(), is( 1 ) );
+    checkCorrelationContext( CollectAppender.queue.poll(), cc );
+  }
+
+  @Test
+  public void testTraceId() {
+    assertThat( Log4jCorrelationService.getTraceId(), nullValue() );
+
+    CorrelationContext cc = Log4jCorrelationContext.random();
+    correlationService.attachContext( cc );
+    assertThat( Log4jCorrelationService.getTraceId(), is( cc.getRequestId() ) );
+
+    ThreadContext.put( Log4jCorrelationService.KEY_TRACE_ID, "trace" );
+    try {
+      assertThat( Log4jCorrelationService.getTraceId(), is( "trace" ) );
+    } finally {
+      ThreadContext.remove( Log4jCorrelationService.KEY_TRACE_ID );
+    }
+  }
+
+  private static void checkCorrelationContext( LogEvent event, CorrelationContext expected ) {
+    CorrelationContext context = Log4jCorrelationContext.of( event );
+    assertThat( context.getRequestId(), is( expected.getRequestId() ) );
+    assertThat( context.getParentRequestId(), is( expected.getParentRequestId() ) );
+    assertThat( context.getRootRequestId(), is( expected.getRootRequestId() ) );
+  }
+}
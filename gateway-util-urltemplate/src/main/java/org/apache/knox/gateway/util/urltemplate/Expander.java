@@ -20,6 +20,7 @@ package org.apache.knox.gateway.util.urltemplate;
 import static org.apache.knox.gateway.util.urltemplate.Parser.TEMPLATE_CLOSE_MARKUP;
 import static org.apache.knox.gateway.util.urltemplate.Parser.TEMPLATE_OPEN_MARKUP;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -30,12 +31,16 @@ import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class Expander {
 
   private static Params EMPTY_PARAMS = new EmptyParams();
 
+  // Buffers above this size are not kept for reuse, to not pin the memory of one huge URL
+  private static final int MAX_REUSED_BUFFER_SIZE = 8192;
+
+  private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial( StringBuilder::new );
+
   public static URI expand( Template template, Params params, Evaluator evaluator ) throws URISyntaxException {
     return Expander.expandToUri( template, params, evaluator );
   }
@@ -50,11 +55,53 @@ public class Expander {
   }
 
   public static String expandToString( Template template, Params params, Evaluator evaluator ) {
-    StringBuilder builder = new StringBuilder();
+    StringBuilder builder = takeBuffer();
+    try {
+      expand( template, params, evaluator, builder );
+      return builder.toString();
+    } finally {
+      returnBuffer( builder );
+    }
+  }
+
+  /**
+   * Expands the template straight into the given output, e.g. the buffer a rewritten
+   * response is written to, instead of building a string for every URL.
+   */
+  public static void expandTo( Template template, Params params, Evaluator evaluator, Appendable output ) throws IOException {
+    if( output instanceof StringBuilder ) {
+      expand( template, params, evaluator, (StringBuilder)output );
+    } else {
+      StringBuilder builder = takeBuffer();
+      try {
+        expand( template, params, evaluator, builder );
+        output.append( builder );
+      } finally {
+        returnBuffer( builder );
+      }
+    }
+  }
+
+  // Taken out of the thread local while in use, so an evaluator expanding another template gets its own buffer
+  private static StringBuilder takeBuffer() {
+    StringBuilder builder = BUFFER.get();
+    BUFFER.remove();
+    builder.setLength( 0 );
+    return builder;
+  }
+
+  private static void returnBuffer( StringBuilder builder ) {
+    if( builder.capacity() <= MAX_REUSED_BUFFER_SIZE ) {
+      BUFFER.set( builder );
+    }
+  }
+
+  private static void expand( Template template, Params params, Evaluator evaluator, StringBuilder builder ) {
     if( params == null ) {
       params = EMPTY_PARAMS;
     }
-    Set<String> names = new LinkedHashSet<>( params.getNames() );
+    // The names are only tracked to find the parameters left for the extra query
+    Set<String> names = template.getExtra() == null ? null : new LinkedHashSet<>( params.getNames() );
     expandScheme( template, names, params, evaluator, builder );
     expandAuthority( template, names, params, evaluator, builder );
     expandPath( template, names, params, evaluator, builder );
@@ -66,7 +113,12 @@ public class Expander {
     } else {
       expandQuery( template, names, params, evaluator, builder );
     }
-    return builder.toString();
+  }
+
+  private static void consumeName( Set<String> names, Function function ) {
+    if( names != null ) {
+      names.remove( function.getParameterName() );
+    }
   }
 
   private static void expandScheme( Template template, Set<String> names, Params params, Evaluator evaluator, StringBuilder builder ) {
@@ -114,9 +166,8 @@ public class Expander {
         builder.append('/');
       }
       Path segment = path.get( i );
-      String name = segment.getParamName();
-      Function function = new Function( name );
-      names.remove( function.getParameterName() );
+      Function function = segment.getFunction();
+      consumeName( names, function );
       Segment.Value value = segment.getFirstValue();
       switch( value.getType() ) {
         case( Segment.STATIC ):
@@ -157,29 +208,31 @@ public class Expander {
   }
 
   private static void expandQuery( Template template, Set<String> names, Params params, Evaluator evaluator, StringBuilder builder ) {
-    AtomicInteger index = new AtomicInteger( 0 );
-    expandExplicitQuery( template, names, params, evaluator, builder, index );
-    expandExtraQuery( template, names, params, builder, index );
+    int count = expandExplicitQuery( template, names, params, evaluator, builder );
+    expandExtraQuery( template, names, params, builder, count );
     //Kevin: I took this out because it causes '?' to be added to expanded templates when there are not query params.
 //    if( template.hasQuery() && index.get() == 0 ) {
 //      builder.append( '?' );
 //    }
   }
 
-  private static void expandExplicitQuery( Template template, Set<String> names, Params params, Evaluator evaluator, StringBuilder builder, AtomicInteger index ) {
+  /**
+   * @return the number of query parameters written
+   */
+  private static int expandExplicitQuery( Template template, Set<String> names, Params params, Evaluator evaluator, StringBuilder builder ) {
+    int count = 0;
     Collection<Query> query = template.getQuery().values();
     if( !query.isEmpty() ) {
       for (Query query1 : query) {
-        int i = index.incrementAndGet();
-        if (i == 1) {
+        count++;
+        if (count == 1) {
           builder.append('?');
         } else {
           builder.append('&');
         }
         String queryName = query1.getQueryName();
-        String paramName = query1.getParamName();
-        Function function = new Function(paramName);
-        names.remove(function.getParameterName());
+        Function function = query1.getFunction();
+        consumeName(names, function);
         for (Segment.Value value : query1.getValues()) {
           switch (value.getType()) {
           case (Segment.STATIC):
@@ -202,6 +255,7 @@ public class Expander {
         }
       }
     }
+    return count;
   }
 
   private static String unescape(String pattern) {
@@ -213,7 +267,7 @@ public class Expander {
             .replace("\\" + TEMPLATE_CLOSE_MARKUP, String.valueOf(TEMPLATE_CLOSE_MARKUP));
   }
 
-  private static void expandExtraQuery( Template template, Set<String> names, Params params, StringBuilder builder, AtomicInteger index ) {
+  private static void expandExtraQuery( Template template, Set<String> names, Params params, StringBuilder builder, int count ) {
     Query extra = template.getExtra();
     if( extra != null ) {
       // Need to copy to an array because we are going to modify the set while iterating.
@@ -224,8 +278,8 @@ public class Expander {
         List<String> values = params.resolve( name );
         if( values != null ) {
           for( String value: values ) {
-            int i = index.incrementAndGet();
-            if( i == 1 ) {
+            count++;
+            if( count == 1 ) {
               builder.append('?');
             } else {
               builder.append('&');
@@ -288,8 +342,8 @@ public class Expander {
   private static void expandSingleValue( Segment segment, Set<String> names, Params params, Evaluator evaluator, StringBuilder builder ) {
     if( segment != null ) {
       String paramName = segment.getParamName();
-      Function function = new Function( paramName );
-      names.remove( function.getParameterName() );
+      Function function = segment.getFunction();
+      consumeName( names, function );
       Segment.Value value = segment.getFirstValue();
       String str;
       switch( value.getType() ) {
@@ -20,7 +20,6 @@ package org.apache.knox.gateway.util.urltemplate;
 import org.apache.knox.gateway.i18n.resources.ResourcesFactory;
 
 import java.net.URISyntaxException;
-import java.util.StringTokenizer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -80,6 +79,11 @@ public class Parser {
 
   private static Pattern PATTERN = Pattern.compile( "^(([^:/?#]+):)?(//([^/?#]*))?([^?#]*)(\\?([^#]*))?(#(.*))?" );
 
+  // Every rewritten URL is parsed, so each thread keeps its matcher instead of allocating one per URL
+  private static final ThreadLocal<Matcher> MATCHER = ThreadLocal.withInitial( () -> PATTERN.matcher( "" ) );
+
+  private static final Pattern QUERY_SEPARATOR = Pattern.compile( "&amp;|\\?|&" );
+
   @Deprecated
   public static Template parse( String template ) throws URISyntaxException {
     return Parser.parseTemplate( template );
@@ -105,16 +109,21 @@ public class Parser {
     builder.setIsDirectory( false ); // Assume a file path until found otherwise.  If true, will cause trailing / in output URL.
     builder.setHasQuery( false ); // Assume no ? until found otherwise.  If true, will cause ? in output URL.
     builder.setHasFragment( false ); // Assume no # until found otherwise.  If true, will cause # in output URL.
-    Matcher match = PATTERN.matcher( original );
-    if( match.matches() ) {
-      consumeSchemeMatch( builder, match );
-      consumeAuthorityMatch( builder, match );
-      consumePathMatch( builder, match );
-      consumeQueryMatch( builder, match );
-      consumeFragmentMatch( builder, match );
-      fixNakedAuthority( builder );
-    } else {
-      throw new URISyntaxException( original, RES.parseTemplateFailureReason( original ) );
+    Matcher match = MATCHER.get().reset( original );
+    try {
+      if( match.matches() ) {
+        consumeSchemeMatch( builder, match );
+        consumeAuthorityMatch( builder, match );
+        consumePathMatch( builder, match );
+        consumeQueryMatch( builder, match );
+        consumeFragmentMatch( builder, match );
+        fixNakedAuthority( builder );
+      } else {
+        throw new URISyntaxException( original, RES.parseTemplateFailureReason( original ) );
+      }
+    } finally {
+      // Don't keep the URL reachable from the thread
+      match.reset( "" );
     }
     return builder.build();
   }
@@ -215,9 +224,18 @@ public class Parser {
 
   private static void consumePathToken( final Builder builder, final String token ) {
     if( token != null ) {
-      final StringTokenizer tokenizer = new StringTokenizer( token, "/" );
-      while( tokenizer.hasMoreTokens() ) {
-        consumePathSegment( builder, tokenizer.nextToken() );
+      // Empty segments are skipped
+      final int length = token.length();
+      int start = 0;
+      while( start < length ) {
+        int end = token.indexOf( '/', start );
+        if( end < 0 ) {
+          end = length;
+        }
+        if( end > start ) {
+          consumePathSegment( builder, token.substring( start, end ) );
+        }
+        start = end + 1;
       }
     }
   }
@@ -239,7 +257,7 @@ public class Parser {
   private static void consumeQueryToken( final Builder builder, String token ) {
     if( token != null ) {
       //add "&amp;" as a delimiter
-      String[] tokens = token.split("(&amp;|\\?|&)");
+      String[] tokens = QUERY_SEPARATOR.split(token);
       if (tokens != null){
         for (String nextToken : tokens){
           consumeQuerySegment(builder,nextToken);
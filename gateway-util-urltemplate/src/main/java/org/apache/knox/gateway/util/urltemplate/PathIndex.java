@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.util.urltemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index over path templates that finds the value for a request path straight from the path
+ * string, without parsing the path into a {@link Template} first.
+ * <p>
+ * It picks the same value that a {@link Matcher} holding the same templates picks for the
+ * literal path: the deepest matching template wins, at equal depth the most specific one
+ * (static before regex before wildcard before glob), and otherwise the one added first.
+ * Unlike the {@link Matcher} a node looks up its static children by name, so the first
+ * segment of a request is not compared against every service of a topology.
+ * <p>
+ * Only templates made of path segments are indexed, optionally followed by the query glob,
+ * e.g. <code>/webhdfs/v1/{path=**}?{**}</code>. Once a template with any other part, e.g. a
+ * host or a named query parameter, has been added the index stops answering, since the
+ * outcome would depend on more than the path. The same goes for inputs that are not plain
+ * absolute paths. Callers fall back to the {@link Matcher} whenever {@link #match(String)}
+ * returns null.
+ * <p>
+ * Templates must be added before the index is shared; matching is safe from many threads.
+ */
+public class PathIndex<V> {
+
+  private final Node root = new Node( null, 0, 0 );
+  private boolean enabled = true;
+
+  public void add( Template template, V value ) {
+    if( !enabled ) {
+      return;
+    }
+    if( !isIndexable( template ) ) {
+      enabled = false;
+      return;
+    }
+    Node node = root;
+    for( Path segment : template.getPath() ) {
+      node = node.child( segment );
+    }
+    node.setValue( value, template.getExtra() != null );
+  }
+
+  /**
+   * @return false if a template was added that the index can not answer for
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @param path the request path, starting with a slash and without query or fragment
+   * @return the value of the best matching template, or null if there is none or if the
+   *         index can not answer for this path
+   */
+  public V match( String path ) {
+    if( !enabled || !isPlainPath( path ) ) {
+      return null;
+    }
+    List<Node> candidates = new ArrayList<>( 4 );
+    List<Node> matches = new ArrayList<>( 4 );
+    candidates.add( root );
+    int length = path.length();
+    int start = 1;
+    while( start <= length ) {
+      int end = path.indexOf( '/', start );
+      if( end < 0 ) {
+        end = length;
+      }
+      // Empty segments are skipped, like the parser does
+      if( end > start ) {
+        String segment = path.substring( start, end );
+        for( Node parent : candidates ) {
+          parent.collectMatches( segment, matches );
+        }
+        if( matches.isEmpty() ) {
+          return null;
+        }
+        List<Node> temp = candidates;
+        candidates = matches;
+        matches = temp;
+        matches.clear();
+      }
+      start = end + 1;
+    }
+    return pickBestMatch( candidates );
+  }
+
+  private V pickBestMatch( List<Node> candidates ) {
+    Node best = null;
+    for( Node node : candidates ) {
+      if( node.hasValue() && ( best == null || node.depth > best.depth
+          || ( node.depth == best.depth && node.type < best.type ) ) ) {
+        best = node;
+      }
+    }
+    return best == null ? null : best.getValue();
+  }
+
+  private static boolean isIndexable( Template template ) {
+    if( template.getScheme() != null
+        || template.getUsername() != null
+        || template.getPassword() != null
+        || template.getHost() != null
+        || template.getPort() != null
+        || template.getFragment() != null
+        || !template.getQuery().isEmpty() ) {
+      return false;
+    }
+    Query extra = template.getExtra();
+    if( extra != null && !Segment.GLOB_PATTERN.equals( extra.getQueryName() ) ) {
+      return false;
+    }
+    for( Path segment : template.getPath() ) {
+      if( segment.getValues().size() != 1 ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /*
+   * Anything the parser would not read as a bare path, e.g. "//host/path", is left to the Matcher.
+   */
+  private static boolean isPlainPath( String path ) {
+    return path != null
+        && path.startsWith( "/" )
+        && !path.startsWith( "//" )
+        && path.indexOf( '?' ) < 0
+        && path.indexOf( '#' ) < 0;
+  }
+
+  private final class Node {
+
+    private final Segment.Value segment;
+    private final int depth;
+    private final int type;
+    // Position among the siblings, to visit static and dynamic children in the order they were added
+    private final int order;
+
+    private Map<Segment,Node> children;
+    private Map<String,List<Node>> staticChildren;
+    private List<Node> dynamicChildren;
+
+    private V pathValue;
+    private boolean hasPathValue;
+    private V queryValue;
+    private boolean hasQueryValue;
+
+    Node( Segment.Value segment, int depth, int order ) {
+      this.segment = segment;
+      this.depth = depth;
+      this.type = segment == null ? Segment.UNKNOWN : segment.getType();
+      this.order = order;
+    }
+
+    Node child( Path path ) {
+      if( children == null ) {
+        children = new LinkedHashMap<>();
+        staticChildren = new HashMap<>();
+        dynamicChildren = new ArrayList<>();
+      }
+      Node child = children.get( path );
+      if( child == null ) {
+        child = new Node( path.getFirstValue(), depth + 1, children.size() );
+        children.put( path, child );
+        if( child.type == Segment.STATIC ) {
+          staticChildren.computeIfAbsent( child.segment.getOriginalPattern(), k -> new ArrayList<>( 1 ) ).add( child );
+        } else {
+          dynamicChildren.add( child );
+        }
+      }
+      return child;
+    }
+
+    void setValue( V value, boolean anyQuery ) {
+      // The first template at a node wins, and a template accepting any query wins over one without
+      if( anyQuery ) {
+        if( !hasQueryValue ) {
+          queryValue = value;
+          hasQueryValue = true;
+        }
+      } else if( !hasPathValue ) {
+        pathValue = value;
+        hasPathValue = true;
+      }
+    }
+
+    boolean hasValue() {
+      return hasPathValue || hasQueryValue;
+    }
+
+    V getValue() {
+      return hasQueryValue ? queryValue : pathValue;
+    }
+
+    void collectMatches( String segment, List<Node> matches ) {
+      // A glob consumes any number of segments, so it stays a candidate itself
+      if( type == Segment.GLOB ) {
+        addOnce( matches, this );
+      }
+      if( children == null ) {
+        return;
+      }
+      List<Node> statics = staticChildren.getOrDefault( segment, Collections.emptyList() );
+      int s = 0;
+      int d = 0;
+      while( s < statics.size() || d < dynamicChildren.size() ) {
+        if( d >= dynamicChildren.size()
+            || ( s < statics.size() && statics.get( s ).order < dynamicChildren.get( d ).order ) ) {
+          addOnce( matches, statics.get( s++ ) );
+        } else {
+          Node child = dynamicChildren.get( d++ );
+          if( child.type != Segment.REGEX || child.segment.getRegex().matcher( segment ).matches() ) {
+            addOnce( matches, child );
+          }
+        }
+      }
+    }
+
+    private void addOnce( List<Node> matches, Node node ) {
+      // Several globs can lead to the same node; the lists stay short so a scan is cheap
+      for( Node match : matches ) {
+        if( match == node ) {
+          return;
+        }
+      }
+      matches.add( node );
+    }
+  }
+
+}
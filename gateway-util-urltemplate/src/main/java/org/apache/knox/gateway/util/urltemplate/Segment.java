@@ -42,6 +42,8 @@ abstract class Segment {
 
   private Token token;
   private Map<String,Value> values;
+  // The parameter expression, parsed on first expansion since templates are expanded over and over
+  private volatile Function function;
 
   protected Segment( Token token ) {
     this.token = token;
@@ -81,6 +83,15 @@ abstract class Segment {
     return token.parameterName;
   }
 
+  Function getFunction() {
+    Function parsed = function;
+    if( parsed == null ) {
+      parsed = new Function( token.parameterName );
+      function = parsed;
+    }
+    return parsed;
+  }
+
   public Collection<Value> getValues() {
     return values.values();
   }
@@ -41,6 +41,7 @@ public class Template {
   private Fragment fragment;
   private boolean hasFragment;
   private Integer hash;
+  private String string;
 
   Template(
       String original,
@@ -312,14 +313,18 @@ public class Template {
 
   @Override
   public String toString() {
-    String s;
-    StringBuilder b = new StringBuilder();
-    buildScheme( b );
-    buildAuthority( b );
-    buildPath( b );
-    buildQuery( b );
-    buildFragment( b );
-    s = b.toString();
+    // Templates don't change once built and equals() compares the strings, so build it once
+    String s = string;
+    if( s == null ) {
+      StringBuilder b = new StringBuilder();
+      buildScheme( b );
+      buildAuthority( b );
+      buildPath( b );
+      buildQuery( b );
+      buildFragment( b );
+      s = b.toString();
+      string = s;
+    }
     return s;
   }
 
@@ -22,6 +22,8 @@ import org.apache.knox.test.category.UnitTests;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collections;
@@ -540,4 +542,50 @@ public class ExpanderTest {
     assertThat( output, is( "${app.dir}/child/path" ) );
   }
 
+  @Test
+  public void testExpandToAppendable() throws Exception {
+    Template template = Parser.parseTemplate( "{scheme}://{host}:{port}/{path=**}?{**}" );
+    MockParams params = new MockParams();
+    params.addValue( "scheme", "http" );
+    params.addValue( "host", "test-host" );
+    params.addValue( "port", "777" );
+    params.addValue( "path", "top" );
+    params.addValue( "path", "file" );
+    params.addValue( "op", "LIST" );
+    String expected = "http://test-host:777/top/file?op=LIST";
+
+    assertThat( Expander.expandToString( template, params, null ), is( expected ) );
+
+    StringWriter writer = new StringWriter();
+    Expander.expandTo( template, params, null, writer );
+    Expander.expandTo( template, params, null, writer );
+    assertThat( writer.toString(), is( expected + expected ) );
+
+    StringBuilder builder = new StringBuilder( "Location: " );
+    Expander.expandTo( template, params, null, builder );
+    assertThat( builder.toString(), is( "Location: " + expected ) );
+  }
+
+  @Test
+  public void testExpandToAppendableFromEvaluator() throws Exception {
+    final Template inner = Parser.parseTemplate( "/inner/{name}" );
+    Template outer = Parser.parseTemplate( "/outer/{$inner(name)}" );
+    MockParams params = new MockParams();
+    params.addValue( "name", "value" );
+    // An evaluator expanding another template must not clobber the expansion it is part of
+    Evaluator evaluator = ( function, parameters ) -> {
+      StringWriter writer = new StringWriter();
+      try {
+        Expander.expandTo( inner, params, null, writer );
+      } catch( IOException e ) {
+        throw new IllegalStateException( e );
+      }
+      return Collections.singletonList( writer.toString() );
+    };
+
+    StringWriter writer = new StringWriter();
+    Expander.expandTo( outer, params, evaluator, writer );
+    assertThat( writer.toString(), is( "/outer//inner/value" ) );
+  }
+
 }
@@ -23,7 +23,13 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
@@ -1311,4 +1317,38 @@ public class ParserTest {
 
   }
 
+  @Test
+  public void testEmptyPathSegmentsAreSkipped() throws URISyntaxException {
+    Template template = Parser.parseLiteral( "//host//a///b/?c=d" );
+    assertThat( template.getHost().getFirstValue().getOriginalPattern(), is( "host" ) );
+    assertThat( template.getPath().size(), is( 2 ) );
+    assertThat( template.getPath().get( 0 ).getFirstValue().getOriginalPattern(), is( "a" ) );
+    assertThat( template.getPath().get( 1 ).getFirstValue().getOriginalPattern(), is( "b" ) );
+    assertThat( template.isDirectory(), is( true ) );
+    assertThat( template.getQuery().get( "c" ).getFirstValue().getOriginalPattern(), is( "d" ) );
+  }
+
+  @Test
+  public void testParseOnManyThreads() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+    try {
+      final List<Future<Void>> results = new ArrayList<>();
+      for( int t = 0; t < 4; t++ ) {
+        final String host = "host" + t;
+        results.add( executor.submit( () -> {
+          for( int i = 0; i < 500; i++ ) {
+            String url = "https://" + host + ":8443/gateway/sandbox/webhdfs/v1/tmp/" + i + "?op=LISTSTATUS&user.name=" + i;
+            assertThat( Parser.parseLiteral( url ).toString(), is( url ) );
+          }
+          return null;
+        } ) );
+      }
+      for( Future<Void> result : results ) {
+        result.get( 1, TimeUnit.MINUTES );
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
 }
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.util.urltemplate;
+
+import org.apache.knox.test.category.FastTests;
+import org.apache.knox.test.category.UnitTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@Category( { UnitTests.class, FastTests.class } )
+public class PathIndexTest {
+
+  private static final String[] SERVICES = {
+      "webhdfs", "webhbase", "hive", "yarn", "resourcemanager", "jobhistory", "oozie", "oozieui",
+      "hbaseui", "hdfsui", "yarnui", "yarnuiv2", "sparkhistory", "sparkhistoryui", "livy", "zeppelin",
+      "zeppelinws", "ranger", "rangerui", "atlas", "atlas-api", "solr", "kafka", "nifi", "nifi-registry",
+      "impala", "impalaui", "kudu", "kuduui", "hue", "knoxsso", "knoxtoken", "admin", "health", "metadata",
+      "storm", "stormui", "druid-coordinator", "druid-broker", "druid-router", "superset", "zookeeper",
+      "flink", "flink-dashboard", "schema-registry", "streams-messaging-manager", "cm-api", "cm-ui",
+      "jobtracker", "namenode", "templeton", "avatica", "phoenix", "nodemanager", "logsearch", "ambari",
+      "ambariui", "ambariws", "cdp-proxy", "elasticsearch" };
+
+  private static List<String> templates() {
+    List<String> templates = new ArrayList<>();
+    for( String service : SERVICES ) {
+      templates.add( "/" + service );
+      templates.add( "/" + service + "/**" );
+      templates.add( "/" + service + "/**?**" );
+      templates.add( "/" + service + "/v1/*/status" );
+      templates.add( "/" + service + "/v1/{path=**}?{**}" );
+      templates.add( "/" + service + "/static/*.js" );
+      templates.add( "/" + service + "/{name}/logs/**" );
+    }
+    templates.add( "/**" );
+    templates.add( "/*/api" );
+    templates.add( "/{service=*-ui}/**?**" );
+    return templates;
+  }
+
+  private static List<String> paths() {
+    List<String> paths = new ArrayList<>();
+    paths.add( "/" );
+    paths.add( "/unknown" );
+    paths.add( "/unknown/api" );
+    paths.add( "/unknown/deeper/api" );
+    paths.add( "/spark-ui/jobs" );
+    for( String service : SERVICES ) {
+      paths.add( "/" + service );
+      paths.add( "/" + service + "/" );
+      paths.add( "/" + service + "/api" );
+      paths.add( "/" + service + "/v1" );
+      paths.add( "/" + service + "/v1/tmp/status" );
+      paths.add( "/" + service + "/v1/tmp/file.txt" );
+      paths.add( "/" + service + "/v1/a/b/status" );
+      paths.add( "/" + service + "/static/app.js" );
+      paths.add( "/" + service + "/static/app.css" );
+      paths.add( "/" + service + "/node1/logs" );
+      paths.add( "/" + service + "/node1/logs/stdout" );
+      paths.add( "/" + service + "//v1//x/status" );
+      paths.add( "/" + service + "x/api" );
+    }
+    return paths;
+  }
+
+  @Test
+  public void testPicksSameValueAsMatcher() throws URISyntaxException {
+    Matcher<String> matcher = new Matcher<>();
+    PathIndex<String> index = new PathIndex<>();
+    for( String template : templates() ) {
+      matcher.add( Parser.parseTemplate( template ), template );
+      index.add( Parser.parseTemplate( template ), template );
+    }
+    assertThat( index.isEnabled(), is( true ) );
+
+    for( String path : paths() ) {
+      Matcher<String>.Match match = matcher.match( Parser.parseLiteral( path ) );
+      assertThat( path, index.match( path ), equalTo( match == null ? null : match.getValue() ) );
+    }
+  }
+
+  @Test
+  public void testPicksSameValueAsMatcherRegardlessOfOrder() throws URISyntaxException {
+    List<String> templates = templates();
+    for( int shift = 1; shift < templates.size(); shift += 37 ) {
+      Matcher<String> matcher = new Matcher<>();
+      PathIndex<String> index = new PathIndex<>();
+      for( int i = 0; i < templates.size(); i++ ) {
+        String template = templates.get( ( i * 7 + shift ) % templates.size() );
+        matcher.add( Parser.parseTemplate( template ), template );
+        index.add( Parser.parseTemplate( template ), template );
+      }
+      for( String path : paths() ) {
+        Matcher<String>.Match match = matcher.match( Parser.parseLiteral( path ) );
+        assertThat( path, index.match( path ), equalTo( match == null ? null : match.getValue() ) );
+      }
+    }
+  }
+
+  @Test
+  public void testSpecificity() throws URISyntaxException {
+    PathIndex<String> index = new PathIndex<>();
+    index.add( Parser.parseTemplate( "/a/**" ), "glob" );
+    index.add( Parser.parseTemplate( "/a/*" ), "star" );
+    index.add( Parser.parseTemplate( "/a/*.txt" ), "regex" );
+    index.add( Parser.parseTemplate( "/a/b" ), "static" );
+    index.add( Parser.parseTemplate( "/a/{b}" ), "second" );
+
+    assertThat( index.match( "/a/b" ), is( "static" ) );
+    assertThat( index.match( "/a/c.txt" ), is( "regex" ) );
+    assertThat( index.match( "/a/c" ), is( "star" ) );
+    assertThat( index.match( "/a/b/c" ), is( "glob" ) );
+    assertThat( index.match( "/b" ), nullValue() );
+  }
+
+  @Test
+  public void testQueryGlobWinsOverPlainPath() throws URISyntaxException {
+    PathIndex<String> index = new PathIndex<>();
+    index.add( Parser.parseTemplate( "/a/**" ), "path" );
+    index.add( Parser.parseTemplate( "/a/**?**" ), "query" );
+    index.add( Parser.parseTemplate( "/a/**?{**}" ), "later" );
+
+    assertThat( index.match( "/a/b" ), is( "query" ) );
+  }
+
+  @Test
+  public void testUnsupportedPaths() throws URISyntaxException {
+    PathIndex<String> index = new PathIndex<>();
+    index.add( Parser.parseTemplate( "/**" ), "glob" );
+
+    assertThat( index.match( "/a" ), is( "glob" ) );
+    assertThat( index.match( null ), nullValue() );
+    assertThat( index.match( "" ), nullValue() );
+    assertThat( index.match( "a" ), nullValue() );
+    assertThat( index.match( "//host/a" ), nullValue() );
+    assertThat( index.match( "/a?b=c" ), nullValue() );
+    assertThat( index.match( "/a#b" ), nullValue() );
+  }
+
+  @Test
+  public void testUnsupportedTemplateDisablesIndex() throws URISyntaxException {
+    PathIndex<String> index = new PathIndex<>();
+    index.add( Parser.parseTemplate( "/a/**" ), "path" );
+    index.add( Parser.parseTemplate( "/b?op={op}" ), "query" );
+
+    assertThat( index.isEnabled(), is( false ) );
+    assertThat( index.match( "/a/b" ), nullValue() );
+
+    index = new PathIndex<>();
+    index.add( Parser.parseTemplate( "*://*:*/a/**" ), "authority" );
+    assertThat( index.isEnabled(), is( false ) );
+  }
+
+}